@@ -0,0 +1,102 @@
+package com.rosettix.api.cdc;
+
+import com.rosettix.api.service.QueryResultCache;
+import com.rosettix.api.service.SchemaCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns change events read from the databases into cache invalidations.
+ * <p>
+ * Data changes drop the cached results reading the changed tables or collections; schema changes
+ * also drop the strategy's cached schemas. A gap in a change stream (the listener just connected,
+ * or could not resume where it stopped) means anything may have changed unseen, so it drops
+ * everything cached for the strategy.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeEventInvalidator {
+
+    private final SchemaCacheService schemaCacheService;
+    private final QueryResultCache queryResultCache;
+    private final Map<String, ListenerStats> metrics = new ConcurrentHashMap<>();
+
+    public void onDataChanged(String strategyName, Set<String> targets) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        getStats(strategyName).dataChanges.increment();
+        getStats(strategyName).lastEventAt = Instant.now();
+        queryResultCache.invalidate(strategyName, targets);
+    }
+
+    /**
+     * @param targets the tables or collections whose shape changed, empty when unknown
+     */
+    public void onSchemaChanged(String strategyName, Set<String> targets) {
+        log.info("Schema change on {} {}, dropping cached schemas", strategyName, targets);
+        getStats(strategyName).schemaChanges.increment();
+        getStats(strategyName).lastEventAt = Instant.now();
+        schemaCacheService.invalidateStrategy(strategyName);
+        queryResultCache.invalidate(strategyName, targets);
+    }
+
+    public void onStreamGap(String strategyName) {
+        log.info("Change stream for {} (re)started, dropping everything cached for it", strategyName);
+        getStats(strategyName).streamGaps.increment();
+        schemaCacheService.invalidateStrategy(strategyName);
+        queryResultCache.invalidate(strategyName, Set.of());
+    }
+
+    public void recordConnected(String strategyName, boolean connected) {
+        getStats(strategyName).connected = connected;
+    }
+
+    public void recordError(String strategyName) {
+        getStats(strategyName).errors.increment();
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private ListenerStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new ListenerStats());
+    }
+
+    static final class ListenerStats {
+        private final LongAdder dataChanges = new LongAdder();
+        private final LongAdder schemaChanges = new LongAdder();
+        private final LongAdder streamGaps = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile boolean connected;
+        private volatile Instant lastEventAt;
+
+        Map<String, Object> toSnapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("connected", connected);
+            snapshot.put("data_change_events", dataChanges.sum());
+            snapshot.put("schema_change_events", schemaChanges.sum());
+            snapshot.put("stream_gaps", streamGaps.sum());
+            snapshot.put("errors", errors.sum());
+            snapshot.put("last_event_at", lastEventAt == null ? null : lastEventAt.toString());
+            return snapshot;
+        }
+    }
+}
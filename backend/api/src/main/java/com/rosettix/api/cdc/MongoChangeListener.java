@@ -0,0 +1,162 @@
+package com.rosettix.api.cdc;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows Mongo collection changes through a database change stream and hands them to the
+ * {@link ChangeEventInvalidator}.
+ * <p>
+ * After a failure the stream resumes from the last resume token, so nothing is missed while the
+ * server still has it in its oplog; a fresh start, or a resume the server refuses, counts as a
+ * stream gap. Dropped and renamed collections are schema changes. New collections are not
+ * reported by change streams and show up when the cached schema expires.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rosettix.cdc.mongo", name = "enabled", havingValue = "true")
+@Slf4j
+public class MongoChangeListener implements SmartLifecycle {
+
+    private static final String STRATEGY_NAME = "mongodb";
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final RosettixConfiguration configuration;
+    private final MongoTemplate mongoTemplate;
+    private final ChangeEventInvalidator invalidator;
+    private volatile boolean running;
+    private Thread worker;
+    private BsonDocument resumeToken;
+
+    public MongoChangeListener(RosettixConfiguration configuration, MongoTemplate mongoTemplate, ChangeEventInvalidator invalidator) {
+        this.configuration = configuration;
+        this.mongoTemplate = mongoTemplate;
+        this.invalidator = invalidator;
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        worker = new Thread(this::run, "rosettix-cdc-mongo");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                stream();
+            } catch (RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                invalidator.recordError(STRATEGY_NAME);
+                log.warn("Mongo change stream failed, resuming: {}", e.getMessage());
+                if (e instanceof MongoCommandException commandException
+                        && (commandException.getErrorCode() == CHANGE_STREAM_HISTORY_LOST || commandException.getErrorCode() == CHANGE_STREAM_FATAL_ERROR)) {
+                    // The server no longer has the token's position, so the gap cannot be closed
+                    resumeToken = null;
+                }
+            } finally {
+                invalidator.recordConnected(STRATEGY_NAME, false);
+            }
+            sleep(TimeUnit.SECONDS.toMillis(configuration.getCdc().getReconnectDelaySeconds()));
+        }
+    }
+
+    private void stream() {
+        ChangeStreamIterable<Document> changes = mongoTemplate.getDb().watch().maxAwaitTime(1, TimeUnit.SECONDS);
+        boolean resumed = resumeToken != null;
+        if (resumed) {
+            changes = changes.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changes.cursor()) {
+            if (!resumed) {
+                invalidator.onStreamGap(STRATEGY_NAME);
+            }
+            invalidator.recordConnected(STRATEGY_NAME, true);
+            log.info("Following Mongo changes of database {}{}", mongoTemplate.getDb().getName(), resumed ? " from the last resume token" : "");
+
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) {
+                    resumeToken = cursor.getResumeToken();
+                    continue;
+                }
+                resumeToken = change.getResumeToken();
+                if (!onChange(change)) {
+                    // The stream was invalidated and cannot be resumed
+                    resumeToken = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false when the event ends the stream
+     */
+    private boolean onChange(ChangeStreamDocument<Document> change) {
+        OperationType operationType = change.getOperationType();
+        String collection = change.getNamespace() == null ? null : change.getNamespace().getCollectionName();
+        switch (operationType) {
+            case INSERT, UPDATE, REPLACE, DELETE -> invalidator.onDataChanged(STRATEGY_NAME, Set.of(collection));
+            case DROP, RENAME -> {
+                Set<String> collections = new LinkedHashSet<>();
+                collections.add(collection);
+                if (change.getDestinationNamespace() != null) {
+                    collections.add(change.getDestinationNamespace().getCollectionName());
+                }
+                invalidator.onSchemaChanged(STRATEGY_NAME, collections);
+            }
+            case DROP_DATABASE -> invalidator.onSchemaChanged(STRATEGY_NAME, Set.of());
+            case INVALIDATE -> {
+                invalidator.onSchemaChanged(STRATEGY_NAME, Set.of());
+                return false;
+            }
+            default -> {
+                // Other events do not change data or collections
+            }
+        }
+        return true;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(Math.max(1, millis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.rosettix.api.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the tables a transaction changed from pgoutput (protocol version 1) logical replication
+ * messages. Row contents are never decoded, only the relation each change applies to.
+ * <p>
+ * Relation messages describe a table before its first change in the session and again after its
+ * columns change, so a relation message with other columns than the last one seen for the same
+ * table marks a schema change. DDL itself is not replicated: a table change is only seen once a
+ * row of that table changes.
+ */
+final class PgOutputDecoder {
+
+    /**
+     * Tables changed by one committed transaction, named as {@code findQueryTargets} names them.
+     */
+    record Transaction(Set<String> changedTables, Set<String> reshapedTables) {
+    }
+
+    private record Relation(String name, List<String> columns) {
+    }
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+    private Set<String> changedTables = new LinkedHashSet<>();
+    private Set<String> reshapedTables = new LinkedHashSet<>();
+
+    /**
+     * Decodes one message.
+     * @return the transaction's changes when the message is its commit, null otherwise
+     */
+    Transaction decode(ByteBuffer message) {
+        char type = (char) message.get();
+        switch (type) {
+            case 'B' -> {
+                changedTables = new LinkedHashSet<>();
+                reshapedTables = new LinkedHashSet<>();
+            }
+            case 'R' -> decodeRelation(message);
+            case 'I', 'U', 'D' -> changedTables.add(relationName(message.getInt()));
+            case 'T' -> {
+                int count = message.getInt();
+                message.get(); // options
+                for (int i = 0; i < count; i++) {
+                    changedTables.add(relationName(message.getInt()));
+                }
+            }
+            case 'C' -> {
+                Transaction transaction = new Transaction(Set.copyOf(changedTables), Set.copyOf(reshapedTables));
+                changedTables = new LinkedHashSet<>();
+                reshapedTables = new LinkedHashSet<>();
+                return transaction;
+            }
+            default -> {
+                // Origin, type and logical decoding messages carry no table changes
+            }
+        }
+        return null;
+    }
+
+    private void decodeRelation(ByteBuffer message) {
+        int relationId = message.getInt();
+        readString(message); // namespace
+        String name = readString(message).toLowerCase(Locale.ROOT);
+        message.get(); // replica identity
+        int columnCount = message.getShort();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            message.get(); // flags
+            columns.add(readString(message) + ":" + message.getInt()); // name and type oid
+            message.getInt(); // type modifier
+        }
+
+        Relation previous = relations.put(relationId, new Relation(name, columns));
+        if (previous != null && (!previous.columns().equals(columns) || !previous.name().equals(name))) {
+            reshapedTables.add(previous.name());
+            reshapedTables.add(name);
+        }
+    }
+
+    private String relationName(int relationId) {
+        Relation relation = relations.get(relationId);
+        // pgoutput always describes a relation before its first change
+        if (relation == null) {
+            throw new IllegalStateException("Change for unknown relation " + relationId);
+        }
+        return relation.name();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.get() != 0) {
+            // scan to the terminating zero byte
+        }
+        byte[] bytes = new byte[buffer.position() - start - 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
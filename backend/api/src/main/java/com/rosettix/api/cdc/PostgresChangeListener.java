@@ -0,0 +1,173 @@
+package com.rosettix.api.cdc;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Follows Postgres table changes through logical decoding with the pgoutput plugin, over the
+ * JDBC replication API, and hands them to the {@link ChangeEventInvalidator} once committed.
+ * <p>
+ * The replication slot is temporary, so a stopped instance never makes the server retain WAL.
+ * The price is that changes made while disconnected are lost, which is why every (re)connect
+ * counts as a stream gap and drops everything cached for Postgres.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rosettix.cdc.postgres", name = "enabled", havingValue = "true")
+@Slf4j
+public class PostgresChangeListener implements SmartLifecycle {
+
+    private static final String STRATEGY_NAME = "postgres";
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final RosettixConfiguration configuration;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeEventInvalidator invalidator;
+    private volatile boolean running;
+    private Thread worker;
+
+    public PostgresChangeListener(RosettixConfiguration configuration, DataSourceProperties dataSourceProperties,
+                                  JdbcTemplate jdbcTemplate, ChangeEventInvalidator invalidator) {
+        this.configuration = configuration;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidator = invalidator;
+    }
+
+    @Override
+    public synchronized void start() {
+        RosettixConfiguration.PostgresCdcConfig cdcConfig = configuration.getCdc().getPostgres();
+        if (!IDENTIFIER.matcher(cdcConfig.getPublication()).matches() || !IDENTIFIER.matcher(cdcConfig.getSlotName()).matches()) {
+            throw new IllegalStateException("Postgres CDC publication and slot names must be lower-case identifiers");
+        }
+        running = true;
+        worker = new Thread(this::run, "rosettix-cdc-postgres");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                ensurePublication();
+                stream();
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                invalidator.recordError(STRATEGY_NAME);
+                log.warn("Postgres change stream failed, reconnecting: {}", e.getMessage());
+            } finally {
+                invalidator.recordConnected(STRATEGY_NAME, false);
+            }
+            sleep(TimeUnit.SECONDS.toMillis(configuration.getCdc().getReconnectDelaySeconds()));
+        }
+    }
+
+    private void ensurePublication() {
+        RosettixConfiguration.PostgresCdcConfig cdcConfig = configuration.getCdc().getPostgres();
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_publication WHERE pubname = ?", Integer.class, cdcConfig.getPublication());
+        if ((existing == null || existing == 0) && cdcConfig.isCreatePublication()) {
+            log.info("Creating publication {} for all tables", cdcConfig.getPublication());
+            jdbcTemplate.execute("CREATE PUBLICATION " + cdcConfig.getPublication() + " FOR ALL TABLES");
+        }
+    }
+
+    private void stream() throws SQLException {
+        RosettixConfiguration.PostgresCdcConfig cdcConfig = configuration.getCdc().getPostgres();
+        try (Connection connection = openReplicationConnection()) {
+            PGConnection replicationConnection = connection.unwrap(PGConnection.class);
+            replicationConnection.getReplicationAPI()
+                    .createReplicationSlot()
+                    .logical()
+                    .withSlotName(cdcConfig.getSlotName())
+                    .withOutputPlugin("pgoutput")
+                    .withTemporaryOption()
+                    .make();
+            PGReplicationStream stream = replicationConnection.getReplicationAPI()
+                    .replicationStream()
+                    .logical()
+                    .withSlotName(cdcConfig.getSlotName())
+                    .withSlotOption("proto_version", 1)
+                    .withSlotOption("publication_names", cdcConfig.getPublication())
+                    .withStatusInterval(10, TimeUnit.SECONDS)
+                    .start();
+
+            // The slot only sees changes from now on; whatever happened before is unknown
+            invalidator.onStreamGap(STRATEGY_NAME);
+            invalidator.recordConnected(STRATEGY_NAME, true);
+            log.info("Following Postgres changes of publication {} through slot {}", cdcConfig.getPublication(), cdcConfig.getSlotName());
+
+            PgOutputDecoder decoder = new PgOutputDecoder();
+            while (running) {
+                ByteBuffer message = stream.readPending();
+                if (message == null) {
+                    sleep(cdcConfig.getPollIntervalMillis());
+                    continue;
+                }
+                PgOutputDecoder.Transaction transaction = decoder.decode(message);
+                if (transaction != null) {
+                    if (!transaction.reshapedTables().isEmpty()) {
+                        invalidator.onSchemaChanged(STRATEGY_NAME, transaction.reshapedTables());
+                    }
+                    invalidator.onDataChanged(STRATEGY_NAME, transaction.changedTables());
+                }
+                // Nothing is replayed on reconnect, so every received change counts as applied
+                LogSequenceNumber received = stream.getLastReceiveLSN();
+                stream.setAppliedLSN(received);
+                stream.setFlushedLSN(received);
+            }
+        }
+    }
+
+    private Connection openReplicationConnection() throws SQLException {
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, dataSourceProperties.determineUsername());
+        PGProperty.PASSWORD.set(properties, dataSourceProperties.determinePassword());
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(Math.max(1, millis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.rosettix.api.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the asynchronous query pipeline.
+ * Uses a virtual-thread-per-task executor when the runtime supports it (Java 21+) and
+ * falls back to a bounded pool of daemon platform threads otherwise.
+ */
+@Configuration
+@Slf4j
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService queryExecutor(RosettixConfiguration configuration) {
+        return createExecutor("rosettix-query-", configuration.getAsync());
+    }
+
+    /**
+     * Separate from the query executor so pipeline tasks waiting on LLM attempts can never
+     * starve the attempts themselves of threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService llmExecutor(RosettixConfiguration configuration) {
+        return createExecutor("rosettix-llm-", configuration.getAsync());
+    }
+
+    /**
+     * Runs the parallel branches of routed and speculative reads. A query task waits for its
+     * branches, so they must not queue behind it on the query executor, which on platform threads
+     * is a fixed pool that could fill with tasks all waiting on each other.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService branchExecutor(RosettixConfiguration configuration) {
+        return createExecutor("rosettix-branch-", configuration.getAsync());
+    }
+
+    public static ExecutorService createExecutor(String threadNamePrefix, RosettixConfiguration.AsyncConfig asyncConfig) {
+        if (asyncConfig.isVirtualThreads()) {
+            ExecutorService virtualExecutor = tryCreateVirtualThreadExecutor();
+            if (virtualExecutor != null) {
+                log.info("Using virtual threads for {} executor", threadNamePrefix);
+                return virtualExecutor;
+            }
+            log.info("Virtual threads unavailable on Java {}, using platform threads for {} executor",
+                    Runtime.version().feature(), threadNamePrefix);
+        }
+
+        int maxThreads = Math.max(1, asyncConfig.getMaxPlatformThreads());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                daemonThreadFactory(threadNamePrefix)
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ExecutorService tryCreateVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String threadNamePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
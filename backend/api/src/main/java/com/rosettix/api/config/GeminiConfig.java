@@ -1,6 +1,7 @@
 package com.rosettix.api.config;
 
 import com.google.genai.Client;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -8,6 +9,7 @@ import org.springframework.context.annotation.Configuration;
 public class GeminiConfig {
 
     @Bean
+    @ConditionalOnProperty(prefix = "rosettix.llm", name = "provider", havingValue = "gemini", matchIfMissing = true)
     public Client geminiClient() {
         // This uses the new builder to create the client, as per the documentation
         return new Client();
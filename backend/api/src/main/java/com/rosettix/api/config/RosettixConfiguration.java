@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration class for Rosettix application settings
  */
@@ -32,26 +35,116 @@ public class RosettixConfiguration {
      */
     private SchemaCacheConfig schemaCache = new SchemaCacheConfig();
 
+    /**
+     * Near-duplicate question matching settings
+     */
+    private SimilarityConfig similarity = new SimilarityConfig();
+
+    /**
+     * Asynchronous pipeline executor settings
+     */
+    private AsyncConfig async = new AsyncConfig();
+
+    /**
+     * LLM micro-batching settings
+     */
+    private BatchingConfig batching = new BatchingConfig();
+
+    /**
+     * Relevance-based schema pruning settings
+     */
+    private SchemaPruningConfig schemaPruning = new SchemaPruningConfig();
+
+    /**
+     * Prompt prefix caching settings
+     */
+    private PromptCacheConfig promptCache = new PromptCacheConfig();
+
+    /**
+     * Literal-only question template settings
+     */
+    private TemplateConfig templates = new TemplateConfig();
+
+    /**
+     * LLM quota rate limiting settings
+     */
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+
+    /**
+     * Routing of questions without a database to a strategy
+     */
+    private RoutingConfig routing = new RoutingConfig();
+
+    /**
+     * Paged reads with continuation tokens
+     */
+    private PaginationConfig pagination = new PaginationConfig();
+
+    /**
+     * Read result caching with write-driven invalidation
+     */
+    private ResultCacheConfig resultCache = new ResultCacheConfig();
+
+    /**
+     * Change data capture from the databases, invalidating cached schemas and results
+     */
+    private CdcConfig cdc = new CdcConfig();
+
+    /**
+     * Batch query endpoint limits
+     */
+    private BatchQueryConfig batchQuery = new BatchQueryConfig();
+
+    /**
+     * Cost-based admission of generated reads
+     */
+    private AdmissionConfig admission = new AdmissionConfig();
+
     @Data
     public static class QueryConfig {
         /**
-         * Maximum allowed query result size
+         * Most rows (or collection elements) a query returns; larger results are cut and flagged as truncated
          */
         private int maxResultSize = 1000;
 
         /**
-         * Query timeout in seconds
+         * Query timeout in seconds, after which the database cancels the query
          */
         private int timeoutSeconds = 30;
 
+        /**
+         * Longest the database may take to plan a query in explain mode
+         */
+        private int explainTimeoutSeconds = 5;
+
         /**
          * Whether to enable query caching
          */
         private boolean cachingEnabled = false;
+
+        /**
+         * Maximum number of cached question-to-query translations
+         */
+        private int cacheMaxEntries = 10000;
+
+        /**
+         * Translation cache TTL in minutes
+         */
+        private long cacheTtlMinutes = 60;
     }
 
     @Data
     public static class LlmConfig {
+        /**
+         * LLM provider used for query generation: "gemini" or "offline"
+         */
+        private String provider = "gemini";
+
+        /**
+         * Scripted offline provider settings, used when provider is "offline"
+         */
+        private OfflineConfig offline = new OfflineConfig();
+
         /**
          * Model name to use for query generation
          */
@@ -66,6 +159,71 @@ public class RosettixConfiguration {
          * Timeout for LLM calls in seconds
          */
         private int timeoutSeconds = 30;
+
+        /**
+         * Base delay before the first retry; doubles per attempt with full jitter
+         */
+        private long retryBackoffMillis = 250;
+
+        /**
+         * Upper bound for the retry backoff delay
+         */
+        private long retryMaxBackoffMillis = 4000;
+
+        /**
+         * Whether to fire a second, hedged request when the first one is slower than usual
+         */
+        private boolean hedgingEnabled = false;
+
+        /**
+         * Hedge delay used until enough latency samples exist to derive it from the p95
+         */
+        private long hedgeDelayMillis = 2000;
+
+        /**
+         * Lower bound for the p95-derived hedge delay
+         */
+        private long hedgeMinDelayMillis = 250;
+
+        /**
+         * Whether to stream answers and stop reading once the strategy recognizes a complete query
+         */
+        private boolean streamingEnabled = false;
+
+        /**
+         * Whether to stop calling the model while it keeps failing
+         */
+        private boolean circuitBreakerEnabled = true;
+
+        /**
+         * Number of recent calls the failure rate is computed over
+         */
+        private int circuitBreakerWindowSize = 20;
+
+        /**
+         * Minimum calls in the window before the breaker may open
+         */
+        private int circuitBreakerMinimumCalls = 10;
+
+        /**
+         * Failure rate (0-1) at which the breaker opens
+         */
+        private double circuitBreakerFailureRateThreshold = 0.5;
+
+        /**
+         * How long the breaker stays open before allowing trial calls
+         */
+        private long circuitBreakerOpenSeconds = 30;
+
+        /**
+         * Trial calls allowed while half-open; all must succeed to close the breaker
+         */
+        private int circuitBreakerHalfOpenCalls = 3;
+
+        /**
+         * Maximum concurrent calls to the model (bulkhead)
+         */
+        private int maxConcurrentCalls = 32;
     }
 
     @Data
@@ -80,4 +238,395 @@ public class RosettixConfiguration {
          */
         private long ttlMinutes = 5;
     }
+
+    @Data
+    public static class SimilarityConfig {
+        /**
+         * Whether near-duplicate questions may reuse a previously generated query
+         */
+        private boolean enabled = false;
+
+        /**
+         * Minimum Jaccard similarity between normalized questions required for reuse
+         */
+        private double threshold = 0.85;
+
+        /**
+         * Maximum number of indexed questions across all strategies
+         */
+        private int maxEntries = 200000;
+    }
+
+    @Data
+    public static class AsyncConfig {
+        /**
+         * Whether to run the query pipeline on virtual threads when the JVM supports them
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * Pool size used when virtual threads are unavailable or disabled
+         */
+        private int maxPlatformThreads = 512;
+    }
+
+    @Data
+    public static class BatchingConfig {
+        /**
+         * Whether concurrent generations for the same strategy and schema share one multi-question prompt
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long the first question of a batch waits for others to join
+         */
+        private long windowMillis = 10;
+
+        /**
+         * Maximum number of questions per prompt; a full batch is sent immediately
+         */
+        private int maxBatchSize = 8;
+    }
+
+    @Data
+    public static class SchemaPruningConfig {
+        /**
+         * Whether prompts only carry the tables relevant to the question
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of best-matching tables to keep, before adding their foreign-key neighbours
+         */
+        private int topK = 8;
+
+        /**
+         * Schemas with at most this many tables are always sent in full
+         */
+        private int minTables = 20;
+
+        /**
+         * Whether to keep tables related to the selected ones through foreign keys
+         */
+        private boolean includeForeignKeys = true;
+    }
+
+    @Data
+    public static class PromptCacheConfig {
+        /**
+         * Whether the static prompt prefix is built once per schema and registered with the provider
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long the provider keeps a registered prefix before it must be registered again
+         */
+        private long ttlMinutes = 60;
+
+        /**
+         * Prefixes with fewer estimated tokens are sent inline; Gemini rejects smaller cached contents
+         */
+        private int minPrefixTokens = 1024;
+    }
+
+    @Data
+    public static class TemplateConfig {
+        /**
+         * Whether questions differing only in literals reuse a generated query with the new literals bound in
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of stored question templates across all strategies
+         */
+        private int maxEntries = 10000;
+    }
+
+    @Data
+    public static class RateLimitConfig {
+        /**
+         * Whether LLM calls are rate limited per client and queued for the shared quota
+         */
+        private boolean enabled = false;
+
+        /**
+         * Sustained LLM calls per second across all clients, matching the provider quota
+         */
+        private double globalPermitsPerSecond = 10.0;
+
+        /**
+         * LLM calls that may be made at once after an idle period, across all clients
+         */
+        private int globalBurst = 20;
+
+        /**
+         * Sustained LLM calls per second allowed to a single client
+         */
+        private double clientPermitsPerSecond = 2.0;
+
+        /**
+         * LLM calls a single client may make at once after an idle period
+         */
+        private int clientBurst = 10;
+
+        /**
+         * Longest a call may wait for the shared quota before it is rejected
+         */
+        private long maxQueueWaitMillis = 5000;
+
+        /**
+         * Calls waiting for the shared quota beyond this are rejected immediately
+         */
+        private int maxQueueDepth = 1000;
+
+        /**
+         * Number of client buckets kept before idle ones are dropped
+         */
+        private int maxTrackedClients = 10000;
+    }
+
+    @Data
+    public static class RoutingConfig {
+        /**
+         * Whether questions without a database are routed by schema vocabulary instead of going to the default strategy
+         */
+        private boolean enabled = false;
+
+        /**
+         * Whether the two best strategies are tried in parallel when their scores are close
+         */
+        private boolean parallelTopTwo = true;
+
+        /**
+         * Runner-up score, relative to the best one, from which both strategies are tried
+         */
+        private double ambiguityRatio = 0.8;
+
+        /**
+         * Lowest score a strategy needs to be chosen; below it the default strategy is used
+         */
+        private double minScore = 1.0;
+
+        /**
+         * Whether ambiguous and unmatched questions run on several strategies at once, taking the first non-empty answer
+         */
+        private boolean speculative = false;
+
+        /**
+         * Most strategies a speculative question runs on
+         */
+        private int maxSpeculativeStrategies = 3;
+    }
+
+    @Data
+    public static class ResultCacheConfig {
+        /**
+         * Whether read results are cached until a write through Rosettix touches what they read
+         */
+        private boolean enabled = false;
+
+        /**
+         * Estimated memory the cached results may take, in megabytes; least recently used results go first
+         */
+        private long maxSizeMb = 64;
+
+        /**
+         * Longest a result is served, bounding staleness from writes made outside Rosettix
+         */
+        private long ttlSeconds = 300;
+    }
+
+    @Data
+    public static class BatchQueryConfig {
+        /**
+         * Most questions one batch request may carry
+         */
+        private int maxItems = 1000;
+
+        /**
+         * Most items of one batch running at a time on the same strategy
+         */
+        private int parallelismPerStrategy = 16;
+    }
+
+    @Data
+    public static class AdmissionConfig {
+        /**
+         * Whether generated reads are planned before they run, and refused or limited when the plan is too expensive
+         */
+        private boolean enabled = false;
+
+        /**
+         * Most query plans kept, keyed by strategy and query fingerprint
+         */
+        private int planCacheMaxEntries = 10000;
+
+        /**
+         * How long a cached plan is trusted; plans change as table statistics do
+         */
+        private long planCacheTtlMinutes = 10;
+
+        /**
+         * Thresholds for Postgres reads
+         */
+        private AdmissionThresholds postgres = new AdmissionThresholds();
+
+        /**
+         * Thresholds for Mongo reads
+         */
+        private AdmissionThresholds mongodb = new AdmissionThresholds();
+    }
+
+    /**
+     * What happens to a read over an admission threshold
+     */
+    public enum AdmissionAction {
+        /** Refuse the query */
+        REJECT,
+        /** Run it with at most {@code limitRows} rows, refusing it if that is still over */
+        LIMIT
+    }
+
+    @Data
+    public static class AdmissionThresholds {
+        /**
+         * Highest planner total cost admitted as is, 0 for no limit; ignored when the planner estimates no cost
+         */
+        private double maxEstimatedCost = 1_000_000;
+
+        /**
+         * Most rows the planner may expect, 0 for no limit; ignored when the planner estimates no rows
+         */
+        private double maxEstimatedRows = 10_000_000;
+
+        /**
+         * Whether a plan scanning a whole collection (COLLSCAN) is over the threshold
+         */
+        private boolean rejectCollectionScans = true;
+
+        /**
+         * What happens to a query over a threshold
+         */
+        private AdmissionAction action = AdmissionAction.LIMIT;
+
+        /**
+         * Row limit of queries the LIMIT action rewrites
+         */
+        private int limitRows = 1000;
+    }
+
+    @Data
+    public static class CdcConfig {
+        /**
+         * Postgres logical decoding listener settings
+         */
+        private PostgresCdcConfig postgres = new PostgresCdcConfig();
+
+        /**
+         * Mongo change stream listener settings
+         */
+        private MongoCdcConfig mongo = new MongoCdcConfig();
+
+        /**
+         * Wait before reconnecting a change listener whose stream failed
+         */
+        private long reconnectDelaySeconds = 5;
+    }
+
+    @Data
+    public static class PostgresCdcConfig {
+        /**
+         * Whether table changes are read from a pgoutput logical replication slot; needs wal_level=logical
+         * and a role with REPLICATION
+         */
+        private boolean enabled = false;
+
+        /**
+         * Publication whose tables are watched
+         */
+        private String publication = "rosettix_cdc";
+
+        /**
+         * Create the publication FOR ALL TABLES when missing
+         */
+        private boolean createPublication = true;
+
+        /**
+         * Name of the temporary replication slot, dropped when the listener disconnects; unique per instance
+         */
+        private String slotName = "rosettix_cdc";
+
+        /**
+         * Pause between polls of the replication stream when no change is pending
+         */
+        private long pollIntervalMillis = 100;
+    }
+
+    @Data
+    public static class MongoCdcConfig {
+        /**
+         * Whether collection changes are read from a database change stream; needs a replica set
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class PaginationConfig {
+        /**
+         * How long a continuation token stays valid
+         */
+        private long tokenTtlMinutes = 30;
+
+        /**
+         * Key signing continuation tokens, so clients cannot change the query they pin; a random key per start when empty
+         */
+        private String tokenSecret = "";
+    }
+
+    @Data
+    public static class OfflineConfig {
+        /**
+         * Latency distribution of simulated calls: "fixed", "uniform" or "lognormal"
+         */
+        private String latencyDistribution = "lognormal";
+
+        /**
+         * Median latency of a simulated call
+         */
+        private long latencyMillis = 200;
+
+        /**
+         * Spread of the distribution: +/- millis for uniform, log-space standard deviation x 1000 for lognormal
+         */
+        private long latencySpread = 500;
+
+        /**
+         * Fraction (0-1) of calls failing with a retryable 503 error
+         */
+        private double failureRate = 0.0;
+
+        /**
+         * Seed of the latency and failure generator, for reproducible runs
+         */
+        private long seed = 42;
+
+        /**
+         * Scripted answers: the first rule whose pattern matches the question wins.
+         * {table} in a response is replaced with the schema table that best matches the question.
+         */
+        private List<ScriptedResponse> responses = new ArrayList<>();
+    }
+
+    @Data
+    public static class ScriptedResponse {
+        /**
+         * Case-insensitive regular expression matched against the question
+         */
+        private String pattern;
+
+        /**
+         * Raw answer returned for matching questions
+         */
+        private String response;
+    }
 }
@@ -0,0 +1,99 @@
+package com.rosettix.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rosettix.api.service.PipelineMetrics;
+import com.rosettix.api.service.QueryCost;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Times the JSON serialization of query responses, as the last stage of the query pipeline, and
+ * adds the request's {@code Server-Timing} header once that time is known.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final PipelineMetrics pipelineMetrics;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter jackson
+                ? new TimedJacksonConverter(jackson.getObjectMapper(), pipelineMetrics)
+                : converter);
+    }
+
+    /**
+     * Records the write time of responses whose request names a strategy in
+     * {@link PipelineMetrics#STRATEGY_ATTRIBUTE}; other responses are written untimed. Responses
+     * whose request carries a {@link QueryCost} are serialized to a buffer first, so the header
+     * can include the serialization itself.
+     */
+    static final class TimedJacksonConverter extends MappingJackson2HttpMessageConverter {
+        private final PipelineMetrics pipelineMetrics;
+
+        TimedJacksonConverter(ObjectMapper objectMapper, PipelineMetrics pipelineMetrics) {
+            super(objectMapper);
+            this.pipelineMetrics = pipelineMetrics;
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                throws IOException, HttpMessageNotWritableException {
+            Object strategyName = requestAttribute(PipelineMetrics.STRATEGY_ATTRIBUTE);
+            if (strategyName == null) {
+                super.writeInternal(object, type, outputMessage);
+                return;
+            }
+
+            if (!(requestAttribute(QueryCost.REQUEST_ATTRIBUTE) instanceof QueryCost cost)) {
+                long startNanos = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    pipelineMetrics.record(strategyName.toString(), PipelineMetrics.Stage.SERIALIZATION, System.nanoTime() - startNanos);
+                }
+                return;
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+            long startNanos = System.nanoTime();
+            super.writeInternal(object, type, new HttpOutputMessage() {
+                @Override
+                public OutputStream getBody() {
+                    return buffer;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return outputMessage.getHeaders();
+                }
+            });
+            long elapsedNanos = System.nanoTime() - startNanos;
+            pipelineMetrics.record(strategyName.toString(), PipelineMetrics.Stage.SERIALIZATION, elapsedNanos);
+            cost.record(PipelineMetrics.Stage.SERIALIZATION, elapsedNanos);
+
+            outputMessage.getHeaders().add("Server-Timing", cost.toServerTiming());
+            buffer.writeTo(outputMessage.getBody());
+        }
+
+        private static Object requestAttribute(String name) {
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            return attributes == null ? null : attributes.getAttribute(name, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
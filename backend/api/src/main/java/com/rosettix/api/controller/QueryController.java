@@ -1,18 +1,39 @@
 package com.rosettix.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rosettix.api.cdc.ChangeEventInvalidator;
 import com.rosettix.api.config.RosettixConfiguration;
 import com.rosettix.api.dto.QueryRequest;
+import com.rosettix.api.exception.QueryException;
 import com.rosettix.api.saga.SagaStep;
+import com.rosettix.api.service.LlmRequestContext;
+import com.rosettix.api.service.LlmService;
+import com.rosettix.api.service.QueryAdmissionGuard;
+import com.rosettix.api.service.QueryResultCache;
+import com.rosettix.api.service.QueryTranslationCache;
+import com.rosettix.api.service.QuestionSimilarityIndex;
 import com.rosettix.api.service.SchemaCacheService;
+import com.rosettix.api.service.StrategyRouter;
 import com.rosettix.api.service.OrchestratorService;
+import com.rosettix.api.service.PipelineMetrics;
+import com.rosettix.api.service.QueryCost;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,36 +45,52 @@ public class QueryController {
     private final OrchestratorService orchestratorService;
     private final RosettixConfiguration rosettixConfiguration;
     private final SchemaCacheService schemaCacheService;
+    private final QueryTranslationCache queryTranslationCache;
+    private final QueryResultCache queryResultCache;
+    private final QueryAdmissionGuard queryAdmissionGuard;
+    private final ChangeEventInvalidator changeEventInvalidator;
+    private final QuestionSimilarityIndex questionSimilarityIndex;
+    private final LlmService llmService;
+    private final PipelineMetrics pipelineMetrics;
+    private final StrategyRouter strategyRouter;
+    private final ObjectMapper objectMapper;
 
     // ============================================================
     // 1️⃣ READ-ONLY ENDPOINT (Supports Single Query or Saga)
     // ============================================================
     @PostMapping
-    public ResponseEntity<?> handleQuery(@Valid @RequestBody Map<String, Object> requestBody) {
+    public CompletableFuture<ResponseEntity<?>> handleQuery(@Valid @RequestBody Map<String, Object> requestBody,
+                                                             @RequestParam(name = "cost", defaultValue = "false") boolean includeCost,
+                                                             @RequestParam(name = "mode", required = false) String mode,
+                                                             HttpServletRequest httpRequest) {
         try {
             // Check for Saga-style input
             if (requestBody.containsKey("steps")) {
                 log.info("🌀 Saga READ request received.");
 
-                List<Map<String, Object>> stepMaps = (List<Map<String, Object>>) requestBody.get("steps");
-
-                List<SagaStep> steps = stepMaps.stream()
-                        .map(m -> new SagaStep(
-                                (String) m.get("question"),
-                                (String) m.get("database"),
-                                null,
-                                null
-                        ))
-                        .collect(Collectors.toList());
-
-                List<Map<String, Object>> result = orchestratorService.processSaga(steps, false);
-
-                return ResponseEntity.ok(Map.of(
-                        "mode", "saga-read",
-                        "timestamp", Instant.now().toString(),
-                        "saga_step_count", steps.size(),
-                        "results", result
-                ));
+                List<SagaStep> steps = toSagaSteps(requestBody);
+                LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.SAGA, PipelineMetrics.SAGA_LABEL);
+
+                return orchestratorService.processSagaAsync(steps, false, context)
+                        .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(withCost(includeCost, context, Map.of(
+                                "mode", "saga-read",
+                                "timestamp", Instant.now().toString(),
+                                "saga_step_count", steps.size(),
+                                "queue_wait_ms", context.getQueuedMillis(),
+                                "truncated", context.isResultTruncated(),
+                                "results", result
+                        ))))
+                        .exceptionally(e -> errorResponse("handleQuery", e));
+            }
+
+            // Explain: the generated query and its plan, without reading any data
+            if ("explain".equalsIgnoreCase(mode) || "explain".equals(requestBody.get("mode"))) {
+                return handleExplainQuery(requestBody, includeCost, httpRequest);
+            }
+
+            // Paged reads: a first page by pageSize, later pages by the continuation token alone
+            if (requestBody.containsKey("pageToken") || requestBody.containsKey("pageSize")) {
+                return handlePagedQuery(requestBody, includeCost, httpRequest);
             }
 
             // ✅ Legacy single-query support
@@ -61,59 +98,160 @@ public class QueryController {
             request.setQuestion((String) requestBody.get("question"));
             request.setDatabase((String) requestBody.get("database"));
 
+            // Without a database the router picks one from the schemas, when enabled
+            boolean routed = request.getDatabase() == null && strategyRouter.isEnabled();
             String strategy = request.getDatabase() != null
                     ? request.getDatabase().toLowerCase()
                     : rosettixConfiguration.getDefaultStrategy();
 
-            List<Map<String, Object>> result =
-                    orchestratorService.processQuery(request.getQuestion(), strategy);
+            LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.INTERACTIVE, routed ? PipelineMetrics.ROUTED_LABEL : strategy);
 
-            return ResponseEntity.ok(Map.of(
-                    "mode", "single-read",
-                    "strategy", strategy,
-                    "timestamp", Instant.now().toString(),
-                    "results", result
-            ));
+            CompletableFuture<OrchestratorService.RoutedResult> execution = routed
+                    ? orchestratorService.processRoutedQueryAsync(request.getQuestion(), context)
+                    : orchestratorService.processQueryAsync(request.getQuestion(), strategy, context)
+                            .thenApply(result -> new OrchestratorService.RoutedResult(strategy, result));
+
+            return execution
+                    .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(withCost(includeCost, context, Map.of(
+                            "mode", "single-read",
+                            "strategy", result.strategyName(),
+                            "routed", routed,
+                            "timestamp", Instant.now().toString(),
+                            "queue_wait_ms", context.getQueuedMillis(),
+                            "truncated", context.isResultTruncated(),
+                            "results", result.results()
+                    ))))
+                    .exceptionally(e -> errorResponse("handleQuery", e));
 
         } catch (Exception e) {
-            log.error("Error in handleQuery: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                    "errorType", "INTERNAL_SERVER_ERROR",
-                    "message", e.getMessage(),
+            return CompletableFuture.completedFuture(errorResponse("handleQuery", e));
+        }
+    }
+
+    private CompletableFuture<ResponseEntity<?>> handlePagedQuery(Map<String, Object> requestBody, boolean includeCost,
+                                                                  HttpServletRequest httpRequest) {
+        String pageToken = (String) requestBody.get("pageToken");
+        Integer pageSize = pageToken == null ? parsePageSize(requestBody.get("pageSize")) : null;
+        if (pageToken == null && pageSize == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of(
+                    "errorType", "INVALID_REQUEST",
+                    "message", "pageSize must be a positive integer, got " + requestBody.get("pageSize"),
                     "timestamp", Instant.now().toString()
-            ));
+            )));
         }
+        String database = (String) requestBody.get("database");
+        boolean routed = pageToken == null && database == null && strategyRouter.isEnabled();
+        String strategy = database != null ? database.toLowerCase() : rosettixConfiguration.getDefaultStrategy();
+
+        LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.INTERACTIVE,
+                pageToken != null ? PipelineMetrics.NEXT_PAGE_LABEL : routed ? PipelineMetrics.ROUTED_LABEL : strategy);
+
+        CompletableFuture<OrchestratorService.PagedResult> execution;
+        if (pageToken != null) {
+            execution = orchestratorService.processNextPageAsync(pageToken, context);
+        } else {
+            String question = (String) requestBody.get("question");
+            execution = routed
+                    ? orchestratorService.processRoutedPagedQueryAsync(question, pageSize, context)
+                    : orchestratorService.processPagedQueryAsync(question, strategy, pageSize, context);
+        }
+
+        return execution
+                .<ResponseEntity<?>>thenApply(result -> {
+                    // The token is null on the last page, which Map.of does not accept
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("mode", "paged-read");
+                    response.put("strategy", result.strategyName());
+                    response.put("routed", routed);
+                    response.put("timestamp", Instant.now().toString());
+                    response.put("queue_wait_ms", context.getQueuedMillis());
+                    response.put("has_more", result.nextPageToken() != null);
+                    response.put("next_page_token", result.nextPageToken());
+                    response.put("results", result.results());
+                    return ResponseEntity.ok(withCost(includeCost, context, response));
+                })
+                .exceptionally(e -> errorResponse("handleQuery", e));
+    }
+
+    /**
+     * @return the page size as a positive int, from a JSON number or a numeric string, or null when it is anything else
+     */
+    private static Integer parsePageSize(Object pageSize) {
+        long value;
+        if (pageSize instanceof Number number) {
+            if (number.doubleValue() != Math.rint(number.doubleValue())) {
+                return null;
+            }
+            value = number.longValue();
+        } else if (pageSize instanceof String text) {
+            try {
+                value = Long.parseLong(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        return value > 0 && value <= Integer.MAX_VALUE ? (int) value : null;
+    }
+
+    private CompletableFuture<ResponseEntity<?>> handleExplainQuery(Map<String, Object> requestBody, boolean includeCost,
+                                                                    HttpServletRequest httpRequest) {
+        String question = (String) requestBody.get("question");
+        String database = (String) requestBody.get("database");
+        boolean routed = database == null && strategyRouter.isEnabled();
+        String strategy = database != null ? database.toLowerCase() : rosettixConfiguration.getDefaultStrategy();
+
+        LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.INTERACTIVE, routed ? PipelineMetrics.ROUTED_LABEL : strategy);
+
+        CompletableFuture<OrchestratorService.ExplainedQuery> execution = routed
+                ? orchestratorService.processRoutedExplainQueryAsync(question, context)
+                : orchestratorService.processExplainQueryAsync(question, strategy, context);
+
+        return execution
+                .<ResponseEntity<?>>thenApply(result -> {
+                    // Estimates are null where the planner makes none, which Map.of does not accept
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("mode", "explain");
+                    response.put("strategy", result.strategyName());
+                    response.put("routed", routed);
+                    response.put("timestamp", Instant.now().toString());
+                    response.put("queue_wait_ms", context.getQueuedMillis());
+                    response.put("query", result.query());
+                    response.put("plan_summary", result.plan().summary());
+                    response.put("estimated_cost", result.plan().estimatedCost());
+                    response.put("estimated_rows", result.plan().estimatedRows());
+                    response.put("plan", result.plan().plan());
+                    return ResponseEntity.ok(withCost(includeCost, context, response));
+                })
+                .exceptionally(e -> errorResponse("handleQuery", e));
     }
 
     // ============================================================
     // 2️⃣ WRITE ENDPOINT (Supports Single Query or Saga)
     // ============================================================
     @PostMapping("/write")
-    public ResponseEntity<?> handleWriteQuery(@Valid @RequestBody Map<String, Object> requestBody) {
+    public CompletableFuture<ResponseEntity<?>> handleWriteQuery(@Valid @RequestBody Map<String, Object> requestBody,
+                                                                  @RequestParam(name = "cost", defaultValue = "false") boolean includeCost,
+                                                                  HttpServletRequest httpRequest) {
         try {
             // Check for Saga-style input
             if (requestBody.containsKey("steps")) {
                 log.info("🌀 Saga WRITE request received.");
 
-                List<Map<String, Object>> stepMaps = (List<Map<String, Object>>) requestBody.get("steps");
-
-                List<SagaStep> steps = stepMaps.stream()
-                        .map(m -> new SagaStep(
-                                (String) m.get("question"),
-                                (String) m.get("database"),
-                                null,
-                                null
-                        ))
-                        .collect(Collectors.toList());
-
-                List<Map<String, Object>> result = orchestratorService.processSaga(steps, true);
-
-                return ResponseEntity.ok(Map.of(
-                        "mode", "saga-write",
-                        "timestamp", Instant.now().toString(),
-                        "saga_step_count", steps.size(),
-                        "results", result
-                ));
+                List<SagaStep> steps = toSagaSteps(requestBody);
+                LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.SAGA, PipelineMetrics.SAGA_LABEL);
+
+                return orchestratorService.processSagaAsync(steps, true, context)
+                        .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(withCost(includeCost, context, Map.of(
+                                "mode", "saga-write",
+                                "timestamp", Instant.now().toString(),
+                                "saga_step_count", steps.size(),
+                                "queue_wait_ms", context.getQueuedMillis(),
+                                "truncated", context.isResultTruncated(),
+                                "results", result
+                        ))))
+                        .exceptionally(e -> errorResponse("handleWriteQuery", e));
             }
 
             // ✅ Legacy single write query
@@ -121,30 +259,275 @@ public class QueryController {
             request.setQuestion((String) requestBody.get("question"));
             request.setDatabase((String) requestBody.get("database"));
 
+            // Without a database the router picks one from the schemas, when enabled
+            boolean routed = request.getDatabase() == null && strategyRouter.isEnabled();
             String strategy = request.getDatabase() != null
                     ? request.getDatabase().toLowerCase()
                     : rosettixConfiguration.getDefaultStrategy();
 
-            List<Map<String, Object>> result =
-                    orchestratorService.processWriteQuery(request.getQuestion(), strategy);
+            LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.WRITE, routed ? PipelineMetrics.ROUTED_LABEL : strategy);
 
-            return ResponseEntity.ok(Map.of(
-                    "mode", "single-write",
-                    "strategy", strategy,
-                    "timestamp", Instant.now().toString(),
-                    "results", result
-            ));
+            CompletableFuture<OrchestratorService.RoutedResult> execution = routed
+                    ? orchestratorService.processRoutedWriteQueryAsync(request.getQuestion(), context)
+                    : orchestratorService.processWriteQueryAsync(request.getQuestion(), strategy, context)
+                            .thenApply(result -> new OrchestratorService.RoutedResult(strategy, result));
+
+            return execution
+                    .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(withCost(includeCost, context, Map.of(
+                            "mode", "single-write",
+                            "strategy", result.strategyName(),
+                            "routed", routed,
+                            "timestamp", Instant.now().toString(),
+                            "queue_wait_ms", context.getQueuedMillis(),
+                            "truncated", context.isResultTruncated(),
+                            "results", result.results()
+                    ))))
+                    .exceptionally(e -> errorResponse("handleWriteQuery", e));
 
         } catch (Exception e) {
-            log.error("Error in handleWriteQuery: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                    "errorType", "INTERNAL_SERVER_ERROR",
-                    "message", e.getMessage(),
+            return CompletableFuture.completedFuture(errorResponse("handleWriteQuery", e));
+        }
+    }
+
+    // ============================================================
+    // 🌊 STREAMING READ ENDPOINT (NDJSON or Server-Sent Events)
+    // ============================================================
+    @PostMapping("/stream")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> handleStreamingQuery(@Valid @RequestBody Map<String, Object> requestBody,
+                                                                                          @RequestParam(name = "format", required = false) String format,
+                                                                                          @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                                          HttpServletRequest httpRequest) {
+        try {
+            QueryRequest request = new QueryRequest();
+            request.setQuestion((String) requestBody.get("question"));
+            request.setDatabase((String) requestBody.get("database"));
+
+            RowStreamWriter.Format streamFormat = "sse".equalsIgnoreCase(format)
+                    || (format == null && accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE))
+                    ? RowStreamWriter.Format.SSE
+                    : RowStreamWriter.Format.NDJSON;
+
+            // Without a database the router picks one from the schemas, when enabled
+            boolean routed = request.getDatabase() == null && strategyRouter.isEnabled();
+            String strategy = request.getDatabase() != null
+                    ? request.getDatabase().toLowerCase()
+                    : rosettixConfiguration.getDefaultStrategy();
+
+            LlmRequestContext context = requestContext(httpRequest, LlmRequestContext.Priority.INTERACTIVE, routed ? PipelineMetrics.ROUTED_LABEL : strategy);
+
+            // The query is generated and checked before the response starts, so those errors keep their status
+            CompletableFuture<OrchestratorService.StreamingQuery> preparation = routed
+                    ? orchestratorService.prepareRoutedStreamingQueryAsync(request.getQuestion(), context)
+                    : orchestratorService.prepareStreamingQueryAsync(request.getQuestion(), strategy, context);
+
+            return preparation
+                    .thenApply(streamingQuery -> ResponseEntity.ok()
+                            .contentType(streamFormat.getMediaType())
+                            .header("X-Rosettix-Strategy", streamingQuery.strategyName())
+                            .header("Server-Timing", context.getCost().toServerTiming())
+                            .body((StreamingResponseBody) out -> streamRows(streamingQuery, streamFormat, out)))
+                    .exceptionally(this::streamingErrorResponse);
+
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(streamingErrorResponse(e));
+        }
+    }
+
+    private void streamRows(OrchestratorService.StreamingQuery streamingQuery, RowStreamWriter.Format format, OutputStream out) throws IOException {
+        RowStreamWriter writer = new RowStreamWriter(out, format, objectMapper);
+        try {
+            orchestratorService.streamQuery(streamingQuery, writer);
+        } catch (QueryException e) {
+            log.error("Streaming query failed after {} rows: {}", writer.getRowsWritten(), e.getMessage());
+            boolean reported = writer.fail(Map.of(
+                    "errorType", e.getErrorType().name(),
+                    "message", String.valueOf(e.getMessage()),
+                    "rows", writer.getRowsWritten()
+            ));
+            if (!reported) {
+                throw e;
+            }
+            return;
+        } finally {
+            pipelineMetrics.record(streamingQuery.strategyName(), PipelineMetrics.Stage.SERIALIZATION, writer.getSerializationNanos());
+        }
+
+        if (!writer.isClientGone()) {
+            writer.finish(Map.of(
+                    "strategy", streamingQuery.strategyName(),
+                    "rows", writer.getRowsWritten(),
+                    "timestamp", Instant.now().toString()
+            ));
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamingErrorResponse(Throwable error) {
+        ResponseEntity<?> response = errorResponse("handleStreamingQuery", error);
+        Object body = response.getBody();
+        return ResponseEntity.status(response.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(objectMapper.writeValueAsBytes(body)));
+    }
+
+    // ============================================================
+    // 🧺 BATCH READ ENDPOINT (one result per item as it completes)
+    // ============================================================
+    @PostMapping("/batch")
+    public ResponseEntity<StreamingResponseBody> handleBatchQuery(@RequestBody Map<String, Object> requestBody,
+                                                                  @RequestParam(name = "format", required = false) String format,
+                                                                  @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                  HttpServletRequest httpRequest) {
+        if (!(requestBody.get("items") instanceof List<?> itemList) || itemList.isEmpty()
+                || !itemList.stream().allMatch(item -> item instanceof Map)) {
+            return batchRequestError("Batch requests need a non-empty \"items\" array of {question, database} objects");
+        }
+        int maxItems = rosettixConfiguration.getBatchQuery().getMaxItems();
+        if (itemList.size() > maxItems) {
+            return batchRequestError("Batch has " + itemList.size() + " items, at most " + maxItems + " are allowed");
+        }
+
+        List<OrchestratorService.BatchItem> items = itemList.stream()
+                .map(item -> (Map<?, ?>) item)
+                .map(item -> new OrchestratorService.BatchItem((String) item.get("question"), (String) item.get("database")))
+                .toList();
+        RowStreamWriter.Format streamFormat = "sse".equalsIgnoreCase(format)
+                || (format == null && accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE))
+                ? RowStreamWriter.Format.SSE
+                : RowStreamWriter.Format.NDJSON;
+        String clientId = requestContext(httpRequest, LlmRequestContext.Priority.BATCH, PipelineMetrics.BATCH_LABEL).getClientId();
+        log.info("🧺 Batch READ request received with {} items.", items.size());
+
+        return ResponseEntity.ok()
+                .contentType(streamFormat.getMediaType())
+                .body(out -> streamBatch(items, clientId, streamFormat, out));
+    }
+
+    private void streamBatch(List<OrchestratorService.BatchItem> items, String clientId, RowStreamWriter.Format format,
+                             OutputStream out) throws IOException {
+        RowStreamWriter writer = new RowStreamWriter(out, format, objectMapper);
+        long[] failed = new long[1];
+        orchestratorService.processBatch(items, clientId, result -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("index", result.index());
+            item.put("strategy", result.strategyName());
+            item.put("routed", result.routed());
+            if (result.error() == null) {
+                item.put("status", "ok");
+                item.put("queue_wait_ms", result.context().getQueuedMillis());
+                item.put("truncated", result.context().isResultTruncated());
+                item.put("results", result.results());
+            } else {
+                failed[0]++;
+                item.put("status", "error");
+                item.put("errorType", result.error() instanceof QueryException queryException
+                        ? queryException.getErrorType().name()
+                        : result.error() instanceof IllegalArgumentException ? "INVALID_REQUEST" : "INTERNAL_SERVER_ERROR");
+                item.put("message", String.valueOf(result.error().getMessage()));
+            }
+            return writer.send("item", item);
+        });
+
+        if (!writer.isClientGone()) {
+            writer.finish(Map.of(
+                    "items", items.size(),
+                    "failed", failed[0],
                     "timestamp", Instant.now().toString()
             ));
         }
     }
 
+    private ResponseEntity<StreamingResponseBody> batchRequestError(String message) {
+        Map<String, Object> body = Map.of(
+                "errorType", "INVALID_REQUEST",
+                "message", message,
+                "timestamp", Instant.now().toString()
+        );
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(objectMapper.writeValueAsBytes(body)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SagaStep> toSagaSteps(Map<String, Object> requestBody) {
+        List<Map<String, Object>> stepMaps = (List<Map<String, Object>>) requestBody.get("steps");
+
+        return stepMaps.stream()
+                .map(m -> new SagaStep(
+                        (String) m.get("question"),
+                        (String) m.get("database"),
+                        null,
+                        null
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Identifies the caller by API key, then client id header, then remote address, and attaches the
+     * request's cost so the response can report its timings.
+     * @param strategyLabel the strategy timings are reported under, "saga" for sagas; names that
+     *                      are not a registered strategy are reported as "unknown"
+     */
+    private LlmRequestContext requestContext(HttpServletRequest httpRequest, LlmRequestContext.Priority priority, String strategyLabel) {
+        String clientId = httpRequest.getHeader("X-API-Key");
+        if (clientId == null || clientId.isBlank()) {
+            clientId = httpRequest.getHeader("X-Client-Id");
+        }
+        if (clientId == null || clientId.isBlank()) {
+            clientId = httpRequest.getRemoteAddr();
+        }
+        LlmRequestContext context = LlmRequestContext.of(clientId, priority);
+        httpRequest.setAttribute(PipelineMetrics.STRATEGY_ATTRIBUTE,
+                PipelineMetrics.strategyLabel(strategyLabel, orchestratorService.getAvailableStrategies()));
+        httpRequest.setAttribute(QueryCost.REQUEST_ATTRIBUTE, context.getCost());
+        return context;
+    }
+
+    private Map<String, Object> withCost(boolean includeCost, LlmRequestContext context, Map<String, Object> body) {
+        if (!includeCost) {
+            return body;
+        }
+        Map<String, Object> response = new LinkedHashMap<>(body);
+        response.put("cost", context.getCost().toSnapshot());
+        return response;
+    }
+
+    private ResponseEntity<?> errorResponse(String handler, Throwable error) {
+        Throwable e = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (e instanceof QueryException queryException
+                && queryException.getErrorType() == QueryException.ErrorType.RATE_LIMITED) {
+            log.warn("Rate limited in {}: {}", handler, e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
+                    "errorType", queryException.getErrorType().name(),
+                    "message", String.valueOf(e.getMessage()),
+                    "timestamp", Instant.now().toString()
+            ));
+        }
+        if (e instanceof QueryException queryException
+                && queryException.getErrorType() == QueryException.ErrorType.INVALID_PAGE_TOKEN) {
+            log.warn("Rejected continuation token in {}: {}", handler, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorType", queryException.getErrorType().name(),
+                    "message", String.valueOf(e.getMessage()),
+                    "timestamp", Instant.now().toString()
+            ));
+        }
+        if (e instanceof QueryException queryException
+                && queryException.getErrorType() == QueryException.ErrorType.QUERY_TOO_EXPENSIVE) {
+            log.warn("Refused expensive query in {}: {}", handler, e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of(
+                    "errorType", queryException.getErrorType().name(),
+                    "message", String.valueOf(e.getMessage()),
+                    "timestamp", Instant.now().toString()
+            ));
+        }
+        log.error("Error in {}: {}", handler, e.getMessage(), e);
+        return ResponseEntity.internalServerError().body(Map.of(
+                "errorType", "INTERNAL_SERVER_ERROR",
+                "message", String.valueOf(e.getMessage()),
+                "timestamp", Instant.now().toString()
+        ));
+    }
+
     // ============================================================
     // 3️⃣ AVAILABLE STRATEGIES ENDPOINT
     // ============================================================
@@ -162,4 +545,44 @@ public class QueryController {
     public ResponseEntity<Map<String, Object>> getSchemaCacheMetrics() {
         return ResponseEntity.ok(schemaCacheService.getMetricsSnapshot());
     }
+
+    @GetMapping("/translation-cache/metrics")
+    public ResponseEntity<Map<String, Object>> getTranslationCacheMetrics() {
+        return ResponseEntity.ok(queryTranslationCache.getMetricsSnapshot());
+    }
+
+    @GetMapping("/result-cache/metrics")
+    public ResponseEntity<Map<String, Object>> getResultCacheMetrics() {
+        return ResponseEntity.ok(queryResultCache.getMetricsSnapshot());
+    }
+
+    @GetMapping("/admission/metrics")
+    public ResponseEntity<Map<String, Object>> getAdmissionMetrics() {
+        return ResponseEntity.ok(queryAdmissionGuard.getMetricsSnapshot());
+    }
+
+    @GetMapping("/cdc/metrics")
+    public ResponseEntity<Map<String, Object>> getCdcMetrics() {
+        return ResponseEntity.ok(changeEventInvalidator.getMetricsSnapshot());
+    }
+
+    @GetMapping("/similarity-index/metrics")
+    public ResponseEntity<Map<String, Object>> getSimilarityIndexMetrics() {
+        return ResponseEntity.ok(questionSimilarityIndex.getMetricsSnapshot());
+    }
+
+    @GetMapping("/llm/metrics")
+    public ResponseEntity<Map<String, Object>> getLlmMetrics() {
+        return ResponseEntity.ok(llmService.getMetricsSnapshot());
+    }
+
+    @GetMapping("/routing/metrics")
+    public ResponseEntity<Map<String, Object>> getRoutingMetrics() {
+        return ResponseEntity.ok(strategyRouter.getMetricsSnapshot());
+    }
+
+    @GetMapping("/pipeline/metrics")
+    public ResponseEntity<Map<String, Object>> getPipelineMetrics() {
+        return ResponseEntity.ok(pipelineMetrics.getMetricsSnapshot());
+    }
 }
@@ -0,0 +1,133 @@
+package com.rosettix.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rosettix.api.strategy.RowSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Writes streamed rows to a response body as NDJSON lines or server-sent events, flushing every
+ * {@link #FLUSH_EVERY_ROWS} rows. Writes block while the client is not reading, which holds the
+ * database read back with them; a client that went away stops the read.
+ */
+@Slf4j
+final class RowStreamWriter implements RowSink {
+
+    static final int FLUSH_EVERY_ROWS = 100;
+
+    enum Format {
+        NDJSON(MediaType.APPLICATION_NDJSON),
+        SSE(MediaType.TEXT_EVENT_STREAM);
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private final OutputStream out;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private long rowsWritten;
+    private long serializationNanos;
+    private boolean clientGone;
+
+    RowStreamWriter(OutputStream out, Format format, ObjectMapper objectMapper) {
+        this.out = out;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean accept(Map<String, Object> row) {
+        try {
+            write("row", row);
+            if (++rowsWritten % FLUSH_EVERY_ROWS == 0) {
+                out.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            log.info("Client stopped reading after {} streamed rows: {}", rowsWritten, e.getMessage());
+            clientGone = true;
+            return false;
+        }
+    }
+
+    /**
+     * Writes one named event and flushes it at once, for payloads the client should see as soon as
+     * they are ready. NDJSON drops the name.
+     * @return false when the client went away
+     */
+    boolean send(String event, Map<String, Object> payload) {
+        try {
+            write(event, payload);
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            log.info("Client stopped reading a {} stream: {}", event, e.getMessage());
+            clientGone = true;
+            return false;
+        }
+    }
+
+    /**
+     * Ends the stream; server-sent events get a closing {@code end} event with the summary.
+     */
+    void finish(Map<String, Object> summary) throws IOException {
+        if (format == Format.SSE) {
+            write("end", summary);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reports an error found after rows were written. Server-sent events get an {@code error} event;
+     * NDJSON has no room for one, so the caller aborts the response instead.
+     * @return whether the error was written
+     */
+    boolean fail(Map<String, Object> error) throws IOException {
+        if (format != Format.SSE) {
+            return false;
+        }
+        write("error", error);
+        out.flush();
+        return true;
+    }
+
+    long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    long getSerializationNanos() {
+        return serializationNanos;
+    }
+
+    boolean isClientGone() {
+        return clientGone;
+    }
+
+    private void write(String event, Map<String, Object> payload) throws IOException {
+        long startNanos = System.nanoTime();
+        byte[] json = objectMapper.writeValueAsBytes(payload);
+        serializationNanos += System.nanoTime() - startNanos;
+
+        if (format == Format.SSE) {
+            out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+            out.write(json);
+            out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write(json);
+            out.write('\n');
+        }
+    }
+}
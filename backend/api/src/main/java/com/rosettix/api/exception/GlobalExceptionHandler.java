@@ -136,6 +136,10 @@ public class GlobalExceptionHandler {
             case EXECUTION_ERROR:
             case PARSING_ERROR:
                 return HttpStatus.BAD_REQUEST;
+            case RATE_LIMITED:
+                return HttpStatus.TOO_MANY_REQUESTS;
+            case QUERY_TOO_EXPENSIVE:
+                return HttpStatus.UNPROCESSABLE_ENTITY;
             case LLM_ERROR:
             case DATABASE_CONNECTION_ERROR:
                 return HttpStatus.SERVICE_UNAVAILABLE;
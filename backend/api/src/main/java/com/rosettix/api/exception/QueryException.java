@@ -22,7 +22,10 @@ public class QueryException extends RuntimeException {
         DATABASE_CONNECTION_ERROR,
         EXECUTION_ERROR,
         LLM_ERROR,
-        UNSUPPORTED_OPERATION
+        RATE_LIMITED,
+        UNSUPPORTED_OPERATION,
+        INVALID_PAGE_TOKEN,
+        QUERY_TOO_EXPENSIVE
     }
 
     // ============================================================
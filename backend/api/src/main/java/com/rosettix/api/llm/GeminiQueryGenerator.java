@@ -0,0 +1,102 @@
+package com.rosettix.api.llm;
+
+import com.google.genai.Client;
+import com.google.genai.ResponseStream;
+import com.google.genai.types.Content;
+import com.google.genai.types.CreateCachedContentConfig;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.Part;
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Query generation through the Google Gemini API. Prompt prefixes are registered as Gemini
+ * cached content and referenced by name, so requests only carry the question.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rosettix.llm", name = "provider", havingValue = "gemini", matchIfMissing = true)
+@RequiredArgsConstructor
+public class GeminiQueryGenerator implements QueryGenerator {
+
+    private final Client geminiClient; // Injected from your GeminiConfig
+    private final RosettixConfiguration rosettixConfiguration;
+
+    @Override
+    public String getProviderName() {
+        return "gemini";
+    }
+
+    @Override
+    public String generate(String prompt) {
+        String modelName = rosettixConfiguration.getLlm().getModelName();
+        GenerateContentResponse response =
+            geminiClient.models.generateContent(modelName, prompt, null);
+        return response.text();
+    }
+
+    @Override
+    public String generate(LlmPrompt prompt) {
+        if (!prompt.isPrefixCached()) {
+            return generate(prompt.text());
+        }
+        String modelName = rosettixConfiguration.getLlm().getModelName();
+        GenerateContentResponse response =
+            geminiClient.models.generateContent(modelName, prompt.suffix(), cachedContentConfig(prompt));
+        return response.text();
+    }
+
+    @Override
+    public void generateStream(String prompt, Predicate<String> chunkConsumer) {
+        stream(prompt, null, chunkConsumer);
+    }
+
+    @Override
+    public void generateStream(LlmPrompt prompt, Predicate<String> chunkConsumer) {
+        if (prompt.isPrefixCached()) {
+            stream(prompt.suffix(), cachedContentConfig(prompt), chunkConsumer);
+        } else {
+            stream(prompt.text(), null, chunkConsumer);
+        }
+    }
+
+    @Override
+    public String cachePrefix(String prefix, Duration ttl) {
+        String modelName = rosettixConfiguration.getLlm().getModelName();
+        CreateCachedContentConfig config = CreateCachedContentConfig.builder()
+            .contents(List.of(Content.builder().role("user").parts(List.of(Part.fromText(prefix))).build()))
+            .ttl(ttl)
+            .displayName("rosettix-prompt-prefix")
+            .build();
+        return geminiClient.caches.create(modelName, config).name().orElse(null);
+    }
+
+    @Override
+    public void evictPrefix(String cachedPrefixName) {
+        geminiClient.caches.delete(cachedPrefixName, null);
+    }
+
+    private void stream(String text, GenerateContentConfig config, Predicate<String> chunkConsumer) {
+        String modelName = rosettixConfiguration.getLlm().getModelName();
+        try (ResponseStream<GenerateContentResponse> stream =
+                 geminiClient.models.generateContentStream(modelName, text, config)) {
+            for (GenerateContentResponse chunk : stream) {
+                String chunkText = chunk.text();
+                if (chunkText != null && !chunkText.isEmpty() && !chunkConsumer.test(chunkText)) {
+                    // Closing the stream abandons the rest of the response
+                    return;
+                }
+            }
+        }
+    }
+
+    private static GenerateContentConfig cachedContentConfig(LlmPrompt prompt) {
+        return GenerateContentConfig.builder().cachedContent(prompt.cachedPrefixName()).build();
+    }
+}
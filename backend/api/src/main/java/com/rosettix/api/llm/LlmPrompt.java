@@ -0,0 +1,34 @@
+package com.rosettix.api.llm;
+
+/**
+ * A prompt split into its static, schema-dependent prefix and the per-request suffix carrying the
+ * question. When the prefix has been registered with the provider, only the suffix is sent.
+ *
+ * @param prefix The instructions and schema; empty for prompts that were not split
+ * @param cachedPrefixName The provider's handle for the registered prefix, or null when it must be sent
+ * @param suffix The per-request part of the prompt
+ */
+public record LlmPrompt(String prefix, String cachedPrefixName, String suffix) {
+
+    public static LlmPrompt of(String text) {
+        return new LlmPrompt("", null, text);
+    }
+
+    public boolean isPrefixCached() {
+        return cachedPrefixName != null;
+    }
+
+    /**
+     * The complete prompt, as sent to providers without prefix caching
+     */
+    public String text() {
+        return prefix + suffix;
+    }
+
+    /**
+     * The same prompt with the prefix sent inline, for when the provider has lost the cached prefix
+     */
+    public LlmPrompt uncached() {
+        return new LlmPrompt(prefix, null, suffix);
+    }
+}
@@ -0,0 +1,255 @@
+package com.rosettix.api.llm;
+
+import com.google.genai.errors.ClientException;
+import com.google.genai.errors.ServerException;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.service.QuestionTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministic, network-free provider for load tests and local development.
+ * <p>
+ * Answers come from the configured scripted rules, or are synthesized from the prompt: the query
+ * language and schema are read back from the prompt and a plausible query is built against the
+ * table that best matches the question. Every call sleeps for a latency drawn from the configured
+ * distribution and can fail with a retryable error at the configured rate. Batched prompts get
+ * one numbered answer per question. Registered prompt prefixes are kept in memory, mirroring
+ * Gemini's cached content, and an unknown prefix name fails like an expired cache would.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rosettix.llm", name = "provider", havingValue = "offline")
+@Slf4j
+public class OfflineQueryGenerator implements QueryGenerator {
+
+    private static final Pattern LANGUAGE_PATTERN = Pattern.compile("Given the (\\w+)");
+    private static final Pattern SCHEMA_PATTERN = Pattern.compile("^Given the [^\\n]*?:\\s*\\n(.*?)\\n---", Pattern.DOTALL);
+    private static final Pattern QUESTION_PATTERN = Pattern.compile("\\nQuestion: \"(.*)\"\\s*$", Pattern.DOTALL);
+    private static final Pattern BATCH_QUESTION_PATTERN = Pattern.compile("(?m)^(\\d+)\\. \"(.*)\"$");
+    private static final Pattern TABLE_PATTERN = Pattern.compile("\\s*([^;()\\s][^;()]*?)\\(");
+    private static final int STREAM_CHUNK_CHARS = 16;
+
+    private final RosettixConfiguration rosettixConfiguration;
+    private final Random random;
+    private final Map<String, Pattern> compiledRules = new ConcurrentHashMap<>();
+    private final Map<String, String> cachedPrefixes = new ConcurrentHashMap<>();
+    private final AtomicLong cachedPrefixSequence = new AtomicLong();
+
+    public OfflineQueryGenerator(RosettixConfiguration rosettixConfiguration) {
+        this.rosettixConfiguration = rosettixConfiguration;
+        this.random = new Random(rosettixConfiguration.getLlm().getOffline().getSeed());
+    }
+
+    @Override
+    public String getProviderName() {
+        return "offline";
+    }
+
+    @Override
+    public String generate(String prompt) {
+        long latencyMillis = sampleLatencyMillis();
+        sleep(latencyMillis);
+        failIfInjected();
+        return answer(prompt);
+    }
+
+    @Override
+    public void generateStream(String prompt, Predicate<String> chunkConsumer) {
+        long latencyMillis = sampleLatencyMillis();
+        String answer = answer(prompt);
+        int chunks = Math.max(1, (answer.length() + STREAM_CHUNK_CHARS - 1) / STREAM_CHUNK_CHARS);
+
+        // Roughly 40% of the latency goes to the first token, the rest is spread over the remaining chunks
+        long firstChunkMillis = latencyMillis * 2 / 5;
+        long perChunkMillis = chunks == 1 ? 0 : (latencyMillis - firstChunkMillis) / (chunks - 1);
+        sleep(firstChunkMillis);
+        failIfInjected();
+
+        for (int i = 0; i < chunks; i++) {
+            if (i > 0) {
+                sleep(perChunkMillis);
+            }
+            String chunk = answer.substring(i * STREAM_CHUNK_CHARS, Math.min(answer.length(), (i + 1) * STREAM_CHUNK_CHARS));
+            if (!chunkConsumer.test(chunk)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String generate(LlmPrompt prompt) {
+        return generate(resolve(prompt));
+    }
+
+    @Override
+    public void generateStream(LlmPrompt prompt, Predicate<String> chunkConsumer) {
+        generateStream(resolve(prompt), chunkConsumer);
+    }
+
+    @Override
+    public String cachePrefix(String prefix, Duration ttl) {
+        String name = "cachedContents/offline-" + cachedPrefixSequence.incrementAndGet();
+        cachedPrefixes.put(name, prefix);
+        return name;
+    }
+
+    @Override
+    public void evictPrefix(String cachedPrefixName) {
+        cachedPrefixes.remove(cachedPrefixName);
+    }
+
+    private String resolve(LlmPrompt prompt) {
+        if (!prompt.isPrefixCached()) {
+            return prompt.text();
+        }
+        String prefix = cachedPrefixes.get(prompt.cachedPrefixName());
+        if (prefix == null) {
+            throw new ClientException(404, "NOT_FOUND", "Cached content " + prompt.cachedPrefixName() + " not found");
+        }
+        return prefix + prompt.suffix();
+    }
+
+    String answer(String prompt) {
+        Matcher languageMatcher = LANGUAGE_PATTERN.matcher(prompt);
+        String language = languageMatcher.find() ? languageMatcher.group(1) : "SQL";
+        Matcher schemaMatcher = SCHEMA_PATTERN.matcher(prompt);
+        List<String> tables = schemaMatcher.find() ? tables(schemaMatcher.group(1)) : List.of();
+
+        Matcher questionMatcher = QUESTION_PATTERN.matcher(prompt);
+        if (questionMatcher.find()) {
+            return answerQuestion(questionMatcher.group(1), language, tables);
+        }
+
+        StringBuilder answers = new StringBuilder();
+        Matcher batchMatcher = BATCH_QUESTION_PATTERN.matcher(prompt);
+        while (batchMatcher.find()) {
+            String answer = answerQuestion(batchMatcher.group(2), language, tables).replace('\n', ' ');
+            answers.append(batchMatcher.group(1)).append(". ").append(answer).append('\n');
+        }
+        return answers.toString();
+    }
+
+    private String answerQuestion(String question, String language, List<String> tables) {
+        String table = bestTable(question, tables);
+
+        for (RosettixConfiguration.ScriptedResponse rule : rosettixConfiguration.getLlm().getOffline().getResponses()) {
+            if (rule.getPattern() == null || rule.getResponse() == null) {
+                continue;
+            }
+            Pattern pattern = compiledRules.computeIfAbsent(
+                    rule.getPattern(), regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL)
+            );
+            if (pattern.matcher(question).find()) {
+                return rule.getResponse().replace("{table}", table);
+            }
+        }
+
+        String operation = operation(question.toLowerCase(Locale.ROOT));
+        return switch (language) {
+            case "MongoDB" -> switch (operation) {
+                case "count" -> "db." + table + ".count({})";
+                case "insert" -> "db." + table + ".insertOne({\"offline\": true})";
+                case "update" -> "db." + table + ".updateOne({\"_id\": -1}, {\"$set\": {\"offline\": true}})";
+                case "delete" -> "db." + table + ".deleteOne({\"_id\": -1})";
+                default -> "db." + table + ".find({})";
+            };
+            case "Redis" -> switch (operation) {
+                case "insert", "update" -> "SET " + table + " offline";
+                case "delete" -> "DEL " + table;
+                default -> "TYPE " + table;
+            };
+            default -> switch (operation) {
+                case "count" -> "SELECT COUNT(*) FROM " + table;
+                case "insert" -> "INSERT INTO " + table + " DEFAULT VALUES";
+                case "update" -> "UPDATE " + table + " SET id = id WHERE id = -1";
+                case "delete" -> "DELETE FROM " + table + " WHERE id = -1";
+                default -> "SELECT * FROM " + table + " LIMIT 100";
+            };
+        };
+    }
+
+    private String operation(String question) {
+        if (question.contains("compensation") || question.contains("rollback")) {
+            // Reverse the operation quoted in the compensation prompt
+            if (question.contains("insert")) return "delete";
+            if (question.contains("delete") || question.contains("del ")) return "insert";
+            return "update";
+        }
+        for (String term : QuestionTokenizer.terms(question)) {
+            switch (term) {
+                case "count", "how" -> { return "count"; }
+                case "insert", "update", "delete" -> { return term; }
+                default -> { }
+            }
+        }
+        return "read";
+    }
+
+    private String bestTable(String question, List<String> tables) {
+        if (tables.isEmpty()) {
+            return "items";
+        }
+        for (String term : QuestionTokenizer.terms(question)) {
+            for (String table : tables) {
+                String tableTerm = QuestionTokenizer.canonicalize(table.toLowerCase(Locale.ROOT));
+                if (tableTerm.equals(term) || tableTerm.startsWith(term + ":")) {
+                    return table;
+                }
+            }
+        }
+        return tables.get(0);
+    }
+
+    private List<String> tables(String schema) {
+        List<String> tables = new ArrayList<>();
+        Matcher matcher = TABLE_PATTERN.matcher(schema);
+        while (matcher.find()) {
+            tables.add(matcher.group(1).trim());
+        }
+        return tables;
+    }
+
+    private long sampleLatencyMillis() {
+        RosettixConfiguration.OfflineConfig offlineConfig = rosettixConfiguration.getLlm().getOffline();
+        long median = offlineConfig.getLatencyMillis();
+        long spread = offlineConfig.getLatencySpread();
+        double sample = switch (offlineConfig.getLatencyDistribution().toLowerCase(Locale.ROOT)) {
+            case "fixed" -> median;
+            case "uniform" -> median - spread + random.nextDouble() * 2 * spread;
+            default -> median * Math.exp(random.nextGaussian() * spread / 1_000.0);
+        };
+        return Math.max(0, Math.round(sample));
+    }
+
+    private void failIfInjected() {
+        double failureRate = rosettixConfiguration.getLlm().getOffline().getFailureRate();
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            throw new ServerException(503, "UNAVAILABLE", "Offline provider injected failure");
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating LLM latency", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.rosettix.api.llm;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Provider of LLM completions used to translate questions into queries.
+ * Exactly one implementation is active, selected with {@code rosettix.llm.provider}.
+ */
+public interface QueryGenerator {
+
+    /**
+     * Get the provider identifier used in configuration
+     * @return Provider name (e.g., "gemini", "offline")
+     */
+    String getProviderName();
+
+    /**
+     * Send a single prompt and wait for the whole answer
+     * @param prompt The complete prompt built by the strategy
+     * @return The raw text answer
+     */
+    String generate(String prompt);
+
+    /**
+     * Stream the answer to a prompt chunk by chunk. Providers without streaming support
+     * deliver the whole answer as one chunk.
+     * @param prompt The complete prompt built by the strategy
+     * @param chunkConsumer Receives each text chunk; returning false abandons the rest of the answer
+     */
+    default void generateStream(String prompt, Predicate<String> chunkConsumer) {
+        chunkConsumer.test(generate(prompt));
+    }
+
+    /**
+     * Send a prompt whose prefix may have been registered with {@link #cachePrefix(String, Duration)}.
+     * Providers without prefix caching send the whole text.
+     * @param prompt The split prompt
+     * @return The raw text answer
+     */
+    default String generate(LlmPrompt prompt) {
+        return generate(prompt.text());
+    }
+
+    /**
+     * Stream the answer to a prompt whose prefix may have been registered with the provider
+     * @param prompt The split prompt
+     * @param chunkConsumer Receives each text chunk; returning false abandons the rest of the answer
+     */
+    default void generateStream(LlmPrompt prompt, Predicate<String> chunkConsumer) {
+        generateStream(prompt.text(), chunkConsumer);
+    }
+
+    /**
+     * Register a static prompt prefix with the provider, so later requests only send their suffix
+     * @param prefix The prompt prefix to keep on the provider side
+     * @param ttl How long the provider should keep it
+     * @return The handle to reference it with, or null when the provider has no prefix caching
+     */
+    default String cachePrefix(String prefix, Duration ttl) {
+        return null;
+    }
+
+    /**
+     * Drop a prefix registered with {@link #cachePrefix(String, Duration)}
+     * @param cachedPrefixName The handle returned on registration
+     */
+    default void evictPrefix(String cachedPrefixName) {
+    }
+}
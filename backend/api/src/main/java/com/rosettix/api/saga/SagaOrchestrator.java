@@ -1,7 +1,13 @@
 package com.rosettix.api.saga;
 
+import com.rosettix.api.config.RosettixConfiguration;
 import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.service.LlmRequestContext;
 import com.rosettix.api.service.LlmService;
+import com.rosettix.api.service.PipelineMetrics;
+import com.rosettix.api.service.QueryResultCache;
+import com.rosettix.api.strategy.QueryLimits;
+import com.rosettix.api.strategy.QueryResult;
 import com.rosettix.api.strategy.QueryStrategy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,11 +26,21 @@ public class SagaOrchestrator {
 
     private final Map<String, QueryStrategy> strategies;
     private final LlmService llmService;
+    private final PipelineMetrics pipelineMetrics;
+    private final RosettixConfiguration rosettixConfiguration;
+    private final QueryResultCache queryResultCache;
 
     /**
      * Executes all saga steps sequentially.
      */
     public List<Map<String, Object>> executeSaga(Saga saga, boolean isWrite) {
+        return executeSaga(saga, isWrite, LlmRequestContext.internal(LlmRequestContext.Priority.SAGA));
+    }
+
+    /**
+     * Executes all saga steps sequentially, charging LLM calls to the given caller.
+     */
+    public List<Map<String, Object>> executeSaga(Saga saga, boolean isWrite, LlmRequestContext context) {
         log.info("🚀 Starting Saga ID={} with {} steps (write={})", saga.getSagaId(), saga.getSteps().size(), isWrite);
         List<Map<String, Object>> allResults = new ArrayList<>();
         Deque<SagaStep> executedSteps = new ArrayDeque<>();
@@ -39,24 +55,38 @@ public class SagaOrchestrator {
 
             try {
                 // Step 1️⃣: Generate forward query
-                String forwardQuery = llmService.generateQuery(step.getQuestion(), strategy);
-                forwardQuery = strategy.cleanQuery(forwardQuery);
+                String generatedQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.GENERATION, context.getCost(),
+                        () -> llmService.generateQuery(step.getQuestion(), strategy, context));
+                String forwardQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.CLEAN, context.getCost(), () -> strategy.cleanQuery(generatedQuery));
                 step.setForwardQuery(forwardQuery);
 
                 log.info("Executing step (DB={}): {}", strategyName, forwardQuery);
-                if (!strategy.isQuerySafe(forwardQuery)) {
+                if (!pipelineMetrics.time(strategyName, PipelineMetrics.Stage.SAFETY_CHECK, context.getCost(), () -> strategy.isQuerySafe(forwardQuery))) {
                     throw new QueryException("Unsafe query detected", strategyName, forwardQuery, QueryException.ErrorType.UNSAFE_QUERY);
                 }
 
-                List<Map<String, Object>> result = strategy.executeQuery(forwardQuery);
+                QueryResult queryResult;
+                try {
+                    queryResult = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.EXECUTION, context.getCost(),
+                            () -> strategy.executeQuery(forwardQuery, QueryLimits.of(rosettixConfiguration.getQuery())));
+                } finally {
+                    invalidateCachedReads(strategyName, strategy, forwardQuery);
+                }
+                if (queryResult.truncated()) {
+                    context.markResultTruncated();
+                }
+                List<Map<String, Object>> result = queryResult.rows();
+                context.getCost().recordRows(result.size());
                 allResults.addAll(result);
                 executedSteps.push(step); // ✅ Mark as completed
 
                 // Step 2️⃣: Generate compensation query for rollback
                 String compensationPrompt = "Generate the compensation (rollback) query for reversing this operation:\n" +
                         forwardQuery + "\nReturn only the query.";
-                String compensationQuery = llmService.generateQuery(compensationPrompt, strategy);
-                compensationQuery = strategy.cleanQuery(compensationQuery);
+                String generatedCompensation = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.GENERATION, context.getCost(),
+                        () -> llmService.generateQuery(compensationPrompt, strategy, context));
+                String compensationQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.CLEAN, context.getCost(),
+                        () -> strategy.cleanQuery(generatedCompensation));
                 step.setCompensationQuery(compensationQuery);
 
                 log.info("✅ Step succeeded for DB={} | Compensation Prepared: {}", strategyName, compensationQuery);
@@ -90,7 +120,11 @@ public class SagaOrchestrator {
                 }
 
                 log.info("🔄 Executing rollback on {}: {}", strategyName, rollbackQuery);
-                strategy.executeQuery(rollbackQuery);
+                try {
+                    strategy.executeQuery(rollbackQuery);
+                } finally {
+                    invalidateCachedReads(strategyName, strategy, rollbackQuery);
+                }
 
             } catch (Exception ex) {
                 log.error("⚠️ Rollback failed for DB={} | Reason: {}", step.getDatabase(), ex.getMessage());
@@ -98,4 +132,13 @@ public class SagaOrchestrator {
         }
         log.warn("🧹 Rollback completed for saga.");
     }
+
+    /**
+     * Drops cached results a step may have changed; read steps leave them alone.
+     */
+    private void invalidateCachedReads(String strategyName, QueryStrategy strategy, String query) {
+        if (!strategy.isReadOperation(query)) {
+            queryResultCache.invalidate(strategyName, strategy.findQueryTargets(query));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,277 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.QueryStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-batches concurrent LLM generations for the same strategy and schema into one prompt.
+ * <p>
+ * The first question to arrive opens a batch and waits up to {@code windowMillis} for others to
+ * join (or until the batch is full), then sends a single numbered prompt carrying the schema once
+ * and hands each caller its own line of the answer. A question nobody joined, or whose batched
+ * answer cannot be parsed, is handed back to the caller, which asks it through the ordinary single
+ * prompt path (prefix cache, streaming, retries) and reports its time with {@link #recordSingle}.
+ */
+@Service
+@Slf4j
+public class LlmBatcher {
+
+    private static final Pattern NUMBERED_LINE = Pattern.compile("^\\s*(\\d{1,4})[.)]\\s+(.*)$");
+
+    /**
+     * Sends one prompt to the model and returns the raw response text.
+     */
+    @FunctionalInterface
+    public interface ModelCall {
+        String generate(String prompt) throws Exception;
+    }
+
+    private final RosettixConfiguration configuration;
+    private final Map<BatchKey, PendingBatch> pendingBatches = new HashMap<>();
+    private final Map<Integer, BatchSizeStats> statsBySize = new ConcurrentHashMap<>();
+    private final LatencyHistogram singleLatency = new LatencyHistogram();
+    private final LongAdder parseFailures = new LongAdder();
+
+    public LlmBatcher(RosettixConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getBatching().isEnabled();
+    }
+
+    /**
+     * Generates the raw model answer for one question as part of a larger batch.
+     * @param promptTokens receives the question's share of the batched prompt, when it was answered
+     * @return the answer, or null when the question must be asked on its own
+     */
+    public String generate(String question, String schema, QueryStrategy strategy, ModelCall model, LongConsumer promptTokens) throws Exception {
+        RosettixConfiguration.BatchingConfig batchingConfig = configuration.getBatching();
+        int maxBatchSize = Math.max(1, batchingConfig.getMaxBatchSize());
+        BatchKey batchKey = new BatchKey(strategy.getStrategyName(), schema);
+        BatchedQuestion batched = new BatchedQuestion(question);
+        PendingBatch batch;
+        boolean leader;
+
+        synchronized (pendingBatches) {
+            batch = pendingBatches.get(batchKey);
+            leader = batch == null;
+            if (leader) {
+                batch = new PendingBatch();
+                pendingBatches.put(batchKey, batch);
+            }
+            batch.questions.add(batched);
+            if (batch.questions.size() >= maxBatchSize) {
+                pendingBatches.remove(batchKey, batch);
+                batch.full.countDown();
+            }
+        }
+
+        if (leader) {
+            try {
+                batch.full.await(batchingConfig.getWindowMillis(), TimeUnit.MILLISECONDS);
+            } finally {
+                synchronized (pendingBatches) {
+                    pendingBatches.remove(batchKey, batch);
+                }
+                send(batch.questions, batched, schema, strategy, model);
+            }
+        }
+
+        String answer = await(batched.answer);
+        if (answer != null) {
+            promptTokens.accept(batched.promptTokens.get());
+        }
+        return answer;
+    }
+
+    /**
+     * Records the model time of a question asked on its own, the baseline batches are compared with.
+     */
+    public void recordSingle(long elapsedNanos) {
+        singleLatency.recordNanos(elapsedNanos);
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        double singleMeanMillis = singleLatency.meanMillis();
+        Map<String, Object> batchSizes = new TreeMap<>();
+        statsBySize.forEach((size, stats) -> batchSizes.put(String.valueOf(size), stats.toSnapshot(size, singleMeanMillis)));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", isEnabled());
+        response.put("window_ms", configuration.getBatching().getWindowMillis());
+        response.put("max_batch_size", configuration.getBatching().getMaxBatchSize());
+        response.put("parse_failures", parseFailures.sum());
+        response.put("single_latency", singleLatency.toSnapshot());
+        response.put("batch_sizes", batchSizes);
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private void send(List<BatchedQuestion> questions, BatchedQuestion leader, String schema, QueryStrategy strategy, ModelCall model) {
+        if (questions.size() == 1) {
+            // Nobody joined: a null answer hands the question back for the ordinary single prompt
+            questions.get(0).answer.complete(null);
+            return;
+        }
+
+        try {
+            sendBatch(questions, schema, strategy, model);
+        } catch (Exception e) {
+            if (isInterrupted(e)) {
+                // Only the leader was cancelled: the others are handed back to ask on their own
+                leader.answer.completeExceptionally(e);
+                questions.forEach(batched -> batched.answer.complete(null));
+                return;
+            }
+            // Completing an already answered question is a no-op, so only stragglers see the failure
+            questions.forEach(batched -> batched.answer.completeExceptionally(e));
+        }
+    }
+
+    private static boolean isInterrupted(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendBatch(List<BatchedQuestion> questions, String schema, QueryStrategy strategy, ModelCall model) throws Exception {
+        List<String> texts = questions.stream().map(BatchedQuestion::question).toList();
+        String batchPrompt = strategy.buildBatchPrompt(texts, schema);
+        long startNanos = System.nanoTime();
+        String response = model.generate(batchPrompt);
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        List<String> answers = parseNumberedAnswers(response, questions.size());
+        if (answers == null) {
+            parseFailures.increment();
+            log.warn("Could not split batched LLM answer for {} questions, falling back to single prompts", questions.size());
+            questions.forEach(batched -> batched.answer.complete(null));
+            return;
+        }
+
+        long singlePromptTokens = 0;
+        for (String question : texts) {
+            singlePromptTokens += estimateTokens(strategy.buildPrompt(question, schema));
+        }
+        statsBySize.computeIfAbsent(questions.size(), ignored -> new BatchSizeStats())
+                .record(elapsedNanos, singlePromptTokens - estimateTokens(batchPrompt));
+        log.debug("Answered {} {} questions with one batched prompt", questions.size(), strategy.getStrategyName());
+
+        long promptTokensPerQuestion = estimateTokens(batchPrompt) / questions.size();
+        for (int i = 0; i < questions.size(); i++) {
+            questions.get(i).promptTokens.set(promptTokensPerQuestion);
+            questions.get(i).answer.complete(answers.get(i));
+        }
+    }
+
+    /**
+     * Splits a numbered answer into one entry per question, or returns null unless all of 1..expected are present.
+     * Lines that do not start the next expected number continue the previous answer.
+     */
+    static List<String> parseNumberedAnswers(String response, int expected) {
+        if (response == null) {
+            return null;
+        }
+
+        List<StringBuilder> answers = new ArrayList<>(expected);
+        for (String line : response.replace("```", "\n").split("\\R")) {
+            Matcher matcher = NUMBERED_LINE.matcher(line);
+            if (matcher.matches() && Integer.parseInt(matcher.group(1)) == answers.size() + 1) {
+                answers.add(new StringBuilder(matcher.group(2).trim()));
+            } else if (!answers.isEmpty() && !line.isBlank()) {
+                answers.get(answers.size() - 1).append('\n').append(line);
+            }
+        }
+
+        if (answers.size() != expected || answers.stream().anyMatch(answer -> answer.toString().isBlank())) {
+            return null;
+        }
+        return answers.stream().map(StringBuilder::toString).toList();
+    }
+
+    /**
+     * Rough token count for prompt-size accounting (about four characters per token).
+     */
+    static long estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private static String await(CompletableFuture<String> answer) throws Exception {
+        try {
+            return answer.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record BatchKey(String strategyName, String schema) {
+    }
+
+    private record BatchedQuestion(String question, CompletableFuture<String> answer, AtomicLong promptTokens) {
+        BatchedQuestion(String question) {
+            this(question, new CompletableFuture<>(), new AtomicLong());
+        }
+    }
+
+    private static final class PendingBatch {
+        private final List<BatchedQuestion> questions = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+    }
+
+    static final class BatchSizeStats {
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder promptTokensSaved = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(long elapsedNanos, long tokensSaved) {
+            batches.increment();
+            promptTokensSaved.add(tokensSaved);
+            latency.recordNanos(elapsedNanos);
+        }
+
+        Map<String, Object> toSnapshot(int batchSize, double singleMeanMillis) {
+            long batchCount = batches.sum();
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("batches", batchCount);
+            snapshot.put("questions", batchCount * batchSize);
+            snapshot.put("estimated_prompt_tokens_saved", promptTokensSaved.sum());
+            snapshot.put("latency", latency.toSnapshot());
+            // LLM time N single prompts would have taken, minus what the batched prompts took
+            snapshot.put(
+                    "estimated_llm_ms_saved",
+                    singleMeanMillis == 0.0 ? null : batchCount * (batchSize * singleMeanMillis - latency.meanMillis())
+            );
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker and bulkhead guarding calls to the Gemini client.
+ * <p>
+ * The breaker tracks the outcome of the last {@code circuitBreakerWindowSize} calls and opens when
+ * the failure rate crosses the threshold, rejecting calls for {@code circuitBreakerOpenSeconds}.
+ * It then lets a few trial calls through (half-open) and closes again once they all succeed.
+ * The bulkhead caps concurrent calls so a degraded model cannot absorb every available thread.
+ */
+@Service
+@Slf4j
+public class LlmCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final RosettixConfiguration configuration;
+    private final Clock clock;
+    private final Semaphore bulkhead;
+    private final boolean[] outcomes;
+    private final BreakerStats stats = new BreakerStats();
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private int outcomeIndex;
+    private int recordedCalls;
+    private int recordedFailures;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    @Autowired
+    public LlmCircuitBreaker(RosettixConfiguration configuration) {
+        this(configuration, Clock.systemUTC());
+    }
+
+    public LlmCircuitBreaker(RosettixConfiguration configuration, Clock clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+        RosettixConfiguration.LlmConfig llmConfig = configuration.getLlm();
+        this.bulkhead = new Semaphore(Math.max(1, llmConfig.getMaxConcurrentCalls()));
+        this.outcomes = new boolean[Math.max(1, llmConfig.getCircuitBreakerWindowSize())];
+    }
+
+    /**
+     * Asks the breaker for permission to call the model. Every granted permission must be followed by
+     * exactly one of {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        RosettixConfiguration.LlmConfig llmConfig = configuration.getLlm();
+        if (!llmConfig.isCircuitBreakerEnabled()) {
+            return true;
+        }
+
+        if (state == State.OPEN) {
+            Duration openDuration = Duration.ofSeconds(llmConfig.getCircuitBreakerOpenSeconds());
+            if (Instant.now(clock).isBefore(openedAt.plus(openDuration))) {
+                stats.recordRejection();
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= Math.max(1, llmConfig.getCircuitBreakerHalfOpenCalls())) {
+                stats.recordRejection();
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= Math.max(1, configuration.getLlm().getCircuitBreakerHalfOpenCalls())) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        recordOutcome(false);
+    }
+
+    public synchronized void onFailure() {
+        stats.recordFailure();
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        recordOutcome(true);
+
+        RosettixConfiguration.LlmConfig llmConfig = configuration.getLlm();
+        if (state == State.CLOSED
+                && recordedCalls >= Math.max(1, llmConfig.getCircuitBreakerMinimumCalls())
+                && (double) recordedFailures / recordedCalls >= llmConfig.getCircuitBreakerFailureRateThreshold()) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Releases a permission whose call neither succeeded nor failed because of the model, e.g. a rejected prompt.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenPermits > halfOpenSuccesses) {
+            halfOpenPermits--;
+        }
+    }
+
+    public boolean tryEnterBulkhead() {
+        if (bulkhead.tryAcquire()) {
+            return true;
+        }
+        stats.recordBulkheadRejection();
+        return false;
+    }
+
+    public void exitBulkhead() {
+        bulkhead.release();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.LlmConfig llmConfig = configuration.getLlm();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", llmConfig.isCircuitBreakerEnabled());
+        response.put("state", state.name());
+        response.put("failure_rate", recordedCalls == 0 ? 0.0 : (double) recordedFailures / recordedCalls);
+        response.put("window_calls", recordedCalls);
+        response.put("opened_at", openedAt == null ? null : openedAt.toString());
+        response.put("bulkhead_max_concurrent_calls", llmConfig.getMaxConcurrentCalls());
+        response.put("bulkhead_available_permits", bulkhead.availablePermits());
+        response.putAll(stats.toSnapshot());
+        return response;
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (recordedCalls == outcomes.length) {
+            if (outcomes[outcomeIndex]) {
+                recordedFailures--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[outcomeIndex] = failed;
+        if (failed) {
+            recordedFailures++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State next) {
+        log.warn("LLM circuit breaker {} -> {}", state, next);
+        state = next;
+        halfOpenPermits = 0;
+        halfOpenSuccesses = 0;
+        if (next == State.OPEN) {
+            openedAt = Instant.now(clock);
+            stats.recordOpened();
+        } else if (next == State.CLOSED) {
+            outcomeIndex = 0;
+            recordedCalls = 0;
+            recordedFailures = 0;
+        }
+    }
+
+    static final class BreakerStats {
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder bulkheadRejections = new LongAdder();
+        private final LongAdder timesOpened = new LongAdder();
+
+        void recordFailure() {
+            failures.increment();
+        }
+
+        void recordRejection() {
+            rejections.increment();
+        }
+
+        void recordBulkheadRejection() {
+            bulkheadRejections.increment();
+        }
+
+        void recordOpened() {
+            timesOpened.increment();
+        }
+
+        Map<String, Object> toSnapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("failures", failures.sum());
+            snapshot.put("circuit_rejections", rejections.sum());
+            snapshot.put("bulkhead_rejections", bulkheadRejections.sum());
+            snapshot.put("times_opened", timesOpened.sum());
+            return snapshot;
+        }
+    }
+}
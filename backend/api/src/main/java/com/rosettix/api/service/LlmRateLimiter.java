@@ -0,0 +1,259 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for LLM calls sharing one provider quota.
+ * <p>
+ * Every client (API key or address) has its own token bucket; a client over its rate is rejected
+ * straight away. Admitted calls then take a token from the global bucket sized to the shared
+ * quota. When it is empty they wait in a queue ordered by priority (interactive reads, writes,
+ * sagas, batch) and arrival, until a token is available or the configured deadline passes.
+ */
+@Service
+@Slf4j
+public class LlmRateLimiter {
+
+    private static final long MIN_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final RosettixConfiguration configuration;
+    private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+    private final TokenBucket globalBucket;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queueChanged = lock.newCondition();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence)
+    );
+    private final Map<LlmRequestContext.Priority, PriorityStats> stats = new EnumMap<>(LlmRequestContext.Priority.class);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Long::max, 0);
+    private long sequence;
+
+    public LlmRateLimiter(RosettixConfiguration configuration) {
+        this.configuration = configuration;
+        RosettixConfiguration.RateLimitConfig rateLimitConfig = configuration.getRateLimit();
+        this.globalBucket = new TokenBucket(rateLimitConfig.getGlobalBurst(), rateLimitConfig.getGlobalPermitsPerSecond(), System.nanoTime());
+        for (LlmRequestContext.Priority priority : LlmRequestContext.Priority.values()) {
+            stats.put(priority, new PriorityStats());
+        }
+    }
+
+    public boolean isEnabled() {
+        return configuration.getRateLimit().isEnabled();
+    }
+
+    /**
+     * Takes a permit for one LLM call, waiting behind higher-priority and earlier requests if the
+     * shared quota is exhausted.
+     * @return how long the call waited, in nanoseconds
+     * @throws LlmService.LlmUnavailableException when the client is over its rate, the queue is full
+     *         or no permit became available before the deadline
+     */
+    public long acquire(LlmRequestContext context) {
+        if (!isEnabled()) {
+            return 0;
+        }
+
+        RosettixConfiguration.RateLimitConfig rateLimitConfig = configuration.getRateLimit();
+        PriorityStats priorityStats = stats.get(context.getPriority());
+        long startNanos = System.nanoTime();
+
+        TokenBucket clientBucket = clientBucket(context.getClientId(), startNanos);
+        if (!clientBucket.tryAcquire(startNanos)) {
+            priorityStats.clientRejections.increment();
+            throw new LlmService.LlmUnavailableException("client " + context.getClientId() + " exceeded its LLM rate limit");
+        }
+
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(rateLimitConfig.getMaxQueueWaitMillis());
+        lock.lock();
+        try {
+            if (queue.isEmpty() && globalBucket.tryAcquire(startNanos)) {
+                priorityStats.recordGrant(0);
+                return 0;
+            }
+            if (queue.size() >= rateLimitConfig.getMaxQueueDepth()) {
+                clientBucket.refund();
+                priorityStats.queueFullRejections.increment();
+                throw new LlmService.LlmUnavailableException("LLM request queue is full");
+            }
+
+            Waiter waiter = new Waiter(context.getPriority(), sequence++);
+            queue.add(waiter);
+            maxQueueDepth.accumulate(queue.size());
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    boolean first = queue.peek() == waiter;
+                    if (first && globalBucket.tryAcquire(now)) {
+                        queue.poll();
+                        queueChanged.signalAll();
+                        long waitedNanos = now - startNanos;
+                        priorityStats.recordGrant(waitedNanos);
+                        return waitedNanos;
+                    }
+
+                    long remainingNanos = deadlineNanos - now;
+                    if (remainingNanos <= 0) {
+                        leave(waiter, clientBucket);
+                        priorityStats.recordTimeout(now - startNanos);
+                        throw new LlmService.LlmUnavailableException(
+                                "no LLM quota available within " + rateLimitConfig.getMaxQueueWaitMillis() + " ms"
+                        );
+                    }
+                    // Only the head of the queue watches the bucket, the others wait for their turn
+                    long waitNanos = first ? Math.min(remainingNanos, globalBucket.nanosUntilAvailable(now)) : remainingNanos;
+                    queueChanged.awaitNanos(Math.max(MIN_WAIT_NANOS, waitNanos));
+                }
+            } catch (InterruptedException e) {
+                leave(waiter, clientBucket);
+                Thread.currentThread().interrupt();
+                throw new LlmService.LlmUnavailableException("interrupted while waiting for LLM quota");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.RateLimitConfig rateLimitConfig = configuration.getRateLimit();
+        Map<String, Object> priorities = new LinkedHashMap<>();
+        stats.forEach((priority, priorityStats) -> priorities.put(priority.name().toLowerCase(), priorityStats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", rateLimitConfig.isEnabled());
+        response.put("global_permits_per_second", rateLimitConfig.getGlobalPermitsPerSecond());
+        response.put("client_permits_per_second", rateLimitConfig.getClientPermitsPerSecond());
+        response.put("max_queue_wait_ms", rateLimitConfig.getMaxQueueWaitMillis());
+        response.put("queue_depth", getQueueDepth());
+        response.put("max_queue_depth", maxQueueDepth.get());
+        response.put("tracked_clients", clientBuckets.size());
+        response.put("priorities", priorities);
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private TokenBucket clientBucket(String clientId, long nowNanos) {
+        RosettixConfiguration.RateLimitConfig rateLimitConfig = configuration.getRateLimit();
+        if (clientBuckets.size() >= rateLimitConfig.getMaxTrackedClients() && !clientBuckets.containsKey(clientId)) {
+            // Full buckets carry no state worth keeping, a new one would start full as well
+            clientBuckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+        }
+        return clientBuckets.computeIfAbsent(clientId, ignored ->
+                new TokenBucket(rateLimitConfig.getClientBurst(), rateLimitConfig.getClientPermitsPerSecond(), nowNanos)
+        );
+    }
+
+    private void leave(Waiter waiter, TokenBucket clientBucket) {
+        queue.remove(waiter);
+        queueChanged.signalAll();
+        clientBucket.refund();
+    }
+
+    private record Waiter(LlmRequestContext.Priority priority, long sequence) {
+    }
+
+    static final class TokenBucket {
+        private final double capacity;
+        private final double permitsPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(double capacity, double permitsPerSecond, long nowNanos) {
+            this.capacity = Math.max(1, capacity);
+            this.permitsPerNano = Math.max(0, permitsPerSecond) / 1e9;
+            this.tokens = this.capacity;
+            this.lastRefillNanos = nowNanos;
+        }
+
+        synchronized boolean tryAcquire(long nowNanos) {
+            refill(nowNanos);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        synchronized long nanosUntilAvailable(long nowNanos) {
+            refill(nowNanos);
+            if (tokens >= 1) {
+                return 0;
+            }
+            return permitsPerNano == 0 ? Long.MAX_VALUE : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        synchronized boolean isFull(long nowNanos) {
+            refill(nowNanos);
+            return tokens >= capacity;
+        }
+
+        private void refill(long nowNanos) {
+            long elapsed = nowNanos - lastRefillNanos;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * permitsPerNano);
+                lastRefillNanos = nowNanos;
+            }
+        }
+    }
+
+    static final class PriorityStats {
+        private final LongAdder granted = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder clientRejections = new LongAdder();
+        private final LongAdder queueFullRejections = new LongAdder();
+        private final LatencyHistogram waitTime = new LatencyHistogram();
+
+        void recordGrant(long waitedNanos) {
+            granted.increment();
+            if (waitedNanos > 0) {
+                queued.increment();
+            }
+            waitTime.recordNanos(waitedNanos);
+        }
+
+        void recordTimeout(long waitedNanos) {
+            timeouts.increment();
+            waitTime.recordNanos(waitedNanos);
+        }
+
+        Map<String, Object> toSnapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("granted", granted.sum());
+            snapshot.put("queued", queued.sum());
+            snapshot.put("queue_timeouts", timeouts.sum());
+            snapshot.put("client_rate_rejections", clientRejections.sum());
+            snapshot.put("queue_full_rejections", queueFullRejections.sum());
+            snapshot.put("wait_time", waitTime.toSnapshot());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.rosettix.api.service;
+
+import lombok.Getter;
+
+/**
+ * Who is asking for LLM generations and how urgently. Used to apply per-client rate limits and to
+ * order requests waiting for the shared LLM quota; carries the {@link QueryCost} of the request and
+ * whether its results were cut at the configured result size.
+ */
+@Getter
+public final class LlmRequestContext {
+
+    /**
+     * Order in which requests waiting for the shared quota are served.
+     */
+    public enum Priority {
+        /** Single read queries, a user is waiting for the answer */
+        INTERACTIVE,
+        /** Single write queries */
+        WRITE,
+        /** Every step of a saga */
+        SAGA,
+        /** Bulk submissions */
+        BATCH
+    }
+
+    private final String clientId;
+    private final Priority priority;
+    private final QueryCost cost = new QueryCost();
+    private volatile boolean resultTruncated;
+
+    private LlmRequestContext(String clientId, Priority priority) {
+        this.clientId = clientId;
+        this.priority = priority;
+    }
+
+    public static LlmRequestContext of(String clientId, Priority priority) {
+        return new LlmRequestContext(clientId == null || clientId.isBlank() ? "anonymous" : clientId, priority);
+    }
+
+    /**
+     * Context for generations not tied to a client request.
+     */
+    public static LlmRequestContext internal(Priority priority) {
+        return new LlmRequestContext("internal", priority);
+    }
+
+    /**
+     * A context for one of several branches raced for this request: the same client and priority,
+     * with its own cost and truncation, so that only the branch whose answer is used is added back
+     * with {@link #merge}.
+     */
+    public LlmRequestContext branch() {
+        return new LlmRequestContext(clientId, priority);
+    }
+
+    /**
+     * Adds the cost and truncation of a finished branch to this request.
+     */
+    public void merge(LlmRequestContext branch) {
+        cost.add(branch.cost);
+        if (branch.resultTruncated) {
+            resultTruncated = true;
+        }
+    }
+
+    void recordQueueWait(long nanos) {
+        cost.recordQueueWait(nanos);
+    }
+
+    public void markResultTruncated() {
+        resultTruncated = true;
+    }
+
+    /**
+     * Total time this request's generations waited for LLM quota
+     */
+    public double getQueuedMillis() {
+        return cost.getQueueWaitMillis();
+    }
+}
@@ -1,35 +1,285 @@
 package com.rosettix.api.service;
 
-import com.google.genai.Client;
-import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.errors.ApiException;
+import com.google.genai.errors.GenAiIOException;
 import com.rosettix.api.config.RosettixConfiguration;
 import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.llm.LlmPrompt;
+import com.rosettix.api.llm.QueryGenerator;
 import com.rosettix.api.strategy.QueryStrategy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LlmService {
 
-    private final Client geminiClient; // Injected from your GeminiConfig
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    // callModel returns only the query, so the size of the prompt it sent is kept per thread
+    private static final ThreadLocal<Long> SENT_PROMPT_TOKENS = new ThreadLocal<>();
+
+    private final QueryGenerator queryGenerator; // Gemini or offline, see rosettix.llm.provider
     private final RosettixConfiguration rosettixConfiguration;
+    private final QueryTranslationCache translationCache;
+    private final QuestionSimilarityIndex similarityIndex;
+    private final QueryTemplateCache templateCache;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final LlmRateLimiter rateLimiter;
+    private final LlmBatcher batcher;
+    private final SchemaPruner schemaPruner;
+    private final PromptPrefixCache promptPrefixCache;
+    private final PipelineMetrics pipelineMetrics;
+    @Qualifier("llmExecutor")
+    private final ExecutorService llmExecutor;
+    private final Map<TranslationKey, InFlightGeneration> inFlightGenerations = new ConcurrentHashMap<>();
+    private final LlmStats stats = new LlmStats();
 
     public String generateQuery(String question, QueryStrategy strategy) {
-        String schema = strategy.getSchemaRepresentation();
-        String queryLanguage = strategy.getQueryLanguage();
+        return generateQuery(question, strategy, LlmRequestContext.internal(LlmRequestContext.Priority.INTERACTIVE));
+    }
+
+    /**
+     * @param context the caller, charged for the LLM call and told how long it waited for quota
+     */
+    public String generateQuery(String question, QueryStrategy strategy, LlmRequestContext context) {
+        QueryCost cost = context.getCost();
+        String schema = fetchSchema(strategy, cost);
+        TranslationKey key = TranslationKey.of(strategy.getStrategyName(), schema, question);
+
+        String cachedQuery = translationCache.get(key);
+        if (cachedQuery != null) {
+            cost.recordReusedTranslation();
+            return cachedQuery;
+        }
+
+        String similarQuery = similarityIndex.findSimilar(key);
+        if (similarQuery != null) {
+            cost.recordReusedTranslation();
+            return similarQuery;
+        }
+
+        String templatedQuery = templateCache.find(key, strategy);
+        if (templatedQuery != null) {
+            cost.recordReusedTranslation();
+            return templatedQuery;
+        }
+
+        // Single-flight: identical questions arriving together share one LLM generation
+        String query;
+        do {
+            query = generateOnce(key, question, schema, strategy, context);
+        } while (query == null);
+        return query;
+    }
+
+    /**
+     * Generates the query as the leader of its key, or waits for the leader already generating it.
+     * @return null when the leader was cancelled, so the caller must try again
+     */
+    private String generateOnce(TranslationKey key, String question, String schema, QueryStrategy strategy, LlmRequestContext context) {
+        QueryCost cost = context.getCost();
+        InFlightGeneration newGeneration = new InFlightGeneration();
+        InFlightGeneration inFlight = inFlightGenerations.putIfAbsent(key, newGeneration);
 
-        String prompt = strategy.buildPrompt(question, schema);
+        if (inFlight == null) {
+            try {
+                context.recordQueueWait(acquireQuota(context, strategy));
+                long startNanos = System.nanoTime();
+                // The key stays on the full schema; only the prompt carries the relevant part of it
+                String promptSchema = schemaPruner.isEnabled()
+                    ? pipelineMetrics.time(strategy.getStrategyName(), PipelineMetrics.Stage.SCHEMA_PRUNE, () -> schemaPruner.prune(question, schema, strategy))
+                    : schema;
+                long callStartNanos = System.nanoTime();
+                String query = null;
+                SENT_PROMPT_TOKENS.remove();
+                try {
+                    query = callModel(question, promptSchema, strategy, promptSchema == schema);
+                } finally {
+                    // Per request, the call includes building its prompt
+                    Long promptTokens = SENT_PROMPT_TOKENS.get();
+                    SENT_PROMPT_TOKENS.remove();
+                    cost.recordLlmCall(
+                        System.nanoTime() - callStartNanos,
+                        query == null || promptTokens == null ? 0 : promptTokens,
+                        LlmBatcher.estimateTokens(query)
+                    );
+                }
+                schemaPruner.recordGeneration(
+                    strategy.getStrategyName(),
+                    schema != null && promptSchema.length() < schema.length(),
+                    System.nanoTime() - startNanos
+                );
+
+                // Only safety-checked translations are reused
+                if (strategy.isQuerySafe(query)) {
+                    translationCache.put(key, query, System.nanoTime() - startNanos);
+                    similarityIndex.index(key, query);
+                    templateCache.learn(key, strategy, query);
+                }
+                newGeneration.result.complete(query);
+                return query;
+            } catch (RuntimeException e) {
+                if (isInterrupted(e)) {
+                    // Cancelled, e.g. as a losing routed or speculative branch: the waiters did not
+                    // ask to be cancelled, so they are released to generate again instead of failing
+                    inFlightGenerations.remove(key, newGeneration);
+                    newGeneration.result.complete(null);
+                    throw e;
+                }
+                String staleQuery = isUnavailable(e) ? translationCache.getStale(key) : null;
+                if (staleQuery != null) {
+                    stats.recordStaleFallback();
+                    cost.recordReusedTranslation();
+                    newGeneration.result.complete(staleQuery);
+                    return staleQuery;
+                }
+                newGeneration.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightGenerations.remove(key, newGeneration);
+                stats.recordGeneration(newGeneration.waiters.get());
+            }
+        }
+
+        inFlight.waiters.incrementAndGet();
+        stats.recordCoalescedWait();
+        log.info("LLM generation already in flight for {} question '{}', waiting for it", key.strategyName(), key.question());
+        try {
+            String sharedQuery = inFlight.result.join();
+            if (sharedQuery != null) {
+                cost.recordReusedTranslation();
+            }
+            return sharedQuery;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new QueryException(
+                "Error calling Gemini API: " + cause.getMessage(),
+                strategy.getStrategyName(),
+                null,
+                QueryException.ErrorType.LLM_ERROR,
+                cause
+            );
+        }
+    }
+
+    private static boolean isInterrupted(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("provider", queryGenerator.getProviderName());
+        response.put("model", rosettixConfiguration.getLlm().getModelName());
+        response.put("in_flight_generations", inFlightGenerations.size());
+        response.put("single_flight", stats.toSnapshot());
+        response.put("templates", templateCache.getMetricsSnapshot());
+        response.put("resilience", stats.toResilienceSnapshot(hedgeDelayNanos()));
+        response.put("attempt_latency", stats.toAttemptLatencySnapshot());
+        response.put("circuit_breaker", circuitBreaker.getMetricsSnapshot());
+        response.put("rate_limiting", rateLimiter.getMetricsSnapshot());
+        response.put("batching", batcher.getMetricsSnapshot());
+        response.put("schema_pruning", schemaPruner.getMetricsSnapshot());
+        response.put("prompt_cache", promptPrefixCache.getMetricsSnapshot());
+        response.put("streaming", stats.toStreamingSnapshot(rosettixConfiguration.getLlm().isStreamingEnabled()));
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
 
+    /**
+     * @param fullSchema whether the schema is the strategy's full schema, whose prompt prefix is shared
+     */
+    protected String callModel(String question, String schema, QueryStrategy strategy, boolean fullSchema) {
         try {
-            String modelName = rosettixConfiguration.getLlm().getModelName();
-            GenerateContentResponse response =
-                geminiClient.models.generateContent(modelName, prompt, null);
+            String strategyName = strategy.getStrategyName();
+            String rawQuery = null;
+            if (batcher.isEnabled()) {
+                // Prompts are built by the batcher, so their time counts towards the call
+                long startNanos = System.nanoTime();
+                boolean handedBack = false;
+                try {
+                    rawQuery = batcher.generate(question, schema, strategy, prompt -> generateWithRetries(LlmPrompt.of(prompt), strategy, null),
+                        SENT_PROMPT_TOKENS::set);
+                    handedBack = rawQuery == null;
+                } finally {
+                    if (!handedBack) {
+                        pipelineMetrics.record(strategyName, PipelineMetrics.Stage.LLM_CALL, System.nanoTime() - startNanos);
+                    }
+                }
+            }
+            // Without batching, and for questions the batcher hands back, one prompt on its own
+            if (rawQuery == null) {
+                LlmPrompt prompt = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.PROMPT_BUILD, () -> fullSchema
+                    ? promptPrefixCache.prepare(question, schema, strategy)
+                    : promptPrefixCache.uncached(question, schema, strategy));
+                long startNanos = System.nanoTime();
+                try {
+                    rawQuery = generateWithRetries(
+                        prompt,
+                        strategy,
+                        rosettixConfiguration.getLlm().isStreamingEnabled() ? strategy::isCompleteQuery : null
+                    );
+                    // A registered prefix is not sent again, only the question
+                    SENT_PROMPT_TOKENS.set(LlmBatcher.estimateTokens(prompt.isPrefixCached() ? prompt.suffix() : prompt.text()));
+                } finally {
+                    long elapsedNanos = System.nanoTime() - startNanos;
+                    pipelineMetrics.record(strategyName, PipelineMetrics.Stage.LLM_CALL, elapsedNanos);
+                    if (batcher.isEnabled()) {
+                        batcher.recordSingle(elapsedNanos);
+                    }
+                }
+            }
 
             // Clean the response using strategy-specific cleaning
-            return strategy.cleanQuery(response.text());
+            return strategy.cleanQuery(rawQuery);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(
+                "Interrupted while waiting for Gemini API",
+                strategy.getStrategyName(),
+                null,
+                QueryException.ErrorType.LLM_ERROR,
+                e
+            );
         } catch (Exception e) {
             log.error(
                 "Error calling Gemini API for question '{}': {}",
@@ -46,4 +296,345 @@ public class LlmService {
             );
         }
     }
-}
\ No newline at end of file
+
+    private String fetchSchema(QueryStrategy strategy, QueryCost cost) {
+        SchemaCacheService.takeLastLookup();
+        String schema = pipelineMetrics.time(strategy.getStrategyName(), PipelineMetrics.Stage.SCHEMA_FETCH, cost, strategy::getSchemaRepresentation);
+        cost.recordSchemaLookup(SchemaCacheService.takeLastLookup());
+        return schema;
+    }
+
+    private long acquireQuota(LlmRequestContext context, QueryStrategy strategy) {
+        try {
+            return rateLimiter.acquire(context);
+        } catch (LlmUnavailableException e) {
+            throw new QueryException(
+                "LLM quota exhausted: " + e.getMessage(),
+                strategy.getStrategyName(),
+                null,
+                QueryException.ErrorType.RATE_LIMITED,
+                e
+            );
+        }
+    }
+
+    /**
+     * A single raw request to the model, without deadlines or retries.
+     */
+    protected String invokeModel(LlmPrompt prompt) {
+        return queryGenerator.generate(prompt);
+    }
+
+    /**
+     * Streams the model's answer chunk by chunk until the consumer returns false or the answer ends.
+     */
+    protected void streamModel(LlmPrompt prompt, Predicate<String> chunkConsumer) {
+        queryGenerator.generateStream(prompt, chunkConsumer);
+    }
+
+    /**
+     * Accumulates streamed chunks and stops as soon as the strategy recognizes a complete query.
+     */
+    private String invokeModelStreaming(LlmPrompt prompt, Predicate<String> isCompleteQuery) {
+        long startNanos = System.nanoTime();
+        StringBuilder text = new StringBuilder();
+        boolean[] cutOff = {false};
+
+        streamModel(prompt, chunk -> {
+            if (text.isEmpty()) {
+                stats.recordFirstToken(System.nanoTime() - startNanos);
+            }
+            text.append(chunk);
+            cutOff[0] = isCompleteQuery.test(text.toString());
+            return !cutOff[0];
+        });
+
+        stats.recordUsableQuery(System.nanoTime() - startNanos, cutOff[0]);
+        return text.toString();
+    }
+
+    /**
+     * @param isCompleteQuery when not null the answer is streamed and cut off once this returns true
+     */
+    private String generateWithRetries(LlmPrompt prompt, QueryStrategy strategy, Predicate<String> isCompleteQuery) throws Exception {
+        RosettixConfiguration.LlmConfig llmConfig = rosettixConfiguration.getLlm();
+        int maxAttempts = Math.max(0, llmConfig.getMaxRetries()) + 1;
+
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw new LlmUnavailableException("circuit breaker is open after repeated failures");
+            }
+            try {
+                String text = generateWithDeadline(prompt, strategy, isCompleteQuery, attempt);
+                circuitBreaker.onSuccess();
+                return text;
+            } catch (Exception e) {
+                if (isRetryable(e)) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onIgnored();
+                }
+                if (e instanceof InterruptedException || attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                long backoffMillis = backoffMillis(attempt);
+                stats.recordRetry();
+                log.warn(
+                    "LLM attempt {} of {} failed ({}), retrying in {} ms",
+                    attempt, maxAttempts, e.getMessage(), backoffMillis
+                );
+                Thread.sleep(backoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Runs one attempt bounded by the configured timeout. With hedging enabled, a second request is
+     * fired once the first has been outstanding for longer than the recent p95, and whichever
+     * answers successfully first wins; the other is cancelled.
+     */
+    private String generateWithDeadline(LlmPrompt prompt, QueryStrategy strategy, Predicate<String> isCompleteQuery, int attempt) throws Exception {
+        RosettixConfiguration.LlmConfig llmConfig = rosettixConfiguration.getLlm();
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(llmConfig.getTimeoutSeconds());
+        CompletionService<String> completion = new ExecutorCompletionService<>(llmExecutor);
+        List<Future<String>> running = new ArrayList<>(2);
+        running.add(completion.submit(timedAttempt(prompt, strategy, isCompleteQuery, "attempt_" + attempt)));
+        Future<String> hedge = null;
+
+        try {
+            while (true) {
+                long remainingNanos = deadlineNanos - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    break;
+                }
+
+                boolean mayHedge = llmConfig.isHedgingEnabled() && hedge == null;
+                long waitNanos = mayHedge ? Math.min(remainingNanos, hedgeDelayNanos()) : remainingNanos;
+                Future<String> done = completion.poll(waitNanos, TimeUnit.NANOSECONDS);
+
+                if (done == null) {
+                    if (mayHedge && deadlineNanos - System.nanoTime() > 0) {
+                        stats.recordHedge();
+                        hedge = completion.submit(timedAttempt(prompt, strategy, isCompleteQuery, "hedge"));
+                        running.add(hedge);
+                    }
+                    continue;
+                }
+
+                running.remove(done);
+                try {
+                    String text = done.get();
+                    if (done == hedge) {
+                        stats.recordHedgeWin();
+                    }
+                    return text;
+                } catch (ExecutionException e) {
+                    if (running.isEmpty()) {
+                        throw e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                    // The other request may still succeed
+                }
+            }
+        } finally {
+            running.forEach(future -> future.cancel(true));
+        }
+
+        stats.recordTimeout();
+        throw new TimeoutException("LLM provider did not respond within " + llmConfig.getTimeoutSeconds() + "s");
+    }
+
+    private Callable<String> timedAttempt(LlmPrompt prompt, QueryStrategy strategy, Predicate<String> isCompleteQuery, String label) {
+        return () -> {
+            if (!circuitBreaker.tryEnterBulkhead()) {
+                throw new LlmUnavailableException("too many concurrent LLM calls");
+            }
+            long startNanos = System.nanoTime();
+            try {
+                String text = invokeWithPrefixFallback(prompt, strategy, isCompleteQuery);
+                stats.recordAttempt(label, System.nanoTime() - startNanos, true);
+                return text;
+            } catch (RuntimeException e) {
+                stats.recordAttempt(label, System.nanoTime() - startNanos, false);
+                throw e;
+            } finally {
+                circuitBreaker.exitBulkhead();
+            }
+        };
+    }
+
+    private String invokeWithPrefixFallback(LlmPrompt prompt, QueryStrategy strategy, Predicate<String> isCompleteQuery) {
+        try {
+            return isCompleteQuery == null ? invokeModel(prompt) : invokeModelStreaming(prompt, isCompleteQuery);
+        } catch (ApiException e) {
+            if (!prompt.isPrefixCached() || e.code() != 404) {
+                throw e;
+            }
+            // The provider dropped the cached prefix (expired or replaced after a schema reload)
+            log.warn("Cached prompt prefix {} is gone, resending the full prompt", prompt.cachedPrefixName());
+            promptPrefixCache.onPrefixLost(strategy.getStrategyName(), prompt.cachedPrefixName());
+            LlmPrompt inline = prompt.uncached();
+            return isCompleteQuery == null ? invokeModel(inline) : invokeModelStreaming(inline, isCompleteQuery);
+        }
+    }
+
+    private long hedgeDelayNanos() {
+        RosettixConfiguration.LlmConfig llmConfig = rosettixConfiguration.getLlm();
+        if (stats.successLatency.getCount() < MIN_HEDGE_SAMPLES) {
+            return TimeUnit.MILLISECONDS.toNanos(llmConfig.getHedgeDelayMillis());
+        }
+        double p95Millis = stats.successLatency.percentileMillis(95);
+        return TimeUnit.MICROSECONDS.toNanos((long) (Math.max(llmConfig.getHedgeMinDelayMillis(), p95Millis) * 1_000));
+    }
+
+    private long backoffMillis(int attempt) {
+        RosettixConfiguration.LlmConfig llmConfig = rosettixConfiguration.getLlm();
+        long ceiling = Math.min(
+            llmConfig.getRetryMaxBackoffMillis(),
+            llmConfig.getRetryBackoffMillis() << Math.min(attempt - 1, 20)
+        );
+        // Full jitter spreads retries of many callers hitting the same outage
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof TimeoutException || error instanceof GenAiIOException || error instanceof IOException) {
+            return true;
+        }
+        if (error instanceof ApiException apiException) {
+            int code = apiException.code();
+            return code == 408 || code == 429 || code >= 500;
+        }
+        return false;
+    }
+
+    private static boolean isUnavailable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof LlmUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Raised without calling the model when the circuit breaker or bulkhead rejects the call.
+     */
+    static final class LlmUnavailableException extends RuntimeException {
+        LlmUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class InFlightGeneration {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    static final class LlmStats {
+        private final LongAdder generations = new LongAdder();
+        private final LongAdder coalescedWaits = new LongAdder();
+        private final LongAccumulator maxWaitersPerGeneration = new LongAccumulator(Long::max, 0);
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder attemptFailures = new LongAdder();
+        private final LongAdder hedges = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder staleFallbacks = new LongAdder();
+        private final LongAdder earlyCutoffs = new LongAdder();
+        private final LatencyHistogram firstTokenLatency = new LatencyHistogram();
+        private final LatencyHistogram usableQueryLatency = new LatencyHistogram();
+        private final LatencyHistogram successLatency = new LatencyHistogram();
+        private final Map<String, LatencyHistogram> attemptLatency = new ConcurrentHashMap<>();
+
+        void recordGeneration(int waiters) {
+            generations.increment();
+            maxWaitersPerGeneration.accumulate(waiters);
+        }
+
+        void recordCoalescedWait() {
+            coalescedWaits.increment();
+        }
+
+        void recordAttempt(String label, long elapsedNanos, boolean succeeded) {
+            attemptLatency.computeIfAbsent(label, ignored -> new LatencyHistogram()).recordNanos(elapsedNanos);
+            if (succeeded) {
+                successLatency.recordNanos(elapsedNanos);
+            } else {
+                attemptFailures.increment();
+            }
+        }
+
+        void recordFirstToken(long elapsedNanos) {
+            firstTokenLatency.recordNanos(elapsedNanos);
+        }
+
+        void recordUsableQuery(long elapsedNanos, boolean cutOff) {
+            usableQueryLatency.recordNanos(elapsedNanos);
+            if (cutOff) {
+                earlyCutoffs.increment();
+            }
+        }
+
+        void recordStaleFallback() {
+            staleFallbacks.increment();
+        }
+
+        void recordRetry() {
+            retries.increment();
+        }
+
+        void recordTimeout() {
+            timeouts.increment();
+        }
+
+        void recordHedge() {
+            hedges.increment();
+        }
+
+        void recordHedgeWin() {
+            hedgeWins.increment();
+        }
+
+        Map<String, Object> toSnapshot() {
+            long generationCount = generations.sum();
+            long coalesced = coalescedWaits.sum();
+            long requests = generationCount + coalesced;
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("generations", generationCount);
+            snapshot.put("coalesced_waits", coalesced);
+            snapshot.put("coalescing_ratio", requests == 0 ? 0.0 : (double) coalesced / requests);
+            snapshot.put("avg_waiters_per_generation", generationCount == 0 ? 0.0 : (double) coalesced / generationCount);
+            snapshot.put("max_waiters_per_generation", maxWaitersPerGeneration.get());
+            return snapshot;
+        }
+
+        Map<String, Object> toResilienceSnapshot(long hedgeDelayNanos) {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("retries", retries.sum());
+            snapshot.put("timeouts", timeouts.sum());
+            snapshot.put("attempt_failures", attemptFailures.sum());
+            snapshot.put("hedges_fired", hedges.sum());
+            snapshot.put("hedges_won", hedgeWins.sum());
+            snapshot.put("stale_fallbacks", staleFallbacks.sum());
+            snapshot.put("hedge_delay_ms", hedgeDelayNanos / 1_000_000.0);
+            return snapshot;
+        }
+
+        Map<String, Object> toStreamingSnapshot(boolean enabled) {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("enabled", enabled);
+            snapshot.put("streamed_attempts", usableQueryLatency.getCount());
+            snapshot.put("early_cutoffs", earlyCutoffs.sum());
+            snapshot.put("time_to_first_token", firstTokenLatency.toSnapshot());
+            snapshot.put("time_to_usable_query", usableQueryLatency.toSnapshot());
+            return snapshot;
+        }
+
+        Map<String, Object> toAttemptLatencySnapshot() {
+            Map<String, Object> snapshot = new TreeMap<>();
+            attemptLatency.forEach((label, histogram) -> snapshot.put(label, histogram.toSnapshot()));
+            return snapshot;
+        }
+    }
+}
@@ -5,16 +5,35 @@ import com.rosettix.api.exception.QueryException;
 import com.rosettix.api.saga.Saga;
 import com.rosettix.api.saga.SagaOrchestrator;
 import com.rosettix.api.saga.SagaStep;
+import com.rosettix.api.strategy.QueryLimits;
+import com.rosettix.api.strategy.QueryPage;
+import com.rosettix.api.strategy.QueryPlan;
+import com.rosettix.api.strategy.QueryResult;
 import com.rosettix.api.strategy.QueryStrategy;
+import com.rosettix.api.strategy.RowSink;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +43,14 @@ public class OrchestratorService {
     private final LlmService llmService;
     private final Map<String, QueryStrategy> strategies; // Spring auto-injects all @Component strategies
     private final RosettixConfiguration rosettixConfiguration;
+    @Qualifier("queryExecutor")
+    private final ExecutorService queryExecutor;
+    @Qualifier("branchExecutor")
+    private final ExecutorService branchExecutor;
+    private final PipelineMetrics pipelineMetrics;
+    private final StrategyRouter strategyRouter;
+    private final PageTokenCodec pageTokenCodec;
+    private final QueryResultCache queryResultCache;
     @Autowired
     private SagaOrchestrator sagaOrchestrator;
 
@@ -35,6 +62,35 @@ public class OrchestratorService {
     }
 
     public List<Map<String, Object>> processQuery(String question, String strategyName) {
+        return processQuery(question, strategyName, LlmRequestContext.internal(LlmRequestContext.Priority.INTERACTIVE));
+    }
+
+    public List<Map<String, Object>> processQuery(String question, String strategyName, LlmRequestContext context) {
+        String cleanedQuery = prepareReadQuery(question, strategyName, context);
+        QueryStrategy strategy = strategies.get(strategyName);
+
+        try {
+            return executeRead(strategy, strategyName, cleanedQuery, context);
+        } catch (RuntimeException e) {
+            handleRuntimeError(e, strategyName, cleanedQuery);
+            return List.of();
+        } catch (Exception e) {
+            log.error("Unexpected error executing query with strategy {}: {}", strategyName, e.getMessage(), e);
+            throw new QueryException(
+                    "Unexpected execution error: " + e.getMessage(),
+                    strategyName,
+                    cleanedQuery,
+                    QueryException.ErrorType.EXECUTION_ERROR,
+                    e
+            );
+        }
+    }
+
+    /**
+     * Generates a read query and checks it is safe and read-only.
+     * @return the cleaned query, ready to execute
+     */
+    private String prepareReadQuery(String question, String strategyName, LlmRequestContext context) {
         QueryStrategy strategy = strategies.get(strategyName);
 
         if (strategy == null) {
@@ -49,11 +105,12 @@ public class OrchestratorService {
         log.info("Processing READ query with strategy: {}", strategy.getStrategyName());
 
         // 🔹 Generate and clean query
-        String generatedQuery = llmService.generateQuery(question, strategy);
-        String cleanedQuery = strategy.cleanQuery(generatedQuery);
+        String generatedQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.GENERATION, context.getCost(),
+                () -> llmService.generateQuery(question, strategy, context));
+        String cleanedQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.CLEAN, context.getCost(), () -> strategy.cleanQuery(generatedQuery));
 
         // 🔹 Validate basic query safety
-        if (!strategy.isQuerySafe(cleanedQuery)) {
+        if (!pipelineMetrics.time(strategyName, PipelineMetrics.Stage.SAFETY_CHECK, context.getCost(), () -> strategy.isQuerySafe(cleanedQuery))) {
             log.warn("Generated query failed safety check: {}", cleanedQuery);
             throw new QueryException(
                     "Generated query is not safe to execute",
@@ -64,7 +121,7 @@ public class OrchestratorService {
         }
 
         // 🔒 Strict read-only enforcement
-        if (!strategy.isReadOperation(cleanedQuery)) {
+        if (!pipelineMetrics.time(strategyName, PipelineMetrics.Stage.CLASSIFICATION, context.getCost(), () -> strategy.isReadOperation(cleanedQuery))) {
             log.warn("❌ Blocked non-read query on /api/query: {}", cleanedQuery);
             throw new QueryException(
                     "Only read operations (SELECT/find/count) are allowed on this endpoint. " +
@@ -74,29 +131,17 @@ public class OrchestratorService {
                     QueryException.ErrorType.UNSUPPORTED_OPERATION
             );
         }
-
-        try {
-            log.info("Executing read query: {}", cleanedQuery);
-            return strategy.executeQuery(cleanedQuery);
-        } catch (RuntimeException e) {
-            handleRuntimeError(e, strategyName, cleanedQuery);
-            return List.of();
-        } catch (Exception e) {
-            log.error("Unexpected error executing query with strategy {}: {}", strategyName, e.getMessage(), e);
-            throw new QueryException(
-                    "Unexpected execution error: " + e.getMessage(),
-                    strategyName,
-                    cleanedQuery,
-                    QueryException.ErrorType.EXECUTION_ERROR,
-                    e
-            );
-        }
+        return cleanedQuery;
     }
 
     // ============================================================
     // 2️⃣ WRITE QUERIES (Handled by /api/query/write)
     // ============================================================
     public List<Map<String, Object>> processWriteQuery(String question, String strategyName) {
+        return processWriteQuery(question, strategyName, LlmRequestContext.internal(LlmRequestContext.Priority.WRITE));
+    }
+
+    public List<Map<String, Object>> processWriteQuery(String question, String strategyName, LlmRequestContext context) {
         QueryStrategy strategy = strategies.get(strategyName);
 
         if (strategy == null) {
@@ -112,13 +157,14 @@ public class OrchestratorService {
 
         try {
             // 🔹 Use same generation pipeline for consistency
-            String generatedQuery = llmService.generateQuery(question, strategy);
-            String cleanedQuery = strategy.cleanQuery(generatedQuery);
+            String generatedQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.GENERATION, context.getCost(),
+                    () -> llmService.generateQuery(question, strategy, context));
+            String cleanedQuery = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.CLEAN, context.getCost(), () -> strategy.cleanQuery(generatedQuery));
 
             log.info("Generated write query: {}", cleanedQuery);
 
             // 🔹 Safety validation
-            if (!strategy.isQuerySafe(cleanedQuery)) {
+            if (!pipelineMetrics.time(strategyName, PipelineMetrics.Stage.SAFETY_CHECK, context.getCost(), () -> strategy.isQuerySafe(cleanedQuery))) {
                 throw new QueryException(
                         "Unsafe write query detected: " + cleanedQuery,
                         strategyName,
@@ -128,7 +174,7 @@ public class OrchestratorService {
             }
 
             // 🔒 Only allow write operations
-            if (!strategy.isWriteOperation(cleanedQuery)) {
+            if (!pipelineMetrics.time(strategyName, PipelineMetrics.Stage.CLASSIFICATION, context.getCost(), () -> strategy.isWriteOperation(cleanedQuery))) {
                 log.warn("❌ Blocked non-write query on /api/query/write: {}", cleanedQuery);
                 throw new QueryException(
                         "Only INSERT, UPDATE, or DELETE operations are allowed on this endpoint. " +
@@ -140,7 +186,12 @@ public class OrchestratorService {
             }
 
             // ✅ Execute the write query safely
-            return strategy.executeQuery(cleanedQuery);
+            try {
+                return execute(strategy, strategyName, cleanedQuery, context).rows();
+            } finally {
+                // A failed write may still have changed something, so cached reads go either way
+                queryResultCache.invalidate(strategyName, strategy.findQueryTargets(cleanedQuery));
+            }
 
         } catch (RuntimeException e) {
             handleRuntimeError(e, strategyName, question);
@@ -157,10 +208,491 @@ public class OrchestratorService {
         }
     }
 
+    /**
+     * Runs a checked query within the configured result size and timeout, flagging the request when
+     * the result was cut.
+     */
+    private QueryResult execute(QueryStrategy strategy, String strategyName, String query, LlmRequestContext context) {
+        QueryResult result = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.EXECUTION, context.getCost(),
+                () -> strategy.executeQuery(query, QueryLimits.of(rosettixConfiguration.getQuery())));
+        if (result.truncated()) {
+            log.warn("Result of {} query truncated to {} rows", strategyName, rosettixConfiguration.getQuery().getMaxResultSize());
+            context.markResultTruncated();
+        }
+        context.getCost().recordRows(result.rows().size());
+        return result;
+    }
+
+    /**
+     * Serves a read query from the {@link QueryResultCache} or runs it and caches its result.
+     */
+    private List<Map<String, Object>> executeRead(QueryStrategy strategy, String strategyName, String query, LlmRequestContext context) {
+        QueryResult cached = queryResultCache.get(strategyName, query);
+        if (cached != null) {
+            log.info("Serving cached result of read query: {}", query);
+            if (cached.truncated()) {
+                context.markResultTruncated();
+            }
+            context.getCost().recordRows(cached.rows().size());
+            return cached.rows();
+        }
+
+        log.info("Executing read query: {}", query);
+        long writeVersion = queryResultCache.writeVersion(strategyName);
+        QueryResult result = execute(strategy, strategyName, query, context);
+        if (queryResultCache.isEnabled()) {
+            queryResultCache.put(strategyName, query, strategy.findQueryTargets(query), result, writeVersion);
+        }
+        return result.rows();
+    }
+
+    // ============================================================
+    // 🧭 ROUTED QUERIES (no database given)
+    // ============================================================
+
+    /**
+     * Result of a query whose strategy was chosen by the {@link StrategyRouter}.
+     */
+    public record RoutedResult(String strategyName, List<Map<String, Object>> results) {
+    }
+
+    /**
+     * Runs a read query on the strategy the router picks. When two strategies score close, both run
+     * in parallel; the best one's answer is used unless it fails, in which case the runner-up's is.
+     * The branch not used is cancelled, and only the used one's cost is added to the request.
+     */
+    public RoutedResult processRoutedQuery(String question, LlmRequestContext context) {
+        StrategyRouter.Route route = strategyRouter.route(question);
+        if (route.speculative()) {
+            return processSpeculativeQuery(question, route.strategyNames(), context);
+        }
+        String best = route.strategyName();
+        String runnerUp = route.runnerUp();
+        if (runnerUp == null) {
+            return new RoutedResult(best, processQuery(question, best, context));
+        }
+
+        log.info("Question is ambiguous between {} and {}, running both", best, runnerUp);
+        LlmRequestContext bestContext = context.branch();
+        LlmRequestContext runnerUpContext = context.branch();
+        // On its own executor: this thread may itself be a query executor task, waiting on the runner-up
+        Future<TimedResult> runnerUpRun = branchExecutor.submit(() -> {
+            long startNanos = System.nanoTime();
+            List<Map<String, Object>> results = processQuery(question, runnerUp, runnerUpContext);
+            return new TimedResult(results, System.nanoTime() - startNanos);
+        });
+
+        try {
+            List<Map<String, Object>> results = processQuery(question, best, bestContext);
+            context.merge(bestContext);
+            return new RoutedResult(best, results);
+        } catch (QueryException e) {
+            try {
+                TimedResult rescued = runnerUpRun.get();
+                strategyRouter.recordRunnerUpRescue(rescued.elapsedNanos());
+                log.info("{} failed for routed question, answered by {}", best, runnerUp);
+                context.merge(runnerUpContext);
+                return new RoutedResult(runnerUp, rescued.results());
+            } catch (ExecutionException runnerUpError) {
+                e.addSuppressed(runnerUpError.getCause());
+                throw e;
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        } finally {
+            // A no-op once the runner-up answered; otherwise its LLM call and query are not needed
+            runnerUpRun.cancel(true);
+        }
+    }
+
+    /**
+     * Runs a read query on every given strategy at once and returns the first answer that passes the
+     * safety and read-only checks with at least one row; the remaining branches are cancelled. When
+     * no branch yields rows, the best-ranked empty answer is returned, or else the best-ranked error
+     * is thrown with the others suppressed. Each branch runs under its own
+     * {@link LlmRequestContext#branch() context}; only the answer's branch is added to the request,
+     * and the time of the others is counted as wasted in the router metrics.
+     */
+    public RoutedResult processSpeculativeQuery(String question, List<String> strategyNames, LlmRequestContext context) {
+        log.info("Question is ambiguous between {}, running all of them", strategyNames);
+        int branchCount = strategyNames.size();
+        AtomicLongArray startNanos = new AtomicLongArray(branchCount);
+        long[] elapsedNanos = new long[branchCount];
+        LlmRequestContext[] branchContexts = new LlmRequestContext[branchCount];
+        // Branches run on their own executor, since this thread may be a query executor task waiting on them
+        CompletionService<SpeculativeBranch> completion = new ExecutorCompletionService<>(branchExecutor);
+        Map<Future<SpeculativeBranch>, Integer> running = new HashMap<>();
+        for (int i = 0; i < branchCount; i++) {
+            int index = i;
+            branchContexts[index] = context.branch();
+            running.put(completion.submit(() -> {
+                startNanos.set(index, System.nanoTime());
+                try {
+                    List<Map<String, Object>> results = processQuery(question, strategyNames.get(index), branchContexts[index]);
+                    return new SpeculativeBranch(index, results, null, System.nanoTime() - startNanos.get(index));
+                } catch (RuntimeException e) {
+                    return new SpeculativeBranch(index, null, e, System.nanoTime() - startNanos.get(index));
+                }
+            }), index);
+        }
+
+        SpeculativeBranch[] finished = new SpeculativeBranch[branchCount];
+        SpeculativeBranch winner = null;
+        try {
+            while (winner == null && !running.isEmpty()) {
+                Future<SpeculativeBranch> done = completion.take();
+                running.remove(done);
+                SpeculativeBranch branch = done.get();
+                finished[branch.index()] = branch;
+                elapsedNanos[branch.index()] = branch.elapsedNanos();
+                if (branch.results() != null && !branch.results().isEmpty()) {
+                    winner = branch;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(
+                    "Interrupted while waiting for speculative queries",
+                    strategyNames.get(0),
+                    QueryException.ErrorType.EXECUTION_ERROR
+            );
+        } catch (ExecutionException e) {
+            // Branches catch their own errors, so this is a bug rather than a query failure
+            throw new IllegalStateException("Speculative branch failed unexpectedly", e.getCause());
+        } finally {
+            long cancelledAtNanos = System.nanoTime();
+            running.forEach((future, index) -> {
+                future.cancel(true);
+                long branchStart = startNanos.get(index);
+                elapsedNanos[index] = branchStart == 0 ? 0 : cancelledAtNanos - branchStart;
+            });
+            if (winner == null) {
+                winner = firstEmptyAnswer(finished);
+            }
+            long wastedNanos = 0;
+            for (int i = 0; i < branchCount; i++) {
+                if (winner == null || i != winner.index()) {
+                    wastedNanos += elapsedNanos[i];
+                }
+            }
+            strategyRouter.recordSpeculation(branchCount, running.size(), winner == null ? branchCount : branchCount - 1,
+                    wastedNanos, winner != null && winner.index() == 0);
+        }
+
+        if (winner != null) {
+            log.info("{} answered the speculative query first", strategyNames.get(winner.index()));
+            context.merge(branchContexts[winner.index()]);
+            return new RoutedResult(strategyNames.get(winner.index()), winner.results());
+        }
+        context.merge(branchContexts[0]);
+        RuntimeException error = finished[0].error();
+        for (int i = 1; i < branchCount; i++) {
+            error.addSuppressed(finished[i].error());
+        }
+        throw error;
+    }
+
+    private static SpeculativeBranch firstEmptyAnswer(SpeculativeBranch[] finished) {
+        for (SpeculativeBranch branch : finished) {
+            if (branch != null && branch.results() != null) {
+                return branch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a write query on the best strategy only; writes are never tried on two databases.
+     */
+    public RoutedResult processRoutedWriteQuery(String question, LlmRequestContext context) {
+        String strategyName = strategyRouter.route(question).strategyName();
+        return new RoutedResult(strategyName, processWriteQuery(question, strategyName, context));
+    }
+
+    private record TimedResult(List<Map<String, Object>> results, long elapsedNanos) {
+    }
+
+    private record SpeculativeBranch(int index, List<Map<String, Object>> results, RuntimeException error, long elapsedNanos) {
+    }
+
+    // ============================================================
+    // 🌊 STREAMED READ QUERIES (Handled by /api/query/stream)
+    // ============================================================
+
+    /**
+     * A read query that passed the safety and read-only checks, waiting for a sink to stream into.
+     */
+    public record StreamingQuery(String strategyName, String query, LlmRequestContext context) {
+    }
+
+    /**
+     * Generates and checks a read query without running it, so errors are reported before any row
+     * has been written.
+     */
+    public StreamingQuery prepareStreamingQuery(String question, String strategyName, LlmRequestContext context) {
+        return new StreamingQuery(strategyName, prepareReadQuery(question, strategyName, context), context);
+    }
+
+    /**
+     * Like {@link #prepareStreamingQuery}, on the strategy the router ranks best; streamed results
+     * cannot be raced, so the runner-up is never tried.
+     */
+    public StreamingQuery prepareRoutedStreamingQuery(String question, LlmRequestContext context) {
+        return prepareStreamingQuery(question, strategyRouter.route(question).strategyName(), context);
+    }
+
+    /**
+     * Runs a prepared query, handing each row to the sink as the strategy reads it.
+     * @return the number of rows handed over
+     */
+    public long streamQuery(StreamingQuery streamingQuery, RowSink sink) {
+        String strategyName = streamingQuery.strategyName();
+        QueryStrategy strategy = strategies.get(strategyName);
+        LlmRequestContext context = streamingQuery.context();
+        QueryLimits limits = new QueryLimits(0, Math.max(0, rosettixConfiguration.getQuery().getTimeoutSeconds()));
+        try {
+            log.info("Streaming read query: {}", streamingQuery.query());
+            long rows = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.EXECUTION, context.getCost(),
+                    () -> strategy.executeQueryStreaming(streamingQuery.query(), limits, sink));
+            context.getCost().recordRows(rows);
+            return rows;
+        } catch (RuntimeException e) {
+            handleRuntimeError(e, strategyName, streamingQuery.query());
+            return 0;
+        }
+    }
+
+    // ============================================================
+    // 📄 PAGED READ QUERIES (pageSize / pageToken on /api/query)
+    // ============================================================
+
+    /**
+     * One page of a read query.
+     * @param nextPageToken continuation token for the following page, or null on the last page
+     */
+    public record PagedResult(String strategyName, List<Map<String, Object>> results, String nextPageToken) {
+    }
+
+    /**
+     * Generates and checks a read query, then returns its first page. The query is pinned in the
+     * continuation token, so following pages never call the LLM.
+     */
+    public PagedResult processPagedQuery(String question, String strategyName, int pageSize, LlmRequestContext context) {
+        String cleanedQuery = prepareReadQuery(question, strategyName, context);
+        return executePage(strategyName, cleanedQuery, null, pageSize, context);
+    }
+
+    /**
+     * Like {@link #processPagedQuery}, on the strategy the router ranks best.
+     */
+    public PagedResult processRoutedPagedQuery(String question, int pageSize, LlmRequestContext context) {
+        return processPagedQuery(question, strategyRouter.route(question).strategyName(), pageSize, context);
+    }
+
+    /**
+     * Returns the page a continuation token points at, running the query pinned in the token.
+     */
+    public PagedResult processNextPage(String pageToken, LlmRequestContext context) {
+        PageTokenCodec.PageState state = pageTokenCodec.decode(pageToken);
+        String strategyName = state.strategyName();
+        QueryStrategy strategy = strategies.get(strategyName);
+        if (strategy == null) {
+            throw new QueryException(
+                    "Unsupported database strategy: " + strategyName,
+                    strategyName,
+                    QueryException.ErrorType.STRATEGY_NOT_FOUND
+            );
+        }
+
+        // Signed tokens are trusted as ours, but may predate a tightening of the safety rules
+        String query = state.query();
+        if (!pipelineMetrics.time(strategyName, PipelineMetrics.Stage.SAFETY_CHECK, context.getCost(),
+                () -> strategy.isQuerySafe(query) && strategy.isReadOperation(query))) {
+            log.warn("Blocked paged query that no longer passes the read-only safety check: {}", query);
+            throw new QueryException(
+                    "Paged query is not a safe read query",
+                    strategyName,
+                    query,
+                    QueryException.ErrorType.UNSAFE_QUERY
+            );
+        }
+        return executePage(strategyName, query, state.position(), state.pageSize(), context);
+    }
+
+    private PagedResult executePage(String strategyName, String query, String position, int pageSize, LlmRequestContext context) {
+        QueryStrategy strategy = strategies.get(strategyName);
+        int rowsPerPage = Math.max(1, Math.min(pageSize, rosettixConfiguration.getQuery().getMaxResultSize()));
+        QueryLimits limits = new QueryLimits(rowsPerPage, Math.max(0, rosettixConfiguration.getQuery().getTimeoutSeconds()));
+        try {
+            log.info("Executing page of read query from {}: {}", position == null ? "start" : position, query);
+            QueryPage page = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.EXECUTION, context.getCost(),
+                    () -> strategy.executePage(query, position, limits));
+            context.getCost().recordRows(page.rows().size());
+            String nextPageToken = page.hasMore() ? pageTokenCodec.encode(strategyName, query, page.nextPosition(), rowsPerPage) : null;
+            return new PagedResult(strategyName, page.rows(), nextPageToken);
+        } catch (RuntimeException e) {
+            handleRuntimeError(e, strategyName, query);
+            return null;
+        }
+    }
+
+    // ============================================================
+    // 🔍 EXPLAINED READ QUERIES (mode=explain on /api/query)
+    // ============================================================
+
+    /**
+     * A generated read query with the plan the database would run it by.
+     */
+    public record ExplainedQuery(String strategyName, String query, QueryPlan plan) {
+    }
+
+    /**
+     * Generates and checks a read query like {@link #processQuery}, then asks the database for its
+     * plan instead of running it, within {@code explainTimeoutSeconds}. Nothing is read from or
+     * stored in the result cache.
+     */
+    public ExplainedQuery processExplainQuery(String question, String strategyName, LlmRequestContext context) {
+        String cleanedQuery = prepareReadQuery(question, strategyName, context);
+        QueryStrategy strategy = strategies.get(strategyName);
+        QueryLimits limits = new QueryLimits(0, Math.max(0, rosettixConfiguration.getQuery().getExplainTimeoutSeconds()));
+        try {
+            log.info("Explaining read query: {}", cleanedQuery);
+            QueryPlan plan = pipelineMetrics.time(strategyName, PipelineMetrics.Stage.EXPLAIN, context.getCost(),
+                    () -> strategy.explainQuery(cleanedQuery, limits));
+            return new ExplainedQuery(strategyName, cleanedQuery, plan);
+        } catch (UnsupportedOperationException e) {
+            throw new QueryException(
+                    "Explain mode is not supported for " + strategyName,
+                    strategyName,
+                    cleanedQuery,
+                    QueryException.ErrorType.UNSUPPORTED_OPERATION,
+                    e
+            );
+        } catch (RuntimeException e) {
+            handleRuntimeError(e, strategyName, cleanedQuery);
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #processExplainQuery}, on the strategy the router ranks best.
+     */
+    public ExplainedQuery processRoutedExplainQuery(String question, LlmRequestContext context) {
+        return processExplainQuery(question, strategyRouter.route(question).strategyName(), context);
+    }
+
+    // ============================================================
+    // 🧺 BATCH READ QUERIES (Handled by /api/query/batch)
+    // ============================================================
+
+    /**
+     * One question of a batch. Without a database it is routed, or sent to the default strategy.
+     */
+    public record BatchItem(String question, String database) {
+    }
+
+    /**
+     * Outcome of one batch item.
+     * @param index position of the item in the batch
+     * @param error why the item failed, or null when it has results
+     * @param context the item's own context, null when it never ran
+     */
+    public record BatchItemResult(int index, String strategyName, boolean routed, List<Map<String, Object>> results,
+                                  RuntimeException error, LlmRequestContext context) {
+    }
+
+    /**
+     * Receives batch results in completion order, on the thread that runs the batch.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        /**
+         * @return false to cancel the items still waiting or running
+         */
+        boolean accept(BatchItemResult result);
+    }
+
+    /**
+     * Runs every item as a read query, at most {@code parallelismPerStrategy} at a time on each
+     * strategy, and hands each result to the listener as soon as it completes. Items run side by
+     * side so they share in-flight schema loads and join the same LLM micro-batches; each gets its
+     * own {@link LlmRequestContext.Priority#BATCH} context, so interactive requests keep going first
+     * for the LLM quota. Routed items go to the best-ranked strategy only, never raced. A failed
+     * item is reported as such and does not stop the others.
+     */
+    public void processBatch(List<BatchItem> items, String clientId, BatchListener listener) {
+        int parallelism = Math.max(1, rosettixConfiguration.getBatchQuery().getParallelismPerStrategy());
+        CompletionService<BatchItemResult> completion = new ExecutorCompletionService<>(branchExecutor);
+        Map<String, Deque<Callable<BatchItemResult>>> waiting = new LinkedHashMap<>();
+        Map<Future<BatchItemResult>, String> running = new HashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchItem item = items.get(i);
+            if (item.question() == null || item.question().isBlank()) {
+                if (!listener.accept(new BatchItemResult(i, null, false, null, new IllegalArgumentException("Question cannot be empty"), null))) {
+                    return;
+                }
+                continue;
+            }
+            boolean routed = item.database() == null && strategyRouter.isEnabled();
+            String strategyName = routed
+                    ? strategyRouter.route(item.question()).strategyName()
+                    : item.database() != null ? item.database().toLowerCase(Locale.ROOT) : rosettixConfiguration.getDefaultStrategy();
+            int index = i;
+            waiting.computeIfAbsent(strategyName, ignored -> new ArrayDeque<>()).add(() -> {
+                LlmRequestContext context = LlmRequestContext.of(clientId, LlmRequestContext.Priority.BATCH);
+                try {
+                    return new BatchItemResult(index, strategyName, routed, processQuery(item.question(), strategyName, context), null, context);
+                } catch (RuntimeException e) {
+                    return new BatchItemResult(index, strategyName, routed, null, e, context);
+                }
+            });
+        }
+        log.info("Running batch of {} questions on {}", items.size(), waiting.keySet());
+
+        try {
+            waiting.forEach((strategyName, queue) -> {
+                for (int i = 0; i < parallelism && !queue.isEmpty(); i++) {
+                    running.put(completion.submit(queue.poll()), strategyName);
+                }
+            });
+            while (!running.isEmpty()) {
+                Future<BatchItemResult> done = completion.take();
+                String strategyName = running.remove(done);
+                Callable<BatchItemResult> next = waiting.get(strategyName).poll();
+                if (next != null) {
+                    running.put(completion.submit(next), strategyName);
+                }
+                if (!listener.accept(done.get())) {
+                    log.info("Batch listener stopped, cancelling {} running items", running.size());
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(
+                    "Interrupted while waiting for batch items",
+                    rosettixConfiguration.getDefaultStrategy(),
+                    QueryException.ErrorType.EXECUTION_ERROR
+            );
+        } catch (ExecutionException e) {
+            // Items catch their own errors, so this is a bug rather than a query failure
+            throw new IllegalStateException("Batch item failed unexpectedly", e.getCause());
+        } finally {
+            running.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+
     // ============================================================
     // 3️⃣ CENTRALIZED RUNTIME ERROR HANDLER
     // ============================================================
     private void handleRuntimeError(RuntimeException e, String strategyName, String query) {
+        // Already classified where it was thrown, e.g. a query refused by the admission guard
+        if (e instanceof QueryException queryException) {
+            throw queryException;
+        }
+
         String message = e.getMessage();
         if (message == null) message = "Unknown runtime error";
 
@@ -199,8 +731,75 @@ public class OrchestratorService {
     }
 
     public List<Map<String, Object>> processSaga(List<SagaStep> steps, boolean isWrite) {
+        return processSaga(steps, isWrite, LlmRequestContext.internal(LlmRequestContext.Priority.SAGA));
+    }
+
+    public List<Map<String, Object>> processSaga(List<SagaStep> steps, boolean isWrite, LlmRequestContext context) {
         Saga saga = new Saga();
         steps.forEach(saga::addStep);
-        return sagaOrchestrator.executeSaga(saga, isWrite);
+        return sagaOrchestrator.executeSaga(saga, isWrite, context);
+    }
+
+    // ============================================================
+    // 5️⃣ ASYNC VARIANTS (LLM + execution off the request thread)
+    // ============================================================
+    public CompletableFuture<List<Map<String, Object>>> processQueryAsync(String question, String strategyName) {
+        return processQueryAsync(question, strategyName, LlmRequestContext.internal(LlmRequestContext.Priority.INTERACTIVE));
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> processQueryAsync(String question, String strategyName, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processQuery(question, strategyName, context), queryExecutor);
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> processWriteQueryAsync(String question, String strategyName) {
+        return processWriteQueryAsync(question, strategyName, LlmRequestContext.internal(LlmRequestContext.Priority.WRITE));
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> processWriteQueryAsync(String question, String strategyName, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processWriteQuery(question, strategyName, context), queryExecutor);
+    }
+
+    public CompletableFuture<RoutedResult> processRoutedQueryAsync(String question, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processRoutedQuery(question, context), queryExecutor);
+    }
+
+    public CompletableFuture<RoutedResult> processRoutedWriteQueryAsync(String question, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processRoutedWriteQuery(question, context), queryExecutor);
+    }
+
+    public CompletableFuture<StreamingQuery> prepareStreamingQueryAsync(String question, String strategyName, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> prepareStreamingQuery(question, strategyName, context), queryExecutor);
+    }
+
+    public CompletableFuture<StreamingQuery> prepareRoutedStreamingQueryAsync(String question, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> prepareRoutedStreamingQuery(question, context), queryExecutor);
+    }
+
+    public CompletableFuture<PagedResult> processPagedQueryAsync(String question, String strategyName, int pageSize, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processPagedQuery(question, strategyName, pageSize, context), queryExecutor);
+    }
+
+    public CompletableFuture<PagedResult> processRoutedPagedQueryAsync(String question, int pageSize, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processRoutedPagedQuery(question, pageSize, context), queryExecutor);
+    }
+
+    public CompletableFuture<PagedResult> processNextPageAsync(String pageToken, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processNextPage(pageToken, context), queryExecutor);
+    }
+
+    public CompletableFuture<ExplainedQuery> processExplainQueryAsync(String question, String strategyName, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processExplainQuery(question, strategyName, context), queryExecutor);
+    }
+
+    public CompletableFuture<ExplainedQuery> processRoutedExplainQueryAsync(String question, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processRoutedExplainQuery(question, context), queryExecutor);
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> processSagaAsync(List<SagaStep> steps, boolean isWrite) {
+        return processSagaAsync(steps, isWrite, LlmRequestContext.internal(LlmRequestContext.Priority.SAGA));
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> processSagaAsync(List<SagaStep> steps, boolean isWrite, LlmRequestContext context) {
+        return CompletableFuture.supplyAsync(() -> processSaga(steps, isWrite, context), queryExecutor);
     }
 }
@@ -0,0 +1,119 @@
+package com.rosettix.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Encodes the state of a paged query into an opaque continuation token and back.
+ * <p>
+ * The token carries the strategy, the generated query, the strategy's page position and the page
+ * size, so later pages run the same query without calling the LLM again. It is signed with
+ * HMAC-SHA256 and expires after the configured TTL; tokens that were changed, signed with another
+ * key or are past their expiry are rejected as {@link QueryException.ErrorType#INVALID_PAGE_TOKEN}.
+ */
+@Service
+@Slf4j
+public class PageTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final RosettixConfiguration configuration;
+    private final Clock clock;
+    private final SecretKeySpec key;
+
+    @Autowired
+    public PageTokenCodec(RosettixConfiguration configuration) {
+        this(configuration, Clock.systemUTC());
+    }
+
+    public PageTokenCodec(RosettixConfiguration configuration, Clock clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+        String secret = configuration.getPagination().getTokenSecret();
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            // Tokens then only survive as long as this instance, which is enough for a single node
+            log.info("No pagination token secret configured, continuation tokens are signed with a random key");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * What a continuation token pins: where the next page of which query starts.
+     */
+    public record PageState(String strategyName, String query, String position, int pageSize, long expiresAt) {
+    }
+
+    public String encode(String strategyName, String query, String position, int pageSize) {
+        long expiresAt = clock.instant()
+                .plus(Duration.ofMinutes(configuration.getPagination().getTokenTtlMinutes()))
+                .getEpochSecond();
+        try {
+            byte[] payload = OBJECT_MAPPER.writeValueAsBytes(new PageState(strategyName, query, position, pageSize, expiresAt));
+            return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to encode continuation token", e);
+        }
+    }
+
+    public PageState decode(String token) {
+        if (token == null || token.isBlank()) {
+            throw invalid("Continuation token is empty");
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            throw invalid("Continuation token is malformed");
+        }
+
+        PageState state;
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                throw invalid("Continuation token signature does not match");
+            }
+            state = OBJECT_MAPPER.readValue(payload, PageState.class);
+        } catch (QueryException e) {
+            throw e;
+        } catch (Exception e) {
+            throw invalid("Continuation token is malformed");
+        }
+
+        if (Instant.ofEpochSecond(state.expiresAt()).isBefore(clock.instant())) {
+            throw invalid("Continuation token has expired");
+        }
+        return state;
+    }
+
+    private byte[] sign(byte[] payload) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(key);
+        return mac.doFinal(payload);
+    }
+
+    private static QueryException invalid(String message) {
+        return new QueryException(message, null, QueryException.ErrorType.INVALID_PAGE_TOKEN);
+    }
+}
@@ -0,0 +1,168 @@
+package com.rosettix.api.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency of each stage of the query pipeline, per strategy.
+ * <p>
+ * Every sample goes to a {@link LatencyHistogram} for the metrics endpoint and to a Micrometer
+ * timer ({@value #TIMER_NAME}, tagged with strategy and stage) for Prometheus.
+ */
+@Service
+public class PipelineMetrics {
+
+    public static final String TIMER_NAME = "rosettix.pipeline.stage";
+
+    /**
+     * Request attribute naming the strategy a response belongs to, for timing its serialization
+     */
+    public static final String STRATEGY_ATTRIBUTE = PipelineMetrics.class.getName() + ".strategy";
+
+    /**
+     * Labels for requests not tied to one strategy; with the registered strategy names, the only
+     * values the strategy tag may take
+     */
+    public static final String SAGA_LABEL = "saga";
+    public static final String BATCH_LABEL = "batch";
+    public static final String ROUTED_LABEL = "routed";
+    public static final String NEXT_PAGE_LABEL = "next-page";
+    public static final String UNKNOWN_LABEL = "unknown";
+
+    private static final Set<String> FIXED_LABELS = Set.of(SAGA_LABEL, BATCH_LABEL, ROUTED_LABEL, NEXT_PAGE_LABEL, UNKNOWN_LABEL);
+
+    public enum Stage {
+        /** Reading the strategy schema, through the schema cache */
+        SCHEMA_FETCH,
+        /** Selecting the tables relevant to the question */
+        SCHEMA_PRUNE,
+        /** Building the prompt from the schema and question */
+        PROMPT_BUILD,
+        /** Model requests, including retries and hedges */
+        LLM_CALL,
+        /** The whole translation, whether from a cache or the model */
+        GENERATION,
+        CLEAN,
+        SAFETY_CHECK,
+        /** Read/write classification */
+        CLASSIFICATION,
+        /** Asking the database for a query plan, in explain mode */
+        EXPLAIN,
+        EXECUTION,
+        /** Writing the JSON response */
+        SERIALIZATION;
+
+        public String metricName() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StrategyStats> metrics = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The strategy tag for a request label: a registered strategy or a fixed label as is, anything
+     * else (such as a database a client made up) as {@value #UNKNOWN_LABEL}, since every distinct
+     * tag registers a full set of timers.
+     */
+    public static String strategyLabel(String label, Set<String> strategyNames) {
+        return label != null && (strategyNames.contains(label) || FIXED_LABELS.contains(label)) ? label : UNKNOWN_LABEL;
+    }
+
+    public void record(String strategyName, Stage stage, long elapsedNanos) {
+        StageTimer timer = metrics.computeIfAbsent(strategyName, StrategyStats::new).timer(stage);
+        timer.histogram().recordNanos(elapsedNanos);
+        timer.timer().record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs one stage and records how long it took, also when it fails.
+     */
+    public <T> T time(String strategyName, Stage stage, Supplier<T> step) {
+        long startNanos = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(strategyName, stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Runs one stage of a request, recording its time here and in the request's cost.
+     */
+    public <T> T time(String strategyName, Stage stage, QueryCost cost, Supplier<T> step) {
+        long startNanos = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            record(strategyName, stage, elapsedNanos);
+            cost.record(stage, elapsedNanos);
+        }
+    }
+
+    public LatencyHistogram getHistogram(String strategyName, Stage stage) {
+        StrategyStats stats = metrics.get(strategyName);
+        return stats == null ? new LatencyHistogram() : stats.timer(stage).histogram();
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timer", TIMER_NAME);
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private record StageTimer(LatencyHistogram histogram, Timer timer) {
+    }
+
+    final class StrategyStats {
+        private final Map<Stage, StageTimer> stages = new EnumMap<>(Stage.class);
+
+        StrategyStats(String strategyName) {
+            // Registered up front so the map is never written after publication
+            for (Stage stage : Stage.values()) {
+                Timer timer = Timer.builder(TIMER_NAME)
+                        .description("Latency of one query pipeline stage")
+                        .tag("strategy", strategyName)
+                        .tag("stage", stage.metricName())
+                        .publishPercentileHistogram()
+                        .publishPercentiles(0.5, 0.9, 0.99)
+                        .register(meterRegistry);
+                stages.put(stage, new StageTimer(new LatencyHistogram(), timer));
+            }
+        }
+
+        StageTimer timer(Stage stage) {
+            return stages.get(stage);
+        }
+
+        Map<String, Object> toSnapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            stages.forEach((stage, timer) -> {
+                if (timer.histogram().getCount() > 0) {
+                    snapshot.put(stage.metricName(), timer.histogram().toSnapshot());
+                }
+            });
+            return snapshot;
+        }
+    }
+}
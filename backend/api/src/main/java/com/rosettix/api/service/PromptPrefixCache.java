@@ -0,0 +1,239 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.llm.LlmPrompt;
+import com.rosettix.api.llm.QueryGenerator;
+import com.rosettix.api.strategy.QueryStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the static, schema-dependent prompt prefix of each strategy.
+ * <p>
+ * The prefix is built once per schema version and, when the provider supports it and the prefix is
+ * large enough, registered with the provider so each request only sends the question. Entries are
+ * rebuilt when the schema changes, when {@link SchemaCacheService} loads a new schema, and before
+ * the provider-side copy expires.
+ */
+@Service
+@Slf4j
+public class PromptPrefixCache {
+
+    private final QueryGenerator queryGenerator;
+    private final RosettixConfiguration configuration;
+    private final Clock clock;
+    private final Map<String, PrefixEntry> prefixes = new ConcurrentHashMap<>();
+    private final Map<String, Object> registrationLocks = new ConcurrentHashMap<>();
+    private final Map<String, PromptStats> metrics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PromptPrefixCache(QueryGenerator queryGenerator, RosettixConfiguration configuration, SchemaCacheService schemaCacheService) {
+        this(queryGenerator, configuration, Clock.systemUTC());
+        schemaCacheService.addSchemaLoadListener(this::invalidate);
+    }
+
+    public PromptPrefixCache(QueryGenerator queryGenerator, RosettixConfiguration configuration, Clock clock) {
+        this.queryGenerator = queryGenerator;
+        this.configuration = configuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Builds the prompt for a question against the strategy's full schema, reusing the cached prefix.
+     */
+    public LlmPrompt prepare(String question, String schema, QueryStrategy strategy) {
+        if (!configuration.getPromptCache().isEnabled() || schema == null) {
+            return uncached(question, schema, strategy);
+        }
+
+        PrefixEntry entry = currentEntry(strategy, schema);
+        LlmPrompt prompt = new LlmPrompt(entry.prefix(), entry.cachedPrefixName(), strategy.buildPromptSuffix(question));
+        int suffixBytes = utf8Length(prompt.suffix());
+        getStats(strategy.getStrategyName()).recordPrompt(
+            entry.prefixBytes() + suffixBytes,
+            prompt.isPrefixCached() ? suffixBytes : entry.prefixBytes() + suffixBytes
+        );
+        return prompt;
+    }
+
+    /**
+     * Builds a one-off prompt, for schemas that vary per question (e.g. pruned ones).
+     */
+    public LlmPrompt uncached(String question, String schema, QueryStrategy strategy) {
+        LlmPrompt prompt = new LlmPrompt(strategy.buildPromptPrefix(schema), null, strategy.buildPromptSuffix(question));
+        int bytes = utf8Length(prompt.text());
+        getStats(strategy.getStrategyName()).recordPrompt(bytes, bytes);
+        return prompt;
+    }
+
+    /**
+     * Drops the prefix built for a strategy, also on the provider side.
+     */
+    public void invalidate(String strategyName) {
+        PrefixEntry removed = prefixes.remove(strategyName);
+        if (removed != null) {
+            getStats(strategyName).recordInvalidation();
+            log.info("Invalidated prompt prefix for {}", strategyName);
+            evict(removed);
+        }
+    }
+
+    /**
+     * Records that the provider no longer knew a registered prefix, so it gets registered again.
+     */
+    public void onPrefixLost(String strategyName, String cachedPrefixName) {
+        getStats(strategyName).recordLostPrefix();
+        prefixes.computeIfPresent(strategyName, (ignored, entry) ->
+            cachedPrefixName.equals(entry.cachedPrefixName()) ? null : entry
+        );
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.PromptCacheConfig promptCacheConfig = configuration.getPromptCache();
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", promptCacheConfig.isEnabled());
+        response.put("ttl_minutes", promptCacheConfig.getTtlMinutes());
+        response.put("min_prefix_tokens", promptCacheConfig.getMinPrefixTokens());
+        response.put("cached_prefixes", prefixes.size());
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now(clock).toString());
+        return response;
+    }
+
+    private PrefixEntry currentEntry(QueryStrategy strategy, String schema) {
+        String strategyName = strategy.getStrategyName();
+        PrefixEntry current = prefixes.get(strategyName);
+        if (isUsable(current, schema)) {
+            return current;
+        }
+
+        // Registration is a remote call, so concurrent requests for one strategy wait for a single one
+        synchronized (registrationLocks.computeIfAbsent(strategyName, ignored -> new Object())) {
+            current = prefixes.get(strategyName);
+            if (isUsable(current, schema)) {
+                return current;
+            }
+            PrefixEntry rebuilt = register(strategyName, schema, strategy.buildPromptPrefix(schema));
+            prefixes.put(strategyName, rebuilt);
+            if (current != null) {
+                evict(current);
+            }
+            return rebuilt;
+        }
+    }
+
+    private boolean isUsable(PrefixEntry entry, String schema) {
+        return entry != null
+            && entry.schema().equals(schema)
+            && (entry.cachedPrefixName() == null || clock.instant().isBefore(entry.refreshAt()));
+    }
+
+    private PrefixEntry register(String strategyName, String schema, String prefix) {
+        RosettixConfiguration.PromptCacheConfig promptCacheConfig = configuration.getPromptCache();
+        Duration ttl = Duration.ofMinutes(promptCacheConfig.getTtlMinutes());
+        // Refresh ahead of the provider's expiry, so in-flight requests never reference a dropped prefix
+        Instant refreshAt = clock.instant().plus(ttl.multipliedBy(9).dividedBy(10));
+        String cachedPrefixName = null;
+
+        if (LlmBatcher.estimateTokens(prefix) >= promptCacheConfig.getMinPrefixTokens()) {
+            try {
+                cachedPrefixName = queryGenerator.cachePrefix(prefix, ttl);
+                if (cachedPrefixName != null) {
+                    getStats(strategyName).recordRegistration();
+                    log.info("Registered {} prompt prefix with {} as {}", strategyName, queryGenerator.getProviderName(), cachedPrefixName);
+                }
+            } catch (Exception e) {
+                getStats(strategyName).recordRegistrationFailure();
+                log.warn("Unable to register {} prompt prefix with {}, sending it inline: {}",
+                    strategyName, queryGenerator.getProviderName(), e.getMessage());
+            }
+        }
+        return new PrefixEntry(schema, prefix, utf8Length(prefix), cachedPrefixName, refreshAt);
+    }
+
+    private void evict(PrefixEntry entry) {
+        if (entry.cachedPrefixName() == null) {
+            return;
+        }
+        try {
+            queryGenerator.evictPrefix(entry.cachedPrefixName());
+        } catch (Exception e) {
+            // It expires on its own at the end of its TTL
+            log.warn("Unable to evict cached prompt prefix {}: {}", entry.cachedPrefixName(), e.getMessage());
+        }
+    }
+
+    private PromptStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new PromptStats());
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private record PrefixEntry(String schema, String prefix, int prefixBytes, String cachedPrefixName, Instant refreshAt) {
+    }
+
+    static final class PromptStats {
+        private final LongAdder prompts = new LongAdder();
+        private final LongAdder promptBytesBefore = new LongAdder();
+        private final LongAdder promptBytesAfter = new LongAdder();
+        private final LongAdder registrations = new LongAdder();
+        private final LongAdder registrationFailures = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+        private final LongAdder lostPrefixes = new LongAdder();
+
+        void recordPrompt(long fullBytes, long sentBytes) {
+            prompts.increment();
+            promptBytesBefore.add(fullBytes);
+            promptBytesAfter.add(sentBytes);
+        }
+
+        void recordRegistration() {
+            registrations.increment();
+        }
+
+        void recordRegistrationFailure() {
+            registrationFailures.increment();
+        }
+
+        void recordInvalidation() {
+            invalidations.increment();
+        }
+
+        void recordLostPrefix() {
+            lostPrefixes.increment();
+        }
+
+        Map<String, Object> toSnapshot() {
+            long promptCount = prompts.sum();
+            long before = promptBytesBefore.sum();
+            long after = promptBytesAfter.sum();
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("prompts", promptCount);
+            snapshot.put("avg_prompt_bytes_before", promptCount == 0 ? 0.0 : (double) before / promptCount);
+            snapshot.put("avg_prompt_bytes_after", promptCount == 0 ? 0.0 : (double) after / promptCount);
+            snapshot.put("prompt_bytes_reduction_percent", before == 0 ? 0.0 : (before - after) * 100.0 / before);
+            snapshot.put("registrations", registrations.sum());
+            snapshot.put("registration_failures", registrationFailures.sum());
+            snapshot.put("invalidations", invalidations.sum());
+            snapshot.put("lost_prefixes", lostPrefixes.sum());
+            return snapshot;
+        }
+    }
+}
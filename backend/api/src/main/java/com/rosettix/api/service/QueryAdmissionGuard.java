@@ -0,0 +1,255 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.strategy.QueryLimits;
+import com.rosettix.api.strategy.QueryPlan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a generated read may run, from the plan the database would run it by.
+ * <p>
+ * A plan is over its strategy's thresholds when the planner's total cost or expected rows exceed
+ * them, or when it scans a whole collection; planners that estimate no cost or rows are only held
+ * to the thresholds they can be measured against. Queries over a threshold are refused, or run
+ * with a row limit when the action is LIMIT. Plans are cached per strategy and query fingerprint
+ * (the query with whitespace outside quotes collapsed) for a TTL, so a query asked again costs no
+ * extra round trip. When the plan cannot be had, the query is admitted: the guard must never be
+ * the reason a read that could run fails.
+ */
+@Service
+@Slf4j
+public class QueryAdmissionGuard {
+
+    /**
+     * How an admitted query may run.
+     */
+    public enum Verdict {
+        /** As generated */
+        ADMIT,
+        /** With the row limit of {@link #limit} */
+        LIMIT
+    }
+
+    private final RosettixConfiguration configuration;
+    private final Clock clock;
+    private final LinkedHashMap<String, CachedPlan> plans = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, AdmissionStats> metrics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QueryAdmissionGuard(RosettixConfiguration configuration) {
+        this(configuration, Clock.systemUTC());
+    }
+
+    public QueryAdmissionGuard(RosettixConfiguration configuration, Clock clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getAdmission().isEnabled();
+    }
+
+    /**
+     * Checks a read against its strategy's thresholds.
+     * @param planner explains the query, called only when its plan is not cached
+     * @throws QueryException QUERY_TOO_EXPENSIVE when over a threshold and the action is REJECT
+     */
+    public Verdict check(String strategyName, String query, Supplier<QueryPlan> planner) {
+        if (!isEnabled()) {
+            return Verdict.ADMIT;
+        }
+
+        AdmissionStats stats = getStats(strategyName);
+        stats.checks.increment();
+        RosettixConfiguration.AdmissionThresholds thresholds = thresholds(strategyName);
+        String violation = findViolation(thresholds, plan(strategyName, query, planner, stats));
+        if (violation == null) {
+            stats.admitted.increment();
+            return Verdict.ADMIT;
+        }
+        if (thresholds.getAction() == RosettixConfiguration.AdmissionAction.LIMIT) {
+            log.info("Limiting {} query to {} rows, {}: {}", strategyName, thresholds.getLimitRows(), violation, query);
+            stats.limited.increment();
+            return Verdict.LIMIT;
+        }
+        throw reject(strategyName, query, violation, stats);
+    }
+
+    /**
+     * Checks a query rewritten after a {@link Verdict#LIMIT} verdict; one still over a threshold,
+     * such as a sort that must read everything before its first row, is refused.
+     * @throws QueryException QUERY_TOO_EXPENSIVE when the limited query is still over a threshold
+     */
+    public void checkLimited(String strategyName, String limitedQuery, Supplier<QueryPlan> planner) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        AdmissionStats stats = getStats(strategyName);
+        String violation = findViolation(thresholds(strategyName), plan(strategyName, limitedQuery, planner, stats));
+        if (violation != null) {
+            throw reject(strategyName, limitedQuery, violation + " even with a row limit", stats);
+        }
+    }
+
+    /**
+     * The limits of a query run after a {@link Verdict#LIMIT} verdict: the smaller of its own row
+     * limit and the strategy's {@code limitRows}.
+     */
+    public QueryLimits limit(String strategyName, QueryLimits limits) {
+        int limitRows = Math.max(1, thresholds(strategyName).getLimitRows());
+        return new QueryLimits(limits.hasMaxRows() ? Math.min(limits.maxRows(), limitRows) : limitRows, limits.timeoutSeconds());
+    }
+
+    /**
+     * The limits to explain a query within, bounding how long a check can hold a connection.
+     */
+    public QueryLimits explainLimits() {
+        return new QueryLimits(0, Math.max(0, configuration.getQuery().getExplainTimeoutSeconds()));
+    }
+
+    public RosettixConfiguration.AdmissionThresholds thresholds(String strategyName) {
+        RosettixConfiguration.AdmissionConfig admissionConfig = configuration.getAdmission();
+        return "mongodb".equals(strategyName) ? admissionConfig.getMongodb() : admissionConfig.getPostgres();
+    }
+
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.AdmissionConfig admissionConfig = configuration.getAdmission();
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", admissionConfig.isEnabled());
+        response.put("plan_cache_max_entries", admissionConfig.getPlanCacheMaxEntries());
+        response.put("plan_cache_ttl_minutes", admissionConfig.getPlanCacheTtlMinutes());
+        response.put("plan_cache_size", size());
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now(clock).toString());
+        return response;
+    }
+
+    /**
+     * @return the query's plan, cached or fresh, or null when it cannot be had
+     */
+    private QueryPlan plan(String strategyName, String query, Supplier<QueryPlan> planner, AdmissionStats stats) {
+        String key = QueryResultCache.cacheKey(strategyName, query);
+        Instant now = clock.instant();
+        synchronized (plans) {
+            CachedPlan cached = plans.get(key);
+            if (cached != null && cached.expiresAt().isAfter(now)) {
+                stats.planCacheHits.increment();
+                return cached.plan();
+            }
+        }
+
+        stats.planCacheMisses.increment();
+        QueryPlan plan;
+        long startNanos = System.nanoTime();
+        try {
+            plan = planner.get();
+        } catch (RuntimeException e) {
+            stats.planFailures.increment();
+            log.warn("Could not plan {} query, admitting it unchecked: {}", strategyName, e.getMessage());
+            return null;
+        } finally {
+            stats.planNanos.add(System.nanoTime() - startNanos);
+        }
+
+        RosettixConfiguration.AdmissionConfig admissionConfig = configuration.getAdmission();
+        int maxEntries = Math.max(0, admissionConfig.getPlanCacheMaxEntries());
+        synchronized (plans) {
+            plans.put(key, new CachedPlan(plan, now.plus(Duration.ofMinutes(Math.max(0, admissionConfig.getPlanCacheTtlMinutes())))));
+            Iterator<CachedPlan> eldest = plans.values().iterator();
+            while (plans.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return why the plan is over a threshold, or null when it is within all of them
+     */
+    static String findViolation(RosettixConfiguration.AdmissionThresholds thresholds, QueryPlan plan) {
+        if (plan == null) {
+            return null;
+        }
+        if (thresholds.getMaxEstimatedCost() > 0 && plan.estimatedCost() != null && plan.estimatedCost() > thresholds.getMaxEstimatedCost()) {
+            return String.format("estimated cost %.0f is over %.0f", plan.estimatedCost(), thresholds.getMaxEstimatedCost());
+        }
+        if (thresholds.getMaxEstimatedRows() > 0 && plan.estimatedRows() != null && plan.estimatedRows() > thresholds.getMaxEstimatedRows()) {
+            return String.format("estimated %.0f rows are over %.0f", plan.estimatedRows(), thresholds.getMaxEstimatedRows());
+        }
+        if (thresholds.isRejectCollectionScans() && plan.summary() != null && plan.summary().contains("COLLSCAN")) {
+            return "plan scans the whole collection";
+        }
+        return null;
+    }
+
+    private QueryException reject(String strategyName, String query, String violation, AdmissionStats stats) {
+        log.warn("Refused {} query, {}: {}", strategyName, violation, query);
+        stats.rejected.increment();
+        return new QueryException(
+                "Query refused before running: " + violation,
+                strategyName,
+                query,
+                QueryException.ErrorType.QUERY_TOO_EXPENSIVE
+        );
+    }
+
+    private AdmissionStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new AdmissionStats());
+    }
+
+    private record CachedPlan(QueryPlan plan, Instant expiresAt) {
+    }
+
+    static final class AdmissionStats {
+        private final LongAdder checks = new LongAdder();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder limited = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder planCacheHits = new LongAdder();
+        private final LongAdder planCacheMisses = new LongAdder();
+        private final LongAdder planFailures = new LongAdder();
+        private final LongAdder planNanos = new LongAdder();
+
+        Map<String, Object> toSnapshot() {
+            long hits = planCacheHits.sum();
+            long misses = planCacheMisses.sum();
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("checks", checks.sum());
+            snapshot.put("admitted", admitted.sum());
+            snapshot.put("limited", limited.sum());
+            snapshot.put("rejected", rejected.sum());
+            snapshot.put("plan_cache_hits", hits);
+            snapshot.put("plan_cache_misses", misses);
+            snapshot.put("plan_cache_hit_rate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            snapshot.put("plan_failures", planFailures.sum());
+            snapshot.put("avg_plan_ms", misses == 0 ? 0.0 : planNanos.sum() / 1_000_000.0 / misses);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.rosettix.api.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time and LLM tokens of one API request went, captured by the pipeline as it runs.
+ * Rendered as the {@code Server-Timing} header and the optional {@code cost} block of a response.
+ * A saga request adds up all of its steps.
+ */
+public final class QueryCost {
+
+    /**
+     * Request attribute holding the cost of the request, so its serialization can be added
+     */
+    public static final String REQUEST_ATTRIBUTE = QueryCost.class.getName();
+
+    private static final PipelineMetrics.Stage[] STAGES = PipelineMetrics.Stage.values();
+
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder llmCalls = new LongAdder();
+    private final LongAdder reusedTranslations = new LongAdder();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder responseTokens = new LongAdder();
+    private final LongAdder schemaCacheHits = new LongAdder();
+    private final LongAdder schemaCacheMisses = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+
+    public void record(PipelineMetrics.Stage stage, long elapsedNanos) {
+        stageNanos.addAndGet(stage.ordinal(), Math.max(0, elapsedNanos));
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWaitNanos.add(nanos);
+    }
+
+    /**
+     * Records one model generation made for this request, with token estimates of its prompt and answer.
+     */
+    void recordLlmCall(long elapsedNanos, long promptTokenEstimate, long responseTokenEstimate) {
+        record(PipelineMetrics.Stage.LLM_CALL, elapsedNanos);
+        llmCalls.increment();
+        promptTokens.add(promptTokenEstimate);
+        responseTokens.add(responseTokenEstimate);
+    }
+
+    /**
+     * Records a translation served without a model call (cache, similar question, template or a
+     * generation already in flight).
+     */
+    void recordReusedTranslation() {
+        reusedTranslations.increment();
+    }
+
+    void recordSchemaLookup(SchemaCacheService.Lookup lookup) {
+        if (lookup == SchemaCacheService.Lookup.HIT) {
+            schemaCacheHits.increment();
+        } else if (lookup != null) {
+            schemaCacheMisses.increment();
+        }
+    }
+
+    public void recordRows(long count) {
+        rows.add(count);
+    }
+
+    /**
+     * Adds everything recorded in another cost to this one.
+     */
+    void add(QueryCost other) {
+        for (int i = 0; i < STAGES.length; i++) {
+            stageNanos.addAndGet(i, other.stageNanos.get(i));
+        }
+        queueWaitNanos.add(other.queueWaitNanos.sum());
+        llmCalls.add(other.llmCalls.sum());
+        reusedTranslations.add(other.reusedTranslations.sum());
+        promptTokens.add(other.promptTokens.sum());
+        responseTokens.add(other.responseTokens.sum());
+        schemaCacheHits.add(other.schemaCacheHits.sum());
+        schemaCacheMisses.add(other.schemaCacheMisses.sum());
+        rows.add(other.rows.sum());
+    }
+
+    public double getStageMillis(PipelineMetrics.Stage stage) {
+        return stageNanos.get(stage.ordinal()) / 1_000_000.0;
+    }
+
+    public double getQueueWaitMillis() {
+        return queueWaitNanos.sum() / 1_000_000.0;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Renders the timings as a {@code Server-Timing} header value, one metric per stage that ran.
+     */
+    public String toServerTiming() {
+        StringJoiner header = new StringJoiner(", ");
+        for (PipelineMetrics.Stage stage : STAGES) {
+            if (stageNanos.get(stage.ordinal()) == 0) {
+                continue;
+            }
+            String metric = stage.metricName() + ";dur=" + formatMillis(getStageMillis(stage));
+            if (stage == PipelineMetrics.Stage.SCHEMA_FETCH) {
+                metric += ";desc=\"cache hits " + schemaCacheHits.sum() + ", misses " + schemaCacheMisses.sum() + "\"";
+            } else if (stage == PipelineMetrics.Stage.LLM_CALL) {
+                metric += ";desc=\"" + llmCalls.sum() + " calls, ~" + promptTokens.sum() + "/" + responseTokens.sum() + " tokens\"";
+            } else if (stage == PipelineMetrics.Stage.EXECUTION) {
+                metric += ";desc=\"" + rows.sum() + " rows\"";
+            }
+            header.add(metric);
+        }
+        if (queueWaitNanos.sum() > 0) {
+            header.add("queue_wait;dur=" + formatMillis(getQueueWaitMillis()));
+        }
+        return header.toString();
+    }
+
+    public Map<String, Object> toSnapshot() {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (PipelineMetrics.Stage stage : STAGES) {
+            if (stageNanos.get(stage.ordinal()) > 0) {
+                stages.put(stage.metricName() + "_ms", getStageMillis(stage));
+            }
+        }
+
+        Map<String, Object> llm = new LinkedHashMap<>();
+        llm.put("calls", llmCalls.sum());
+        llm.put("reused_translations", reusedTranslations.sum());
+        llm.put("prompt_tokens_estimate", promptTokens.sum());
+        llm.put("response_tokens_estimate", responseTokens.sum());
+        llm.put("queue_wait_ms", getQueueWaitMillis());
+
+        Map<String, Object> schemaCache = new LinkedHashMap<>();
+        schemaCache.put("hits", schemaCacheHits.sum());
+        schemaCache.put("misses", schemaCacheMisses.sum());
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("stages", stages);
+        snapshot.put("llm", llm);
+        snapshot.put("schema_cache", schemaCache);
+        snapshot.put("rows_returned", rows.sum());
+        return snapshot;
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+}
@@ -0,0 +1,364 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.QueryResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the results of read queries until a write touches what they read.
+ * <p>
+ * Entries are keyed by strategy and executed query, with whitespace outside quotes collapsed, and
+ * remember the tables, collections or keys the query reads, as found by the strategy. A write
+ * through Rosettix drops the entries of its strategy sharing one of its targets, or all of them
+ * when its targets cannot be told; reads whose targets cannot be told are never cached. The cache
+ * is bounded by the estimated memory of the stored rows, evicting least recently used results, and
+ * entries expire after a TTL so writes made outside Rosettix are eventually seen.
+ */
+@Service
+@Slf4j
+public class QueryResultCache {
+
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final RosettixConfiguration configuration;
+    private final Clock clock;
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Map<String, Set<String>>> keysByTarget = new HashMap<>();
+    private final Map<String, Long> writeVersions = new HashMap<>();
+    private final Map<String, ResultCacheStats> metrics = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    @Autowired
+    public QueryResultCache(RosettixConfiguration configuration) {
+        this(configuration, Clock.systemUTC());
+    }
+
+    public QueryResultCache(RosettixConfiguration configuration, Clock clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getResultCache().isEnabled();
+    }
+
+    /**
+     * Returns the cached result of the query, or null on a miss, expiry or when caching is disabled.
+     */
+    public QueryResult get(String strategyName, String query) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        ResultCacheStats stats = getStats(strategyName);
+        String key = cacheKey(strategyName, query);
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !entry.expiresAt().isAfter(clock.instant())) {
+                remove(key, entry);
+                stats.expirations.increment();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            stats.misses.increment();
+            return null;
+        }
+        stats.hits.increment();
+        log.debug("Result cache hit for {} query: {}", strategyName, query);
+        return entry.result();
+    }
+
+    /**
+     * Counts the writes seen on a strategy. Read it before running a query and pass it to
+     * {@link #put}, so a result read before a concurrent write is not stored after that write.
+     */
+    public long writeVersion(String strategyName) {
+        synchronized (entries) {
+            return writeVersions.getOrDefault(strategyName, 0L);
+        }
+    }
+
+    /**
+     * Stores the result of a read query touching the given targets, unless the targets are unknown,
+     * the result alone exceeds the memory bound or a write happened since {@code writeVersion}.
+     */
+    public void put(String strategyName, String query, Set<String> targets, QueryResult result, long writeVersion) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        ResultCacheStats stats = getStats(strategyName);
+        String key = cacheKey(strategyName, query);
+        long bytes = ENTRY_OVERHEAD_BYTES + estimateBytes(key) + estimateBytes(targets) + estimateBytes(result.rows());
+        long maxBytes = maxBytes();
+        if (targets.isEmpty() || bytes > maxBytes) {
+            stats.uncacheable.increment();
+            return;
+        }
+
+        CacheEntry entry = new CacheEntry(
+                strategyName,
+                Set.copyOf(targets),
+                new QueryResult(List.copyOf(result.rows()), result.truncated()),
+                bytes,
+                clock.instant().plus(Duration.ofSeconds(configuration.getResultCache().getTtlSeconds()))
+        );
+        synchronized (entries) {
+            if (writeVersions.getOrDefault(strategyName, 0L) != writeVersion) {
+                stats.staleStoresSkipped.increment();
+                return;
+            }
+            CacheEntry previous = entries.get(key);
+            if (previous != null) {
+                remove(key, previous);
+            }
+            entries.put(key, entry);
+            totalBytes += bytes;
+            Map<String, Set<String>> strategyIndex = keysByTarget.computeIfAbsent(strategyName, ignored -> new HashMap<>());
+            for (String target : entry.targets()) {
+                strategyIndex.computeIfAbsent(target, ignored -> new HashSet<>()).add(key);
+            }
+
+            Iterator<Map.Entry<String, CacheEntry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, CacheEntry> evicted = eldest.next();
+                eldest.remove();
+                unindex(evicted.getKey(), evicted.getValue());
+                getStats(evicted.getValue().strategyName()).evictions.increment();
+            }
+        }
+        stats.stores.increment();
+    }
+
+    /**
+     * Drops the cached results of a strategy that read any of the targets of a write, or all of
+     * the strategy's results when the write's targets are unknown. Call it once the write has run,
+     * whether or not it succeeded.
+     */
+    public void invalidate(String strategyName, Set<String> targets) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        int dropped = 0;
+        synchronized (entries) {
+            writeVersions.merge(strategyName, 1L, Long::sum);
+            Map<String, Set<String>> strategyIndex = keysByTarget.getOrDefault(strategyName, Map.of());
+            Set<String> keys = new HashSet<>();
+            if (targets.isEmpty()) {
+                strategyIndex.values().forEach(keys::addAll);
+            } else {
+                for (String target : targets) {
+                    keys.addAll(strategyIndex.getOrDefault(target, Set.of()));
+                }
+            }
+            for (String key : keys) {
+                CacheEntry entry = entries.get(key);
+                if (entry != null) {
+                    remove(key, entry);
+                    dropped++;
+                }
+            }
+        }
+        getStats(strategyName).recordInvalidation(dropped, targets.isEmpty());
+        if (dropped > 0) {
+            log.debug("Write to {} {} dropped {} cached results", strategyName, targets.isEmpty() ? "(unknown targets)" : targets, dropped);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getEstimatedBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.ResultCacheConfig resultCacheConfig = configuration.getResultCache();
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", resultCacheConfig.isEnabled());
+        response.put("max_size_mb", resultCacheConfig.getMaxSizeMb());
+        response.put("ttl_seconds", resultCacheConfig.getTtlSeconds());
+        response.put("size", size());
+        response.put("estimated_bytes", getEstimatedBytes());
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now(clock).toString());
+        return response;
+    }
+
+    private long maxBytes() {
+        return Math.max(0, configuration.getResultCache().getMaxSizeMb()) * 1024 * 1024;
+    }
+
+    private void remove(String key, CacheEntry entry) {
+        entries.remove(key);
+        unindex(key, entry);
+    }
+
+    private void unindex(String key, CacheEntry entry) {
+        totalBytes -= entry.bytes();
+        Map<String, Set<String>> strategyIndex = keysByTarget.get(entry.strategyName());
+        if (strategyIndex == null) {
+            return;
+        }
+        for (String target : entry.targets()) {
+            Set<String> keys = strategyIndex.get(target);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                strategyIndex.remove(target);
+            }
+        }
+    }
+
+    private ResultCacheStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new ResultCacheStats());
+    }
+
+    static String cacheKey(String strategyName, String query) {
+        return strategyName + "\n" + normalize(query);
+    }
+
+    /**
+     * Collapses whitespace runs outside quotes, so formatting differences of one generated query
+     * share an entry while literals keep their exact text.
+     */
+    static String normalize(String query) {
+        String trimmed = query.trim();
+        StringBuilder normalized = new StringBuilder(trimmed.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (quote != 0) {
+                normalized.append(c);
+                if (c == '\\' && i + 1 < trimmed.length()) {
+                    normalized.append(trimmed.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"') {
+                quote = c;
+            }
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Rough heap size of a result value: object headers, references and two bytes per character.
+     */
+    static long estimateBytes(Object value) {
+        if (value == null) {
+            return 8;
+        }
+        if (value instanceof CharSequence text) {
+            return 40 + 2L * text.length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return 24;
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 48;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 24 + 8L * collection.size();
+            for (Object element : collection) {
+                bytes += estimateBytes(element);
+            }
+            return bytes;
+        }
+        return 16 + 2L * String.valueOf(value).length();
+    }
+
+    private record CacheEntry(String strategyName, Set<String> targets, QueryResult result, long bytes, Instant expiresAt) {
+    }
+
+    static final class ResultCacheStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder stores = new LongAdder();
+        private final LongAdder uncacheable = new LongAdder();
+        private final LongAdder staleStoresSkipped = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+        private final LongAdder fullInvalidations = new LongAdder();
+        private final LongAdder invalidatedEntries = new LongAdder();
+        private final LongAccumulator maxFanOut = new LongAccumulator(Long::max, 0);
+
+        void recordInvalidation(int dropped, boolean full) {
+            invalidations.increment();
+            if (full) {
+                fullInvalidations.increment();
+            }
+            invalidatedEntries.add(dropped);
+            maxFanOut.accumulate(dropped);
+        }
+
+        Map<String, Object> toSnapshot() {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum();
+            long writes = invalidations.sum();
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("hits", hitCount);
+            snapshot.put("misses", misses.sum());
+            snapshot.put("hit_rate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+            snapshot.put("stores", stores.sum());
+            snapshot.put("uncacheable_results", uncacheable.sum());
+            snapshot.put("stale_stores_skipped", staleStoresSkipped.sum());
+            snapshot.put("evictions", evictions.sum());
+            snapshot.put("expirations", expirations.sum());
+            snapshot.put("invalidating_writes", writes);
+            snapshot.put("full_invalidations", fullInvalidations.sum());
+            snapshot.put("invalidated_entries", invalidatedEntries.sum());
+            snapshot.put("avg_invalidation_fan_out", writes == 0 ? 0.0 : (double) invalidatedEntries.sum() / writes);
+            snapshot.put("max_invalidation_fan_out", maxFanOut.get());
+            return snapshot;
+        }
+    }
+}
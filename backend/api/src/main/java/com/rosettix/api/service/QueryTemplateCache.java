@@ -0,0 +1,260 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.QueryLiteral;
+import com.rosettix.api.strategy.QueryStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reuses generated queries for questions that differ only in their literals.
+ * <p>
+ * When the LLM translates a question with literals (quoted strings, ISO dates, numbers), each
+ * literal is located among the literals of the generated query, as found by the strategy, and the
+ * query is stored as a template keyed by the question with its literals replaced by their kind.
+ * A later question with the same template gets the stored query with its own literals bound into
+ * those positions, encoded by the strategy, without calling the LLM. Queries where a question
+ * literal cannot be located unambiguously are never templated.
+ */
+@Service
+@Slf4j
+public class QueryTemplateCache {
+
+    private final RosettixConfiguration configuration;
+    private final LinkedHashMap<String, QueryTemplate> templates = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, TemplateStats> metrics = new ConcurrentHashMap<>();
+
+    public QueryTemplateCache(RosettixConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getTemplates().isEnabled();
+    }
+
+    /**
+     * Returns the stored query of the question's template with the question's literals bound in,
+     * or null on a miss, for questions without literals or when templating is disabled.
+     */
+    public String find(TranslationKey key, QueryStrategy strategy) {
+        if (!isEnabled()) {
+            return null;
+        }
+        List<String> literals = QuestionTokenizer.literals(key.question());
+        if (literals.isEmpty()) {
+            return null;
+        }
+
+        QueryTemplate template;
+        synchronized (templates) {
+            template = templates.get(templateKey(key));
+        }
+        TemplateStats stats = getStats(key.strategyName());
+        if (template == null) {
+            stats.recordMiss();
+            return null;
+        }
+
+        String query = template.bind(literals, strategy);
+        if (query == null) {
+            stats.recordBindFailure();
+            return null;
+        }
+        stats.recordHit();
+        log.debug("Template hit for {} question '{}'", key.strategyName(), key.question());
+        return query;
+    }
+
+    /**
+     * Stores a generated query as a template when every literal of the question can be located in it.
+     * Callers must only pass queries that passed the strategy safety check.
+     */
+    public void learn(TranslationKey key, QueryStrategy strategy, String query) {
+        if (!isEnabled() || query == null) {
+            return;
+        }
+        List<String> literals = QuestionTokenizer.literals(key.question());
+        if (literals.isEmpty()) {
+            return;
+        }
+
+        QueryTemplate template = QueryTemplate.of(query, literals, strategy.findQueryLiterals(query));
+        TemplateStats stats = getStats(key.strategyName());
+        if (template == null) {
+            stats.recordUntemplatable();
+            return;
+        }
+
+        int maxEntries = Math.max(1, configuration.getTemplates().getMaxEntries());
+        synchronized (templates) {
+            templates.put(templateKey(key), template);
+            Iterator<String> eldest = templates.keySet().iterator();
+            while (templates.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        stats.recordLearned();
+    }
+
+    public int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", isEnabled());
+        response.put("max_entries", configuration.getTemplates().getMaxEntries());
+        response.put("size", size());
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private static String templateKey(TranslationKey key) {
+        return key.strategyName() + ":" + key.schemaHash() + ":" + QuestionTokenizer.template(key.question());
+    }
+
+    private TemplateStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new TemplateStats());
+    }
+
+    /**
+     * A query literal filled from question literal {@code literalIndex}, wrapped in constant text
+     * (e.g. the wildcards of a LIKE pattern).
+     */
+    record Slot(QueryLiteral literal, int literalIndex, String prefix, String suffix) {
+    }
+
+    record QueryTemplate(String query, List<Slot> slots) {
+
+        static QueryTemplate of(String query, List<String> questionLiterals, List<QueryLiteral> queryLiterals) {
+            if (queryLiterals.isEmpty() || new HashSet<>(questionLiterals).size() < questionLiterals.size()) {
+                // Equal literals cannot be told apart once their values change
+                return null;
+            }
+
+            List<Slot> slots = new ArrayList<>();
+            boolean[] located = new boolean[questionLiterals.size()];
+            for (QueryLiteral literal : queryLiterals) {
+                Slot slot = null;
+                for (int i = 0; i < questionLiterals.size(); i++) {
+                    Slot candidate = match(literal, i, questionLiterals.get(i));
+                    if (candidate == null) {
+                        continue;
+                    }
+                    if (slot != null) {
+                        return null;
+                    }
+                    slot = candidate;
+                }
+                if (slot != null) {
+                    if (located[slot.literalIndex()]) {
+                        // One question literal in two places, e.g. "customer 1" and LIMIT 1: only one may depend on it
+                        return null;
+                    }
+                    slots.add(slot);
+                    located[slot.literalIndex()] = true;
+                }
+            }
+
+            for (boolean found : located) {
+                if (!found) {
+                    return null;
+                }
+            }
+            return new QueryTemplate(query, List.copyOf(slots));
+        }
+
+        private static Slot match(QueryLiteral literal, int literalIndex, String value) {
+            String text = literal.value();
+            if (text.equals(value)) {
+                return new Slot(literal, literalIndex, "", "");
+            }
+            if (!literal.string()) {
+                return null;
+            }
+            int at = text.indexOf(value);
+            if (at < 0 || text.indexOf(value, at + 1) >= 0) {
+                return null;
+            }
+            int end = at + value.length();
+            boolean bounded = (at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1)))
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+            return bounded ? new Slot(literal, literalIndex, text.substring(0, at), text.substring(end)) : null;
+        }
+
+        String bind(List<String> questionLiterals, QueryStrategy strategy) {
+            StringBuilder bound = new StringBuilder(query.length() + 16);
+            int last = 0;
+            for (Slot slot : slots) {
+                String value = slot.prefix() + questionLiterals.get(slot.literalIndex()) + slot.suffix();
+                String encoded = strategy.encodeQueryLiteral(slot.literal(), value);
+                if (encoded == null) {
+                    return null;
+                }
+                bound.append(query, last, slot.literal().start()).append(encoded);
+                last = slot.literal().end();
+            }
+            return bound.append(query, last, query.length()).toString();
+        }
+    }
+
+    static final class TemplateStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder learned = new LongAdder();
+        private final LongAdder untemplatable = new LongAdder();
+        private final LongAdder bindFailures = new LongAdder();
+
+        void recordHit() {
+            hits.increment();
+        }
+
+        void recordMiss() {
+            misses.increment();
+        }
+
+        void recordLearned() {
+            learned.increment();
+        }
+
+        void recordUntemplatable() {
+            untemplatable.increment();
+        }
+
+        void recordBindFailure() {
+            bindFailures.increment();
+        }
+
+        Map<String, Object> toSnapshot() {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum() + bindFailures.sum();
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("template_hits", hitCount);
+            snapshot.put("template_misses", misses.sum());
+            snapshot.put("bind_failures", bindFailures.sum());
+            snapshot.put("templates_learned", learned.sum());
+            snapshot.put("untemplatable_queries", untemplatable.sum());
+            snapshot.put("hit_rate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, TTL-based cache of cleaned and safety-checked queries generated by the LLM.
+ * Entries are keyed by strategy, schema content hash and normalized question, so a schema
+ * change naturally produces new keys and old entries age out through LRU eviction or TTL.
+ * Expired entries are kept in a bounded stale area so they can still be served while the LLM
+ * is unavailable.
+ */
+@Service
+@Slf4j
+public class QueryTranslationCache {
+
+    private final RosettixConfiguration configuration;
+    private final Clock clock;
+    private final LinkedHashMap<TranslationKey, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<TranslationKey, CacheEntry> staleEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, TranslationCacheStats> metrics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QueryTranslationCache(RosettixConfiguration configuration) {
+        this(configuration, Clock.systemUTC());
+    }
+
+    public QueryTranslationCache(RosettixConfiguration configuration, Clock clock) {
+        this.configuration = configuration;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getQuery().isCachingEnabled();
+    }
+
+    /**
+     * Returns the cached query for the key, or null on a miss, expiry or when caching is disabled.
+     */
+    public String get(TranslationKey key) {
+        TranslationCacheStats stats = getStats(key.strategyName());
+
+        if (!isEnabled()) {
+            stats.recordBypass();
+            return null;
+        }
+
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(Instant.now(clock))) {
+                entries.remove(key);
+                retainStale(key, entry);
+                stats.recordExpiration();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+
+        stats.recordHit(entry.generationNanos());
+        log.debug("Translation cache hit for {} question '{}'", key.strategyName(), key.question());
+        return entry.query();
+    }
+
+    /**
+     * Returns the cached query for the key even if it has expired, or null when none was ever cached.
+     * Meant as a fallback while the LLM cannot be reached.
+     */
+    public String getStale(TranslationKey key) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = staleEntries.get(key);
+            }
+        }
+
+        if (entry == null) {
+            return null;
+        }
+
+        getStats(key.strategyName()).recordStaleHit();
+        log.info("Serving stale translation for {} question '{}'", key.strategyName(), key.question());
+        return entry.query();
+    }
+
+    /**
+     * Stores a generated query. Callers must only pass queries that passed the strategy safety check.
+     * @param generationNanos how long the LLM took to produce the query, used to estimate savings on hits
+     */
+    public void put(TranslationKey key, String query, long generationNanos) {
+        if (!isEnabled() || query == null || query.isBlank()) {
+            return;
+        }
+
+        RosettixConfiguration.QueryConfig queryConfig = configuration.getQuery();
+        Instant expiresAt = Instant.now(clock).plus(Duration.ofMinutes(queryConfig.getCacheTtlMinutes()));
+        int maxEntries = Math.max(1, queryConfig.getCacheMaxEntries());
+
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(query, expiresAt, generationNanos));
+            staleEntries.remove(key);
+            Iterator<Map.Entry<TranslationKey, CacheEntry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                TranslationKey evicted = eldest.next().getKey();
+                eldest.remove();
+                getStats(evicted.strategyName()).recordEviction();
+            }
+        }
+        getStats(key.strategyName()).recordStore();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            staleEntries.clear();
+        }
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.QueryConfig queryConfig = configuration.getQuery();
+        Map<String, Object> databases = new LinkedHashMap<>();
+
+        for (Map.Entry<String, TranslationCacheStats> entry : metrics.entrySet()) {
+            databases.put(entry.getKey(), entry.getValue().toSnapshot());
+        }
+
+        TranslationCacheStats aggregate = new TranslationCacheStats();
+        metrics.values().forEach(aggregate::mergeFrom);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", queryConfig.isCachingEnabled());
+        response.put("ttl_minutes", queryConfig.getCacheTtlMinutes());
+        response.put("max_entries", queryConfig.getCacheMaxEntries());
+        response.put("size", size());
+        response.put("stale_size", staleSize());
+        response.put("databases", databases);
+        response.put("overall", aggregate.toSnapshot());
+        response.put("timestamp", Instant.now(clock).toString());
+        return response;
+    }
+
+    private int staleSize() {
+        synchronized (entries) {
+            return staleEntries.size();
+        }
+    }
+
+    /**
+     * Must be called while holding the entries lock.
+     */
+    private void retainStale(TranslationKey key, CacheEntry entry) {
+        int maxEntries = Math.max(1, configuration.getQuery().getCacheMaxEntries());
+        staleEntries.put(key, entry);
+        Iterator<TranslationKey> eldest = staleEntries.keySet().iterator();
+        while (staleEntries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private TranslationCacheStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new TranslationCacheStats());
+    }
+
+    private record CacheEntry(String query, Instant expiresAt, long generationNanos) {
+        boolean isExpired(Instant now) {
+            return expiresAt.isBefore(now);
+        }
+    }
+
+    static final class TranslationCacheStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder bypasses = new LongAdder();
+        private final LongAdder stores = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+        private final LongAdder staleHits = new LongAdder();
+        private final LongAdder savedLlmNanos = new LongAdder();
+
+        void recordHit(long generationNanos) {
+            hits.increment();
+            savedLlmNanos.add(generationNanos);
+        }
+
+        void recordMiss() {
+            misses.increment();
+        }
+
+        void recordBypass() {
+            bypasses.increment();
+        }
+
+        void recordStore() {
+            stores.increment();
+        }
+
+        void recordEviction() {
+            evictions.increment();
+        }
+
+        void recordExpiration() {
+            expirations.increment();
+        }
+
+        void recordStaleHit() {
+            staleHits.increment();
+        }
+
+        void mergeFrom(TranslationCacheStats other) {
+            hits.add(other.hits.sum());
+            misses.add(other.misses.sum());
+            bypasses.add(other.bypasses.sum());
+            stores.add(other.stores.sum());
+            evictions.add(other.evictions.sum());
+            expirations.add(other.expirations.sum());
+            staleHits.add(other.staleHits.sum());
+            savedLlmNanos.add(other.savedLlmNanos.sum());
+        }
+
+        Map<String, Object> toSnapshot() {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum();
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("cache_hits", hitCount);
+            snapshot.put("cache_misses", misses.sum());
+            snapshot.put("cache_bypasses", bypasses.sum());
+            snapshot.put("stores", stores.sum());
+            snapshot.put("evictions", evictions.sum());
+            snapshot.put("expirations", expirations.sum());
+            snapshot.put("stale_hits", staleHits.sum());
+            snapshot.put("hit_ratio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+            snapshot.put("estimated_llm_ms_saved", savedLlmNanos.sum() / 1_000_000.0);
+            return snapshot;
+        }
+    }
+}
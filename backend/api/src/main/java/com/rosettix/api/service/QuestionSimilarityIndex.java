@@ -0,0 +1,353 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Near-duplicate question index used to reuse generated queries without calling the LLM.
+ * <p>
+ * Questions are reduced to canonical unigram and bigram shingles, summarized with a MinHash
+ * signature and bucketed with locality-sensitive hashing, so a lookup only scores the few
+ * questions sharing a band instead of the whole index. Candidates are then verified with the
+ * exact Jaccard similarity of their shingles. Questions are partitioned by strategy, schema
+ * hash and literal values, so questions differing only in a literal never match.
+ */
+@Service
+@Slf4j
+public class QuestionSimilarityIndex {
+
+    static final int NUM_HASHES = 64;
+    static final int ROWS_PER_BAND = 4;
+    static final int NUM_BANDS = NUM_HASHES / ROWS_PER_BAND;
+
+    private static final long[] HASH_MULTIPLIERS = new long[NUM_HASHES];
+    private static final long[] HASH_OFFSETS = new long[NUM_HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5eed_cafe_f00dL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            HASH_MULTIPLIERS[i] = random.nextLong() | 1L;
+            HASH_OFFSETS[i] = random.nextLong();
+        }
+    }
+
+    private final RosettixConfiguration configuration;
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private final ArrayDeque<IndexedQuestion> insertionOrder = new ArrayDeque<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SimilarityStats stats = new SimilarityStats();
+
+    public QuestionSimilarityIndex(RosettixConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getSimilarity().isEnabled();
+    }
+
+    /**
+     * Returns the query of the most similar indexed question at or above the configured threshold.
+     */
+    public String findSimilar(TranslationKey key) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        long startNanos = System.nanoTime();
+        Shingles probe = Shingles.of(key.question());
+        if (probe.isEmpty()) {
+            return null;
+        }
+
+        double threshold = configuration.getSimilarity().getThreshold();
+        IndexedQuestion best = null;
+        double bestScore = 0.0;
+        int candidates = 0;
+
+        lock.readLock().lock();
+        try {
+            Partition partition = partitions.get(partitionKey(key, probe.literals()));
+            if (partition != null) {
+                for (IndexedQuestion candidate : partition.candidates(probe.signature())) {
+                    candidates++;
+                    double score = jaccard(probe.hashes(), candidate.hashes());
+                    if (score >= threshold && score > bestScore) {
+                        best = candidate;
+                        bestScore = score;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        stats.recordLookup(System.nanoTime() - startNanos, candidates, best != null);
+        if (best == null) {
+            return null;
+        }
+
+        log.debug(
+                "Reusing query of similar question '{}' for '{}' (similarity {})",
+                best.question(), key.question(), String.format("%.2f", bestScore)
+        );
+        return best.query();
+    }
+
+    /**
+     * Indexes a safety-checked query under its question, replacing an identical question's entry.
+     */
+    public void index(TranslationKey key, String query) {
+        if (!isEnabled() || query == null || query.isBlank()) {
+            return;
+        }
+
+        Shingles shingles = Shingles.of(key.question());
+        if (shingles.isEmpty()) {
+            return;
+        }
+
+        String partitionKey = partitionKey(key, shingles.literals());
+        IndexedQuestion indexed = new IndexedQuestion(
+                partitionKey, key.question(), query, shingles.hashes(), shingles.signature()
+        );
+        int maxEntries = Math.max(1, configuration.getSimilarity().getMaxEntries());
+
+        lock.writeLock().lock();
+        try {
+            Partition partition = partitions.computeIfAbsent(partitionKey, ignored -> new Partition());
+            IndexedQuestion replaced = partition.add(indexed);
+            if (replaced != null) {
+                insertionOrder.remove(replaced);
+            }
+            insertionOrder.addLast(indexed);
+
+            while (insertionOrder.size() > maxEntries) {
+                IndexedQuestion evicted = insertionOrder.removeFirst();
+                Partition owner = partitions.get(evicted.partitionKey());
+                if (owner != null && owner.remove(evicted) && owner.isEmpty()) {
+                    partitions.remove(evicted.partitionKey());
+                }
+                stats.recordEviction();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return insertionOrder.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.SimilarityConfig similarityConfig = configuration.getSimilarity();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", similarityConfig.isEnabled());
+        response.put("threshold", similarityConfig.getThreshold());
+        response.put("max_entries", similarityConfig.getMaxEntries());
+        response.put("size", size());
+        response.putAll(stats.toSnapshot());
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    /**
+     * Literals are part of the partition because only questions with identical literals may share a query.
+     */
+    private String partitionKey(TranslationKey key, List<String> literals) {
+        return key.strategyName() + ":" + key.schemaHash() + ":" + String.join("\u0000", literals);
+    }
+
+    static double jaccard(long[] left, long[] right) {
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] == right[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (left[i] < right[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = left.length + right.length - intersection;
+        return union == 0 ? 0.0 : (double) intersection / union;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private record IndexedQuestion(
+            String partitionKey,
+            String question,
+            String query,
+            long[] hashes,
+            long[] signature
+    ) {
+    }
+
+    /**
+     * Sorted shingle hashes, literals and MinHash signature of a single question.
+     */
+    record Shingles(long[] hashes, List<String> literals, long[] signature) {
+
+        static Shingles of(String question) {
+            List<String> terms = QuestionTokenizer.terms(question);
+            Set<Long> unique = new HashSet<>();
+            for (int i = 0; i < terms.size(); i++) {
+                unique.add(mix(terms.get(i).hashCode()));
+                if (i + 1 < terms.size()) {
+                    unique.add(mix((terms.get(i) + " " + terms.get(i + 1)).hashCode() * 31L + 7));
+                }
+            }
+
+            long[] hashes = unique.stream().mapToLong(Long::longValue).sorted().toArray();
+            long[] signature = new long[NUM_HASHES];
+            Arrays.fill(signature, Long.MAX_VALUE);
+            for (long hash : hashes) {
+                for (int i = 0; i < NUM_HASHES; i++) {
+                    long permuted = mix(hash * HASH_MULTIPLIERS[i] + HASH_OFFSETS[i]);
+                    if (permuted < signature[i]) {
+                        signature[i] = permuted;
+                    }
+                }
+            }
+            return new Shingles(hashes, QuestionTokenizer.literals(question), signature);
+        }
+
+        boolean isEmpty() {
+            return hashes.length == 0;
+        }
+    }
+
+    private static final class Partition {
+        private final List<Map<Long, List<IndexedQuestion>>> bands = new ArrayList<>(NUM_BANDS);
+        private final Map<String, IndexedQuestion> byQuestion = new HashMap<>();
+
+        Partition() {
+            for (int band = 0; band < NUM_BANDS; band++) {
+                bands.add(new HashMap<>());
+            }
+        }
+
+        IndexedQuestion add(IndexedQuestion question) {
+            IndexedQuestion replaced = byQuestion.put(question.question(), question);
+            if (replaced != null) {
+                remove(replaced);
+            }
+            for (int band = 0; band < NUM_BANDS; band++) {
+                bands.get(band)
+                        .computeIfAbsent(bandHash(question.signature(), band), ignored -> new ArrayList<>(2))
+                        .add(question);
+            }
+            return replaced;
+        }
+
+        boolean remove(IndexedQuestion question) {
+            if (byQuestion.get(question.question()) == question) {
+                byQuestion.remove(question.question());
+            }
+            boolean removed = false;
+            for (int band = 0; band < NUM_BANDS; band++) {
+                Map<Long, List<IndexedQuestion>> buckets = bands.get(band);
+                long bucketKey = bandHash(question.signature(), band);
+                List<IndexedQuestion> bucket = buckets.get(bucketKey);
+                if (bucket != null) {
+                    removed |= bucket.removeIf(candidate -> candidate == question);
+                    if (bucket.isEmpty()) {
+                        buckets.remove(bucketKey);
+                    }
+                }
+            }
+            return removed;
+        }
+
+        boolean isEmpty() {
+            return byQuestion.isEmpty();
+        }
+
+        Set<IndexedQuestion> candidates(long[] signature) {
+            Set<IndexedQuestion> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int band = 0; band < NUM_BANDS; band++) {
+                List<IndexedQuestion> bucket = bands.get(band).get(bandHash(signature, band));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            return candidates;
+        }
+
+        private static long bandHash(long[] signature, int band) {
+            long hash = band;
+            int offset = band * ROWS_PER_BAND;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                hash = mix(hash * 31 + signature[offset + row]);
+            }
+            return hash;
+        }
+    }
+
+    static final class SimilarityStats {
+        private final LongAdder lookups = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder candidatesScored = new LongAdder();
+        private final LongAdder totalLookupNanos = new LongAdder();
+
+        void recordLookup(long elapsedNanos, int candidates, boolean matched) {
+            lookups.increment();
+            totalLookupNanos.add(elapsedNanos);
+            candidatesScored.add(candidates);
+            if (matched) {
+                matches.increment();
+            }
+        }
+
+        void recordEviction() {
+            evictions.increment();
+        }
+
+        Map<String, Object> toSnapshot() {
+            long lookupCount = lookups.sum();
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("lookups", lookupCount);
+            snapshot.put("matches", matches.sum());
+            snapshot.put("evictions", evictions.sum());
+            snapshot.put("match_ratio", lookupCount == 0 ? 0.0 : (double) matches.sum() / lookupCount);
+            snapshot.put("avg_candidates_scored", lookupCount == 0 ? 0.0 : (double) candidatesScored.sum() / lookupCount);
+            snapshot.put("avg_lookup_us", lookupCount == 0 ? 0.0 : totalLookupNanos.sum() / 1_000.0 / lookupCount);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.rosettix.api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes natural-language questions into comparable terms.
+ * Terms are lower-cased, singularized, stripped of filler words and mapped onto a
+ * canonical verb so "show all users" and "list all the users" produce the same terms.
+ * Literals (quoted strings, dates and numbers) are kept apart because two questions that
+ * differ only in a literal must never be treated as duplicates.
+ */
+public final class QuestionTokenizer {
+
+    private static final Pattern LITERAL_PATTERN = Pattern.compile(
+            "'([^']*)'|\"([^\"]*)\"|\\b(\\d{4}-\\d{2}-\\d{2})\\b|(?<![\\w.])(-?\\d+(?:\\.\\d+)?)(?![\\w.])"
+    );
+    private static final Pattern WORD_PATTERN = Pattern.compile("[\\p{L}\\p{N}_]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "all", "every", "each", "any", "me", "my", "please", "can", "could",
+            "you", "i", "we", "want", "would", "like", "to", "of", "is", "are", "there", "that",
+            "which", "what", "whose", "do", "does", "entire", "whole", "available", "currently",
+            "existing", "just", "some", "us", "our", "give", "tell"
+    );
+
+    private static final Map<String, String> SYNONYMS = Map.ofEntries(
+            Map.entry("show", "list"),
+            Map.entry("display", "list"),
+            Map.entry("get", "list"),
+            Map.entry("fetch", "list"),
+            Map.entry("find", "list"),
+            Map.entry("return", "list"),
+            Map.entry("retrieve", "list"),
+            Map.entry("view", "list"),
+            Map.entry("see", "list"),
+            Map.entry("select", "list"),
+            Map.entry("lookup", "list"),
+            Map.entry("number", "count"),
+            Map.entry("total", "count"),
+            Map.entry("remove", "delete"),
+            Map.entry("erase", "delete"),
+            Map.entry("add", "insert"),
+            Map.entry("create", "insert"),
+            Map.entry("modify", "update"),
+            Map.entry("change", "update"),
+            Map.entry("edit", "update"),
+            Map.entry("biggest", "largest"),
+            Map.entry("highest", "largest"),
+            Map.entry("smallest", "lowest"),
+            Map.entry("newest", "latest"),
+            Map.entry("recent", "latest")
+    );
+
+    private QuestionTokenizer() {
+    }
+
+    /**
+     * Canonical content terms of the question, in order, excluding literals.
+     */
+    public static List<String> terms(String question) {
+        List<String> terms = new ArrayList<>();
+        if (question == null) {
+            return terms;
+        }
+
+        String withoutLiterals = LITERAL_PATTERN.matcher(question).replaceAll(" ");
+        Matcher matcher = WORD_PATTERN.matcher(withoutLiterals.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            String word = matcher.group();
+            if (STOP_WORDS.contains(word)) {
+                continue;
+            }
+            terms.add(canonicalize(word));
+        }
+        return terms;
+    }
+
+    /**
+     * Literal values of the question in order of appearance: quoted strings, ISO dates and numbers.
+     */
+    public static List<String> literals(String question) {
+        List<String> literals = new ArrayList<>();
+        if (question == null) {
+            return literals;
+        }
+
+        Matcher matcher = LITERAL_PATTERN.matcher(question);
+        while (matcher.find()) {
+            for (int group = 1; group <= matcher.groupCount(); group++) {
+                if (matcher.group(group) != null) {
+                    literals.add(matcher.group(group));
+                    break;
+                }
+            }
+        }
+        return literals;
+    }
+
+    /**
+     * The question with whitespace collapsed, lower-cased and every literal replaced by a marker of
+     * its kind, so questions differing only in literal values share a template.
+     */
+    public static String template(String question) {
+        if (question == null) {
+            return "";
+        }
+
+        String normalized = question.trim().replaceAll("\\s+", " ");
+        Matcher matcher = LITERAL_PATTERN.matcher(normalized);
+        StringBuilder template = new StringBuilder();
+        int last = 0;
+        while (matcher.find()) {
+            template.append(normalized, last, matcher.start());
+            template.append(matcher.group(3) != null ? "{date}" : matcher.group(4) != null ? "{number}" : "{string}");
+            last = matcher.end();
+        }
+        template.append(normalized.substring(last));
+        return template.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Maps a single lower-case word onto its synonym and singular stem.
+     */
+    public static String canonicalize(String word) {
+        String synonym = SYNONYMS.get(word);
+        if (synonym != null) {
+            return synonym;
+        }
+        return stem(word);
+    }
+
+    static String stem(String word) {
+        if (word.length() <= 3 || word.endsWith("ss") || word.endsWith("us") || word.endsWith("is")) {
+            return word;
+        }
+        if (word.endsWith("ies") && word.length() > 4) {
+            return word.substring(0, word.length() - 3) + "y";
+        }
+        if (word.endsWith("sses") || word.endsWith("xes") || word.endsWith("ches") || word.endsWith("shes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        if (word.endsWith("s")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
@@ -24,6 +24,11 @@ public class RedisSchemaCacheStore implements SchemaCacheStore {
         redisTemplate.opsForValue().set(buildKey(key), schema, ttl);
     }
 
+    @Override
+    public void evict(String key) {
+        redisTemplate.delete(buildKey(key));
+    }
+
     @Override
     public String getStoreType() {
         return "redis";
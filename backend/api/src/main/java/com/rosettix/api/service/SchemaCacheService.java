@@ -8,24 +8,43 @@ import org.springframework.stereotype.Service;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class SchemaCacheService {
 
+    /**
+     * How a schema read was served.
+     */
+    public enum Lookup {
+        HIT,
+        /** Loaded from the database, or waited for a concurrent load */
+        MISS,
+        /** The cache is disabled */
+        BYPASS
+    }
+
+    // Strategies read schemas through getSchema without returning how, so the outcome is kept per thread
+    private static final ThreadLocal<Lookup> LAST_LOOKUP = new ThreadLocal<>();
+
     private final RosettixConfiguration configuration;
     private final SchemaCacheStore schemaCacheStore;
     private final Clock clock;
     private final Map<String, CompletableFuture<String>> inFlightLoads = new ConcurrentHashMap<>();
     private final Map<String, SchemaCacheStats> metrics = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> schemaLoadListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public SchemaCacheService(RosettixConfiguration configuration, SchemaCacheStore schemaCacheStore) {
@@ -46,6 +65,7 @@ public class SchemaCacheService {
             log.info("Schema cache disabled, fetching schema: {}", key);
             String schema = loader.get();
             getStats(key).recordBypass(System.nanoTime() - startNanos);
+            LAST_LOOKUP.set(Lookup.BYPASS);
             return schema;
         }
 
@@ -55,6 +75,7 @@ public class SchemaCacheService {
             SchemaCacheStats stats = getStats(key);
             stats.recordHit(elapsedNanos);
             log.info("Cache hit for schema: {}", key);
+            LAST_LOOKUP.set(Lookup.HIT);
             return cachedSchema;
         }
 
@@ -66,6 +87,7 @@ public class SchemaCacheService {
                 log.info("Cache miss, fetching schema: {}", key);
                 String schema = loader.get();
                 writeToCache(key, schema, Duration.ofMinutes(schemaCacheConfig.getTtlMinutes()));
+                notifySchemaLoaded(key);
                 SchemaCacheStats stats = getStats(key);
                 stats.recordMiss(System.nanoTime() - startNanos);
                 Double latencyReduction = stats.getEstimatedLatencyReductionPercent();
@@ -73,6 +95,7 @@ public class SchemaCacheService {
                     log.info("Schema caching reduced latency by {}% for {}", formatReduction(latencyReduction), key);
                 }
                 newLoad.complete(schema);
+                LAST_LOOKUP.set(Lookup.MISS);
                 return schema;
             } catch (Exception e) {
                 newLoad.completeExceptionally(e);
@@ -86,6 +109,7 @@ public class SchemaCacheService {
             log.info("Schema load already in flight, waiting for existing fetch: {}", key);
             String schema = inFlightLoad.join();
             getStats(key).recordInFlightWait(System.nanoTime() - startNanos);
+            LAST_LOOKUP.set(Lookup.MISS);
             return schema;
         } catch (CompletionException e) {
             Throwable cause = e.getCause();
@@ -96,6 +120,44 @@ public class SchemaCacheService {
         }
     }
 
+    /**
+     * Returns and clears how the last schema read on the current thread was served, or null when no
+     * read went through the cache since the last call.
+     */
+    public static Lookup takeLastLookup() {
+        Lookup lookup = LAST_LOOKUP.get();
+        LAST_LOOKUP.remove();
+        return lookup;
+    }
+
+    /**
+     * Registers a listener called with the cache key whenever a schema is freshly loaded into the
+     * cache, so state derived from the previous schema can be dropped. Bypassed loads are not
+     * reported since nothing was cached for them.
+     */
+    public void addSchemaLoadListener(Consumer<String> listener) {
+        schemaLoadListeners.add(listener);
+    }
+
+    /**
+     * Drops the cached schemas of a strategy: its own key and the {@code strategy:*} keys read
+     * through this service, e.g. Postgres relationships. The next read loads them again.
+     */
+    public void invalidateStrategy(String strategyName) {
+        List<String> keys = new ArrayList<>();
+        keys.add(strategyName);
+        metrics.keySet().stream().filter(key -> key.startsWith(strategyName + ":")).forEach(keys::add);
+        for (String key : keys) {
+            try {
+                schemaCacheStore.evict(key);
+                getStats(key).invalidations.increment();
+            } catch (Exception e) {
+                log.warn("Unable to evict schema cache entry for {} from {}: {}", key, schemaCacheStore.getStoreType(), e.getMessage());
+            }
+        }
+        log.info("Invalidated cached schemas {}", keys);
+    }
+
     public Map<String, Object> getMetricsSnapshot() {
         RosettixConfiguration.SchemaCacheConfig schemaCacheConfig = configuration.getSchemaCache();
         Map<String, Object> databases = new LinkedHashMap<>();
@@ -135,6 +197,16 @@ public class SchemaCacheService {
         }
     }
 
+    private void notifySchemaLoaded(String key) {
+        for (Consumer<String> listener : schemaLoadListeners) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                log.warn("Schema load listener failed for {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
     private Map<String, Object> aggregateSnapshot() {
         SchemaCacheStats aggregate = new SchemaCacheStats();
         metrics.values().forEach(aggregate::mergeFrom);
@@ -150,6 +222,7 @@ public class SchemaCacheService {
         private final LongAdder misses = new LongAdder();
         private final LongAdder bypasses = new LongAdder();
         private final LongAdder inFlightWaits = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
         private final LongAdder totalHitNanos = new LongAdder();
         private final LongAdder totalMissNanos = new LongAdder();
         private final LongAdder totalBypassNanos = new LongAdder();
@@ -180,6 +253,7 @@ public class SchemaCacheService {
             misses.add(other.misses.sum());
             bypasses.add(other.bypasses.sum());
             inFlightWaits.add(other.inFlightWaits.sum());
+            invalidations.add(other.invalidations.sum());
             totalHitNanos.add(other.totalHitNanos.sum());
             totalMissNanos.add(other.totalMissNanos.sum());
             totalBypassNanos.add(other.totalBypassNanos.sum());
@@ -192,6 +266,7 @@ public class SchemaCacheService {
             snapshot.put("cache_misses", misses.sum());
             snapshot.put("cache_bypasses", bypasses.sum());
             snapshot.put("in_flight_waits", inFlightWaits.sum());
+            snapshot.put("invalidations", invalidations.sum());
             snapshot.put("avg_hit_ms", nanosToMillis(totalHitNanos.sum(), hits.sum()));
             snapshot.put("avg_miss_ms", nanosToMillis(totalMissNanos.sum(), misses.sum()));
             snapshot.put("avg_bypass_ms", nanosToMillis(totalBypassNanos.sum(), bypasses.sum()));
@@ -8,5 +8,7 @@ public interface SchemaCacheStore {
 
     void put(String key, String schema, Duration ttl);
 
+    void evict(String key);
+
     String getStoreType();
 }
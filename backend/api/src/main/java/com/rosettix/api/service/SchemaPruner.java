@@ -0,0 +1,301 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.QueryStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trims the schema sent to the LLM down to the tables relevant to a question.
+ * <p>
+ * When a schema in the {@code name(col, col); } format is first seen, table and column names are
+ * split into words, stemmed and mapped through a small synonym table into an inverted index.
+ * Each question is scored against it (TF-IDF style, table-name matches weighing more than
+ * column matches); the top-k tables are kept together with their foreign-key neighbours,
+ * in their original order.
+ */
+@Service
+@Slf4j
+public class SchemaPruner {
+
+    private static final Pattern TABLE_PATTERN = Pattern.compile("\\s*([^;()]+?)\\s*\\(([^)]*)\\);");
+    private static final Pattern CAMEL_CASE_BOUNDARY = Pattern.compile("(?<=[a-z0-9])(?=[A-Z])");
+    private static final double TABLE_NAME_WEIGHT = 3.0;
+    private static final double COLUMN_WEIGHT = 1.0;
+
+    private static final Map<String, String> SCHEMA_SYNONYMS = Map.ofEntries(
+            Map.entry("client", "customer"),
+            Map.entry("buyer", "customer"),
+            Map.entry("purchase", "order"),
+            Map.entry("sale", "order"),
+            Map.entry("item", "product"),
+            Map.entry("article", "product"),
+            Map.entry("staff", "employee"),
+            Map.entry("worker", "employee"),
+            Map.entry("cost", "price"),
+            Map.entry("mail", "email"),
+            Map.entry("username", "user"),
+            Map.entry("account", "user"),
+            Map.entry("people", "person"),
+            Map.entry("qty", "quantity"),
+            Map.entry("amt", "amount")
+    );
+
+    private final RosettixConfiguration configuration;
+    private final Map<String, SchemaIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, PruningStats> metrics = new ConcurrentHashMap<>();
+
+    public SchemaPruner(RosettixConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getSchemaPruning().isEnabled();
+    }
+
+    /**
+     * Returns the part of the schema relevant to the question, or the full schema when pruning is
+     * disabled, the schema is small or not in table format, or no table matches the question.
+     */
+    public String prune(String question, String schema, QueryStrategy strategy) {
+        RosettixConfiguration.SchemaPruningConfig pruningConfig = configuration.getSchemaPruning();
+        if (!pruningConfig.isEnabled() || schema == null) {
+            return schema;
+        }
+
+        PruningStats stats = getStats(strategy.getStrategyName());
+        SchemaIndex index = indexFor(strategy, schema);
+        if (index == null || index.tables().size() <= Math.max(1, pruningConfig.getMinTables())) {
+            stats.recordSkipped();
+            return schema;
+        }
+
+        Map<String, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(questionTerms(question))) {
+            Map<String, Double> postings = index.postings().get(term);
+            if (postings == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (double) index.tables().size() / postings.size());
+            postings.forEach((table, weight) -> scores.merge(table, weight * idf, Double::sum));
+        }
+
+        if (scores.isEmpty()) {
+            stats.recordSkipped();
+            log.debug("No {} table matches question '{}', sending full schema", strategy.getStrategyName(), question);
+            return schema;
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.max(1, pruningConfig.getTopK()))
+                .forEach(entry -> selected.add(entry.getKey()));
+
+        if (pruningConfig.isIncludeForeignKeys()) {
+            for (String table : List.copyOf(selected)) {
+                selected.addAll(index.neighbours().getOrDefault(table, Set.of()));
+            }
+        }
+
+        StringBuilder pruned = new StringBuilder();
+        for (Map.Entry<String, String> table : index.tables().entrySet()) {
+            if (selected.contains(table.getKey())) {
+                pruned.append(table.getValue());
+            }
+        }
+
+        String prunedSchema = pruned.toString();
+        stats.recordPruned(
+                index.tables().size(),
+                selected.size(),
+                LlmBatcher.estimateTokens(schema),
+                LlmBatcher.estimateTokens(prunedSchema)
+        );
+        return prunedSchema;
+    }
+
+    /**
+     * Records how long a generation took so pruned prompts can be compared with the full-schema baseline.
+     */
+    public void recordGeneration(String strategyName, boolean pruned, long elapsedNanos) {
+        getStats(strategyName).recordGeneration(pruned, elapsedNanos);
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.SchemaPruningConfig pruningConfig = configuration.getSchemaPruning();
+        Map<String, Object> databases = new LinkedHashMap<>();
+        metrics.forEach((strategyName, stats) -> databases.put(strategyName, stats.toSnapshot()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", pruningConfig.isEnabled());
+        response.put("top_k", pruningConfig.getTopK());
+        response.put("min_tables", pruningConfig.getMinTables());
+        response.put("databases", databases);
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private SchemaIndex indexFor(QueryStrategy strategy, String schema) {
+        SchemaIndex current = indexes.get(strategy.getStrategyName());
+        if (current != null && current.schema().equals(schema)) {
+            return current.tables().isEmpty() ? null : current;
+        }
+
+        SchemaIndex rebuilt = buildIndex(schema, strategy.getTableRelationships());
+        indexes.put(strategy.getStrategyName(), rebuilt);
+        log.info("Indexed {} {} tables for schema pruning", rebuilt.tables().size(), strategy.getStrategyName());
+        return rebuilt.tables().isEmpty() ? null : rebuilt;
+    }
+
+    static SchemaIndex buildIndex(String schema, Map<String, Set<String>> relationships) {
+        Map<String, String> tables = new LinkedHashMap<>();
+        Map<String, List<String>> columnsByTable = new HashMap<>();
+        Matcher matcher = TABLE_PATTERN.matcher(schema);
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            String table = matcher.group(1);
+            tables.put(table, table + "(" + matcher.group(2) + "); ");
+            List<String> columns = new ArrayList<>();
+            for (String column : matcher.group(2).split(",")) {
+                if (!column.isBlank()) {
+                    columns.add(column.trim());
+                }
+            }
+            columnsByTable.put(table, columns);
+            end = matcher.end();
+        }
+        if (end != schema.stripTrailing().length()) {
+            // Not a table-format schema (e.g. a Redis keyspace summary)
+            return new SchemaIndex(schema, Map.of(), Map.of(), Map.of());
+        }
+
+        Map<String, Map<String, Double>> postings = new HashMap<>();
+        Map<String, String> tablesByTerm = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : columnsByTable.entrySet()) {
+            String table = entry.getKey();
+            for (String term : nameTerms(table)) {
+                postings.computeIfAbsent(term, ignored -> new HashMap<>()).merge(table, TABLE_NAME_WEIGHT, Math::max);
+                tablesByTerm.putIfAbsent(term, table);
+            }
+            for (String column : entry.getValue()) {
+                for (String term : nameTerms(column)) {
+                    postings.computeIfAbsent(term, ignored -> new HashMap<>()).merge(table, COLUMN_WEIGHT, Math::max);
+                }
+            }
+        }
+
+        Map<String, Set<String>> neighbours = new HashMap<>();
+        relationships.forEach((from, targets) -> targets.forEach(to -> link(neighbours, tables, from, to)));
+        // Columns named after another table (customer_id, userId) imply a relationship even without declared keys
+        for (Map.Entry<String, List<String>> entry : columnsByTable.entrySet()) {
+            for (String column : entry.getValue()) {
+                String lower = column.toLowerCase(Locale.ROOT);
+                if (lower.length() > 3 && (lower.endsWith("_id") || (lower.endsWith("id") && column.endsWith("Id")))) {
+                    List<String> terms = nameTerms(column.substring(0, column.length() - (lower.endsWith("_id") ? 3 : 2)));
+                    if (!terms.isEmpty()) {
+                        link(neighbours, tables, entry.getKey(), tablesByTerm.get(terms.get(terms.size() - 1)));
+                    }
+                }
+            }
+        }
+
+        return new SchemaIndex(schema, tables, postings, neighbours);
+    }
+
+    static List<String> questionTerms(String question) {
+        List<String> terms = new ArrayList<>();
+        for (String term : QuestionTokenizer.terms(question)) {
+            terms.add(SCHEMA_SYNONYMS.getOrDefault(term, term));
+        }
+        return terms;
+    }
+
+    static List<String> nameTerms(String name) {
+        List<String> terms = new ArrayList<>();
+        for (String word : CAMEL_CASE_BOUNDARY.matcher(name).replaceAll("_").toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (!word.isEmpty() && !word.equals("id")) {
+                String stemmed = QuestionTokenizer.stem(word);
+                terms.add(SCHEMA_SYNONYMS.getOrDefault(stemmed, stemmed));
+            }
+        }
+        return terms;
+    }
+
+    private static void link(Map<String, Set<String>> neighbours, Map<String, String> tables, String from, String to) {
+        if (to == null || from.equals(to) || !tables.containsKey(from) || !tables.containsKey(to)) {
+            return;
+        }
+        neighbours.computeIfAbsent(from, ignored -> new LinkedHashSet<>()).add(to);
+        neighbours.computeIfAbsent(to, ignored -> new LinkedHashSet<>()).add(from);
+    }
+
+    private PruningStats getStats(String strategyName) {
+        return metrics.computeIfAbsent(strategyName, ignored -> new PruningStats());
+    }
+
+    record SchemaIndex(
+            String schema,
+            Map<String, String> tables,
+            Map<String, Map<String, Double>> postings,
+            Map<String, Set<String>> neighbours
+    ) {
+    }
+
+    static final class PruningStats {
+        private final LongAdder pruned = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder fullTables = new LongAdder();
+        private final LongAdder keptTables = new LongAdder();
+        private final LongAdder fullTokens = new LongAdder();
+        private final LongAdder prunedTokens = new LongAdder();
+        private final LatencyHistogram fullSchemaLatency = new LatencyHistogram();
+        private final LatencyHistogram prunedSchemaLatency = new LatencyHistogram();
+
+        void recordPruned(int tableCount, int keptTableCount, long schemaTokens, long prunedSchemaTokens) {
+            pruned.increment();
+            fullTables.add(tableCount);
+            keptTables.add(keptTableCount);
+            fullTokens.add(schemaTokens);
+            prunedTokens.add(prunedSchemaTokens);
+        }
+
+        void recordSkipped() {
+            skipped.increment();
+        }
+
+        void recordGeneration(boolean prunedSchema, long elapsedNanos) {
+            (prunedSchema ? prunedSchemaLatency : fullSchemaLatency).recordNanos(elapsedNanos);
+        }
+
+        Map<String, Object> toSnapshot() {
+            long prunedCount = pruned.sum();
+            long tokensBefore = fullTokens.sum();
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("pruned_prompts", prunedCount);
+            snapshot.put("full_schema_prompts", skipped.sum());
+            snapshot.put("avg_tables_before", prunedCount == 0 ? 0.0 : (double) fullTables.sum() / prunedCount);
+            snapshot.put("avg_tables_kept", prunedCount == 0 ? 0.0 : (double) keptTables.sum() / prunedCount);
+            snapshot.put("estimated_schema_tokens_saved", tokensBefore - prunedTokens.sum());
+            snapshot.put("schema_token_reduction_percent", tokensBefore == 0 ? 0.0 : 100.0 * (tokensBefore - prunedTokens.sum()) / tokensBefore);
+            snapshot.put("full_schema_generation_latency", fullSchemaLatency.toSnapshot());
+            snapshot.put("pruned_schema_generation_latency", prunedSchemaLatency.toSnapshot());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.QueryStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Picks the strategy a question is about without calling the LLM.
+ * <p>
+ * Each strategy's cached schema is turned into a vocabulary (table, collection or key-prefix names
+ * and their fields, see {@link QueryStrategy#getSchemaVocabulary(String)}), split and stemmed like
+ * {@link SchemaPruner} does. A question scores against every vocabulary, entity names weighing more
+ * than fields and terms known to several strategies weighing less; naming the database outright
+ * wins. When the runner-up scores close to the best, both are returned so they can be tried in
+ * parallel; in speculative mode every close candidate, or every strategy for an unmatched question,
+ * is returned to run at once. Vocabularies are rebuilt whenever a strategy's schema changes.
+ */
+@Service
+@Slf4j
+public class StrategyRouter {
+
+    private static final double ENTITY_WEIGHT = 3.0;
+    private static final double FIELD_WEIGHT = 1.0;
+    private static final double NAME_MENTION_WEIGHT = 10.0;
+
+    private final Map<String, QueryStrategy> strategies;
+    private final RosettixConfiguration configuration;
+    private final Map<String, Vocabulary> vocabularies = new ConcurrentHashMap<>();
+    private final RoutingStats stats = new RoutingStats();
+
+    public StrategyRouter(Map<String, QueryStrategy> strategies, RosettixConfiguration configuration) {
+        this.strategies = new TreeMap<>(strategies);
+        this.configuration = configuration;
+    }
+
+    public boolean isEnabled() {
+        return configuration.getRouting().isEnabled();
+    }
+
+    /**
+     * Ranks the strategies for a question. The route holds one candidate, or two when the runner-up
+     * is close and parallel routing is enabled; it falls back to the default strategy when no
+     * strategy scores at least the configured minimum. In speculative mode ambiguous and unmatched
+     * questions get up to the configured number of candidates.
+     */
+    public Route route(String question) {
+        long startNanos = System.nanoTime();
+        RosettixConfiguration.RoutingConfig routingConfig = configuration.getRouting();
+        Set<String> terms = new LinkedHashSet<>(SchemaPruner.questionTerms(question));
+
+        Map<String, Map<String, Double>> weightsByStrategy = new LinkedHashMap<>();
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (Map.Entry<String, QueryStrategy> entry : strategies.entrySet()) {
+            Map<String, Double> weights = vocabularyFor(entry.getKey(), entry.getValue()).termWeights();
+            weightsByStrategy.put(entry.getKey(), weights);
+            weights.keySet().forEach(term -> documentFrequency.merge(term, 1, Integer::sum));
+        }
+
+        List<Candidate> ranked = new ArrayList<>();
+        weightsByStrategy.forEach((strategyName, weights) -> {
+            double score = 0;
+            for (String term : terms) {
+                Double weight = weights.get(term);
+                if (weight != null) {
+                    score += weight * Math.log(1.0 + (double) strategies.size() / documentFrequency.get(term));
+                }
+                // "postgresql", "mongo"..., but not short words that happen to start a name ("post")
+                if (term.startsWith(strategyName) || (term.length() >= 5 && strategyName.startsWith(term))) {
+                    score += NAME_MENTION_WEIGHT;
+                }
+            }
+            ranked.add(new Candidate(strategyName, score));
+        });
+        ranked.sort(Comparator.comparingDouble(Candidate::score).reversed().thenComparing(Candidate::strategyName));
+
+        int maxSpeculative = Math.max(1, routingConfig.getMaxSpeculativeStrategies());
+        Route route;
+        if (ranked.isEmpty() || ranked.get(0).score() < routingConfig.getMinScore()) {
+            List<Candidate> candidates = new ArrayList<>();
+            candidates.add(new Candidate(configuration.getDefaultStrategy(), 0));
+            if (routingConfig.isSpeculative()) {
+                ranked.stream()
+                        .filter(candidate -> !candidate.strategyName().equals(configuration.getDefaultStrategy()))
+                        .limit(maxSpeculative - 1L)
+                        .forEach(candidates::add);
+            }
+            route = new Route(List.copyOf(candidates), true, candidates.size() > 1);
+        } else if (routingConfig.isSpeculative() && isClose(ranked, 1, routingConfig)) {
+            int end = 2;
+            while (end < Math.min(ranked.size(), maxSpeculative) && isClose(ranked, end, routingConfig)) {
+                end++;
+            }
+            route = new Route(List.copyOf(ranked.subList(0, Math.min(end, maxSpeculative))), false, maxSpeculative > 1);
+        } else if (routingConfig.isParallelTopTwo()
+                && isClose(ranked, 1, routingConfig)) {
+            route = new Route(List.copyOf(ranked.subList(0, 2)), false, false);
+        } else {
+            route = new Route(List.of(ranked.get(0)), false, false);
+        }
+
+        stats.recordRoute(route, System.nanoTime() - startNanos);
+        log.debug("Routed question '{}' to {}", question, route.candidates());
+        return route;
+    }
+
+    private static boolean isClose(List<Candidate> ranked, int index, RosettixConfiguration.RoutingConfig routingConfig) {
+        return ranked.size() > index
+                && ranked.get(index).score() >= routingConfig.getMinScore()
+                && ranked.get(index).score() >= ranked.get(0).score() * routingConfig.getAmbiguityRatio();
+    }
+
+    /**
+     * Records that the runner-up answered after the best candidate failed, sparing the caller a
+     * second LLM round trip of the given duration.
+     */
+    public void recordRunnerUpRescue(long savedNanos) {
+        stats.recordRescue(savedNanos);
+    }
+
+    /**
+     * Records a speculative run over several strategies.
+     * @param cancelledBranches branches still running when the answer was found
+     * @param wastedBranches branches whose answer was not used, cancelled ones included
+     * @param wastedNanos time spent by the wasted branches
+     * @param bestWon whether the answer came from the best-ranked candidate
+     */
+    public void recordSpeculation(int branches, int cancelledBranches, int wastedBranches, long wastedNanos, boolean bestWon) {
+        stats.recordSpeculation(branches, cancelledBranches, wastedBranches, wastedNanos, bestWon);
+    }
+
+    public Map<String, Object> getMetricsSnapshot() {
+        RosettixConfiguration.RoutingConfig routingConfig = configuration.getRouting();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", routingConfig.isEnabled());
+        response.put("parallel_top_two", routingConfig.isParallelTopTwo());
+        response.put("ambiguity_ratio", routingConfig.getAmbiguityRatio());
+        response.put("speculative", routingConfig.isSpeculative());
+        response.putAll(stats.toSnapshot());
+        response.put("timestamp", Instant.now().toString());
+        return response;
+    }
+
+    private Vocabulary vocabularyFor(String strategyName, QueryStrategy strategy) {
+        String schema;
+        try {
+            schema = strategy.getSchemaRepresentation();
+        } catch (RuntimeException e) {
+            log.warn("Unable to read {} schema for routing: {}", strategyName, e.getMessage());
+            return Vocabulary.EMPTY;
+        }
+
+        Vocabulary current = vocabularies.get(strategyName);
+        if (current != null && current.schema().equals(schema)) {
+            return current;
+        }
+        Vocabulary rebuilt = Vocabulary.of(schema, strategy.getSchemaVocabulary(schema));
+        vocabularies.put(strategyName, rebuilt);
+        log.info("Indexed {} routing terms for {}", rebuilt.termWeights().size(), strategyName);
+        return rebuilt;
+    }
+
+    public record Candidate(String strategyName, double score) {
+    }
+
+    /**
+     * @param fallback whether no strategy matched and the default strategy was chosen
+     * @param speculative whether all candidates should run at once, the first non-empty answer winning
+     */
+    public record Route(List<Candidate> candidates, boolean fallback, boolean speculative) {
+
+        public List<String> strategyNames() {
+            return candidates.stream().map(Candidate::strategyName).toList();
+        }
+
+        public String strategyName() {
+            return candidates.get(0).strategyName();
+        }
+
+        public String runnerUp() {
+            return candidates.size() > 1 ? candidates.get(1).strategyName() : null;
+        }
+    }
+
+    record Vocabulary(String schema, Map<String, Double> termWeights) {
+
+        static final Vocabulary EMPTY = new Vocabulary("", Map.of());
+
+        static Vocabulary of(String schema, Map<String, List<String>> entities) {
+            Map<String, Double> termWeights = new HashMap<>();
+            entities.forEach((entity, fields) -> {
+                SchemaPruner.nameTerms(entity).forEach(term -> termWeights.merge(term, ENTITY_WEIGHT, Math::max));
+                fields.forEach(field -> SchemaPruner.nameTerms(field).forEach(term -> termWeights.merge(term, FIELD_WEIGHT, Math::max)));
+            });
+            return new Vocabulary(schema == null ? "" : schema, Map.copyOf(termWeights));
+        }
+    }
+
+    static final class RoutingStats {
+        private final Map<String, LongAdder> routes = new ConcurrentHashMap<>();
+        private final LongAdder parallelRoutes = new LongAdder();
+        private final LongAdder fallbacks = new LongAdder();
+        private final LongAdder rescues = new LongAdder();
+        private final LongAdder rescueSavedNanos = new LongAdder();
+        private final LatencyHistogram routingTime = new LatencyHistogram();
+        private final LongAdder speculations = new LongAdder();
+        private final LongAdder speculativeBranches = new LongAdder();
+        private final LongAdder cancelledBranches = new LongAdder();
+        private final LongAdder wastedBranches = new LongAdder();
+        private final LongAdder wastedNanos = new LongAdder();
+        private final LongAdder nonBestWins = new LongAdder();
+
+        void recordRoute(Route route, long elapsedNanos) {
+            routes.computeIfAbsent(route.strategyName(), ignored -> new LongAdder()).increment();
+            if (route.runnerUp() != null) {
+                parallelRoutes.increment();
+            }
+            if (route.fallback()) {
+                fallbacks.increment();
+            }
+            routingTime.recordNanos(elapsedNanos);
+        }
+
+        void recordRescue(long savedNanos) {
+            rescues.increment();
+            rescueSavedNanos.add(savedNanos);
+        }
+
+        void recordSpeculation(int branches, int cancelled, int wasted, long wastedTimeNanos, boolean bestWon) {
+            speculations.increment();
+            speculativeBranches.add(branches);
+            cancelledBranches.add(cancelled);
+            wastedBranches.add(wasted);
+            wastedNanos.add(wastedTimeNanos);
+            if (!bestWon) {
+                nonBestWins.increment();
+            }
+        }
+
+        Map<String, Object> toSnapshot() {
+            Map<String, Object> routesByStrategy = new TreeMap<>();
+            routes.forEach((strategyName, count) -> routesByStrategy.put(strategyName, count.sum()));
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("routes", routesByStrategy);
+            snapshot.put("parallel_routes", parallelRoutes.sum());
+            snapshot.put("default_fallbacks", fallbacks.sum());
+            snapshot.put("runner_up_rescues", rescues.sum());
+            snapshot.put("rescue_saved_ms", rescueSavedNanos.sum() / 1_000_000.0);
+            snapshot.put("speculative_queries", speculations.sum());
+            snapshot.put("speculative_branches", speculativeBranches.sum());
+            snapshot.put("cancelled_branches", cancelledBranches.sum());
+            snapshot.put("wasted_branches", wastedBranches.sum());
+            snapshot.put("wasted_branch_ms", wastedNanos.sum() / 1_000_000.0);
+            snapshot.put("speculative_non_best_wins", nonBestWins.sum());
+            snapshot.put("routing_time", routingTime.toSnapshot());
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.rosettix.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Identifies a natural-language translation: the same question against the same
+ * strategy and the same schema content always maps to the same generated query.
+ */
+public record TranslationKey(String strategyName, String schemaHash, String question) {
+
+    public static TranslationKey of(String strategyName, String schema, String question) {
+        return new TranslationKey(strategyName, hashSchema(schema), normalizeQuestion(question));
+    }
+
+    /**
+     * Collapses whitespace and trailing punctuation so trivially different spellings
+     * of a question share a key. Case is preserved because literals may be case-sensitive.
+     */
+    static String normalizeQuestion(String question) {
+        if (question == null) {
+            return "";
+        }
+
+        return question.trim()
+                .replaceAll("\\s+", " ")
+                .replaceAll("[?.!\\s]+$", "");
+    }
+
+    static String hashSchema(String schema) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((schema == null ? "" : schema).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.rosettix.api.strategy;
 
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.service.QueryAdmissionGuard;
 import com.rosettix.api.service.SchemaCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import static com.mongodb.client.model.Filters.eq;
@@ -21,8 +32,12 @@ import static com.mongodb.client.model.Filters.eq;
 @Slf4j
 public class MongoStrategy implements QueryStrategy {
 
+    private static final int STREAM_BATCH_SIZE = 500;
+
     private final MongoTemplate mongoTemplate;
     private final SchemaCacheService schemaCacheService;
+    private final QueryAdmissionGuard admissionGuard;
+    private final RosettixConfiguration configuration;
 
     // ============================================================
     // 1️⃣ SCHEMA INTROSPECTION
@@ -72,23 +87,20 @@ public class MongoStrategy implements QueryStrategy {
     // 2️⃣ AI PROMPT GENERATION
     // ============================================================
     @Override
-    public String buildPrompt(String question, String schema) {
-        return String.format(
-                "Given the MongoDB collections and their example fields: \n%s\n---\n" +
-                        "Translate the question into a valid MongoDB query using this syntax:\n" +
-                        "db.collection.find({filter}) or db.collection.count({filter}) " +
-                        "or db.collection.insertOne({...}) or db.collection.updateOne({filter}, {update}) " +
-                        "or db.collection.deleteOne({filter}).\n\n" +
-                        "Important:\n" +
-                        "• Use **valid JSON** format for filters and updates.\n" +
-                        "• For string fields, you may use BSON-style regex: { field: { \"$regex\": \"pattern\", \"$options\": \"i\" } }.\n" +
-                        "• For numeric fields (like IDs, ages, counts), use direct equality (e.g., { field: 9 }).\n" +
-                        "• Do NOT use JavaScript-style regex like /pattern/i.\n" +
-                        "• Always use field names and data types exactly as shown in the schema.\n" +
-                        "• Avoid unsafe commands like eval(), $where, mapReduce, or db.runCommand.\n\n" +
-                        "Return only the query (no markdown, no explanation).\nQuestion: \"%s\"",
-                schema, question
-        );
+    public String buildPromptPrefix(String schema) {
+        return "Given the MongoDB collections and their example fields: \n" + schema + "\n---\n" +
+                "Translate the question into a valid MongoDB query using this syntax:\n" +
+                "db.collection.find({filter}) or db.collection.count({filter}) " +
+                "or db.collection.insertOne({...}) or db.collection.updateOne({filter}, {update}) " +
+                "or db.collection.deleteOne({filter}).\n\n" +
+                "Important:\n" +
+                "• Use **valid JSON** format for filters and updates.\n" +
+                "• For string fields, you may use BSON-style regex: { field: { \"$regex\": \"pattern\", \"$options\": \"i\" } }.\n" +
+                "• For numeric fields (like IDs, ages, counts), use direct equality (e.g., { field: 9 }).\n" +
+                "• Do NOT use JavaScript-style regex like /pattern/i.\n" +
+                "• Always use field names and data types exactly as shown in the schema.\n" +
+                "• Avoid unsafe commands like eval(), $where, mapReduce, or db.runCommand.\n\n" +
+                "Return only the query (no markdown, no explanation).\n";
     }
 
     @Override
@@ -102,9 +114,110 @@ public class MongoStrategy implements QueryStrategy {
                 .replaceAll(";$", "");
     }
 
+    /**
+     * A streamed answer is complete once the parentheses of its db.collection.op(...) call balance.
+     */
+    @Override
+    public boolean isCompleteQuery(String partialResponse) {
+        String cleaned = cleanQuery(partialResponse);
+        int open = cleaned.indexOf('(');
+        if (!cleaned.startsWith("db.") || open < 0) {
+            return QueryStrategy.super.isCompleteQuery(partialResponse);
+        }
+
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < cleaned.length(); i++) {
+            char c = cleaned.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * String values and unsigned numbers inside the call arguments; field names are not literals.
+     */
+    @Override
+    public List<QueryLiteral> findQueryLiterals(String query) {
+        List<QueryLiteral> literals = new ArrayList<>();
+        int open = query.indexOf('(');
+        if (!query.startsWith("db.") || open < 0) {
+            return literals;
+        }
+
+        int i = open;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"' || c == '\'') {
+                StringBuilder value = new StringBuilder();
+                int j = i + 1;
+                while (j < query.length() && query.charAt(j) != c) {
+                    if (query.charAt(j) == '\\') {
+                        if (++j >= query.length()) return List.of();
+                    }
+                    value.append(query.charAt(j++));
+                }
+                if (j >= query.length()) return List.of();
+                int next = j + 1;
+                while (next < query.length() && Character.isWhitespace(query.charAt(next))) next++;
+                if (next >= query.length() || query.charAt(next) != ':') {
+                    literals.add(new QueryLiteral(i, j + 1, value.toString(), true));
+                }
+                i = j + 1;
+            } else if (Character.isDigit(c) && !isIdentifierPart(query.charAt(i - 1))) {
+                int end = i;
+                while (end < query.length() && (Character.isDigit(query.charAt(end)) || query.charAt(end) == '.')) end++;
+                if (end < query.length() && isIdentifierPart(query.charAt(end))) {
+                    i = end;
+                    continue;
+                }
+                String number = query.substring(i, end);
+                if (!NUMBER.matcher(number).matches()) return List.of();
+                literals.add(new QueryLiteral(i, end, number, false));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return literals;
+    }
+
+    @Override
+    public String encodeQueryLiteral(QueryLiteral original, String value) {
+        if (!original.string()) {
+            return NUMBER.matcher(value).matches() ? value : null;
+        }
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+    }
+
     // ============================================================
     // 3️⃣ SAFETY FILTER
     // ============================================================
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:\\.\\d+)?");
     private static final Pattern UNSAFE = Pattern.compile(
             "(dropdatabase|drop|eval|mapreduce|db\\.runcommand|\\$where)",
             Pattern.CASE_INSENSITIVE
@@ -123,11 +236,34 @@ public class MongoStrategy implements QueryStrategy {
                 || lower.contains(".deleteone("));
     }
 
+    /**
+     * The collection of the single {@code db.collection.op(...)} call.
+     */
+    @Override
+    public Set<String> findQueryTargets(String query) {
+        if (query == null || !query.trim().startsWith("db.") || query.indexOf('.', query.indexOf("db.") + 3) < 0) {
+            return Set.of();
+        }
+        return Set.of(extractCollectionName(query));
+    }
+
     // ============================================================
     // 4️⃣ EXECUTION HANDLER
     // ============================================================
+    /**
+     * Runs within the configured result size and timeout, as find() always had a row limit.
+     */
     @Override
     public List<Map<String, Object>> executeQuery(String query) {
+        return executeQuery(query, QueryLimits.of(configuration.getQuery())).rows();
+    }
+
+    /**
+     * Reads are bounded on the server: find() by {@code limit} and {@code maxTimeMS}, count() by
+     * {@code maxTimeMS}. Single-document writes are left unbounded.
+     */
+    @Override
+    public QueryResult executeQuery(String query, QueryLimits limits) {
         if (query == null || query.isBlank())
             throw new IllegalArgumentException("Query cannot be null or empty");
 
@@ -138,22 +274,161 @@ public class MongoStrategy implements QueryStrategy {
         try {
             String lower = query.toLowerCase(Locale.ROOT);
 
-            if (lower.contains(".find(")) return executeFind(query);
-            else if (lower.contains(".count(")) return executeCount(query);
-            else if (lower.contains(".insertone(")) return executeInsert(query);
-            else if (lower.contains(".updateone(")) return executeUpdate(query);
-            else if (lower.contains(".deleteone(")) return executeDelete(query);
+            if (lower.contains(".find(")) return executeFind(query, limits);
+            else if (lower.contains(".count(")) return new QueryResult(executeCount(query, limits), false);
+            else if (lower.contains(".insertone(")) return new QueryResult(executeInsert(query), false);
+            else if (lower.contains(".updateone(")) return new QueryResult(executeUpdate(query), false);
+            else if (lower.contains(".deleteone(")) return new QueryResult(executeDelete(query), false);
             else
                 throw new IllegalArgumentException(
                         "Only find(), count(), insertOne(), updateOne(), and deleteOne() are supported."
                 );
 
+        } catch (QueryException e) {
+            throw e;
         } catch (Exception e) {
             log.error("MongoDB execution error: {}", e.getMessage(), e);
             throw new RuntimeException("MongoDB execution error: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Pages find() by {@code _id}: each page reads the documents after the last {@code _id} of the
+     * previous one, in {@code _id} order, so resuming costs an index seek however deep the page.
+     * Other operations fit on one page.
+     */
+    @Override
+    public QueryPage executePage(String query, String position, QueryLimits limits) {
+        if (query == null || query.isBlank())
+            throw new IllegalArgumentException("Query cannot be null or empty");
+
+        if (!isQuerySafe(query))
+            throw new SecurityException("Blocked unsafe MongoDB operation: " + query);
+
+        if (!query.toLowerCase(Locale.ROOT).contains(".find("))
+            return QueryStrategy.super.executePage(query, position, limits);
+
+        log.info("Executing MongoDB page after {}: {}", position, query);
+        try {
+            String collection = extractCollectionName(query);
+            String filterJson = normalizeRegex(extractContent(query, "find"));
+            Document filter = filterJson.isBlank() ? new Document() : Document.parse(filterJson);
+            Bson pageFilter = position == null ? filter : Filters.and(filter, Filters.gt("_id", Document.parse(position).get("_id")));
+
+            FindIterable<Document> find = mongoTemplate.getCollection(collection).find(pageFilter).sort(Sorts.ascending("_id"));
+            if (limits.hasMaxRows()) find = find.limit(limits.probeRows());
+            if (limits.timeoutSeconds() > 0) find = find.maxTime(limits.timeoutSeconds(), TimeUnit.SECONDS);
+            QueryResult page = QueryResult.of(new ArrayList<>(find.into(new ArrayList<>())), limits);
+
+            String nextPosition = null;
+            if (page.truncated()) {
+                Object lastId = page.rows().get(page.rows().size() - 1).get("_id");
+                // Extended JSON keeps the _id type (ObjectId, date...) across the round trip
+                nextPosition = new Document("_id", lastId).toJson();
+            }
+            return new QueryPage(page.rows(), nextPosition);
+        } catch (Exception e) {
+            log.error("MongoDB execution error: {}", e.getMessage(), e);
+            throw new RuntimeException("MongoDB execution error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams find() results straight off the cursor, {@link #STREAM_BATCH_SIZE} documents per
+     * batch and without the result size limit of {@link #executeQuery(String, QueryLimits)}, but
+     * bounded by {@code maxTimeMS}; other operations return a single row anyway.
+     */
+    @Override
+    public long executeQueryStreaming(String query, QueryLimits limits, RowSink sink) {
+        if (query == null || query.isBlank())
+            throw new IllegalArgumentException("Query cannot be null or empty");
+
+        if (!isQuerySafe(query))
+            throw new SecurityException("Blocked unsafe MongoDB operation: " + query);
+
+        if (!query.toLowerCase(Locale.ROOT).contains(".find("))
+            return QueryStrategy.super.executeQueryStreaming(query, limits, sink);
+
+        log.info("Streaming MongoDB query: {}", query);
+        try {
+            String collection = extractCollectionName(query);
+            String filterJson = normalizeRegex(extractContent(query, "find"));
+            Document filter = filterJson.isBlank() ? new Document() : Document.parse(filterJson);
+            FindIterable<Document> find = mongoTemplate.getCollection(collection).find(filter).batchSize(STREAM_BATCH_SIZE);
+            if (limits.timeoutSeconds() > 0) find = find.maxTime(limits.timeoutSeconds(), TimeUnit.SECONDS);
+            long rows = 0;
+            try (MongoCursor<Document> cursor = find.iterator()) {
+                while (cursor.hasNext()) {
+                    rows++;
+                    if (!sink.accept(cursor.next())) break;
+                }
+            }
+            return rows;
+        } catch (Exception e) {
+            log.error("MongoDB execution error: {}", e.getMessage(), e);
+            throw new RuntimeException("MongoDB execution error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Plans find() and count() with {@code explain("queryPlanner")}, which picks a plan without
+     * running it. The query planner gives no cost or row estimate, so the plan's stages, such as
+     * COLLSCAN against IXSCAN, are what tells plans apart. count() is explained as the count
+     * command, whose plan matches the filter scan of {@code countDocuments}.
+     */
+    @Override
+    public QueryPlan explainQuery(String query, QueryLimits limits) {
+        if (query == null || query.isBlank())
+            throw new IllegalArgumentException("Query cannot be null or empty");
+
+        if (!isQuerySafe(query))
+            throw new SecurityException("Blocked unsafe MongoDB operation: " + query);
+
+        log.info("Explaining MongoDB query: {}", query);
+        try {
+            String lower = query.toLowerCase(Locale.ROOT);
+            String collection = extractCollectionName(query);
+            Document explain;
+            if (lower.contains(".find(")) {
+                String filterJson = normalizeRegex(extractContent(query, "find"));
+                Document filter = filterJson.isBlank() ? new Document() : Document.parse(filterJson);
+                FindIterable<Document> find = mongoTemplate.getCollection(collection).find(filter);
+                if (limits.timeoutSeconds() > 0) find = find.maxTime(limits.timeoutSeconds(), TimeUnit.SECONDS);
+                explain = find.explain(ExplainVerbosity.QUERY_PLANNER);
+            } else if (lower.contains(".count(")) {
+                String filterJson = normalizeRegex(extractContent(query, "count"));
+                Document filter = filterJson.isBlank() ? new Document() : Document.parse(filterJson);
+                Document command = new Document("explain", new Document("count", collection).append("query", filter))
+                        .append("verbosity", "queryPlanner");
+                if (limits.timeoutSeconds() > 0) command.append("maxTimeMS", TimeUnit.SECONDS.toMillis(limits.timeoutSeconds()));
+                explain = mongoTemplate.getDb().runCommand(command);
+            } else {
+                throw new IllegalArgumentException("Only find() and count() can be explained.");
+            }
+            return planOf(explain);
+        } catch (Exception e) {
+            log.error("MongoDB explain error: {}", e.getMessage(), e);
+            throw new RuntimeException("MongoDB execution error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Summarizes the winning plan as its stages from the top down, e.g. "FETCH > IXSCAN".
+     */
+    static QueryPlan planOf(Document explain) {
+        Document queryPlanner = explain.get("queryPlanner", Document.class);
+        Document stage = queryPlanner == null ? null : queryPlanner.get("winningPlan", Document.class);
+        // Plans run by the slot-based engine (6.0+) nest the classic stages one level down
+        if (stage != null && stage.get("queryPlan") instanceof Document queryPlan) stage = queryPlan;
+
+        StringJoiner summary = new StringJoiner(" > ");
+        while (stage != null) {
+            summary.add(String.valueOf(stage.get("stage")));
+            stage = stage.get("inputStage") instanceof Document inputStage ? inputStage : null;
+        }
+        return new QueryPlan(queryPlanner == null ? explain : queryPlanner, summary.toString(), null, null);
+    }
+
     // ============================================================
     // 5️⃣ EXECUTION HELPERS
     // ============================================================
@@ -175,20 +450,31 @@ public class MongoStrategy implements QueryStrategy {
         return json.replaceAll("/(.*?)/i", "{\"$regex\": \"$1\", \"$options\": \"i\"}");
     }
 
-    private List<Map<String, Object>> executeFind(String query) {
+    /**
+     * Runs find() once the {@link QueryAdmissionGuard} admits it. A limit cannot turn a collection
+     * scan into an index scan, so a limited find() only gets the smaller row limit: the scan stops
+     * as soon as enough documents match, and {@code maxTimeMS} still bounds it otherwise.
+     */
+    private QueryResult executeFind(String query, QueryLimits limits) {
+        QueryLimits admittedLimits = admissionGuard.check(getStrategyName(), query, () -> explainQuery(query, admissionGuard.explainLimits()))
+                == QueryAdmissionGuard.Verdict.LIMIT ? admissionGuard.limit(getStrategyName(), limits) : limits;
         String collection = extractCollectionName(query);
         String filterJson = normalizeRegex(extractContent(query, "find"));
         Document filter = filterJson.isBlank() ? new Document() : Document.parse(filterJson);
-        List<Document> docs = mongoTemplate.getCollection(collection)
-                .find(filter).limit(100).into(new ArrayList<>());
-        return new ArrayList<>(docs);
+        FindIterable<Document> find = mongoTemplate.getCollection(collection).find(filter);
+        if (admittedLimits.hasMaxRows()) find = find.limit(admittedLimits.probeRows());
+        if (admittedLimits.timeoutSeconds() > 0) find = find.maxTime(admittedLimits.timeoutSeconds(), TimeUnit.SECONDS);
+        List<Document> docs = find.into(new ArrayList<>());
+        return QueryResult.of(new ArrayList<>(docs), admittedLimits);
     }
 
-    private List<Map<String, Object>> executeCount(String query) {
+    private List<Map<String, Object>> executeCount(String query, QueryLimits limits) {
         String collection = extractCollectionName(query);
         String filterJson = normalizeRegex(extractContent(query, "count"));
         Document filter = filterJson.isBlank() ? new Document() : Document.parse(filterJson);
-        long count = mongoTemplate.getCollection(collection).countDocuments(filter);
+        CountOptions options = new CountOptions();
+        if (limits.timeoutSeconds() > 0) options.maxTime(limits.timeoutSeconds(), TimeUnit.SECONDS);
+        long count = mongoTemplate.getCollection(collection).countDocuments(filter, options);
         return List.of(Map.of("count", count));
     }
 
@@ -1,15 +1,27 @@
 package com.rosettix.api.strategy;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rosettix.api.service.QueryAdmissionGuard;
 import com.rosettix.api.service.SchemaCacheService;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Component;
 
 @Component("postgres")
@@ -17,8 +29,13 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class PostgresStrategy implements QueryStrategy {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final ObjectMapper PLAN_READER = new ObjectMapper();
+    private static final Pattern TOP_LEVEL_ORDER_BY = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
     private final JdbcTemplate jdbcTemplate;
     private final SchemaCacheService schemaCacheService;
+    private final QueryAdmissionGuard admissionGuard;
 
     // ============================================================
     // 1️⃣ SCHEMA AND INTROSPECTION
@@ -59,6 +76,45 @@ public class PostgresStrategy implements QueryStrategy {
         }
     }
 
+    @Override
+    public Map<String, Set<String>> getTableRelationships() {
+        String relationships = schemaCacheService.getSchema(
+                getStrategyName() + ":relationships", this::fetchTableRelationships);
+
+        Map<String, Set<String>> references = new LinkedHashMap<>();
+        for (String pair : relationships.split(";")) {
+            String[] tables = pair.trim().split(">");
+            if (tables.length == 2) {
+                references.computeIfAbsent(tables[0], ignored -> new LinkedHashSet<>()).add(tables[1]);
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Foreign keys of the public schema serialized as "table>referenced_table; " pairs so they cache like the schema.
+     */
+    private String fetchTableRelationships() {
+        try {
+            String sql = """
+                SELECT DISTINCT tc.table_name, ccu.table_name AS referenced_table
+                FROM information_schema.table_constraints tc
+                JOIN information_schema.constraint_column_usage ccu
+                  ON tc.constraint_name = ccu.constraint_name AND tc.table_schema = ccu.table_schema
+                WHERE tc.constraint_type = 'FOREIGN KEY' AND tc.table_schema = 'public';
+            """;
+
+            StringBuilder relationships = new StringBuilder();
+            for (Map<String, Object> row : jdbcTemplate.queryForList(sql)) {
+                relationships.append(row.get("table_name")).append(">").append(row.get("referenced_table")).append("; ");
+            }
+            return relationships.toString();
+        } catch (Exception e) {
+            log.error("Error fetching foreign keys: {}", e.getMessage(), e);
+            return "";
+        }
+    }
+
     @Override
     public String getQueryLanguage() {
         return "PostgreSQL";
@@ -73,16 +129,13 @@ public class PostgresStrategy implements QueryStrategy {
     // 2️⃣ AI PROMPT GENERATION
     // ============================================================
     @Override
-    public String buildPrompt(String question, String schema) {
-        return String.format(
-            "Given the PostgreSQL schema: \n%s\n---\n" +
+    public String buildPromptPrefix(String schema) {
+        return "Given the PostgreSQL schema: \n" + schema + "\n---\n" +
             "Translate the question into a valid SQL query. " +
             "For read queries, use SELECT. " +
             "If the intent is to insert, update, or delete data, generate a safe DML statement. " +
             "Avoid destructive operations like DROP, TRUNCATE, or ALTER.\n" +
-            "Return only the SQL query (no markdown or explanation).\nQuestion: \"%s\"",
-            schema, question
-        );
+            "Return only the SQL query (no markdown or explanation).\n";
     }
 
     @Override
@@ -96,9 +149,128 @@ public class PostgresStrategy implements QueryStrategy {
         return cleaned.replaceAll(";+\\s*$", "");
     }
 
+    /**
+     * A streamed answer is complete once a statement terminator appears outside quotes.
+     */
+    @Override
+    public boolean isCompleteQuery(String partialResponse) {
+        if (partialResponse == null) return false;
+        boolean inString = false;
+        boolean inIdentifier = false;
+        for (int i = 0; i < partialResponse.length(); i++) {
+            char c = partialResponse.charAt(i);
+            if (c == '\'' && !inIdentifier) inString = !inString;
+            else if (c == '"' && !inString) inIdentifier = !inIdentifier;
+            else if (c == ';' && !inString && !inIdentifier) {
+                return !cleanQuery(partialResponse.substring(0, i)).isBlank();
+            }
+        }
+        return QueryStrategy.super.isCompleteQuery(partialResponse);
+    }
+
+    /**
+     * String literals and unsigned numbers outside quoted identifiers.
+     */
+    @Override
+    public List<QueryLiteral> findQueryLiterals(String query) {
+        List<QueryLiteral> literals = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int close = query.indexOf('"', i + 1);
+                if (close < 0) return List.of();
+                i = close + 1;
+            } else if (c == '\'') {
+                StringBuilder value = new StringBuilder();
+                int j = i + 1;
+                while (true) {
+                    if (j >= query.length()) return List.of();
+                    char d = query.charAt(j);
+                    if (d == '\'' && j + 1 < query.length() && query.charAt(j + 1) == '\'') {
+                        value.append('\'');
+                        j += 2;
+                    } else if (d == '\'') {
+                        break;
+                    } else {
+                        value.append(d);
+                        j++;
+                    }
+                }
+                literals.add(new QueryLiteral(i, j + 1, value.toString(), true));
+                i = j + 1;
+            } else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(query.charAt(i - 1)))) {
+                Matcher matcher = NUMBER_PATTERN.matcher(query).region(i, query.length());
+                if (!matcher.lookingAt()) return List.of();
+                int end = matcher.end();
+                if (end < query.length() && isIdentifierPart(query.charAt(end))) {
+                    i = end;
+                    continue;
+                }
+                literals.add(new QueryLiteral(i, end, matcher.group(), false));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        return literals;
+    }
+
+    @Override
+    public String encodeQueryLiteral(QueryLiteral original, String value) {
+        if (original.string()) {
+            return "'" + value.replace("'", "''") + "'";
+        }
+        return NUMBER_PATTERN.matcher(value).matches() ? value : null;
+    }
+
+    private static final String IDENTIFIER = "(?:\"[^\"]+\"|[a-z_][a-z0-9_$]*)";
+    private static final String QUALIFIED_NAME = IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")?";
+    private static final Pattern TARGET_PATTERN = Pattern.compile(
+        "\\b(from|join|into|update)\\s+(?:only\\s+)?(" + QUALIFIED_NAME + ")",
+        Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern FROM_LIST_PATTERN = Pattern.compile(
+        "\\s*(?:(?:as\\s+)?" + IDENTIFIER + "(?:\\s*\\([^)]*\\))?)?\\s*,\\s*(?:only\\s+)?(" + QUALIFIED_NAME + ")",
+        Pattern.CASE_INSENSITIVE
+    );
+
+    /**
+     * Tables named after FROM (including comma lists), JOIN, INTO and UPDATE, without schema and
+     * lower-cased. Words in string literals may be picked up too, which only widens invalidation;
+     * tables reached through views, functions or triggers are not seen.
+     */
+    @Override
+    public Set<String> findQueryTargets(String query) {
+        if (query == null) return Set.of();
+        Set<String> targets = new LinkedHashSet<>();
+        Matcher matcher = TARGET_PATTERN.matcher(query);
+        while (matcher.find()) {
+            targets.add(tableName(matcher.group(2)));
+            if (matcher.group(1).equalsIgnoreCase("from")) {
+                Matcher list = FROM_LIST_PATTERN.matcher(query).region(matcher.end(), query.length());
+                while (list.lookingAt()) {
+                    targets.add(tableName(list.group(1)));
+                    list.region(list.end(), query.length());
+                }
+            }
+        }
+        return targets;
+    }
+
+    private static String tableName(String qualifiedName) {
+        String name = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1).trim();
+        return name.replace("\"", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+    }
+
     // ============================================================
     // 3️⃣ QUERY SAFETY GUARD
     // ============================================================
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("\\d+(?:\\.\\d+)?");
     private static final Pattern UNSAFE_PATTERN = Pattern.compile(
         "\\b(drop|truncate|alter|grant|revoke|create|replace|exec|execute)\\b",
         Pattern.CASE_INSENSITIVE
@@ -118,6 +290,19 @@ public class PostgresStrategy implements QueryStrategy {
     // ============================================================
     @Override
     public List<Map<String, Object>> executeQuery(String query) {
+        return executeQuery(query, QueryLimits.NONE).rows();
+    }
+
+    /**
+     * Applies the limits on the statement: {@code setMaxRows} stops the driver reading past the
+     * limit, and {@code setQueryTimeout} has the driver send a cancel request to the server once
+     * the timeout passes, which frees the backend and the pooled connection.
+     * <p>
+     * SELECTs first pass the {@link QueryAdmissionGuard}. One it limits is wrapped in a LIMIT the
+     * planner can see, so a cross join or scan can stop early, and is checked again as rewritten.
+     */
+    @Override
+    public QueryResult executeQuery(String query, QueryLimits limits) {
         if (query == null || query.isBlank()) {
             throw new IllegalArgumentException("Query cannot be null or empty");
         }
@@ -129,18 +314,255 @@ public class PostgresStrategy implements QueryStrategy {
 
         try {
             if (lower.startsWith("select")) {
+                String admittedQuery = query;
+                QueryLimits admittedLimits = limits;
+                if (admissionGuard.check(getStrategyName(), query, () -> explainQuery(query, admissionGuard.explainLimits()))
+                        == QueryAdmissionGuard.Verdict.LIMIT) {
+                    admittedLimits = admissionGuard.limit(getStrategyName(), limits);
+                    String limitedQuery = "SELECT * FROM (" + asSubquery(query) + ") AS rosettix_admitted LIMIT " + admittedLimits.probeRows();
+                    admissionGuard.checkLimited(getStrategyName(), limitedQuery, () -> explainQuery(limitedQuery, admissionGuard.explainLimits()));
+                    admittedQuery = limitedQuery;
+                }
+
                 log.info("Executing safe SELECT query.");
-                return jdbcTemplate.queryForList(query);
+                String statementQuery = admittedQuery;
+                QueryLimits statementLimits = admittedLimits;
+                List<Map<String, Object>> rows = jdbcTemplate.query(
+                        connection -> prepareStatement(connection, statementQuery, statementLimits.probeRows(), statementLimits.timeoutSeconds()),
+                        new ColumnMapRowMapper()
+                );
+                return QueryResult.of(rows, statementLimits);
             } else if (lower.startsWith("insert") ||
                        lower.startsWith("update") ||
                        lower.startsWith("delete")) {
 
-                int affected = jdbcTemplate.update(query);
+                int affected = jdbcTemplate.update(connection -> prepareStatement(connection, query, 0, limits.timeoutSeconds()));
                 log.info("Executed DML query, affected rows: {}", affected);
-                return List.of(Map.of("rows_affected", affected));
+                return new QueryResult(List.of(Map.of("rows_affected", affected)), false);
             } else {
                 throw new IllegalArgumentException("Unsupported SQL command: Only SELECT/INSERT/UPDATE/DELETE allowed.");
             }
+        } catch (QueryTimeoutException e) {
+            log.warn("SQL query cancelled after {}s: {}", limits.timeoutSeconds(), query);
+            throw new RuntimeException("SQL Execution Error: query cancelled after " + limits.timeoutSeconds() + "s", e);
+        } catch (DataAccessException e) {
+            log.error("SQL execution error: {}", e.getMessage(), e);
+            throw new RuntimeException("SQL Execution Error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pages a SELECT by wrapping it with OFFSET/LIMIT, so each page only reads up to its end and
+     * rows keep the order of the generated query. Keyset paging would need a unique sort key the
+     * generated SQL does not promise, and a server-side cursor would pin a pooled connection to a
+     * client between requests. OFFSET only skips the same rows on every page when the order is
+     * fixed, so a query without a top-level ORDER BY is paged by its whole row's text instead:
+     * arbitrary, but the same on every request. Rows tied under the query's own ORDER BY may still
+     * move between pages.
+     */
+    @Override
+    public QueryPage executePage(String query, String position, QueryLimits limits) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query cannot be null or empty");
+        }
+
+        String lower = query.trim().toLowerCase(Locale.ROOT);
+        if (!isQuerySafe(lower)) {
+            throw new SecurityException("Blocked potentially unsafe SQL operation.");
+        }
+        if (!lower.startsWith("select")) {
+            throw new IllegalArgumentException("Only SELECT queries can be paged.");
+        }
+
+        long offset = position == null ? 0 : Long.parseLong(position);
+        String subquery = asSubquery(query);
+        String pagedQuery = "SELECT * FROM (" + subquery + ") AS rosettix_page"
+                + (hasTopLevelOrderBy(subquery) ? "" : " ORDER BY rosettix_page::text")
+                + " OFFSET " + offset
+                + (limits.hasMaxRows() ? " LIMIT " + limits.probeRows() : "");
+        try {
+            log.info("Executing safe SELECT page at offset {}.", offset);
+            List<Map<String, Object>> rows = jdbcTemplate.query(
+                    connection -> prepareStatement(connection, pagedQuery, limits.probeRows(), limits.timeoutSeconds()),
+                    new ColumnMapRowMapper()
+            );
+            QueryResult page = QueryResult.of(rows, limits);
+            return new QueryPage(page.rows(), page.truncated() ? String.valueOf(offset + page.rows().size()) : null);
+        } catch (QueryTimeoutException e) {
+            log.warn("SQL query cancelled after {}s: {}", limits.timeoutSeconds(), query);
+            throw new RuntimeException("SQL Execution Error: query cancelled after " + limits.timeoutSeconds() + "s", e);
+        } catch (DataAccessException e) {
+            log.error("SQL execution error: {}", e.getMessage(), e);
+            throw new RuntimeException("SQL Execution Error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Plans a SELECT with {@code EXPLAIN (FORMAT JSON)}, never ANALYZE, so the query is not run
+     * and the connection is only held while the planner works; the timeout bounds a plan waiting
+     * on a lock.
+     */
+    @Override
+    public QueryPlan explainQuery(String query, QueryLimits limits) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query cannot be null or empty");
+        }
+
+        String lower = query.trim().toLowerCase(Locale.ROOT);
+        if (!isQuerySafe(lower)) {
+            throw new SecurityException("Blocked potentially unsafe SQL operation.");
+        }
+        if (!lower.startsWith("select")) {
+            throw new IllegalArgumentException("Only SELECT queries can be explained.");
+        }
+
+        try {
+            log.info("Explaining safe SELECT query.");
+            String plan = jdbcTemplate.query(
+                    connection -> prepareStatement(connection, "EXPLAIN (FORMAT JSON) " + query.trim(), 0, limits.timeoutSeconds()),
+                    (ResultSetExtractor<String>) resultSet -> resultSet.next() ? resultSet.getString(1) : null
+            );
+            return parsePlan(plan);
+        } catch (QueryTimeoutException e) {
+            log.warn("SQL explain cancelled after {}s: {}", limits.timeoutSeconds(), query);
+            throw new RuntimeException("SQL Execution Error: explain cancelled after " + limits.timeoutSeconds() + "s", e);
+        } catch (DataAccessException e) {
+            log.error("SQL explain error: {}", e.getMessage(), e);
+            throw new RuntimeException("SQL Execution Error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The query without comments or trailing semicolons, so it can be wrapped as a subquery: a
+     * trailing {@code --} comment would otherwise swallow the closing parenthesis.
+     */
+    static String asSubquery(String query) {
+        StringBuilder subquery = new StringBuilder(query.length());
+        boolean inString = false;
+        boolean inIdentifier = false;
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (!inString && !inIdentifier && query.startsWith("--", i)) {
+                int lineEnd = query.indexOf('\n', i);
+                i = lineEnd < 0 ? query.length() : lineEnd;
+                continue;
+            }
+            if (!inString && !inIdentifier && query.startsWith("/*", i)) {
+                int commentEnd = query.indexOf("*/", i + 2);
+                i = commentEnd < 0 ? query.length() : commentEnd + 2;
+                subquery.append(' ');
+                continue;
+            }
+            if (c == '\'' && !inIdentifier) inString = !inString;
+            else if (c == '"' && !inString) inIdentifier = !inIdentifier;
+            subquery.append(c);
+            i++;
+        }
+        return subquery.toString().trim().replaceAll(";+\\s*$", "").trim();
+    }
+
+    /**
+     * Whether a comment-free query orders its own result, ignoring ORDER BY inside parentheses
+     * (subqueries, window functions, aggregates), string literals and quoted identifiers.
+     */
+    static boolean hasTopLevelOrderBy(String subquery) {
+        StringBuilder topLevel = new StringBuilder(subquery.length());
+        boolean inString = false;
+        boolean inIdentifier = false;
+        int depth = 0;
+        for (int i = 0; i < subquery.length(); i++) {
+            char c = subquery.charAt(i);
+            if (c == '\'' && !inIdentifier) inString = !inString;
+            else if (c == '"' && !inString) inIdentifier = !inIdentifier;
+            else if (!inString && !inIdentifier && c == '(') depth++;
+            else if (!inString && !inIdentifier && c == ')') depth--;
+            else if (!inString && !inIdentifier && depth == 0) {
+                topLevel.append(c);
+                continue;
+            }
+            topLevel.append(' ');
+        }
+        return TOP_LEVEL_ORDER_BY.matcher(topLevel).find();
+    }
+
+    /**
+     * Reads the top node of an {@code EXPLAIN (FORMAT JSON)} plan, whose cost and row estimates
+     * cover the whole query.
+     */
+    @SuppressWarnings("unchecked")
+    static QueryPlan parsePlan(String json) {
+        try {
+            List<Object> plan = PLAN_READER.readValue(json, List.class);
+            Map<String, Object> topNode = (Map<String, Object>) ((Map<String, Object>) plan.get(0)).get("Plan");
+            Object relation = topNode.get("Relation Name");
+            String summary = topNode.get("Node Type") + (relation == null ? "" : " on " + relation);
+            return new QueryPlan(plan, summary, estimate(topNode.get("Total Cost")), estimate(topNode.get("Plan Rows")));
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw new IllegalStateException("Unreadable SQL plan: " + json, e);
+        }
+    }
+
+    private static Double estimate(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    private static PreparedStatement prepareStatement(Connection connection, String query, int maxRows, int timeoutSeconds) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
+        statement.setMaxRows(maxRows);
+        statement.setQueryTimeout(timeoutSeconds);
+        return statement;
+    }
+
+    /**
+     * Reads SELECT results through a server-side cursor, {@link #STREAM_FETCH_SIZE} rows per round
+     * trip. The driver only uses a cursor outside auto-commit, so the read runs in its own
+     * read-only transaction on the borrowed connection, under the statement timeout.
+     */
+    @Override
+    public long executeQueryStreaming(String query, QueryLimits limits, RowSink sink) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query cannot be null or empty");
+        }
+
+        String lower = query.trim().toLowerCase(Locale.ROOT);
+        if (!isQuerySafe(lower)) {
+            throw new SecurityException("Blocked potentially unsafe SQL operation.");
+        }
+        if (!lower.startsWith("select")) {
+            return QueryStrategy.super.executeQueryStreaming(query, limits, sink);
+        }
+
+        try {
+            log.info("Streaming safe SELECT query.");
+            Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                boolean readOnly = connection.isReadOnly();
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                try (PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(STREAM_FETCH_SIZE);
+                    statement.setQueryTimeout(limits.timeoutSeconds());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+                        long count = 0;
+                        while (resultSet.next()) {
+                            count++;
+                            if (!sink.accept(rowMapper.mapRow(resultSet, (int) count))) {
+                                statement.cancel();
+                                break;
+                            }
+                        }
+                        return count;
+                    }
+                } finally {
+                    // Read-only, so ending the transaction either way is safe
+                    connection.rollback();
+                    connection.setReadOnly(readOnly);
+                    connection.setAutoCommit(autoCommit);
+                }
+            });
+            return rows == null ? 0 : rows;
         } catch (DataAccessException e) {
             log.error("SQL execution error: {}", e.getMessage(), e);
             throw new RuntimeException("SQL Execution Error: " + e.getMessage(), e);
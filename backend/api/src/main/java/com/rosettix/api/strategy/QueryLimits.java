@@ -0,0 +1,29 @@
+package com.rosettix.api.strategy;
+
+import com.rosettix.api.config.RosettixConfiguration;
+
+/**
+ * Bounds applied by the database itself to a generated query.
+ * @param maxRows most rows (or collection elements, for single-row answers) to return, 0 for no limit
+ * @param timeoutSeconds longest the database may run the query before cancelling it, 0 for no limit
+ */
+public record QueryLimits(int maxRows, int timeoutSeconds) {
+
+    public static final QueryLimits NONE = new QueryLimits(0, 0);
+
+    public static QueryLimits of(RosettixConfiguration.QueryConfig queryConfig) {
+        return new QueryLimits(Math.max(0, queryConfig.getMaxResultSize()), Math.max(0, queryConfig.getTimeoutSeconds()));
+    }
+
+    public boolean hasMaxRows() {
+        return maxRows > 0;
+    }
+
+    /**
+     * The row limit to ask the database for, one over {@link #maxRows()} so truncation can be told
+     * apart from a result of exactly {@code maxRows} rows.
+     */
+    public int probeRows() {
+        return hasMaxRows() ? maxRows + 1 : 0;
+    }
+}
@@ -0,0 +1,13 @@
+package com.rosettix.api.strategy;
+
+/**
+ * A literal value found in a generated query.
+ *
+ * @param start Offset of the first character of the literal, including any quote
+ * @param end Offset just past the literal, including any closing quote
+ * @param value The unescaped value
+ * @param string Whether the literal is a string, which may embed a value (e.g. a LIKE pattern),
+ *               rather than a number that can only be replaced as a whole
+ */
+public record QueryLiteral(int start, int end, String value, boolean string) {
+}
@@ -0,0 +1,15 @@
+package com.rosettix.api.strategy;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a query's rows, see {@link QueryStrategy#executePage}.
+ * @param nextPosition where the next page starts, in the strategy's own terms, or null on the last page
+ */
+public record QueryPage(List<Map<String, Object>> rows, String nextPosition) {
+
+    public boolean hasMore() {
+        return nextPosition != null;
+    }
+}
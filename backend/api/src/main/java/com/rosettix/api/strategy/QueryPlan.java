@@ -0,0 +1,11 @@
+package com.rosettix.api.strategy;
+
+/**
+ * How the database would run a query, see {@link QueryStrategy#explainQuery}.
+ * @param plan the plan as the database reports it
+ * @param summary the plan in a few words, e.g. "Seq Scan on orders" or "FETCH > IXSCAN"
+ * @param estimatedCost the planner's total cost in its own units, null when it estimates none
+ * @param estimatedRows the rows the planner expects, null when it estimates none
+ */
+public record QueryPlan(Object plan, String summary, Double estimatedCost, Double estimatedRows) {
+}
@@ -0,0 +1,21 @@
+package com.rosettix.api.strategy;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a query run under {@link QueryLimits}.
+ * @param truncated whether the database had more rows (or elements) than the limit allowed
+ */
+public record QueryResult(List<Map<String, Object>> rows, boolean truncated) {
+
+    /**
+     * Keeps at most {@code limits.maxRows()} rows of a result read with {@link QueryLimits#probeRows()}.
+     */
+    public static QueryResult of(List<Map<String, Object>> rows, QueryLimits limits) {
+        if (!limits.hasMaxRows() || rows.size() <= limits.maxRows()) {
+            return new QueryResult(rows, false);
+        }
+        return new QueryResult(List.copyOf(rows.subList(0, limits.maxRows())), true);
+    }
+}
@@ -1,7 +1,12 @@
 package com.rosettix.api.strategy;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Generic query strategy interface that can handle different database types
@@ -14,6 +19,40 @@ public interface QueryStrategy {
      */
     String getSchemaRepresentation();
 
+    /**
+     * Get the known relationships between tables/collections, used to keep related tables together
+     * when the schema is pruned for a prompt
+     * @return Map from table name to the tables it references; empty when unknown
+     */
+    default Map<String, Set<String>> getTableRelationships() {
+        return Map.of();
+    }
+
+    /**
+     * Get the names the schema is made of, so a question can be routed to the database it is about
+     * without asking the LLM. The default reads the {@code name(field, field); } schema format.
+     * @param schema The schema representation for this database
+     * @return Map from table/collection name to its field names, in schema order; empty when unknown
+     */
+    default Map<String, List<String>> getSchemaVocabulary(String schema) {
+        Map<String, List<String>> vocabulary = new LinkedHashMap<>();
+        if (schema == null) {
+            return vocabulary;
+        }
+
+        Matcher matcher = Pattern.compile("([^;()]+?)\\s*\\(([^)]*)\\);").matcher(schema);
+        while (matcher.find()) {
+            List<String> fields = new ArrayList<>();
+            for (String field : matcher.group(2).split(",")) {
+                if (!field.isBlank()) {
+                    fields.add(field.trim());
+                }
+            }
+            vocabulary.put(matcher.group(1).trim(), fields);
+        }
+        return vocabulary;
+    }
+
     /**
      * Get the query language/dialect used by this database
      * @return Query language name (e.g., "PostgreSQL", "MongoDB", "Neo4j")
@@ -27,6 +66,58 @@ public interface QueryStrategy {
      */
     List<Map<String, Object>> executeQuery(String query);
 
+    /**
+     * Execute the generated query within the given limits. Strategies should have the database
+     * enforce them, so a runaway query is cut short where it runs; the default only trims the rows
+     * of {@link #executeQuery(String)} after the fact.
+     * @return At most {@code limits.maxRows()} rows, flagged when more were available
+     */
+    default QueryResult executeQuery(String query, QueryLimits limits) {
+        return QueryResult.of(executeQuery(query), limits);
+    }
+
+    /**
+     * Execute one page of the generated query, {@code limits.maxRows()} rows from the given position.
+     * Positions are opaque to callers; each strategy resumes from its own kind (offset, last key,
+     * scan cursor). The default re-runs {@link #executeQuery(String)} for every page and skips to
+     * a row offset.
+     * @param position where to resume, as returned in {@link QueryPage#nextPosition()}, null for the first page
+     */
+    default QueryPage executePage(String query, String position, QueryLimits limits) {
+        List<Map<String, Object>> rows = executeQuery(query);
+        int from = Math.min(position == null ? 0 : Integer.parseInt(position), rows.size());
+        int to = limits.hasMaxRows() ? (int) Math.min(rows.size(), (long) from + limits.maxRows()) : rows.size();
+        return new QueryPage(List.copyOf(rows.subList(from, to)), to < rows.size() ? String.valueOf(to) : null);
+    }
+
+    /**
+     * Execute the generated query, handing rows to the sink as they are read instead of building a
+     * list, so memory stays flat however large the result is. Streams are not cut at a row count,
+     * so only {@code limits.timeoutSeconds()} applies. The default runs
+     * {@link #executeQuery(String, QueryLimits)} and replays its rows.
+     * @return Number of rows handed to the sink
+     */
+    default long executeQueryStreaming(String query, QueryLimits limits, RowSink sink) {
+        long rows = 0;
+        for (Map<String, Object> row : executeQuery(query, limits).rows()) {
+            rows++;
+            if (!sink.accept(row)) {
+                break;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Ask the database how it would run a read query, without running it against the data.
+     * The default supports no planner.
+     * @param limits only {@code limits.timeoutSeconds()} applies, bounding the planning
+     * @throws UnsupportedOperationException when the database cannot explain queries
+     */
+    default QueryPlan explainQuery(String query, QueryLimits limits) {
+        throw new UnsupportedOperationException(getStrategyName() + " cannot explain queries");
+    }
+
     /**
      * Get the strategy identifier/name
      * @return Strategy name for lookup purposes
@@ -79,6 +170,17 @@ public interface QueryStrategy {
             || lower.contains(".deleteone(");
     }
 
+    /**
+     * Name the tables, collections or keys a query reads or writes, so cached reads can be dropped
+     * by the writes that touch the same objects. Names must come out the same for a read and a write
+     * of one object. The default knows none.
+     * @return the touched objects, or an empty set when they cannot be told, in which case callers
+     *         must assume the query may touch anything
+     */
+    default Set<String> findQueryTargets(String query) {
+        return Set.of();
+    }
+
     /**
      * Build a database-specific prompt for the LLM
      * @param question The user's natural language question
@@ -86,14 +188,94 @@ public interface QueryStrategy {
      * @return A formatted prompt string for the LLM
      */
     default String buildPrompt(String question, String schema) {
-        return String.format(
-            "Given the %s schema: \n%s\n---\nTranslate the question into a single, valid %s query. " +
-                "Do not add any explanation, comments, or markdown formatting.\nQuestion: \"%s\"",
-            getQueryLanguage(),
-            schema,
-            getQueryLanguage(),
-            question
-        );
+        return buildPromptPrefix(schema) + buildPromptSuffix(question);
+    }
+
+    /**
+     * Build the static part of the prompt: instructions and schema, without the question.
+     * It only changes with the schema, so it can be built once and cached by the LLM provider.
+     * @param schema The schema representation for this database
+     * @return The prompt prefix, ending with a line break
+     */
+    default String buildPromptPrefix(String schema) {
+        return "Given the " + getQueryLanguage() + " schema: \n" + schema + "\n---\n" +
+            "Translate the question into a single, valid " + getQueryLanguage() + " query. " +
+            "Do not add any explanation, comments, or markdown formatting.\n";
+    }
+
+    /**
+     * Build the per-request part of the prompt that follows {@link #buildPromptPrefix(String)}
+     * @param question The user's natural language question
+     * @return The prompt suffix carrying the question
+     */
+    default String buildPromptSuffix(String question) {
+        return "Question: \"" + question + "\"";
+    }
+
+    /**
+     * Build a prompt translating several questions at once, sharing a single copy of the schema.
+     * It starts with {@link #buildPromptPrefix(String)}, so batched questions get the same
+     * instructions as single ones. The answer must contain one line per question, prefixed with
+     * the question's number. Each question is flattened to one line with its quotes escaped, so
+     * one caller's question cannot pose as another numbered question or rewrite the instructions.
+     * @param questions The user's natural language questions, numbered from 1 in prompt order
+     * @param schema The schema representation for this database
+     * @return A formatted prompt string for the LLM
+     */
+    default String buildBatchPrompt(List<String> questions, String schema) {
+        StringBuilder prompt = new StringBuilder(buildPromptPrefix(schema))
+            .append("Apply these instructions to each of the numbered questions below. ")
+            .append("Answer with exactly ").append(questions.size()).append(" lines, one per question, ")
+            .append("each starting with the question's number followed by a period and a space, e.g. \"1. <query>\". ")
+            .append("Write every query on a single line.\nQuestions:\n");
+        for (int i = 0; i < questions.size(); i++) {
+            prompt.append(i + 1).append(". \"").append(quoteBatchQuestion(questions.get(i))).append("\"\n");
+        }
+        return prompt.toString();
+    }
+
+    private static String quoteBatchQuestion(String question) {
+        return question.replaceAll("(?U)\\s+", " ").strip()
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"");
+    }
+
+    /**
+     * Decide whether a partially streamed LLM response already holds a complete query,
+     * so the rest of the response can be abandoned. The default only recognizes a closed
+     * markdown code block; strategies can recognize their own statement terminators.
+     * @param partialResponse The raw text received so far
+     * @return true when reading further cannot change the cleaned query
+     */
+    default boolean isCompleteQuery(String partialResponse) {
+        if (partialResponse == null) {
+            return false;
+        }
+
+        int open = partialResponse.indexOf("```");
+        int close = open < 0 ? -1 : partialResponse.indexOf("```", open + 3);
+        return close > 0 && !cleanQuery(partialResponse.substring(0, close)).isBlank();
+    }
+
+    /**
+     * Find the literal values of a generated query, so a query generated for one question can be
+     * reused for a question differing only in its literals. The default supports no templating.
+     * @param query The cleaned query
+     * @return The literals in order of appearance; empty when the query cannot be templated
+     */
+    default List<QueryLiteral> findQueryLiterals(String query) {
+        return List.of();
+    }
+
+    /**
+     * Encode a value so it can take the place of a literal found by {@link #findQueryLiterals(String)}.
+     * Implementations must escape the value so it can never change the structure of the query.
+     * @param original The literal being replaced
+     * @param value The new, unescaped value
+     * @return The encoded literal, or null when the value cannot be used in that position
+     */
+    default String encodeQueryLiteral(QueryLiteral original, String value) {
+        return null;
     }
 
     /**
@@ -1,23 +1,37 @@
 package com.rosettix.api.strategy;
 
 import com.rosettix.api.service.RedisSchemaCacheStore;
+import io.lettuce.core.MapScanCursor;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ValueScanCursor;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 import com.rosettix.api.service.SchemaCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -35,7 +49,9 @@ public class RedisStrategy implements QueryStrategy {
             "SET", "DEL", "HSET", "LPUSH", "RPUSH", "SADD", "ZADD", "EXPIRE"
     );
     private static final int MAX_SCHEMA_KEYS = 20;
+    private static final Pattern SCHEMA_ENTRY_PATTERN = Pattern.compile("([^\\s;()]+)\\(\\w+\\): (?:fields=\\[([^\\]]*)\\])?");
     private static final int SAMPLE_COLLECTION_SIZE = 5;
+    private static final int STREAM_CHUNK_SIZE = 500;
 
     private final StringRedisTemplate redisTemplate;
     private final SchemaCacheService schemaCacheService;
@@ -79,6 +95,37 @@ public class RedisStrategy implements QueryStrategy {
         }
     }
 
+    /**
+     * Keys are named like {@code prefix:id:part}; the prefix names what a key holds, so it stands
+     * in for a table, with the other named parts and sampled hash fields as its fields.
+     */
+    @Override
+    public Map<String, List<String>> getSchemaVocabulary(String schema) {
+        Map<String, List<String>> vocabulary = new LinkedHashMap<>();
+        if (schema == null) {
+            return vocabulary;
+        }
+
+        Matcher matcher = SCHEMA_ENTRY_PATTERN.matcher(schema);
+        while (matcher.find()) {
+            String[] segments = matcher.group(1).split(":");
+            List<String> fields = vocabulary.computeIfAbsent(segments[0], ignored -> new ArrayList<>());
+            for (int i = 1; i < segments.length; i++) {
+                if (!segments[i].isEmpty() && segments[i].chars().noneMatch(Character::isDigit) && !fields.contains(segments[i])) {
+                    fields.add(segments[i]);
+                }
+            }
+            if (matcher.group(2) != null) {
+                for (String field : matcher.group(2).split(",")) {
+                    if (!field.isBlank() && !fields.contains(field.trim())) {
+                        fields.add(field.trim());
+                    }
+                }
+            }
+        }
+        return vocabulary;
+    }
+
     @Override
     public String getQueryLanguage() {
         return "Redis";
@@ -86,6 +133,16 @@ public class RedisStrategy implements QueryStrategy {
 
     @Override
     public List<Map<String, Object>> executeQuery(String query) {
+        return executeQuery(query, QueryLimits.NONE).rows();
+    }
+
+    /**
+     * Caps collection reads at the row limit on the server: LRANGE and ZRANGE ranges are narrowed,
+     * SMEMBERS and HGETALL become SSCAN/HSCAN stopping at the limit. Redis has no per-command
+     * timeout, so bounding the work is what keeps a command short.
+     */
+    @Override
+    public QueryResult executeQuery(String query, QueryLimits limits) {
         if (query == null || query.isBlank()) {
             throw new IllegalArgumentException("Query cannot be null or empty");
         }
@@ -103,26 +160,108 @@ public class RedisStrategy implements QueryStrategy {
         ensureNoReservedKeyAccess(tokens);
 
         return switch (command) {
-            case "GET" -> executeGet(tokens);
-            case "HGET" -> executeHGet(tokens);
-            case "HGETALL" -> executeHGetAll(tokens);
-            case "LRANGE" -> executeLRange(tokens);
-            case "SMEMBERS" -> executeSMembers(tokens);
-            case "ZRANGE" -> executeZRange(tokens);
-            case "TYPE" -> executeType(tokens);
-            case "EXISTS" -> executeExists(tokens);
-            case "SET" -> executeSet(tokens);
-            case "DEL" -> executeDel(tokens);
-            case "HSET" -> executeHSet(tokens);
-            case "LPUSH" -> executeLPush(tokens);
-            case "RPUSH" -> executeRPush(tokens);
-            case "SADD" -> executeSAdd(tokens);
-            case "ZADD" -> executeZAdd(tokens);
-            case "EXPIRE" -> executeExpire(tokens);
+            case "GET" -> complete(executeGet(tokens));
+            case "HGET" -> complete(executeHGet(tokens));
+            case "HGETALL" -> executeHGetAll(tokens, limits);
+            case "LRANGE" -> executeLRange(tokens, limits);
+            case "SMEMBERS" -> executeSMembers(tokens, limits);
+            case "ZRANGE" -> executeZRange(tokens, limits);
+            case "TYPE" -> complete(executeType(tokens));
+            case "EXISTS" -> complete(executeExists(tokens));
+            case "SET" -> complete(executeSet(tokens));
+            case "DEL" -> complete(executeDel(tokens));
+            case "HSET" -> complete(executeHSet(tokens));
+            case "LPUSH" -> complete(executeLPush(tokens));
+            case "RPUSH" -> complete(executeRPush(tokens));
+            case "SADD" -> complete(executeSAdd(tokens));
+            case "ZADD" -> complete(executeZAdd(tokens));
+            case "EXPIRE" -> complete(executeExpire(tokens));
             default -> throw new IllegalArgumentException("Unsupported Redis command: " + command);
         };
     }
 
+    private static QueryResult complete(List<Map<String, Object>> rows) {
+        return new QueryResult(rows, false);
+    }
+
+    /**
+     * Streams collection reads one element per row, fetching {@link #STREAM_CHUNK_SIZE} elements
+     * at a time: LRANGE and ZRANGE by index range, SMEMBERS and HGETALL through SSCAN/HSCAN cursors.
+     * Other commands return a single row anyway.
+     */
+    @Override
+    public long executeQueryStreaming(String query, QueryLimits limits, RowSink sink) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query cannot be null or empty");
+        }
+
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Invalid Redis command");
+        }
+
+        String command = tokens.get(0).toUpperCase(Locale.ROOT);
+        if (!READ_COMMANDS.contains(command) && !WRITE_COMMANDS.contains(command)) {
+            throw new IllegalArgumentException("Unsupported Redis command: " + command);
+        }
+
+        ensureNoReservedKeyAccess(tokens);
+
+        return switch (command) {
+            case "LRANGE" -> streamLRange(tokens, sink);
+            case "ZRANGE" -> streamZRange(tokens, sink);
+            case "SMEMBERS" -> streamSMembers(tokens, sink);
+            case "HGETALL" -> streamHGetAll(tokens, sink);
+            default -> QueryStrategy.super.executeQueryStreaming(query, limits, sink);
+        };
+    }
+
+    /**
+     * Pages collection reads one element per row, like {@link #executeQueryStreaming}: LRANGE and
+     * ZRANGE resume from an index, SMEMBERS and HGETALL from an SSCAN/HSCAN cursor. A scan page
+     * holds what one SCAN call returns for a COUNT of the page size, so it may be a little larger or
+     * smaller. Other commands fit on one page.
+     */
+    @Override
+    public QueryPage executePage(String query, String position, QueryLimits limits) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query cannot be null or empty");
+        }
+
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Invalid Redis command");
+        }
+
+        String command = tokens.get(0).toUpperCase(Locale.ROOT);
+        if (!READ_COMMANDS.contains(command) && !WRITE_COMMANDS.contains(command)) {
+            throw new IllegalArgumentException("Unsupported Redis command: " + command);
+        }
+
+        ensureNoReservedKeyAccess(tokens);
+
+        return switch (command) {
+            case "LRANGE" -> pageLRange(tokens, position, limits);
+            case "ZRANGE" -> pageZRange(tokens, position, limits);
+            case "SMEMBERS" -> pageScan("SMEMBERS", tokens, position, limits);
+            case "HGETALL" -> pageScan("HGETALL", tokens, position, limits);
+            default -> QueryStrategy.super.executePage(query, position, limits);
+        };
+    }
+
+    /**
+     * Every supported command works on the one key that follows it.
+     */
+    @Override
+    public Set<String> findQueryTargets(String query) {
+        try {
+            List<String> tokens = tokenize(query);
+            return tokens.size() < 2 ? Set.of() : Set.of(tokens.get(1));
+        } catch (IllegalArgumentException e) {
+            return Set.of();
+        }
+    }
+
     @Override
     public String getStrategyName() {
         return "redis";
@@ -171,20 +310,16 @@ public class RedisStrategy implements QueryStrategy {
     }
 
     @Override
-    public String buildPrompt(String question, String schema) {
-        return String.format(
-                "Given the Redis keyspace summary: \n%s\n---\n" +
-                        "Translate the question into exactly one valid Redis command.\n" +
-                        "Allowed read commands: GET key, HGET key field, HGETALL key, LRANGE key start stop, " +
-                        "SMEMBERS key, ZRANGE key start stop [WITHSCORES], TYPE key, EXISTS key.\n" +
-                        "Allowed write commands: SET key value, DEL key, HSET key field value, LPUSH key value, " +
-                        "RPUSH key value, SADD key value, ZADD key score member, EXPIRE key seconds.\n" +
-                        "Use double quotes around arguments when they contain spaces.\n" +
-                        "Do not use Lua, pipelines, transactions, CONFIG, FLUSH, KEYS, SCAN, or internal rosettix:schema:* keys.\n" +
-                        "Return only the Redis command with no markdown or explanation.\nQuestion: \"%s\"",
-                schema,
-                question
-        );
+    public String buildPromptPrefix(String schema) {
+        return "Given the Redis keyspace summary: \n" + schema + "\n---\n" +
+                "Translate the question into exactly one valid Redis command.\n" +
+                "Allowed read commands: GET key, HGET key field, HGETALL key, LRANGE key start stop, " +
+                "SMEMBERS key, ZRANGE key start stop [WITHSCORES], TYPE key, EXISTS key.\n" +
+                "Allowed write commands: SET key value, DEL key, HSET key field value, LPUSH key value, " +
+                "RPUSH key value, SADD key value, ZADD key score member, EXPIRE key seconds.\n" +
+                "Use double quotes around arguments when they contain spaces.\n" +
+                "Do not use Lua, pipelines, transactions, CONFIG, FLUSH, KEYS, SCAN, or internal rosettix:schema:* keys.\n" +
+                "Return only the Redis command with no markdown or explanation.\n";
     }
 
     @Override
@@ -195,6 +330,63 @@ public class RedisStrategy implements QueryStrategy {
                 .trim();
     }
 
+    /**
+     * A streamed answer is complete once its first command line has been terminated.
+     */
+    @Override
+    public boolean isCompleteQuery(String partialResponse) {
+        if (partialResponse == null) {
+            return false;
+        }
+
+        boolean inQuotes = false;
+        int lineStart = 0;
+        for (int i = 0; i < partialResponse.length(); i++) {
+            char c = partialResponse.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == '\n' && !inQuotes) {
+                String line = partialResponse.substring(lineStart, i).trim();
+                if (!line.isEmpty() && !line.startsWith("```")) {
+                    return true;
+                }
+                lineStart = i + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every argument after the command name is a string literal; keys may embed values, e.g. user:42.
+     */
+    @Override
+    public List<QueryLiteral> findQueryLiterals(String query) {
+        List<QueryLiteral> literals = new ArrayList<>();
+        Matcher matcher = TOKEN_PATTERN.matcher(query);
+        boolean command = true;
+        while (matcher.find()) {
+            if (command) {
+                command = false;
+                continue;
+            }
+            String quoted = matcher.group(1);
+            String value = quoted != null ? quoted.replace("\\\"", "\"") : matcher.group(2);
+            literals.add(new QueryLiteral(matcher.start(), matcher.end(), value, true));
+        }
+        return literals;
+    }
+
+    @Override
+    public String encodeQueryLiteral(QueryLiteral original, String value) {
+        // The tokenizer only unescapes \", so a backslash could end the quoted argument early
+        if (value.indexOf('\\') >= 0) {
+            return null;
+        }
+        boolean wasQuoted = original.end() - original.start() > original.value().length();
+        boolean quote = wasQuoted || value.isEmpty() || value.chars().anyMatch(c -> Character.isWhitespace(c) || c == '"');
+        return quote ? "\"" + value.replace("\"", "\\\"") + "\"" : value;
+    }
+
     private String describeValueSample(String key, DataType dataType) {
         if (dataType == null) {
             return "sample unavailable";
@@ -225,34 +417,79 @@ public class RedisStrategy implements QueryStrategy {
         return List.of(result("command", "HGET", "key", key, "field", field, "value", value));
     }
 
-    private List<Map<String, Object>> executeHGetAll(List<String> tokens) {
+    private QueryResult executeHGetAll(List<String> tokens, QueryLimits limits) {
         expectArity(tokens, 2);
         String key = tokens.get(1);
-        Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
+        Map<Object, Object> entries;
+        boolean truncated = false;
+        if (limits.hasMaxRows()) {
+            entries = new LinkedHashMap<>();
+            try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(key, scanOptions(limits))) {
+                while (cursor.hasNext()) {
+                    Map.Entry<Object, Object> entry = cursor.next();
+                    // SCAN may return an element twice
+                    if (entries.size() == limits.maxRows() && !entries.containsKey(entry.getKey())) {
+                        truncated = true;
+                        break;
+                    }
+                    entries.put(entry.getKey(), entry.getValue());
+                }
+            }
+        } else {
+            entries = redisTemplate.opsForHash().entries(key);
+        }
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("command", "HGETALL");
         response.put("key", key);
         response.put("entries", entries == null ? Collections.emptyMap() : entries);
-        return List.of(response);
+        return new QueryResult(List.of(response), truncated);
     }
 
-    private List<Map<String, Object>> executeLRange(List<String> tokens) {
+    private QueryResult executeLRange(List<String> tokens, QueryLimits limits) {
         expectArity(tokens, 4);
         String key = tokens.get(1);
         long start = parseLong(tokens.get(2), "start");
         long stop = parseLong(tokens.get(3), "stop");
+        if (limits.hasMaxRows()) {
+            Long size = redisTemplate.opsForList().size(key);
+            long[] bounds = capRange(start, stop, size == null ? 0 : size, limits);
+            start = bounds[0];
+            stop = bounds[1];
+        }
         List<String> values = redisTemplate.opsForList().range(key, start, stop);
-        return List.of(result("command", "LRANGE", "key", key, "values", values == null ? List.of() : values));
+        List<String> kept = values == null ? List.of() : values;
+        boolean truncated = limits.hasMaxRows() && kept.size() > limits.maxRows();
+        if (truncated) {
+            kept = kept.subList(0, limits.maxRows());
+        }
+        return new QueryResult(List.of(result("command", "LRANGE", "key", key, "values", kept)), truncated);
     }
 
-    private List<Map<String, Object>> executeSMembers(List<String> tokens) {
+    private QueryResult executeSMembers(List<String> tokens, QueryLimits limits) {
         expectArity(tokens, 2);
         String key = tokens.get(1);
-        Set<String> members = redisTemplate.opsForSet().members(key);
-        return List.of(result("command", "SMEMBERS", "key", key, "members", members == null ? Set.of() : members));
+        if (!limits.hasMaxRows()) {
+            Set<String> members = redisTemplate.opsForSet().members(key);
+            return complete(List.of(result("command", "SMEMBERS", "key", key, "members", members == null ? Set.of() : members)));
+        }
+
+        Set<String> members = new LinkedHashSet<>();
+        boolean truncated = false;
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(key, scanOptions(limits))) {
+            while (cursor.hasNext()) {
+                String member = cursor.next();
+                // SCAN may return an element twice
+                if (members.size() == limits.maxRows() && !members.contains(member)) {
+                    truncated = true;
+                    break;
+                }
+                members.add(member);
+            }
+        }
+        return new QueryResult(List.of(result("command", "SMEMBERS", "key", key, "members", members)), truncated);
     }
 
-    private List<Map<String, Object>> executeZRange(List<String> tokens) {
+    private QueryResult executeZRange(List<String> tokens, QueryLimits limits) {
         if (tokens.size() != 4 && tokens.size() != 5) {
             throw new IllegalArgumentException("ZRANGE requires key, start, stop, and optional WITHSCORES");
         }
@@ -264,20 +501,263 @@ public class RedisStrategy implements QueryStrategy {
         if (tokens.size() == 5 && !withScores) {
             throw new IllegalArgumentException("ZRANGE only supports optional WITHSCORES");
         }
+        if (limits.hasMaxRows()) {
+            Long size = redisTemplate.opsForZSet().zCard(key);
+            long[] bounds = capRange(start, stop, size == null ? 0 : size, limits);
+            start = bounds[0];
+            stop = bounds[1];
+        }
 
+        List<Object> members = new ArrayList<>();
         if (withScores) {
             Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().rangeWithScores(key, start, stop);
-            List<Map<String, Object>> members = new ArrayList<>();
             if (tuples != null) {
                 for (ZSetOperations.TypedTuple<String> tuple : tuples) {
                     members.add(result("member", tuple.getValue(), "score", tuple.getScore()));
                 }
             }
-            return List.of(result("command", "ZRANGE", "key", key, "members", members));
+        } else {
+            Set<String> values = redisTemplate.opsForZSet().range(key, start, stop);
+            if (values != null) {
+                members.addAll(values);
+            }
+        }
+
+        boolean truncated = limits.hasMaxRows() && members.size() > limits.maxRows();
+        List<Object> kept = truncated ? members.subList(0, limits.maxRows()) : members;
+        return new QueryResult(List.of(result("command", "ZRANGE", "key", key, "members", kept)), truncated);
+    }
+
+    /**
+     * Narrows a range to one element over the row limit, counted from its resolved start.
+     */
+    private static long[] capRange(long start, long stop, long size, QueryLimits limits) {
+        long[] bounds = resolveRange(start, stop, size);
+        if (bounds[1] < bounds[0]) {
+            // Redis would read a negative stop from the end again
+            return new long[] {1, 0};
+        }
+        bounds[1] = Math.min(bounds[1], bounds[0] + limits.probeRows() - 1);
+        return bounds;
+    }
+
+    private static ScanOptions scanOptions(QueryLimits limits) {
+        return ScanOptions.scanOptions().count(Math.min(limits.probeRows(), STREAM_CHUNK_SIZE)).build();
+    }
+
+    private long streamLRange(List<String> tokens, RowSink sink) {
+        expectArity(tokens, 4);
+        String key = tokens.get(1);
+        Long size = redisTemplate.opsForList().size(key);
+        long[] bounds = resolveRange(parseLong(tokens.get(2), "start"), parseLong(tokens.get(3), "stop"), size == null ? 0 : size);
+
+        long rows = 0;
+        for (long from = bounds[0]; from <= bounds[1]; from += STREAM_CHUNK_SIZE) {
+            List<String> values = redisTemplate.opsForList().range(key, from, Math.min(from + STREAM_CHUNK_SIZE - 1, bounds[1]));
+            if (values == null || values.isEmpty()) {
+                break;
+            }
+            long index = from;
+            for (String value : values) {
+                rows++;
+                if (!sink.accept(result("command", "LRANGE", "key", key, "index", index++, "value", value))) {
+                    return rows;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private long streamZRange(List<String> tokens, RowSink sink) {
+        if (tokens.size() != 4 && tokens.size() != 5) {
+            throw new IllegalArgumentException("ZRANGE requires key, start, stop, and optional WITHSCORES");
+        }
+
+        String key = tokens.get(1);
+        boolean withScores = tokens.size() == 5 && "WITHSCORES".equalsIgnoreCase(tokens.get(4));
+        if (tokens.size() == 5 && !withScores) {
+            throw new IllegalArgumentException("ZRANGE only supports optional WITHSCORES");
+        }
+        Long size = redisTemplate.opsForZSet().zCard(key);
+        long[] bounds = resolveRange(parseLong(tokens.get(2), "start"), parseLong(tokens.get(3), "stop"), size == null ? 0 : size);
+
+        long rows = 0;
+        for (long from = bounds[0]; from <= bounds[1]; from += STREAM_CHUNK_SIZE) {
+            long to = Math.min(from + STREAM_CHUNK_SIZE - 1, bounds[1]);
+            List<Map<String, Object>> chunk = new ArrayList<>();
+            if (withScores) {
+                Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().rangeWithScores(key, from, to);
+                if (tuples != null) {
+                    for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                        chunk.add(result("command", "ZRANGE", "key", key, "member", tuple.getValue(), "score", tuple.getScore()));
+                    }
+                }
+            } else {
+                Set<String> members = redisTemplate.opsForZSet().range(key, from, to);
+                if (members != null) {
+                    for (String member : members) {
+                        chunk.add(result("command", "ZRANGE", "key", key, "member", member));
+                    }
+                }
+            }
+            if (chunk.isEmpty()) {
+                break;
+            }
+            for (Map<String, Object> row : chunk) {
+                rows++;
+                if (!sink.accept(row)) {
+                    return rows;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private long streamSMembers(List<String> tokens, RowSink sink) {
+        expectArity(tokens, 2);
+        String key = tokens.get(1);
+        long rows = 0;
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(key, ScanOptions.scanOptions().count(STREAM_CHUNK_SIZE).build())) {
+            while (cursor.hasNext()) {
+                rows++;
+                if (!sink.accept(result("command", "SMEMBERS", "key", key, "member", cursor.next()))) {
+                    break;
+                }
+            }
         }
+        return rows;
+    }
+
+    private long streamHGetAll(List<String> tokens, RowSink sink) {
+        expectArity(tokens, 2);
+        String key = tokens.get(1);
+        long rows = 0;
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(key, ScanOptions.scanOptions().count(STREAM_CHUNK_SIZE).build())) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                rows++;
+                if (!sink.accept(result("command", "HGETALL", "key", key, "field", entry.getKey(), "value", entry.getValue()))) {
+                    break;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private QueryPage pageLRange(List<String> tokens, String position, QueryLimits limits) {
+        expectArity(tokens, 4);
+        String key = tokens.get(1);
+        Long size = redisTemplate.opsForList().size(key);
+        long[] bounds = pageBounds(tokens, position, size == null ? 0 : size, limits);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<String> values = bounds[0] > bounds[1] ? List.of() : redisTemplate.opsForList().range(key, bounds[0], bounds[1]);
+        long index = bounds[0];
+        for (String value : values == null ? List.<String>of() : values) {
+            rows.add(result("command", "LRANGE", "key", key, "index", index++, "value", value));
+        }
+        return indexPage(rows, bounds[0], limits);
+    }
+
+    private QueryPage pageZRange(List<String> tokens, String position, QueryLimits limits) {
+        if (tokens.size() != 4 && tokens.size() != 5) {
+            throw new IllegalArgumentException("ZRANGE requires key, start, stop, and optional WITHSCORES");
+        }
+        boolean withScores = tokens.size() == 5 && "WITHSCORES".equalsIgnoreCase(tokens.get(4));
+        if (tokens.size() == 5 && !withScores) {
+            throw new IllegalArgumentException("ZRANGE only supports optional WITHSCORES");
+        }
+
+        String key = tokens.get(1);
+        Long size = redisTemplate.opsForZSet().zCard(key);
+        long[] bounds = pageBounds(tokens.subList(0, 4), position, size == null ? 0 : size, limits);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (bounds[0] <= bounds[1] && withScores) {
+            Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet().rangeWithScores(key, bounds[0], bounds[1]);
+            for (ZSetOperations.TypedTuple<String> tuple : tuples == null ? Set.<ZSetOperations.TypedTuple<String>>of() : tuples) {
+                rows.add(result("command", "ZRANGE", "key", key, "member", tuple.getValue(), "score", tuple.getScore()));
+            }
+        } else if (bounds[0] <= bounds[1]) {
+            Set<String> members = redisTemplate.opsForZSet().range(key, bounds[0], bounds[1]);
+            for (String member : members == null ? Set.<String>of() : members) {
+                rows.add(result("command", "ZRANGE", "key", key, "member", member));
+            }
+        }
+        return indexPage(rows, bounds[0], limits);
+    }
+
+    /**
+     * Bounds of the page starting at the position (an absolute index) or at the command's own start,
+     * reading one element over the page size to know whether another page follows.
+     */
+    private long[] pageBounds(List<String> tokens, String position, long size, QueryLimits limits) {
+        long[] range = resolveRange(parseLong(tokens.get(2), "start"), parseLong(tokens.get(3), "stop"), size);
+        long from = position == null ? range[0] : Math.max(range[0], parseLong(position, "page position"));
+        long to = limits.hasMaxRows() ? Math.min(range[1], from + limits.probeRows() - 1) : range[1];
+        return new long[] {from, to};
+    }
+
+    private static QueryPage indexPage(List<Map<String, Object>> rows, long from, QueryLimits limits) {
+        QueryResult page = QueryResult.of(rows, limits);
+        return new QueryPage(page.rows(), page.truncated() ? String.valueOf(from + page.rows().size()) : null);
+    }
+
+    /**
+     * Runs one SSCAN or HSCAN step from the given cursor. Spring's scan cursors always start from
+     * the beginning, so this goes through the Lettuce connection to resume from a saved one.
+     */
+    @SuppressWarnings("unchecked")
+    private QueryPage pageScan(String command, List<String> tokens, String position, QueryLimits limits) {
+        expectArity(tokens, 2);
+        String key = tokens.get(1);
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        ScanCursor cursor = position == null ? ScanCursor.INITIAL : ScanCursor.of(position);
+        ScanArgs scanArgs = ScanArgs.Builder.limit(limits.hasMaxRows() ? limits.maxRows() : STREAM_CHUNK_SIZE);
+
+        return redisTemplate.execute((RedisCallback<QueryPage>) connection -> {
+            if (!(connection.getNativeConnection() instanceof RedisClusterAsyncCommands<?, ?> nativeCommands)) {
+                throw new UnsupportedOperationException("Paging " + command + " needs the Lettuce Redis driver");
+            }
+            RedisClusterAsyncCommands<byte[], byte[]> commands = (RedisClusterAsyncCommands<byte[], byte[]>) nativeCommands;
+            List<Map<String, Object>> rows = new ArrayList<>();
+            ScanCursor next;
+            if ("SMEMBERS".equals(command)) {
+                ValueScanCursor<byte[]> step = await(commands.sscan(rawKey, cursor, scanArgs), limits);
+                step.getValues().forEach(member -> rows.add(result("command", command, "key", key, "member", utf8(member))));
+                next = step;
+            } else {
+                MapScanCursor<byte[], byte[]> step = await(commands.hscan(rawKey, cursor, scanArgs), limits);
+                step.getMap().forEach((field, value) -> rows.add(result("command", command, "key", key, "field", utf8(field), "value", utf8(value))));
+                next = step;
+            }
+            return new QueryPage(rows, next.isFinished() ? null : next.getCursor());
+        });
+    }
+
+    private static <T> T await(RedisFuture<T> future, QueryLimits limits) {
+        try {
+            return limits.timeoutSeconds() > 0 ? future.get(limits.timeoutSeconds(), TimeUnit.SECONDS) : future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning Redis", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Redis scan failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static String utf8(byte[] bytes) {
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
 
-        Set<String> values = redisTemplate.opsForZSet().range(key, start, stop);
-        return List.of(result("command", "ZRANGE", "key", key, "members", values == null ? Set.of() : values));
+    /**
+     * Turns Redis range indexes, which may count from the end, into absolute inclusive bounds.
+     * An empty range has a start past its stop.
+     */
+    private static long[] resolveRange(long start, long stop, long size) {
+        long from = start < 0 ? Math.max(0, size + start) : start;
+        long to = Math.min(stop < 0 ? size + stop : stop, size - 1);
+        return new long[] {from, to};
     }
 
     private List<Map<String, Object>> executeType(List<String> tokens) {
@@ -0,0 +1,16 @@
+package com.rosettix.api.strategy;
+
+import java.util.Map;
+
+/**
+ * Receives the rows of a streamed query one at a time, see {@link QueryStrategy#executeQueryStreaming}.
+ */
+@FunctionalInterface
+public interface RowSink {
+
+    /**
+     * Takes one row. Blocking here slows the read down to the consumer's pace.
+     * @return false to stop reading, e.g. when the client went away
+     */
+    boolean accept(Map<String, Object> row);
+}
@@ -0,0 +1,61 @@
+package com.rosettix.api.cdc;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.service.InMemorySchemaCacheStore;
+import com.rosettix.api.service.MutableClock;
+import com.rosettix.api.service.QueryResultCache;
+import com.rosettix.api.service.SchemaCacheService;
+import com.rosettix.api.strategy.QueryResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChangeEventInvalidatorTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void externalChangesDropResultsAndSchemasDespiteLongTtls() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getSchemaCache().setEnabled(true);
+        configuration.getSchemaCache().setTtlMinutes(24 * 60);
+        configuration.getResultCache().setEnabled(true);
+        configuration.getResultCache().setTtlSeconds(24 * 3600);
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        SchemaCacheService schemaCacheService = new SchemaCacheService(configuration, new InMemorySchemaCacheStore(clock), clock);
+        QueryResultCache resultCache = new QueryResultCache(configuration, clock);
+        ChangeEventInvalidator invalidator = new ChangeEventInvalidator(schemaCacheService, resultCache);
+        AtomicInteger schemaLoads = new AtomicInteger();
+
+        schemaCacheService.getSchema("postgres", () -> "orders(id); users(id); " + schemaLoads.incrementAndGet());
+        schemaCacheService.getSchema("postgres:relationships", () -> "orders>users");
+        put(resultCache, "SELECT * FROM orders", "orders");
+        put(resultCache, "SELECT * FROM users", "users");
+
+        invalidator.onDataChanged("postgres", Set.of("orders"));
+        assertNull(resultCache.get("postgres", "SELECT * FROM orders"));
+        assertNotNull(resultCache.get("postgres", "SELECT * FROM users"));
+        schemaCacheService.getSchema("postgres", () -> "reloaded " + schemaLoads.incrementAndGet());
+        assertEquals(1, schemaLoads.get());
+
+        invalidator.onSchemaChanged("postgres", Set.of("users"));
+        assertNull(resultCache.get("postgres", "SELECT * FROM users"));
+        assertEquals("reloaded 2", schemaCacheService.getSchema("postgres", () -> "reloaded " + schemaLoads.incrementAndGet()));
+        assertEquals("orders>customers", schemaCacheService.getSchema("postgres:relationships", () -> "orders>customers"));
+
+        Map<String, Object> stats = (Map<String, Object>) ((Map<String, Object>) invalidator.getMetricsSnapshot().get("databases")).get("postgres");
+        assertEquals(1L, stats.get("data_change_events"));
+        assertEquals(1L, stats.get("schema_change_events"));
+    }
+
+    private static void put(QueryResultCache resultCache, String query, String table) {
+        resultCache.put("postgres", query, Set.of(table), new QueryResult(List.of(Map.of("id", 1)), false), resultCache.writeVersion("postgres"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.rosettix.api.cdc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PgOutputDecoderTest {
+
+    private static final int ORDERS = 16384;
+    private static final int USERS = 16390;
+
+    @Test
+    void reportsTablesChangedByEachCommittedTransaction() throws IOException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+
+        assertNull(decoder.decode(begin()));
+        assertNull(decoder.decode(relation(ORDERS, "Orders", "id", "status")));
+        assertNull(decoder.decode(row('I', ORDERS)));
+        assertNull(decoder.decode(relation(USERS, "users", "id", "email")));
+        assertNull(decoder.decode(row('U', USERS)));
+        PgOutputDecoder.Transaction first = decoder.decode(commit());
+
+        assertEquals(Set.of("orders", "users"), first.changedTables());
+        assertTrue(first.reshapedTables().isEmpty());
+
+        decoder.decode(begin());
+        decoder.decode(truncate(ORDERS));
+        PgOutputDecoder.Transaction second = decoder.decode(commit());
+        assertEquals(Set.of("orders"), second.changedTables());
+    }
+
+    @Test
+    void reportsRelationsWhoseColumnsChanged() throws IOException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        decoder.decode(begin());
+        decoder.decode(relation(ORDERS, "orders", "id", "status"));
+        decoder.decode(row('I', ORDERS));
+        decoder.decode(commit());
+
+        decoder.decode(begin());
+        // Sent again after ALTER TABLE orders ADD COLUMN note
+        decoder.decode(relation(ORDERS, "orders", "id", "status", "note"));
+        decoder.decode(row('D', ORDERS));
+        PgOutputDecoder.Transaction transaction = decoder.decode(commit());
+
+        assertEquals(Set.of("orders"), transaction.reshapedTables());
+        assertEquals(Set.of("orders"), transaction.changedTables());
+    }
+
+    private static ByteBuffer begin() throws IOException {
+        return message(out -> {
+            out.writeByte('B');
+            out.writeLong(100);
+            out.writeLong(0);
+            out.writeInt(7);
+        });
+    }
+
+    private static ByteBuffer commit() throws IOException {
+        return message(out -> {
+            out.writeByte('C');
+            out.writeByte(0);
+            out.writeLong(100);
+            out.writeLong(120);
+            out.writeLong(0);
+        });
+    }
+
+    private static ByteBuffer relation(int relationId, String name, String... columns) throws IOException {
+        return message(out -> {
+            out.writeByte('R');
+            out.writeInt(relationId);
+            writeString(out, "public");
+            writeString(out, name);
+            out.writeByte('d');
+            out.writeShort(columns.length);
+            for (String column : columns) {
+                out.writeByte(0);
+                writeString(out, column);
+                out.writeInt(25);
+                out.writeInt(-1);
+            }
+        });
+    }
+
+    private static ByteBuffer row(char type, int relationId) throws IOException {
+        return message(out -> {
+            out.writeByte(type);
+            out.writeInt(relationId);
+            // Tuple data is never read
+            out.writeByte('N');
+            out.writeShort(0);
+        });
+    }
+
+    private static ByteBuffer truncate(int relationId) throws IOException {
+        return message(out -> {
+            out.writeByte('T');
+            out.writeInt(1);
+            out.writeByte(0);
+            out.writeInt(relationId);
+        });
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.writeByte(0);
+    }
+
+    private interface MessageWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static ByteBuffer message(MessageWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.write(new DataOutputStream(bytes));
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,54 @@
+package com.rosettix.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rosettix.api.service.PipelineMetrics;
+import com.rosettix.api.service.QueryCost;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebConfigTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void addsServerTimingIncludingSerialization() throws Exception {
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        WebConfig.TimedJacksonConverter converter = new WebConfig.TimedJacksonConverter(new ObjectMapper(), pipelineMetrics);
+        QueryCost cost = new QueryCost();
+        cost.record(PipelineMetrics.Stage.EXECUTION, 2_000_000);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(PipelineMetrics.STRATEGY_ATTRIBUTE, "postgres");
+        request.setAttribute(QueryCost.REQUEST_ATTRIBUTE, cost);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(Map.of("results", 1), MediaType.APPLICATION_JSON, outputMessage);
+
+        assertEquals("{\"results\":1}", outputMessage.getBodyAsString());
+        String serverTiming = outputMessage.getHeaders().getFirst("Server-Timing");
+        assertTrue(serverTiming.startsWith("execution;dur=2.000"), serverTiming);
+        assertTrue(serverTiming.contains("serialization;dur="), serverTiming);
+        assertEquals(1, pipelineMetrics.getHistogram("postgres", PipelineMetrics.Stage.SERIALIZATION).getCount());
+
+        RequestContextHolder.resetRequestAttributes();
+        MockHttpOutputMessage untimed = new MockHttpOutputMessage();
+        converter.write(Map.of("status", "UP"), MediaType.APPLICATION_JSON, untimed);
+        assertNull(untimed.getHeaders().getFirst("Server-Timing"));
+    }
+}
@@ -0,0 +1,55 @@
+package com.rosettix.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowStreamWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesNdjsonLinesAndSseEvents() throws IOException {
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        RowStreamWriter ndjsonWriter = new RowStreamWriter(ndjson, RowStreamWriter.Format.NDJSON, objectMapper);
+        ndjsonWriter.accept(Map.of("id", 1));
+        ndjsonWriter.accept(Map.of("id", 2));
+        ndjsonWriter.finish(Map.of("rows", 2));
+
+        ByteArrayOutputStream sse = new ByteArrayOutputStream();
+        RowStreamWriter sseWriter = new RowStreamWriter(sse, RowStreamWriter.Format.SSE, objectMapper);
+        sseWriter.accept(Map.of("id", 1));
+        sseWriter.finish(Map.of("rows", 1));
+
+        assertEquals("{\"id\":1}\n{\"id\":2}\n", ndjson.toString(StandardCharsets.UTF_8));
+        assertEquals("event: row\ndata: {\"id\":1}\n\nevent: end\ndata: {\"rows\":1}\n\n", sse.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void stopsTheReadOnceTheClientIsGone() {
+        RowStreamWriter writer = new RowStreamWriter(new OutputStream() {
+            private int bytes;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++bytes > 20) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        }, RowStreamWriter.Format.NDJSON, objectMapper);
+
+        assertTrue(writer.accept(Map.of("id", 1)));
+        assertFalse(writer.accept(Map.of("id", 2, "name", "long enough to overflow")));
+        assertTrue(writer.isClientGone());
+        assertEquals(1, writer.getRowsWritten());
+    }
+}
@@ -35,6 +35,11 @@ public class InMemorySchemaCacheStore implements SchemaCacheStore {
         cache.put(key, new CacheEntry(schema, Instant.now(clock).plus(ttl)));
     }
 
+    @Override
+    public void evict(String key) {
+        cache.remove(key);
+    }
+
     @Override
     public String getStoreType() {
         return "in-memory-test";
@@ -0,0 +1,47 @@
+package com.rosettix.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramTest {
+
+    @Test
+    void reportsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1_000; millis++) {
+            histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(1_000, histogram.getCount());
+        assertEquals(500.0, histogram.percentileMillis(50), 500 * 0.02);
+        assertEquals(950.0, histogram.percentileMillis(95), 950 * 0.02);
+        assertEquals(990.0, histogram.percentileMillis(99), 990 * 0.02);
+        assertEquals(1_000.0, histogram.maxMillis(), 1e-9);
+        assertEquals(500.5, histogram.meanMillis(), 1e-9);
+    }
+
+    @Test
+    void mergesOtherHistograms() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        fast.recordNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        slow.recordNanos(TimeUnit.SECONDS.toNanos(2));
+
+        fast.mergeFrom(slow);
+
+        assertEquals(2, fast.getCount());
+        assertEquals(0.05, fast.percentileMillis(50), 1e-9);
+        assertEquals(2_000.0, fast.percentileMillis(100), 1e-9);
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0.0, histogram.percentileMillis(99), 1e-9);
+        assertEquals(0.0, histogram.meanMillis(), 1e-9);
+    }
+}
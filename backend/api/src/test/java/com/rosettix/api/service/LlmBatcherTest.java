@@ -0,0 +1,156 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmBatcherTest {
+
+    private static final StubQueryStrategy POSTGRES = new StubQueryStrategy("postgres", "users(id, email); orders(id, user_id); ");
+
+    @Test
+    void parsesNumberedAnswersIncludingContinuationLines() {
+        String response = """
+                ```
+                1. SELECT * FROM users
+                2. SELECT count(*)
+                FROM orders
+                3) SELECT email FROM users WHERE id = 1
+                ```
+                """;
+
+        List<String> answers = LlmBatcher.parseNumberedAnswers(response, 3);
+
+        assertEquals(List.of(
+                "SELECT * FROM users",
+                "SELECT count(*)\nFROM orders",
+                "SELECT email FROM users WHERE id = 1"
+        ), answers);
+    }
+
+    @Test
+    void rejectsAnswersWithMissingNumbers() {
+        assertNull(LlmBatcher.parseNumberedAnswers("1. SELECT * FROM users\n3. SELECT * FROM orders", 3));
+        assertNull(LlmBatcher.parseNumberedAnswers("SELECT * FROM users", 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentQuestionsShareOnePrompt() throws Exception {
+        LlmBatcher batcher = new LlmBatcher(configuration(4));
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        LlmBatcher.ModelCall model = prompt -> {
+            prompts.add(prompt);
+            StringBuilder answer = new StringBuilder();
+            for (int i = 1; i <= 4; i++) {
+                answer.append(i).append(". SELECT ").append(i).append('\n');
+            }
+            return answer.toString();
+        };
+
+        List<Long> promptTokens = new CopyOnWriteArrayList<>();
+        List<String> answers = generateConcurrently(batcher, model, 4, promptTokens);
+
+        assertEquals(1, prompts.size());
+        // Each question is charged its share of the one prompt that was sent
+        assertEquals(Collections.nCopies(4, LlmBatcher.estimateTokens(prompts.get(0)) / 4), promptTokens);
+        assertEquals(1, prompts.get(0).split("users\\(id, email\\)", -1).length - 1);
+        assertEquals(List.of("SELECT 1", "SELECT 2", "SELECT 3", "SELECT 4"), answers.stream().sorted().toList());
+
+        Map<String, Object> sizeFour = (Map<String, Object>) ((Map<String, Object>) batcher.getMetricsSnapshot().get("batch_sizes")).get("4");
+        assertEquals(1L, sizeFour.get("batches"));
+        assertTrue((Long) sizeFour.get("estimated_prompt_tokens_saved") > 0);
+    }
+
+    @Test
+    void handsQuestionsBackWhenAnswerCannotBeSplit() throws Exception {
+        LlmBatcher batcher = new LlmBatcher(configuration(3));
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        LlmBatcher.ModelCall model = prompt -> {
+            prompts.add(prompt);
+            return "I cannot answer that";
+        };
+
+        List<Long> promptTokens = new CopyOnWriteArrayList<>();
+        List<String> answers = generateConcurrently(batcher, model, 3, promptTokens);
+
+        assertEquals(1, prompts.size());
+        // The batch carries the strategy's own instructions, not a generic copy of them
+        assertTrue(prompts.get(0).startsWith(POSTGRES.buildPromptPrefix(POSTGRES.getSchemaRepresentation())));
+        assertEquals(Arrays.asList(null, null, null), answers);
+        assertTrue(promptTokens.isEmpty());
+        assertEquals(1L, batcher.getMetricsSnapshot().get("parse_failures"));
+    }
+
+    @Test
+    void cancelledLeaderHandsTheOtherQuestionsBack() throws Exception {
+        LlmBatcher batcher = new LlmBatcher(configuration(2));
+        CountDownLatch sending = new CountDownLatch(1);
+        LlmBatcher.ModelCall model = prompt -> {
+            sending.countDown();
+            Thread.sleep(10_000);
+            return "1. SELECT 1\n2. SELECT 2";
+        };
+        String schema = POSTGRES.getSchemaRepresentation();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> batcher.generate("question 0", schema, POSTGRES, model, tokens -> { }));
+            Thread.sleep(200);
+            Future<String> member = executor.submit(() -> batcher.generate("question 1", schema, POSTGRES, model, tokens -> { }));
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+            leader.cancel(true);
+            assertNull(member.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> generateConcurrently(LlmBatcher batcher, LlmBatcher.ModelCall model, int callers, List<Long> promptTokens) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String question = "question " + i;
+                futures.add(executor.submit(() -> {
+                    assertTrue(start.await(5, TimeUnit.SECONDS));
+                    return batcher.generate(question, POSTGRES.getSchemaRepresentation(), POSTGRES, model, promptTokens::add);
+                }));
+            }
+            start.countDown();
+
+            List<String> answers = new ArrayList<>();
+            for (Future<String> future : futures) {
+                answers.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return answers;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RosettixConfiguration configuration(int maxBatchSize) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getBatching().setEnabled(true);
+        configuration.getBatching().setMaxBatchSize(maxBatchSize);
+        configuration.getBatching().setWindowMillis(2_000);
+        return configuration;
+    }
+}
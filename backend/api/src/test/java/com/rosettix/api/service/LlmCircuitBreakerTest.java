@@ -0,0 +1,99 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmCircuitBreakerTest {
+
+    @Test
+    void opensWhenFailureRateCrossesThreshold() {
+        LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(configuration(), new MutableClock(Instant.parse("2026-03-27T10:00:00Z")));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onSuccess();
+        }
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(1L, circuitBreaker.getMetricsSnapshot().get("circuit_rejections"));
+    }
+
+    @Test
+    void closesAfterSuccessfulTrialCalls() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(configuration(), clock);
+        tripOpen(circuitBreaker);
+
+        clock.advanceSeconds(31);
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        assertEquals(LlmCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensWhenTrialCallFails() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(configuration(), clock);
+        tripOpen(circuitBreaker);
+
+        clock.advanceSeconds(31);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onFailure();
+
+        Map<String, Object> snapshot = circuitBreaker.getMetricsSnapshot();
+        assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(2L, snapshot.get("times_opened"));
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondConcurrencyLimit() {
+        RosettixConfiguration configuration = configuration();
+        configuration.getLlm().setMaxConcurrentCalls(2);
+        LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(configuration);
+
+        assertTrue(circuitBreaker.tryEnterBulkhead());
+        assertTrue(circuitBreaker.tryEnterBulkhead());
+        assertFalse(circuitBreaker.tryEnterBulkhead());
+        circuitBreaker.exitBulkhead();
+        assertTrue(circuitBreaker.tryEnterBulkhead());
+
+        assertEquals(1L, circuitBreaker.getMetricsSnapshot().get("bulkhead_rejections"));
+    }
+
+    private void tripOpen(LlmCircuitBreaker circuitBreaker) {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+        assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private RosettixConfiguration configuration() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getLlm().setCircuitBreakerWindowSize(10);
+        configuration.getLlm().setCircuitBreakerMinimumCalls(4);
+        configuration.getLlm().setCircuitBreakerFailureRateThreshold(0.5);
+        configuration.getLlm().setCircuitBreakerOpenSeconds(30);
+        configuration.getLlm().setCircuitBreakerHalfOpenCalls(2);
+        return configuration;
+    }
+}
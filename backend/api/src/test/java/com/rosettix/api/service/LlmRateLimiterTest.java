@@ -0,0 +1,112 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmRateLimiterTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rejectsClientOverItsOwnRateWithoutTouchingOthers() {
+        RosettixConfiguration configuration = configuration(100, 100, 1000);
+        configuration.getRateLimit().setClientPermitsPerSecond(0.001);
+        configuration.getRateLimit().setClientBurst(2);
+        LlmRateLimiter rateLimiter = new LlmRateLimiter(configuration);
+        LlmRequestContext noisy = LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE);
+
+        rateLimiter.acquire(noisy);
+        rateLimiter.acquire(noisy);
+        assertThrows(LlmService.LlmUnavailableException.class, () -> rateLimiter.acquire(noisy));
+        assertEquals(0, rateLimiter.acquire(LlmRequestContext.of("key-b", LlmRequestContext.Priority.INTERACTIVE)));
+
+        Map<String, Object> interactive = (Map<String, Object>) ((Map<String, Object>) rateLimiter.getMetricsSnapshot().get("priorities")).get("interactive");
+        assertEquals(3L, interactive.get("granted"));
+        assertEquals(1L, interactive.get("client_rate_rejections"));
+        assertEquals(2, rateLimiter.getMetricsSnapshot().get("tracked_clients"));
+    }
+
+    @Test
+    void servesInteractiveWaitersBeforeBatchWaiters() throws Exception {
+        // One permit every 100 ms, the burst is spent up front
+        LlmRateLimiter rateLimiter = new LlmRateLimiter(configuration(10, 1, 5000));
+        rateLimiter.acquire(LlmRequestContext.of("warmup", LlmRequestContext.Priority.BATCH));
+
+        List<LlmRequestContext.Priority> grantOrder = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> firstBatch = submit(executor, rateLimiter, "batch-1", LlmRequestContext.Priority.BATCH, grantOrder);
+            awaitQueueDepth(rateLimiter, 1);
+            Future<?> secondBatch = submit(executor, rateLimiter, "batch-2", LlmRequestContext.Priority.BATCH, grantOrder);
+            awaitQueueDepth(rateLimiter, 2);
+            Future<?> interactive = submit(executor, rateLimiter, "user", LlmRequestContext.Priority.INTERACTIVE, grantOrder);
+
+            interactive.get(5, TimeUnit.SECONDS);
+            firstBatch.get(5, TimeUnit.SECONDS);
+            secondBatch.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The first batch waiter may already hold the head of the queue, the second one never does
+        assertEquals(LlmRequestContext.Priority.BATCH, grantOrder.get(2));
+        assertTrue(grantOrder.indexOf(LlmRequestContext.Priority.INTERACTIVE) < 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givesUpAtTheDeadlineAndReportsTheWait() {
+        LlmRateLimiter rateLimiter = new LlmRateLimiter(configuration(0.001, 1, 50));
+        LlmRequestContext first = LlmRequestContext.of("key-a", LlmRequestContext.Priority.SAGA);
+        rateLimiter.acquire(first);
+
+        LlmRequestContext second = LlmRequestContext.of("key-a", LlmRequestContext.Priority.SAGA);
+        long startNanos = System.nanoTime();
+        assertThrows(LlmService.LlmUnavailableException.class, () -> rateLimiter.acquire(second));
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, rateLimiter.getQueueDepth());
+
+        Map<String, Object> saga = (Map<String, Object>) ((Map<String, Object>) rateLimiter.getMetricsSnapshot().get("priorities")).get("saga");
+        assertEquals(1L, saga.get("granted"));
+        assertEquals(1L, saga.get("queue_timeouts"));
+        assertEquals(1L, rateLimiter.getMetricsSnapshot().get("max_queue_depth"));
+    }
+
+    private static Future<?> submit(ExecutorService executor, LlmRateLimiter rateLimiter, String clientId,
+                                    LlmRequestContext.Priority priority, List<LlmRequestContext.Priority> grantOrder) {
+        return executor.submit(() -> {
+            LlmRequestContext context = LlmRequestContext.of(clientId, priority);
+            context.recordQueueWait(rateLimiter.acquire(context));
+            grantOrder.add(priority);
+            assertTrue(context.getQueuedMillis() > 0);
+        });
+    }
+
+    private static void awaitQueueDepth(LlmRateLimiter rateLimiter, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (rateLimiter.getQueueDepth() < depth && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(depth, rateLimiter.getQueueDepth());
+    }
+
+    private RosettixConfiguration configuration(double globalPermitsPerSecond, int globalBurst, long maxQueueWaitMillis) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getRateLimit().setEnabled(true);
+        configuration.getRateLimit().setGlobalPermitsPerSecond(globalPermitsPerSecond);
+        configuration.getRateLimit().setGlobalBurst(globalBurst);
+        configuration.getRateLimit().setMaxQueueWaitMillis(maxQueueWaitMillis);
+        return configuration;
+    }
+}
@@ -0,0 +1,409 @@
+package com.rosettix.api.service;
+
+import com.google.genai.errors.ApiException;
+import com.google.genai.errors.ServerException;
+import com.rosettix.api.config.ExecutorConfig;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.llm.LlmPrompt;
+import com.rosettix.api.llm.OfflineQueryGenerator;
+import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.strategy.QueryStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmServiceTest {
+
+    private static final StubQueryStrategy POSTGRES = new StubQueryStrategy("postgres", "users(id, email); ");
+
+    @Test
+    void servesRepeatedQuestionFromTranslationCache() {
+        RecordingLlmService llmService = new RecordingLlmService(configuration(true), 0);
+
+        String first = llmService.generateQuery("show all users", POSTGRES);
+        String second = llmService.generateQuery("show all users?", POSTGRES);
+
+        assertEquals("SELECT * FROM users", first);
+        assertEquals(first, second);
+        assertEquals(1, llmService.modelCalls.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesConcurrentIdenticalGenerations() throws Exception {
+        RecordingLlmService llmService = new RecordingLlmService(configuration(false), 100);
+        int callers = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        try {
+            CountDownLatch ready = new CountDownLatch(callers);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    assertTrue(start.await(5, TimeUnit.SECONDS));
+                    return llmService.generateQuery("show all users", POSTGRES);
+                }));
+            }
+
+            assertTrue(ready.await(5, TimeUnit.SECONDS));
+            start.countDown();
+
+            for (Future<String> future : futures) {
+                assertEquals("SELECT * FROM users", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> singleFlight = (Map<String, Object>) llmService.getMetricsSnapshot().get("single_flight");
+
+        assertEquals(1, llmService.modelCalls.get());
+        assertEquals(1L, singleFlight.get("generations"));
+        assertEquals(9L, singleFlight.get("coalesced_waits"));
+        assertEquals(9L, singleFlight.get("max_waiters_per_generation"));
+        assertEquals(0.9, (Double) singleFlight.get("coalescing_ratio"), 1e-9);
+    }
+
+    @Test
+    void propagatesGenerationFailureToCallers() {
+        RecordingLlmService llmService = new RecordingLlmService(configuration(true), 0) {
+            @Override
+            protected String callModel(String question, String schema, QueryStrategy strategy, boolean fullSchema) {
+                throw new QueryException("quota exceeded", "postgres", QueryException.ErrorType.LLM_ERROR);
+            }
+        };
+
+        QueryException error = assertThrows(QueryException.class, () -> llmService.generateQuery("show all users", POSTGRES));
+        assertEquals(QueryException.ErrorType.LLM_ERROR, error.getErrorType());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void waiterTakesOverWhenTheSingleFlightLeaderIsCancelled() throws Exception {
+        CountDownLatch leaderCalling = new CountDownLatch(1);
+        RecordingLlmService llmService = new RecordingLlmService(configuration(false), 0) {
+            @Override
+            protected String callModel(String question, String schema, QueryStrategy strategy, boolean fullSchema) {
+                if (leaderCalling.getCount() > 0) {
+                    leaderCalling.countDown();
+                    sleep(10_000);
+                }
+                return super.callModel(question, schema, strategy, fullSchema);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> leader = executor.submit(() -> llmService.generateQuery("show all users", POSTGRES));
+            assertTrue(leaderCalling.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = executor.submit(() -> llmService.generateQuery("show all users", POSTGRES));
+
+            Map<String, Object> singleFlight = (Map<String, Object>) llmService.getMetricsSnapshot().get("single_flight");
+            for (int i = 0; i < 500 && !Long.valueOf(1).equals(singleFlight.get("coalesced_waits")); i++) {
+                Thread.sleep(10);
+                singleFlight = (Map<String, Object>) llmService.getMetricsSnapshot().get("single_flight");
+            }
+            assertEquals(1L, singleFlight.get("coalesced_waits"));
+
+            leader.cancel(true);
+            assertEquals("SELECT * FROM users", waiter.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, llmService.modelCalls.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retriesTransientFailuresWithBackoff() {
+        RosettixConfiguration configuration = resilienceConfiguration();
+        ScriptedLlmService llmService = new ScriptedLlmService(configuration, attempt -> {
+            if (attempt < 3) {
+                throw new ServerException(503, "UNAVAILABLE", "model overloaded");
+            }
+            return "SELECT * FROM users";
+        });
+
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+
+        Map<String, Object> resilience = (Map<String, Object>) llmService.getMetricsSnapshot().get("resilience");
+        assertEquals(3, llmService.attempts.get());
+        assertEquals(2L, resilience.get("retries"));
+        assertEquals(2L, resilience.get("attempt_failures"));
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        ScriptedLlmService llmService = new ScriptedLlmService(resilienceConfiguration(), attempt -> {
+            throw new ApiException(400, "INVALID_ARGUMENT", "bad prompt");
+        });
+
+        QueryException error = assertThrows(QueryException.class, () -> llmService.generateQuery("show all users", POSTGRES));
+
+        assertEquals(QueryException.ErrorType.LLM_ERROR, error.getErrorType());
+        assertEquals(1, llmService.attempts.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void abandonsAttemptAfterTimeoutAndRetries() {
+        RosettixConfiguration configuration = resilienceConfiguration();
+        configuration.getLlm().setTimeoutSeconds(1);
+        ScriptedLlmService llmService = new ScriptedLlmService(configuration, attempt -> {
+            if (attempt == 1) {
+                sleep(5_000);
+            }
+            return "SELECT * FROM users";
+        });
+
+        long startNanos = System.nanoTime();
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        Map<String, Object> resilience = (Map<String, Object>) llmService.getMetricsSnapshot().get("resilience");
+        assertTrue(elapsedMillis < 3_000, "timed-out attempt should be abandoned, took " + elapsedMillis + " ms");
+        assertEquals(1L, resilience.get("timeouts"));
+        assertEquals(1L, resilience.get("retries"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void hedgedRequestWinsOverSlowPrimary() {
+        RosettixConfiguration configuration = resilienceConfiguration();
+        configuration.getLlm().setHedgingEnabled(true);
+        configuration.getLlm().setHedgeDelayMillis(50);
+        ScriptedLlmService llmService = new ScriptedLlmService(configuration, attempt -> {
+            if (attempt == 1) {
+                sleep(5_000);
+            }
+            return "SELECT * FROM users";
+        });
+
+        long startNanos = System.nanoTime();
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        Map<String, Object> snapshot = llmService.getMetricsSnapshot();
+        Map<String, Object> resilience = (Map<String, Object>) snapshot.get("resilience");
+        Map<String, Object> attemptLatency = (Map<String, Object>) snapshot.get("attempt_latency");
+        assertTrue(elapsedMillis < 1_000, "hedge should answer before the slow primary, took " + elapsedMillis + " ms");
+        assertEquals(1L, resilience.get("hedges_fired"));
+        assertEquals(1L, resilience.get("hedges_won"));
+        assertEquals(0L, resilience.get("timeouts"));
+        assertTrue(attemptLatency.containsKey("hedge"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void openBreakerFailsFastOrServesStaleTranslation() {
+        RosettixConfiguration configuration = resilienceConfiguration();
+        configuration.getQuery().setCachingEnabled(true);
+        configuration.getQuery().setCacheTtlMinutes(1);
+        configuration.getLlm().setMaxRetries(0);
+        configuration.getLlm().setCircuitBreakerMinimumCalls(2);
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        QueryTranslationCache translationCache = new QueryTranslationCache(configuration, clock);
+        LlmCircuitBreaker circuitBreaker = new LlmCircuitBreaker(configuration, clock);
+        ScriptedLlmService llmService = new ScriptedLlmService(configuration, translationCache, circuitBreaker, attempt -> {
+            if (attempt == 1) {
+                return "SELECT * FROM users";
+            }
+            throw new ServerException(503, "UNAVAILABLE", "model overloaded");
+        });
+
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+        clock.advanceSeconds(120);
+        assertThrows(QueryException.class, () -> llmService.generateQuery("list orders", POSTGRES));
+        assertEquals(LlmCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        QueryException error = assertThrows(QueryException.class, () -> llmService.generateQuery("count orders", POSTGRES));
+        assertEquals(QueryException.ErrorType.LLM_ERROR, error.getErrorType());
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+
+        Map<String, Object> snapshot = llmService.getMetricsSnapshot();
+        Map<String, Object> breaker = (Map<String, Object>) snapshot.get("circuit_breaker");
+        Map<String, Object> resilience = (Map<String, Object>) snapshot.get("resilience");
+        assertEquals(2, llmService.attempts.get());
+        assertEquals("OPEN", breaker.get("state"));
+        assertEquals(2L, breaker.get("circuit_rejections"));
+        assertEquals(1L, resilience.get("stale_fallbacks"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stopsStreamingOnceQueryIsComplete() {
+        RosettixConfiguration configuration = configuration(false);
+        configuration.getLlm().setStreamingEnabled(true);
+        List<String> chunks = List.of("```sql\nSELECT *", " FROM users\n", "```\n", "This query lists", " every user.");
+        AtomicInteger chunksRead = new AtomicInteger();
+        LlmService llmService = new ScriptedLlmService(configuration, attempt -> {
+            throw new AssertionError("streaming is enabled");
+        }) {
+            @Override
+            protected void streamModel(LlmPrompt prompt, Predicate<String> chunkConsumer) {
+                for (String chunk : chunks) {
+                    chunksRead.incrementAndGet();
+                    if (!chunkConsumer.test(chunk)) {
+                        return;
+                    }
+                }
+            }
+        };
+
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+
+        Map<String, Object> streaming = (Map<String, Object>) llmService.getMetricsSnapshot().get("streaming");
+        assertEquals(3, chunksRead.get());
+        assertEquals(1L, streaming.get("early_cutoffs"));
+        assertEquals(1L, ((Map<String, Object>) streaming.get("time_to_first_token")).get("count"));
+        assertEquals(1L, ((Map<String, Object>) streaming.get("time_to_usable_query")).get("count"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loneQuestionWithBatchingEnabledTakesTheSinglePromptPath() {
+        RosettixConfiguration configuration = configuration(false);
+        configuration.getBatching().setEnabled(true);
+        configuration.getBatching().setWindowMillis(10);
+        configuration.getLlm().setStreamingEnabled(true);
+        List<LlmPrompt> prompts = new ArrayList<>();
+        LlmService llmService = new ScriptedLlmService(configuration, attempt -> {
+            throw new AssertionError("streaming is enabled");
+        }) {
+            @Override
+            protected void streamModel(LlmPrompt prompt, Predicate<String> chunkConsumer) {
+                prompts.add(prompt);
+                chunkConsumer.test("```sql\nSELECT * FROM users\n```\n");
+            }
+        };
+
+        assertEquals("SELECT * FROM users", llmService.generateQuery("show all users", POSTGRES));
+
+        assertEquals(1, prompts.size());
+        // Split by the prompt prefix cache and streamed, rather than sent as one batch-style text
+        assertEquals(POSTGRES.buildPromptSuffix("show all users"), prompts.get(0).suffix());
+        Map<String, Object> batching = (Map<String, Object>) llmService.getMetricsSnapshot().get("batching");
+        assertEquals(1L, ((Map<String, Object>) batching.get("single_latency")).get("count"));
+    }
+
+    private RosettixConfiguration resilienceConfiguration() {
+        RosettixConfiguration configuration = configuration(false);
+        configuration.getLlm().setRetryBackoffMillis(1);
+        configuration.getLlm().setRetryMaxBackoffMillis(5);
+        configuration.getLlm().setStreamingEnabled(false);
+        return configuration;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating LLM latency", e);
+        }
+    }
+
+    private RosettixConfiguration configuration(boolean cachingEnabled) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getQuery().setCachingEnabled(cachingEnabled);
+        return configuration;
+    }
+
+    private static class RecordingLlmService extends LlmService {
+        private final AtomicInteger modelCalls = new AtomicInteger();
+        private final long latencyMillis;
+
+        RecordingLlmService(RosettixConfiguration configuration, long latencyMillis) {
+            super(
+                    new OfflineQueryGenerator(configuration),
+                    configuration,
+                    new QueryTranslationCache(configuration),
+                    new QuestionSimilarityIndex(configuration),
+                    new QueryTemplateCache(configuration),
+                    new LlmCircuitBreaker(configuration),
+                    new LlmRateLimiter(configuration),
+                    new LlmBatcher(configuration),
+                    new SchemaPruner(configuration),
+                    new PromptPrefixCache(new OfflineQueryGenerator(configuration), configuration, Clock.systemUTC()),
+                    new PipelineMetrics(new SimpleMeterRegistry()),
+                    ExecutorConfig.createExecutor("test-llm-", configuration.getAsync())
+            );
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        protected String callModel(String question, String schema, QueryStrategy strategy, boolean fullSchema) {
+            modelCalls.incrementAndGet();
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while simulating LLM latency", e);
+                }
+            }
+            return "SELECT * FROM users";
+        }
+    }
+
+    /**
+     * Exercises the real deadline, retry and hedging logic with a scripted model response per attempt.
+     */
+    private static class ScriptedLlmService extends LlmService {
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final IntFunction<String> script;
+
+        ScriptedLlmService(RosettixConfiguration configuration, IntFunction<String> script) {
+            this(configuration, new QueryTranslationCache(configuration), new LlmCircuitBreaker(configuration), script);
+        }
+
+        ScriptedLlmService(
+                RosettixConfiguration configuration,
+                QueryTranslationCache translationCache,
+                LlmCircuitBreaker circuitBreaker,
+                IntFunction<String> script
+        ) {
+            super(
+                    new OfflineQueryGenerator(configuration),
+                    configuration,
+                    translationCache,
+                    new QuestionSimilarityIndex(configuration),
+                    new QueryTemplateCache(configuration),
+                    circuitBreaker,
+                    new LlmRateLimiter(configuration),
+                    new LlmBatcher(configuration),
+                    new SchemaPruner(configuration),
+                    new PromptPrefixCache(new OfflineQueryGenerator(configuration), configuration, Clock.systemUTC()),
+                    new PipelineMetrics(new SimpleMeterRegistry()),
+                    ExecutorConfig.createExecutor("test-llm-", configuration.getAsync())
+            );
+            this.script = script;
+        }
+
+        @Override
+        protected String invokeModel(LlmPrompt prompt) {
+            return script.apply(attempts.incrementAndGet());
+        }
+    }
+}
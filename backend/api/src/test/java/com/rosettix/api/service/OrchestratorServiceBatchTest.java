@@ -0,0 +1,117 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrchestratorServiceBatchTest {
+
+    @Test
+    void runsItemsWithinTheStrategyParallelismAndReportsFailuresPerItem() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getBatchQuery().setParallelismPerStrategy(2);
+        AtomicInteger runningQueries = new AtomicInteger();
+        AtomicInteger maxRunningQueries = new AtomicInteger();
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", "users(id, email); ") {
+            @Override
+            public List<Map<String, Object>> executeQuery(String query) {
+                maxRunningQueries.accumulateAndGet(runningQueries.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    runningQueries.decrementAndGet();
+                }
+                return List.of(Map.of("query", query));
+            }
+        };
+        Map<String, com.rosettix.api.strategy.QueryStrategy> strategies = Map.of("postgres", postgres);
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(any(), any(), any())).thenReturn("SELECT * FROM users");
+        when(llmService.generateQuery(eq("garbled question"), any(), any()))
+                .thenThrow(new QueryException("no translation", "postgres", QueryException.ErrorType.LLM_ERROR));
+
+        List<OrchestratorService.BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            items.add(new OrchestratorService.BatchItem("show user " + i, "Postgres"));
+        }
+        items.add(new OrchestratorService.BatchItem("garbled question", null));
+        items.add(new OrchestratorService.BatchItem("show users", "oracle"));
+        items.add(new OrchestratorService.BatchItem(" ", "postgres"));
+
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(8);
+        try {
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, strategies, configuration, queryExecutor, queryExecutor, new PipelineMetrics(new SimpleMeterRegistry()),
+                    new StrategyRouter(strategies, configuration), new PageTokenCodec(configuration), new QueryResultCache(configuration)
+            );
+            OrchestratorService.BatchItemResult[] results = new OrchestratorService.BatchItemResult[items.size()];
+            orchestratorService.processBatch(items, "reporting-job", result -> {
+                results[result.index()] = result;
+                return true;
+            });
+
+            for (int i = 0; i < 8; i++) {
+                assertNull(results[i].error());
+                assertEquals("postgres", results[i].strategyName());
+                assertEquals(1, results[i].results().size());
+                assertEquals(LlmRequestContext.Priority.BATCH, results[i].context().getPriority());
+                assertEquals("reporting-job", results[i].context().getClientId());
+            }
+            assertEquals(QueryException.ErrorType.LLM_ERROR, ((QueryException) results[8].error()).getErrorType());
+            assertEquals(QueryException.ErrorType.STRATEGY_NOT_FOUND, ((QueryException) results[9].error()).getErrorType());
+            assertInstanceOf(IllegalArgumentException.class, results[10].error());
+            assertTrue(maxRunningQueries.get() <= 2, "ran " + maxRunningQueries.get() + " queries at once");
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stopsWhenTheListenerDeclinesMoreResults() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getBatchQuery().setParallelismPerStrategy(1);
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", "users(id, email); ");
+        Map<String, com.rosettix.api.strategy.QueryStrategy> strategies = Map.of("postgres", postgres);
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(any(), any(), any())).thenReturn("SELECT * FROM users");
+
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(2);
+        try {
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, strategies, configuration, queryExecutor, queryExecutor, new PipelineMetrics(new SimpleMeterRegistry()),
+                    new StrategyRouter(strategies, configuration), new PageTokenCodec(configuration), new QueryResultCache(configuration)
+            );
+            AtomicInteger delivered = new AtomicInteger();
+            orchestratorService.processBatch(List.of(
+                    new OrchestratorService.BatchItem("show user 1", "postgres"),
+                    new OrchestratorService.BatchItem("show user 2", "postgres"),
+                    new OrchestratorService.BatchItem("show user 3", "postgres")
+            ), "reporting-job", result -> delivered.incrementAndGet() < 1);
+
+            assertEquals(1, delivered.get());
+            // With one item at a time, the second was submitted but the third never was
+            assertTrue(postgres.getExecutions() <= 2);
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+    }
+}
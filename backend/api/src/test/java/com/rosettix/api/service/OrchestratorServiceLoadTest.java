@@ -0,0 +1,202 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.ExecutorConfig;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.llm.OfflineQueryGenerator;
+import com.rosettix.api.saga.Saga;
+import com.rosettix.api.saga.SagaOrchestrator;
+import com.rosettix.api.saga.SagaStep;
+import com.rosettix.api.strategy.QueryStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of 1k+ concurrent requests against the offline LLM provider, comparing the blocking
+ * pipeline on a Tomcat-sized pool with the async pipeline, plus concurrent sagas. Needs no network
+ * or API quota. Run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class OrchestratorServiceLoadTest {
+
+    private static final int CONCURRENT_REQUESTS = 2_000;
+    private static final int CONCURRENT_SAGAS = 500;
+    private static final int BATCH_ITEMS = 200;
+    private static final long BATCH_LLM_LATENCY_MILLIS = 50;
+    private static final int TOMCAT_DEFAULT_MAX_THREADS = 200;
+    private static final long LLM_LATENCY_MILLIS = 250;
+    private static final long DB_LATENCY_MILLIS = 5;
+
+    private RosettixConfiguration configuration;
+    private ExecutorService queryExecutor;
+    private ExecutorService llmExecutor;
+    private PipelineMetrics pipelineMetrics;
+    private LlmService llmService;
+    private Map<String, QueryStrategy> strategies;
+
+    @BeforeEach
+    void setUp() {
+        configuration = new RosettixConfiguration();
+        configuration.getLlm().setProvider("offline");
+        configuration.getLlm().getOffline().setLatencyDistribution("fixed");
+        configuration.getLlm().getOffline().setLatencyMillis(LLM_LATENCY_MILLIS);
+        configuration.getLlm().setMaxConcurrentCalls(CONCURRENT_REQUESTS);
+
+        queryExecutor = new ExecutorConfig().queryExecutor(configuration);
+        llmExecutor = new ExecutorConfig().llmExecutor(configuration);
+        OfflineQueryGenerator queryGenerator = new OfflineQueryGenerator(configuration);
+        pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        llmService = new LlmService(
+                queryGenerator,
+                configuration,
+                new QueryTranslationCache(configuration),
+                new QuestionSimilarityIndex(configuration),
+                new QueryTemplateCache(configuration),
+                new LlmCircuitBreaker(configuration),
+                new LlmRateLimiter(configuration),
+                new LlmBatcher(configuration),
+                new SchemaPruner(configuration),
+                new PromptPrefixCache(queryGenerator, configuration, Clock.systemUTC()),
+                pipelineMetrics,
+                llmExecutor
+        );
+        strategies = Map.of("postgres", new StubQueryStrategy("postgres", "users(id, email); ", DB_LATENCY_MILLIS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryExecutor.shutdownNow();
+        llmExecutor.shutdownNow();
+    }
+
+    @Test
+    void asyncPipelineOutperformsBlockingRequestThreads() throws Exception {
+        OrchestratorService orchestratorService = new OrchestratorService(
+                llmService, strategies, configuration, queryExecutor, queryExecutor, pipelineMetrics, new StrategyRouter(strategies, configuration),
+                new PageTokenCodec(configuration), new QueryResultCache(configuration)
+        );
+
+        double blockingThroughput;
+        ExecutorService tomcatPool = Executors.newFixedThreadPool(TOMCAT_DEFAULT_MAX_THREADS);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                // Distinct questions, so neither the cache nor single-flight hides the LLM latency
+                String question = "show user number " + i;
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> orchestratorService.processQuery(question, "postgres"), tomcatPool
+                ));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+            blockingThroughput = CONCURRENT_REQUESTS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            tomcatPool.shutdownNow();
+        }
+
+        long start = System.nanoTime();
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            futures.add(orchestratorService.processQueryAsync("list user number " + i, "postgres"));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+        double asyncThroughput = CONCURRENT_REQUESTS / ((System.nanoTime() - start) / 1e9);
+        assertEquals(1, futures.get(0).join().size());
+
+        System.out.printf(
+                "executor=%s requests=%d llm_latency_ms=%d blocking_req_per_s=%.1f async_req_per_s=%.1f speedup=%.2fx%n",
+                queryExecutor.getClass().getSimpleName(),
+                CONCURRENT_REQUESTS,
+                LLM_LATENCY_MILLIS,
+                blockingThroughput,
+                asyncThroughput,
+                asyncThroughput / blockingThroughput
+        );
+        assertTrue(asyncThroughput > blockingThroughput);
+    }
+
+    @Test
+    void batchBeatsSequentialCallsByAnOrderOfMagnitude() {
+        // Sequential calls at the usual latency would take minutes
+        configuration.getLlm().getOffline().setLatencyMillis(BATCH_LLM_LATENCY_MILLIS);
+        configuration.getBatching().setEnabled(true);
+        OrchestratorService orchestratorService = new OrchestratorService(
+                llmService, strategies, configuration, queryExecutor, queryExecutor, pipelineMetrics, new StrategyRouter(strategies, configuration),
+                new PageTokenCodec(configuration), new QueryResultCache(configuration)
+        );
+
+        long start = System.nanoTime();
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            orchestratorService.processQuery("show user number " + i, "postgres",
+                    LlmRequestContext.of("reporting-job", LlmRequestContext.Priority.INTERACTIVE));
+        }
+        double sequentialMillis = (System.nanoTime() - start) / 1e6;
+
+        List<OrchestratorService.BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            items.add(new OrchestratorService.BatchItem("list user number " + i, "postgres"));
+        }
+        long[] failed = new long[1];
+        start = System.nanoTime();
+        orchestratorService.processBatch(items, "reporting-job", result -> {
+            if (result.error() != null) {
+                failed[0]++;
+            }
+            return true;
+        });
+        double batchMillis = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf(
+                "batch_items=%d llm_latency_ms=%d parallelism_per_strategy=%d sequential_ms=%.0f batch_ms=%.0f speedup=%.1fx%n",
+                BATCH_ITEMS,
+                BATCH_LLM_LATENCY_MILLIS,
+                configuration.getBatchQuery().getParallelismPerStrategy(),
+                sequentialMillis,
+                batchMillis,
+                sequentialMillis / batchMillis
+        );
+        assertEquals(0, failed[0]);
+        assertTrue(sequentialMillis / batchMillis >= 10, "speedup " + sequentialMillis / batchMillis);
+    }
+
+    @Test
+    void runsConcurrentSagasAgainstOfflineProvider() throws Exception {
+        SagaOrchestrator sagaOrchestrator = new SagaOrchestrator(strategies, llmService, pipelineMetrics, configuration, new QueryResultCache(configuration));
+
+        long start = System.nanoTime();
+        List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_SAGAS; i++) {
+            Saga saga = new Saga();
+            saga.addStep(new SagaStep("insert a user with email user" + i + "@example.com", "postgres", null, null));
+            saga.addStep(new SagaStep("update the email of user " + i, "postgres", null, null));
+            futures.add(CompletableFuture.supplyAsync(() -> sagaOrchestrator.executeSaga(saga, true), queryExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+        double sagaThroughput = CONCURRENT_SAGAS / ((System.nanoTime() - start) / 1e9);
+        assertEquals(2, futures.get(0).join().size());
+
+        System.out.printf(
+                "sagas=%d steps_per_saga=2 llm_latency_ms=%d sagas_per_s=%.1f llm_call_p99_ms=%.1f generation_p99_ms=%.1f execution_p99_ms=%.1f%n",
+                CONCURRENT_SAGAS,
+                LLM_LATENCY_MILLIS,
+                sagaThroughput,
+                pipelineMetrics.getHistogram("postgres", PipelineMetrics.Stage.LLM_CALL).percentileMillis(99),
+                pipelineMetrics.getHistogram("postgres", PipelineMetrics.Stage.GENERATION).percentileMillis(99),
+                pipelineMetrics.getHistogram("postgres", PipelineMetrics.Stage.EXECUTION).percentileMillis(99)
+        );
+    }
+}
@@ -0,0 +1,126 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PageTokenCodecTest {
+
+    private static final String SCHEMA = "users(id, email); ";
+
+    @Test
+    void pagesThroughResultsWithOneTranslation() {
+        RosettixConfiguration configuration = configuration();
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", SCHEMA) {
+            @Override
+            public List<Map<String, Object>> executeQuery(String query) {
+                super.executeQuery(query);
+                return IntStream.range(0, 25).<Map<String, Object>>mapToObj(id -> Map.of("id", id)).toList();
+            }
+        };
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq("show all users"), eq(postgres), any())).thenReturn("SELECT * FROM users");
+        OrchestratorService orchestratorService = new OrchestratorService(
+                llmService, Map.of("postgres", postgres), configuration, mock(ExecutorService.class), mock(ExecutorService.class),
+                new PipelineMetrics(new SimpleMeterRegistry()), new StrategyRouter(Map.of("postgres", postgres), configuration),
+                new PageTokenCodec(configuration), new QueryResultCache(configuration)
+        );
+
+        List<Object> ids = new ArrayList<>();
+        OrchestratorService.PagedResult page = orchestratorService.processPagedQuery("show all users", "postgres", 10, context());
+        int pages = 1;
+        page.results().forEach(row -> ids.add(row.get("id")));
+        while (page.nextPageToken() != null) {
+            page = orchestratorService.processNextPage(page.nextPageToken(), context());
+            page.results().forEach(row -> ids.add(row.get("id")));
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(IntStream.range(0, 25).boxed().toList(), ids);
+        verify(llmService, times(1)).generateQuery(any(), any(), any());
+    }
+
+    @Test
+    void roundTripsPageState() {
+        PageTokenCodec codec = new PageTokenCodec(configuration(), new MutableClock(Instant.parse("2026-03-27T10:00:00Z")));
+
+        PageTokenCodec.PageState state = codec.decode(codec.encode("mongodb", "db.users.find({})", "{\"_id\": 7}", 50));
+
+        assertEquals("mongodb", state.strategyName());
+        assertEquals("db.users.find({})", state.query());
+        assertEquals("{\"_id\": 7}", state.position());
+        assertEquals(50, state.pageSize());
+    }
+
+    @Test
+    void rejectsTamperedForeignAndExpiredTokens() {
+        RosettixConfiguration configuration = configuration();
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        PageTokenCodec codec = new PageTokenCodec(configuration, clock);
+        String token = codec.encode("postgres", "SELECT * FROM users", "10", 10);
+
+        // Swap in a payload pinning another query, keeping the original signature
+        String forgedPayload = codec.encode("postgres", "DELETE FROM users", "10", 10).split("\\.")[0];
+        String forged = forgedPayload + token.substring(token.indexOf('.'));
+        assertInvalid(codec, forged);
+        assertInvalid(codec, "not-a-token");
+
+        RosettixConfiguration otherConfiguration = configuration();
+        otherConfiguration.getPagination().setTokenSecret("another-secret");
+        assertInvalid(new PageTokenCodec(otherConfiguration, clock), token);
+
+        assertNotNull(codec.decode(token));
+        clock.advanceSeconds(31 * 60);
+        assertInvalid(codec, token);
+    }
+
+    @Test
+    void unconfiguredSecretSignsWithAPerInstanceKey() {
+        RosettixConfiguration configuration = configuration();
+        configuration.getPagination().setTokenSecret("");
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        PageTokenCodec codec = new PageTokenCodec(configuration, clock);
+        String token = codec.encode("postgres", "SELECT 1", null, 10);
+
+        assertNull(codec.decode(token).position());
+        assertInvalid(new PageTokenCodec(configuration, clock), token);
+    }
+
+    private static void assertInvalid(PageTokenCodec codec, String token) {
+        QueryException error = assertThrows(QueryException.class, () -> codec.decode(token));
+        assertEquals(QueryException.ErrorType.INVALID_PAGE_TOKEN, error.getErrorType());
+        assertFalse(error.getMessage().isBlank());
+    }
+
+    private static LlmRequestContext context() {
+        return LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE);
+    }
+
+    private static RosettixConfiguration configuration() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getPagination().setTokenSecret("test-secret");
+        configuration.getPagination().setTokenTtlMinutes(30);
+        return configuration;
+    }
+}
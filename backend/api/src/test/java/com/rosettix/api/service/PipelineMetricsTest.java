@@ -0,0 +1,85 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PipelineMetricsTest {
+
+    @Test
+    void recordsStagesToHistogramAndMicrometerTimer() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry);
+
+        pipelineMetrics.record("postgres", PipelineMetrics.Stage.EXECUTION, TimeUnit.MILLISECONDS.toNanos(12));
+        assertThrows(IllegalStateException.class, () -> pipelineMetrics.time("postgres", PipelineMetrics.Stage.LLM_CALL, () -> {
+            throw new IllegalStateException("model overloaded");
+        }));
+
+        Timer timer = meterRegistry.get(PipelineMetrics.TIMER_NAME)
+                .tag("strategy", "postgres")
+                .tag("stage", "execution")
+                .timer();
+        assertEquals(1, timer.count());
+        assertEquals(12.0, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(12.0, pipelineMetrics.getHistogram("postgres", PipelineMetrics.Stage.EXECUTION).percentileMillis(99), 0.2);
+        // Failed stages are timed as well
+        assertEquals(1, pipelineMetrics.getHistogram("postgres", PipelineMetrics.Stage.LLM_CALL).getCount());
+    }
+
+    @Test
+    void tagsOnlyRegisteredStrategiesAndFixedLabels() {
+        Set<String> strategyNames = Set.of("postgres", "mongodb");
+
+        assertEquals("postgres", PipelineMetrics.strategyLabel("postgres", strategyNames));
+        assertEquals(PipelineMetrics.ROUTED_LABEL, PipelineMetrics.strategyLabel("routed", strategyNames));
+        assertEquals(PipelineMetrics.NEXT_PAGE_LABEL, PipelineMetrics.strategyLabel("next-page", strategyNames));
+        assertEquals(PipelineMetrics.UNKNOWN_LABEL, PipelineMetrics.strategyLabel("oracle-8f3a91", strategyNames));
+        assertEquals(PipelineMetrics.UNKNOWN_LABEL, PipelineMetrics.strategyLabel(null, strategyNames));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void timesEachStageOfAReadQuery() {
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", "users(id, email); ", 5);
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq("show all users"), eq(postgres), any())).thenReturn("```sql\nSELECT * FROM users\n```");
+
+        OrchestratorService orchestratorService = new OrchestratorService(
+                llmService, Map.of("postgres", postgres), new RosettixConfiguration(), mock(ExecutorService.class), mock(ExecutorService.class), pipelineMetrics,
+                new StrategyRouter(Map.of("postgres", postgres), new RosettixConfiguration()),
+                new PageTokenCodec(new RosettixConfiguration()), new QueryResultCache(new RosettixConfiguration())
+        );
+        orchestratorService.processQuery("show all users", "postgres");
+
+        Map<String, Object> stages = (Map<String, Object>) ((Map<String, Object>) pipelineMetrics.getMetricsSnapshot().get("databases")).get("postgres");
+        for (PipelineMetrics.Stage stage : new PipelineMetrics.Stage[] {
+                PipelineMetrics.Stage.GENERATION,
+                PipelineMetrics.Stage.CLEAN,
+                PipelineMetrics.Stage.SAFETY_CHECK,
+                PipelineMetrics.Stage.CLASSIFICATION,
+                PipelineMetrics.Stage.EXECUTION
+        }) {
+            assertEquals(1L, ((Map<String, Object>) stages.get(stage.metricName())).get("count"), stage.metricName());
+        }
+        assertTrue((Double) ((Map<String, Object>) stages.get("execution")).get("max_ms") >= 5.0);
+        // Only stages that ran are reported
+        assertFalse(stages.containsKey("serialization"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.rosettix.api.service;
+
+import com.google.genai.errors.ClientException;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.llm.LlmPrompt;
+import com.rosettix.api.llm.OfflineQueryGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptPrefixCacheTest {
+
+    private static final String SCHEMA = "users(id, email); orders(id, user_id); ";
+    private static final StubQueryStrategy POSTGRES = new StubQueryStrategy("postgres", SCHEMA);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void registersPrefixOnceAndSendsOnlyTheQuestion() {
+        RosettixConfiguration configuration = configuration(0);
+        OfflineQueryGenerator queryGenerator = new OfflineQueryGenerator(configuration);
+        PromptPrefixCache prefixCache = new PromptPrefixCache(queryGenerator, configuration, new MutableClock(Instant.parse("2026-03-27T10:00:00Z")));
+
+        LlmPrompt first = prefixCache.prepare("show all users", SCHEMA, POSTGRES);
+        LlmPrompt second = prefixCache.prepare("count orders", SCHEMA, POSTGRES);
+
+        assertNotNull(first.cachedPrefixName());
+        assertEquals(first.cachedPrefixName(), second.cachedPrefixName());
+        assertSame(first.prefix(), second.prefix());
+        assertEquals(POSTGRES.buildPrompt("count orders", SCHEMA), second.text());
+        assertEquals("SELECT COUNT(*) FROM orders", queryGenerator.generate(second));
+
+        Map<String, Object> postgresStats = (Map<String, Object>) ((Map<String, Object>) prefixCache.getMetricsSnapshot().get("databases")).get("postgres");
+        assertEquals(2L, postgresStats.get("prompts"));
+        assertEquals(1L, postgresStats.get("registrations"));
+        assertTrue((Double) postgresStats.get("avg_prompt_bytes_after") < (Double) postgresStats.get("avg_prompt_bytes_before"));
+    }
+
+    @Test
+    void reregistersWhenSchemaCacheLoadsNewSchema() {
+        RosettixConfiguration configuration = configuration(0);
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        SchemaCacheService schemaCacheService = new SchemaCacheService(configuration, new InMemorySchemaCacheStore(clock), clock);
+        OfflineQueryGenerator queryGenerator = new OfflineQueryGenerator(configuration);
+        PromptPrefixCache prefixCache = new PromptPrefixCache(queryGenerator, configuration, schemaCacheService);
+
+        LlmPrompt before = prefixCache.prepare("show all users", SCHEMA, POSTGRES);
+        schemaCacheService.getSchema("postgres", () -> SCHEMA);
+        LlmPrompt after = prefixCache.prepare("show all users", SCHEMA, POSTGRES);
+
+        assertNotEquals(before.cachedPrefixName(), after.cachedPrefixName());
+        ClientException error = assertThrows(ClientException.class, () -> queryGenerator.generate(before));
+        assertEquals(404, error.code());
+        assertEquals("SELECT * FROM users LIMIT 100", queryGenerator.generate(after));
+    }
+
+    @Test
+    void rebuildsPrefixWhenSchemaChangesAndKeepsSmallPrefixesInline() {
+        RosettixConfiguration configuration = configuration(1024);
+        PromptPrefixCache prefixCache = new PromptPrefixCache(
+                new OfflineQueryGenerator(configuration), configuration, new MutableClock(Instant.parse("2026-03-27T10:00:00Z"))
+        );
+        String newSchema = SCHEMA + "products(id, price); ";
+
+        LlmPrompt before = prefixCache.prepare("show all users", SCHEMA, POSTGRES);
+        LlmPrompt after = prefixCache.prepare("show all users", newSchema, POSTGRES);
+
+        assertNull(before.cachedPrefixName());
+        assertEquals(POSTGRES.buildPrompt("show all users", newSchema), after.text());
+    }
+
+    @Test
+    void refreshesRegistrationBeforeProviderExpiry() {
+        RosettixConfiguration configuration = configuration(0);
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        PromptPrefixCache prefixCache = new PromptPrefixCache(new OfflineQueryGenerator(configuration), configuration, clock);
+
+        String first = prefixCache.prepare("show all users", SCHEMA, POSTGRES).cachedPrefixName();
+        clock.advanceSeconds(50 * 60);
+        String beforeExpiry = prefixCache.prepare("show all users", SCHEMA, POSTGRES).cachedPrefixName();
+        clock.advanceSeconds(5 * 60);
+        String refreshed = prefixCache.prepare("show all users", SCHEMA, POSTGRES).cachedPrefixName();
+
+        assertEquals(first, beforeExpiry);
+        assertNotEquals(first, refreshed);
+    }
+
+    private RosettixConfiguration configuration(int minPrefixTokens) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getLlm().setProvider("offline");
+        configuration.getLlm().getOffline().setLatencyDistribution("fixed");
+        configuration.getLlm().getOffline().setLatencyMillis(0);
+        configuration.getPromptCache().setEnabled(true);
+        configuration.getPromptCache().setTtlMinutes(60);
+        configuration.getPromptCache().setMinPrefixTokens(minPrefixTokens);
+        return configuration;
+    }
+}
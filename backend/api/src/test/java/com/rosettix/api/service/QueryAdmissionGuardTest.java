@@ -0,0 +1,85 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.strategy.QueryLimits;
+import com.rosettix.api.strategy.QueryPlan;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryAdmissionGuardTest {
+
+    private static final QueryPlan CHEAP = new QueryPlan(null, "Index Scan on users", 8.3, 1.0);
+    private static final QueryPlan EXPENSIVE = new QueryPlan(null, "Nested Loop", 90_000.0, 4_000_000.0);
+
+    @Test
+    void limitsOrRefusesReadsOverTheStrategyThresholds() {
+        RosettixConfiguration configuration = configuration();
+        configuration.getAdmission().getMongodb().setAction(RosettixConfiguration.AdmissionAction.REJECT);
+        QueryAdmissionGuard guard = new QueryAdmissionGuard(configuration);
+
+        assertEquals(QueryAdmissionGuard.Verdict.ADMIT, guard.check("postgres", "SELECT * FROM users WHERE id = 1", () -> CHEAP));
+        assertEquals(QueryAdmissionGuard.Verdict.LIMIT, guard.check("postgres", "SELECT * FROM orders CROSS JOIN users", () -> EXPENSIVE));
+        assertEquals(50, guard.limit("postgres", new QueryLimits(100, 30)).maxRows());
+        assertEquals(30, guard.limit("postgres", new QueryLimits(0, 30)).timeoutSeconds());
+
+        QueryException sortedScan = assertThrows(QueryException.class,
+                () -> guard.checkLimited("postgres", "SELECT * FROM (SELECT * FROM orders ORDER BY total) AS rosettix_admitted LIMIT 51", () -> EXPENSIVE));
+        assertEquals(QueryException.ErrorType.QUERY_TOO_EXPENSIVE, sortedScan.getErrorType());
+
+        QueryException collectionScan = assertThrows(QueryException.class,
+                () -> guard.check("mongodb", "db.orders.find({\"note\": \"late\"})", () -> new QueryPlan(null, "COLLSCAN", null, null)));
+        assertEquals(QueryException.ErrorType.QUERY_TOO_EXPENSIVE, collectionScan.getErrorType());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reusesPlansPerQueryFingerprintUntilTheyExpire() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        QueryAdmissionGuard guard = new QueryAdmissionGuard(configuration(), clock);
+        AtomicInteger plans = new AtomicInteger();
+        Supplier<QueryPlan> planner = () -> {
+            plans.incrementAndGet();
+            return CHEAP;
+        };
+
+        guard.check("postgres", "SELECT * FROM users WHERE id = 1", planner);
+        guard.check("postgres", "SELECT *\n  FROM users\n WHERE id = 1", planner);
+        assertEquals(1, plans.get());
+
+        clock.advanceSeconds(11 * 60);
+        guard.check("postgres", "SELECT * FROM users WHERE id = 1", planner);
+        assertEquals(2, plans.get());
+
+        Map<String, Object> stats = (Map<String, Object>) ((Map<String, Object>) guard.getMetricsSnapshot().get("databases")).get("postgres");
+        assertEquals(1L, stats.get("plan_cache_hits"));
+        assertEquals(2L, stats.get("plan_cache_misses"));
+    }
+
+    @Test
+    void admitsReadsThatCannotBePlannedOrWhenDisabled() {
+        QueryAdmissionGuard guard = new QueryAdmissionGuard(configuration());
+        assertEquals(QueryAdmissionGuard.Verdict.ADMIT, guard.check("postgres", "SELECT * FROM users", () -> {
+            throw new RuntimeException("SQL Execution Error: explain cancelled after 5s");
+        }));
+        assertEquals(0, guard.size());
+
+        QueryAdmissionGuard disabled = new QueryAdmissionGuard(new RosettixConfiguration());
+        assertEquals(QueryAdmissionGuard.Verdict.ADMIT, disabled.check("postgres", "SELECT * FROM orders CROSS JOIN users", () -> EXPENSIVE));
+    }
+
+    private static RosettixConfiguration configuration() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getAdmission().setEnabled(true);
+        configuration.getAdmission().getPostgres().setMaxEstimatedCost(1000);
+        configuration.getAdmission().getPostgres().setLimitRows(50);
+        return configuration;
+    }
+}
@@ -0,0 +1,105 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.ExecutorConfig;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.llm.OfflineQueryGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class QueryCostTest {
+
+    private static final String SCHEMA = "users(id, email); orders(id, user_id); ";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void accountsModelCallThenReusedTranslation() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getLlm().setProvider("offline");
+        configuration.getLlm().getOffline().setLatencyDistribution("fixed");
+        configuration.getLlm().getOffline().setLatencyMillis(0);
+        configuration.getQuery().setCachingEnabled(true);
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        SchemaCacheService schemaCacheService = new SchemaCacheService(configuration, new InMemorySchemaCacheStore(clock), clock);
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", SCHEMA) {
+            @Override
+            public String getSchemaRepresentation() {
+                return schemaCacheService.getSchema("postgres", super::getSchemaRepresentation);
+            }
+        };
+
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry());
+        ExecutorService llmExecutor = ExecutorConfig.createExecutor("test-llm-", configuration.getAsync());
+        try {
+            OfflineQueryGenerator queryGenerator = new OfflineQueryGenerator(configuration);
+            LlmService llmService = new LlmService(
+                    queryGenerator,
+                    configuration,
+                    new QueryTranslationCache(configuration),
+                    new QuestionSimilarityIndex(configuration),
+                    new QueryTemplateCache(configuration),
+                    new LlmCircuitBreaker(configuration),
+                    new LlmRateLimiter(configuration),
+                    new LlmBatcher(configuration),
+                    new SchemaPruner(configuration),
+                    new PromptPrefixCache(queryGenerator, configuration, Clock.systemUTC()),
+                    pipelineMetrics,
+                    llmExecutor
+            );
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, Map.of("postgres", postgres), configuration, mock(ExecutorService.class), mock(ExecutorService.class), pipelineMetrics,
+                    new StrategyRouter(Map.of("postgres", postgres), configuration), new PageTokenCodec(configuration),
+                    new QueryResultCache(configuration)
+            );
+
+            LlmRequestContext first = LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE);
+            List<Map<String, Object>> rows = orchestratorService.processQuery("show all users", "postgres", first);
+            LlmRequestContext second = LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE);
+            orchestratorService.processQuery("show all users", "postgres", second);
+
+            Map<String, Object> firstCost = first.getCost().toSnapshot();
+            Map<String, Object> firstLlm = (Map<String, Object>) firstCost.get("llm");
+            assertEquals(1L, firstLlm.get("calls"));
+            assertTrue((Long) firstLlm.get("prompt_tokens_estimate") > LlmBatcher.estimateTokens(SCHEMA));
+            assertEquals(LlmBatcher.estimateTokens("SELECT * FROM users LIMIT 100"), firstLlm.get("response_tokens_estimate"));
+            assertEquals(1L, ((Map<String, Object>) firstCost.get("schema_cache")).get("misses"));
+            assertEquals((long) rows.size(), firstCost.get("rows_returned"));
+            assertTrue(((Map<String, Object>) firstCost.get("stages")).containsKey("llm_call_ms"));
+
+            Map<String, Object> secondCost = second.getCost().toSnapshot();
+            Map<String, Object> secondLlm = (Map<String, Object>) secondCost.get("llm");
+            assertEquals(0L, secondLlm.get("calls"));
+            assertEquals(1L, secondLlm.get("reused_translations"));
+            assertEquals(1L, ((Map<String, Object>) secondCost.get("schema_cache")).get("hits"));
+            assertTrue(((Map<String, Object>) secondCost.get("stages")).containsKey("execution_ms"));
+        } finally {
+            llmExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rendersServerTimingForStagesThatRan() {
+        QueryCost cost = new QueryCost();
+        cost.record(PipelineMetrics.Stage.SCHEMA_FETCH, 400_000);
+        cost.recordSchemaLookup(SchemaCacheService.Lookup.HIT);
+        cost.recordLlmCall(1_250_000_000L, 300, 12);
+        cost.record(PipelineMetrics.Stage.EXECUTION, 3_000_000);
+        cost.recordRows(2);
+
+        assertEquals(
+                "schema_fetch;dur=0.400;desc=\"cache hits 1, misses 0\", "
+                        + "llm_call;dur=1250.000;desc=\"1 calls, ~300/12 tokens\", "
+                        + "execution;dur=3.000;desc=\"2 rows\"",
+                cost.toServerTiming()
+        );
+    }
+}
@@ -0,0 +1,129 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.QueryResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryResultCacheTest {
+
+    private static final String SCHEMA = "users(id, email); orders(id, user_id); ";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writesDropOnlyTheResultsTheyTouch() {
+        RosettixConfiguration configuration = configuration();
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", SCHEMA) {
+            @Override
+            public Set<String> findQueryTargets(String query) {
+                return query.contains("orders") ? Set.of("orders") : Set.of("users");
+            }
+        };
+        QueryResultCache resultCache = new QueryResultCache(configuration);
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq("show all users"), any(), any())).thenReturn("SELECT * FROM users");
+        when(llmService.generateQuery(eq("show all orders"), any(), any())).thenReturn("SELECT  *  FROM orders");
+        when(llmService.generateQuery(eq("cancel order 7"), any(), any())).thenReturn("DELETE FROM orders WHERE id = 7");
+        OrchestratorService orchestratorService = new OrchestratorService(
+                llmService, Map.of("postgres", postgres), configuration, mock(ExecutorService.class), mock(ExecutorService.class),
+                new PipelineMetrics(new SimpleMeterRegistry()), new StrategyRouter(Map.of("postgres", postgres), configuration),
+                new PageTokenCodec(configuration), resultCache
+        );
+
+        orchestratorService.processQuery("show all users", "postgres");
+        orchestratorService.processQuery("show all orders", "postgres");
+        orchestratorService.processQuery("show all users", "postgres");
+        orchestratorService.processQuery("show all orders", "postgres");
+        assertEquals(2, postgres.getExecutions());
+
+        orchestratorService.processWriteQuery("cancel order 7", "postgres");
+        orchestratorService.processQuery("show all users", "postgres");
+        orchestratorService.processQuery("show all orders", "postgres");
+        assertEquals(4, postgres.getExecutions());
+
+        Map<String, Object> stats = (Map<String, Object>) ((Map<String, Object>) resultCache.getMetricsSnapshot().get("databases")).get("postgres");
+        assertEquals(3L, stats.get("hits"));
+        assertEquals(3L, stats.get("misses"));
+        assertEquals(1L, stats.get("invalidating_writes"));
+        assertEquals(1L, stats.get("max_invalidation_fan_out"));
+        assertEquals(0.5, (Double) stats.get("hit_rate"));
+    }
+
+    @Test
+    void writesWithUnknownTargetsDropEveryResultOfTheirStrategy() {
+        QueryResultCache resultCache = new QueryResultCache(configuration());
+        put(resultCache, "postgres", "SELECT * FROM users", Set.of("users"));
+        put(resultCache, "postgres", "SELECT * FROM orders", Set.of("orders"));
+        put(resultCache, "redis", "GET users", Set.of("users"));
+
+        resultCache.invalidate("postgres", Set.of());
+
+        assertNull(resultCache.get("postgres", "SELECT * FROM users"));
+        assertNull(resultCache.get("postgres", "SELECT * FROM orders"));
+        assertNotNull(resultCache.get("redis", "GET users"));
+    }
+
+    @Test
+    void boundsMemoryAndSkipsResultsReadBeforeAWrite() {
+        RosettixConfiguration configuration = configuration();
+        configuration.getResultCache().setMaxSizeMb(1);
+        QueryResultCache resultCache = new QueryResultCache(configuration);
+        // Roughly 100 KB each, so about ten fit in a megabyte
+        List<Map<String, Object>> rows = IntStream.range(0, 1000).<Map<String, Object>>mapToObj(i -> Map.of("name", "user-" + i)).toList();
+
+        for (int i = 0; i < 30; i++) {
+            resultCache.put("postgres", "SELECT * FROM users WHERE batch = " + i, Set.of("users"), new QueryResult(rows, false),
+                    resultCache.writeVersion("postgres"));
+        }
+
+        assertTrue(resultCache.getEstimatedBytes() <= 1024 * 1024);
+        assertTrue(resultCache.size() < 30);
+        assertNull(resultCache.get("postgres", "SELECT * FROM users WHERE batch = 0"));
+        assertNotNull(resultCache.get("postgres", "SELECT * FROM users WHERE batch = 29"));
+
+        long before = resultCache.writeVersion("postgres");
+        resultCache.invalidate("postgres", Set.of("orders"));
+        resultCache.put("postgres", "SELECT * FROM orders", Set.of("orders"), new QueryResult(List.of(), false), before);
+        assertNull(resultCache.get("postgres", "SELECT * FROM orders"));
+    }
+
+    @Test
+    void expiresResultsAndNormalizesOnlyUnquotedWhitespace() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        QueryResultCache resultCache = new QueryResultCache(configuration(), clock);
+        put(resultCache, "postgres", "SELECT *\n  FROM users WHERE name = 'a  b'", Set.of("users"));
+
+        assertNotNull(resultCache.get("postgres", "SELECT * FROM users WHERE name = 'a  b'"));
+        assertNull(resultCache.get("postgres", "SELECT * FROM users WHERE name = 'a b'"));
+
+        clock.advanceSeconds(301);
+        assertNull(resultCache.get("postgres", "SELECT * FROM users WHERE name = 'a  b'"));
+    }
+
+    private static void put(QueryResultCache resultCache, String strategyName, String query, Set<String> targets) {
+        resultCache.put(strategyName, query, targets, new QueryResult(List.of(Map.of("id", 1)), false), resultCache.writeVersion(strategyName));
+    }
+
+    private static RosettixConfiguration configuration() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getResultCache().setEnabled(true);
+        configuration.getResultCache().setTtlSeconds(300);
+        return configuration;
+    }
+}
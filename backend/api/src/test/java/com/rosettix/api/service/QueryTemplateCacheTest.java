@@ -0,0 +1,98 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.strategy.MongoStrategy;
+import com.rosettix.api.strategy.PostgresStrategy;
+import com.rosettix.api.strategy.QueryStrategy;
+import com.rosettix.api.strategy.RedisStrategy;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class QueryTemplateCacheTest {
+
+    private static final String SCHEMA = "orders(id, customer_id, status); users(id, name); ";
+
+    @Test
+    void bindsNewLiteralsIntoPostgresQuery() {
+        QueryTemplateCache templateCache = new QueryTemplateCache(configuration());
+        PostgresStrategy postgres = new PostgresStrategy(mock(JdbcTemplate.class), mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        learn(templateCache, postgres, "orders for customer 42 placed after 2024-01-31",
+                "SELECT * FROM orders WHERE customer_id = 42 AND placed_at > '2024-01-31' LIMIT 10");
+        learn(templateCache, postgres, "users named \"Ann\"", "SELECT * FROM users WHERE name ILIKE '%Ann%'");
+
+        assertEquals(
+                "SELECT * FROM orders WHERE customer_id = 97 AND placed_at > '2025-06-01' LIMIT 10",
+                find(templateCache, postgres, "orders for customer 97 placed after 2025-06-01")
+        );
+        assertEquals(
+                "SELECT * FROM users WHERE name ILIKE '%O''Brien%'",
+                find(templateCache, postgres, "users named \"O'Brien\"")
+        );
+        // A different shape of question is a different template
+        assertNull(find(templateCache, postgres, "orders of customer 97 placed after 2025-06-01"));
+    }
+
+    @Test
+    void bindsNewLiteralsIntoMongoAndRedisQueries() {
+        QueryTemplateCache templateCache = new QueryTemplateCache(configuration());
+        MongoStrategy mongo = new MongoStrategy(mock(MongoTemplate.class), mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()), new RosettixConfiguration());
+        RedisStrategy redis = new RedisStrategy(mock(StringRedisTemplate.class), mock(SchemaCacheService.class));
+
+        learn(templateCache, mongo, "orders for customer 42 with status 'open'",
+                "db.orders.find({\"customer_id\": 42, \"status\": \"open\"})");
+        learn(templateCache, redis, "name of user 42", "HGET user:42 name");
+        learn(templateCache, redis, "set greeting to \"hello\"", "SET greeting \"hello\"");
+
+        assertEquals(
+                "db.orders.find({\"customer_id\": 7, \"status\": \"on \\\"hold\\\"\"})",
+                find(templateCache, mongo, "orders for customer 7 with status 'on \"hold\"'")
+        );
+        assertEquals("HGET user:97 name", find(templateCache, redis, "name of user 97"));
+        assertEquals("SET greeting \"good morning\"", find(templateCache, redis, "set greeting to \"good morning\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void neverTemplatesQueriesWithUnlocatedOrAmbiguousLiterals() {
+        QueryTemplateCache templateCache = new QueryTemplateCache(configuration());
+        PostgresStrategy postgres = new PostgresStrategy(mock(JdbcTemplate.class), mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        learn(templateCache, postgres, "orders from last 7 days", "SELECT * FROM orders WHERE placed_at > now() - interval '1 week'");
+        learn(templateCache, postgres, "orders between 5 and 5", "SELECT * FROM orders WHERE id BETWEEN 5 AND 5");
+        learn(templateCache, postgres, "latest order for customer 1",
+                "SELECT * FROM orders WHERE customer_id = 1 ORDER BY created_at DESC LIMIT 1");
+
+        assertNull(find(templateCache, postgres, "orders from last 30 days"));
+        assertNull(find(templateCache, postgres, "orders between 1 and 9"));
+        // Binding 42 into both the filter and the LIMIT would be silently wrong
+        assertNull(find(templateCache, postgres, "latest order for customer 42"));
+        assertEquals(0, templateCache.size());
+
+        Map<String, Object> postgresStats = (Map<String, Object>) ((Map<String, Object>) templateCache.getMetricsSnapshot().get("databases")).get("postgres");
+        assertEquals(3L, postgresStats.get("untemplatable_queries"));
+        assertEquals(3L, postgresStats.get("template_misses"));
+    }
+
+    private void learn(QueryTemplateCache templateCache, QueryStrategy strategy, String question, String query) {
+        templateCache.learn(TranslationKey.of(strategy.getStrategyName(), SCHEMA, question), strategy, query);
+    }
+
+    private String find(QueryTemplateCache templateCache, QueryStrategy strategy, String question) {
+        return templateCache.find(TranslationKey.of(strategy.getStrategyName(), SCHEMA, question), strategy);
+    }
+
+    private RosettixConfiguration configuration() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getTemplates().setEnabled(true);
+        return configuration;
+    }
+}
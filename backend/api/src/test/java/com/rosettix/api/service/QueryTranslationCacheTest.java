@@ -0,0 +1,102 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryTranslationCacheTest {
+
+    @Test
+    void returnsCachedQueryForNormalizedQuestion() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        QueryTranslationCache cache = new QueryTranslationCache(configuration(true, 10, 60), clock);
+
+        cache.put(TranslationKey.of("postgres", "users(id, email); ", "Show all users?"), "SELECT * FROM users", 1_000_000);
+
+        assertEquals(
+                "SELECT * FROM users",
+                cache.get(TranslationKey.of("postgres", "users(id, email); ", "  Show   all users "))
+        );
+    }
+
+    @Test
+    void missesWhenSchemaChanges() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        QueryTranslationCache cache = new QueryTranslationCache(configuration(true, 10, 60), clock);
+
+        cache.put(TranslationKey.of("postgres", "users(id); ", "show all users"), "SELECT * FROM users", 1_000_000);
+
+        TranslationKey changedSchema = TranslationKey.of("postgres", "users(id, email); ", "show all users");
+        assertNotEquals(TranslationKey.of("postgres", "users(id); ", "show all users"), changedSchema);
+        assertNull(cache.get(changedSchema));
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        QueryTranslationCache cache = new QueryTranslationCache(configuration(true, 10, 5), clock);
+        TranslationKey key = TranslationKey.of("mongodb", "users(_id, name); ", "list users");
+
+        cache.put(key, "db.users.find({})", 1_000_000);
+        clock.advanceSeconds(301);
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntryWhenFull() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        QueryTranslationCache cache = new QueryTranslationCache(configuration(true, 2, 60), clock);
+        TranslationKey first = TranslationKey.of("redis", "schema", "get session 1");
+        TranslationKey second = TranslationKey.of("redis", "schema", "get session 2");
+        TranslationKey third = TranslationKey.of("redis", "schema", "get session 3");
+
+        cache.put(first, "GET session:1", 1_000_000);
+        cache.put(second, "GET session:2", 1_000_000);
+        cache.get(first);
+        cache.put(third, "GET session:3", 1_000_000);
+
+        assertEquals("GET session:1", cache.get(first));
+        assertNull(cache.get(second));
+        assertEquals("GET session:3", cache.get(third));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bypassesWhenDisabledAndReportsMetrics() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-03-27T10:00:00Z"));
+        RosettixConfiguration configuration = configuration(true, 10, 60);
+        QueryTranslationCache cache = new QueryTranslationCache(configuration, clock);
+        TranslationKey key = TranslationKey.of("postgres", "schema", "count users");
+
+        cache.get(key);
+        cache.put(key, "SELECT COUNT(*) FROM users", 2_000_000);
+        cache.get(key);
+        configuration.getQuery().setCachingEnabled(false);
+        assertNull(cache.get(key));
+
+        Map<String, Object> snapshot = cache.getMetricsSnapshot();
+        Map<String, Object> postgres = (Map<String, Object>) ((Map<String, Object>) snapshot.get("databases")).get("postgres");
+
+        assertEquals(1L, postgres.get("cache_hits"));
+        assertEquals(1L, postgres.get("cache_misses"));
+        assertEquals(1L, postgres.get("cache_bypasses"));
+        assertEquals(0.5, postgres.get("hit_ratio"));
+        assertEquals(2.0, postgres.get("estimated_llm_ms_saved"));
+    }
+
+    private RosettixConfiguration configuration(boolean enabled, int maxEntries, long ttlMinutes) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getQuery().setCachingEnabled(enabled);
+        configuration.getQuery().setCacheMaxEntries(maxEntries);
+        configuration.getQuery().setCacheTtlMinutes(ttlMinutes);
+        return configuration;
+    }
+}
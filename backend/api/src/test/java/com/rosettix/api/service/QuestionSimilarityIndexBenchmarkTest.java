@@ -0,0 +1,87 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookup cost of the near-duplicate index as it grows. Run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class QuestionSimilarityIndexBenchmarkTest {
+
+    private static final String SCHEMA = "synthetic-schema";
+    private static final String[] VERBS = {"show", "list", "count", "find", "display", "get"};
+    private static final String[] TABLES = {
+            "users", "orders", "invoices", "products", "payments", "shipments", "customers", "reviews",
+            "carts", "coupons", "refunds", "sessions", "devices", "events", "tickets", "agents"
+    };
+    private static final String[] COLUMNS = {
+            "status", "country", "email", "created date", "amount", "category", "region", "owner",
+            "priority", "currency", "channel", "plan", "tier", "source", "city", "language"
+    };
+    private static final String[] FILTERS = {"active", "pending", "closed", "premium", "trial", "archived", "flagged"};
+    private static final int[] INDEX_SIZES = {1_000, 10_000, 100_000, 300_000};
+    private static final int LOOKUPS = 20_000;
+
+    @Test
+    void measuresLookupCostAgainstIndexSize() {
+        System.out.printf("%-12s %-14s %-14s %-12s%n", "index_size", "avg_lookup_us", "p99_lookup_us", "match_ratio");
+
+        for (int size : INDEX_SIZES) {
+            RosettixConfiguration configuration = new RosettixConfiguration();
+            configuration.getSimilarity().setEnabled(true);
+            configuration.getSimilarity().setMaxEntries(size);
+            QuestionSimilarityIndex index = new QuestionSimilarityIndex(configuration);
+            Random random = new Random(size);
+
+            for (int i = 0; i < size; i++) {
+                index.index(TranslationKey.of("postgres", SCHEMA, question(new Random(i), i % 1_000)), "SELECT " + i);
+            }
+
+            List<TranslationKey> probes = new ArrayList<>(LOOKUPS);
+            for (int i = 0; i < LOOKUPS; i++) {
+                // Half rephrasings of indexed questions, half unseen questions
+                int id = i % 2 == 0 ? random.nextInt(size) : size + i;
+                probes.add(TranslationKey.of("postgres", SCHEMA, rephrase(question(new Random(id), id % 1_000))));
+            }
+
+            probes.forEach(index::findSimilar);
+
+            long[] samples = new long[LOOKUPS];
+            int matches = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                long start = System.nanoTime();
+                if (index.findSimilar(probes.get(i)) != null) {
+                    matches++;
+                }
+                samples[i] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(samples);
+            double avgMicros = Arrays.stream(samples).average().orElse(0) / 1_000.0;
+            double p99Micros = samples[(int) (LOOKUPS * 0.99)] / 1_000.0;
+            System.out.printf("%-12d %-14.2f %-14.2f %-12.3f%n", size, avgMicros, p99Micros, (double) matches / LOOKUPS);
+
+            assertTrue(avgMicros < 1_000, "lookup should stay well below a millisecond");
+        }
+    }
+
+    private String question(Random random, int id) {
+        return VERBS[random.nextInt(VERBS.length)] + " "
+                + TABLES[random.nextInt(TABLES.length)] + " with "
+                + COLUMNS[random.nextInt(COLUMNS.length)] + " "
+                + FILTERS[random.nextInt(FILTERS.length)] + " in segment " + id;
+    }
+
+    private String rephrase(String question) {
+        return "please " + question.replace("show", "list").replace("with", "with the");
+    }
+}
@@ -0,0 +1,81 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QuestionSimilarityIndexTest {
+
+    private static final String SCHEMA = "users(id, name, email); orders(id, user_id, total); ";
+
+    @Test
+    void reusesQueryForRephrasedQuestion() {
+        QuestionSimilarityIndex index = new QuestionSimilarityIndex(configuration(0.85, 100));
+
+        index.index(TranslationKey.of("postgres", SCHEMA, "show all users"), "SELECT * FROM users");
+
+        assertEquals("SELECT * FROM users", index.findSimilar(TranslationKey.of("postgres", SCHEMA, "list all the users")));
+        assertEquals("SELECT * FROM users", index.findSimilar(TranslationKey.of("postgres", SCHEMA, "Display every user")));
+    }
+
+    @Test
+    void neverMatchesQuestionsWithDifferentLiterals() {
+        QuestionSimilarityIndex index = new QuestionSimilarityIndex(configuration(0.5, 100));
+
+        index.index(
+                TranslationKey.of("postgres", SCHEMA, "show orders for customer 42"),
+                "SELECT * FROM orders WHERE user_id = 42"
+        );
+
+        assertNull(index.findSimilar(TranslationKey.of("postgres", SCHEMA, "show orders for customer 97")));
+    }
+
+    @Test
+    void keepsStrategiesAndSchemaVersionsApart() {
+        QuestionSimilarityIndex index = new QuestionSimilarityIndex(configuration(0.85, 100));
+
+        index.index(TranslationKey.of("postgres", SCHEMA, "show all users"), "SELECT * FROM users");
+
+        assertNull(index.findSimilar(TranslationKey.of("mongodb", SCHEMA, "list all the users")));
+        assertNull(index.findSimilar(TranslationKey.of("postgres", SCHEMA + "audit(id); ", "list all the users")));
+    }
+
+    @Test
+    void rejectsQuestionsBelowThreshold() {
+        QuestionSimilarityIndex index = new QuestionSimilarityIndex(configuration(0.85, 100));
+
+        index.index(TranslationKey.of("postgres", SCHEMA, "show users with their email"), "SELECT name, email FROM users");
+
+        assertNull(index.findSimilar(TranslationKey.of("postgres", SCHEMA, "delete users with their email")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictsOldestQuestionsBeyondCapacity() {
+        QuestionSimilarityIndex index = new QuestionSimilarityIndex(configuration(0.85, 2));
+
+        index.index(TranslationKey.of("postgres", SCHEMA, "show all users"), "SELECT * FROM users");
+        index.index(TranslationKey.of("postgres", SCHEMA, "show all orders"), "SELECT * FROM orders");
+        index.index(TranslationKey.of("postgres", SCHEMA, "count the orders"), "SELECT COUNT(*) FROM orders");
+
+        assertEquals(2, index.size());
+        assertNull(index.findSimilar(TranslationKey.of("postgres", SCHEMA, "list users")));
+        assertEquals("SELECT * FROM orders", index.findSimilar(TranslationKey.of("postgres", SCHEMA, "list orders")));
+
+        Map<String, Object> snapshot = index.getMetricsSnapshot();
+        assertEquals(1L, snapshot.get("evictions"));
+        assertEquals(1L, snapshot.get("matches"));
+    }
+
+    private RosettixConfiguration configuration(double threshold, int maxEntries) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getSimilarity().setEnabled(true);
+        configuration.getSimilarity().setThreshold(threshold);
+        configuration.getSimilarity().setMaxEntries(maxEntries);
+        return configuration;
+    }
+}
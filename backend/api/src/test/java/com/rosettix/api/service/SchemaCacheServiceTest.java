@@ -3,9 +3,7 @@ package com.rosettix.api.service;
 import com.rosettix.api.config.RosettixConfiguration;
 import org.junit.jupiter.api.Test;
 
-import java.time.Clock;
 import java.time.Instant;
-import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -193,31 +191,4 @@ class SchemaCacheServiceTest {
             throw new IllegalStateException("Interrupted while simulating schema fetch", e);
         }
     }
-
-    private static final class MutableClock extends Clock {
-        private Instant instant;
-
-        private MutableClock(Instant instant) {
-            this.instant = instant;
-        }
-
-        @Override
-        public ZoneOffset getZone() {
-            return ZoneOffset.UTC;
-        }
-
-        @Override
-        public Clock withZone(java.time.ZoneId zone) {
-            return this;
-        }
-
-        @Override
-        public Instant instant() {
-            return instant;
-        }
-
-        private void advanceSeconds(long seconds) {
-            instant = instant.plusSeconds(seconds);
-        }
-    }
 }
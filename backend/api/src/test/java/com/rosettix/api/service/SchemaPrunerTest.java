@@ -0,0 +1,84 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.RosettixConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaPrunerTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsRelevantTablesAndTheirForeignKeyNeighbours() {
+        SchemaPruner pruner = new SchemaPruner(configuration(3));
+        String schema = largeSchema(600);
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", schema);
+
+        String pruned = pruner.prune("show the orders placed by client Alice", schema, postgres);
+
+        assertTrue(pruned.contains("orders(id, customer_id, placed_at, total); "));
+        assertTrue(pruned.contains("customers(id, name, email); "));
+        assertTrue(pruned.contains("order_items(id, order_id, product_id, quantity); "));
+        assertFalse(pruned.contains("audit_table_17("));
+        assertTrue(pruned.length() * 20 < schema.length());
+
+        Map<String, Object> postgresStats = (Map<String, Object>) ((Map<String, Object>) pruner.getMetricsSnapshot().get("databases")).get("postgres");
+        assertEquals(1L, postgresStats.get("pruned_prompts"));
+        assertTrue((Double) postgresStats.get("schema_token_reduction_percent") > 95.0);
+    }
+
+    @Test
+    void includesDeclaredRelationships() {
+        SchemaPruner pruner = new SchemaPruner(configuration(1));
+        String schema = largeSchema(30) + "warehouses(id, city); ";
+        StubQueryStrategy postgres = new StubQueryStrategy("postgres", schema) {
+            @Override
+            public Map<String, Set<String>> getTableRelationships() {
+                return Map.of("products", Set.of("warehouses"));
+            }
+        };
+
+        String pruned = pruner.prune("list products with their price", schema, postgres);
+
+        assertTrue(pruned.contains("products(id, name, price); "));
+        assertTrue(pruned.contains("warehouses(id, city); "));
+        assertFalse(pruned.contains("customers("));
+    }
+
+    @Test
+    void sendsFullSchemaWhenPruningCannotHelp() {
+        SchemaPruner pruner = new SchemaPruner(configuration(3));
+        String smallSchema = "users(id, email); orders(id, user_id); ";
+        String redisSchema = "users:1(string): value=\"Alice\"; ";
+        String schema = largeSchema(600);
+
+        assertEquals(smallSchema, pruner.prune("show all users", smallSchema, new StubQueryStrategy("postgres", smallSchema)));
+        assertEquals(redisSchema, pruner.prune("get user 1", redisSchema, new StubQueryStrategy("redis", redisSchema)));
+        assertEquals(schema, pruner.prune("how is the weather", schema, new StubQueryStrategy("postgres", schema)));
+    }
+
+    private String largeSchema(int tables) {
+        StringBuilder schema = new StringBuilder()
+                .append("customers(id, name, email); ")
+                .append("orders(id, customer_id, placed_at, total); ")
+                .append("order_items(id, order_id, product_id, quantity); ")
+                .append("products(id, name, price); ");
+        for (int i = 4; i < tables; i++) {
+            schema.append("audit_table_").append(i).append("(id, created_at, payload_").append(i).append("); ");
+        }
+        return schema.toString();
+    }
+
+    private RosettixConfiguration configuration(int topK) {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getSchemaPruning().setEnabled(true);
+        configuration.getSchemaPruning().setTopK(topK);
+        configuration.getSchemaPruning().setMinTables(20);
+        return configuration;
+    }
+}
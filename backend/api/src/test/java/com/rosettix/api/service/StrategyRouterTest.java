@@ -0,0 +1,305 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.config.ExecutorConfig;
+import com.rosettix.api.config.RosettixConfiguration;
+import com.rosettix.api.exception.QueryException;
+import com.rosettix.api.strategy.QueryStrategy;
+import com.rosettix.api.strategy.RedisStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StrategyRouterTest {
+
+    private static final StubQueryStrategy POSTGRES = new StubQueryStrategy("postgres",
+            "customers(id, name, email, city); orders(id, customer_id, total, status, placed_at); "
+                    + "order_items(id, order_id, product_id, quantity); products(id, name, price, category); "
+                    + "invoices(id, order_id, amount, due_date); employees(id, name, department, salary); ");
+    private static final StubQueryStrategy MONGO = new StubQueryStrategy("mongodb",
+            "reviews(_id, productId, rating, comment, author); sessions(_id, userAgent, ip, startedAt); "
+                    + "events(_id, type, payload, timestamp); articles(_id, title, body, tags, authorName); "
+                    + "comments(_id, articleId, text, likes); ");
+    private static final RedisStrategy REDIS_VOCABULARY = new RedisStrategy(mock(StringRedisTemplate.class), mock(SchemaCacheService.class));
+    private static final StubQueryStrategy REDIS = new StubQueryStrategy("redis",
+            "cart:42(hash): fields=[product_id, quantity]; leaderboard(zset): members=[ann:120]; "
+                    + "rate_limit:10.0.0.1(string): value=\"5\"; feature_flag:dark_mode(string): value=\"on\"; "
+                    + "page_views:home(string): value=\"900\"; ") {
+        @Override
+        public Map<String, List<String>> getSchemaVocabulary(String schema) {
+            return REDIS_VOCABULARY.getSchemaVocabulary(schema);
+        }
+    };
+    private static final Map<String, QueryStrategy> STRATEGIES = Map.of(
+            "postgres", POSTGRES, "mongodb", MONGO, "redis", REDIS
+    );
+
+    private static final Map<String, String> LABELLED_QUESTIONS = Map.ofEntries(
+            Map.entry("list customers in Berlin", "postgres"),
+            Map.entry("total of orders placed after 2024-01-01", "postgres"),
+            Map.entry("products in category 'books'", "postgres"),
+            Map.entry("employees in the sales department", "postgres"),
+            Map.entry("unpaid invoices due this month", "postgres"),
+            Map.entry("average salary per department", "postgres"),
+            Map.entry("which customers have the most orders", "postgres"),
+            Map.entry("reviews with rating below 3", "mongodb"),
+            Map.entry("articles tagged 'java'", "mongodb"),
+            Map.entry("comments with more than 10 likes", "mongodb"),
+            Map.entry("sessions started today", "mongodb"),
+            Map.entry("events of type 'click'", "mongodb"),
+            Map.entry("articles by author 'Ann'", "mongodb"),
+            Map.entry("average rating of reviews", "mongodb"),
+            Map.entry("what is in cart 42", "redis"),
+            Map.entry("top 10 of the leaderboard", "redis"),
+            Map.entry("is the dark mode feature flag on", "redis"),
+            Map.entry("page views of the home page", "redis"),
+            Map.entry("rate limit for 10.0.0.1", "redis"),
+            Map.entry("how many keys are stored in redis", "redis"),
+            Map.entry("count the documents in mongo", "mongodb")
+    );
+
+    @Test
+    void routesLabelledQuestionsToTheirDatabase() {
+        RosettixConfiguration configuration = configuration();
+        configuration.getRouting().setParallelTopTwo(false);
+        StrategyRouter router = new StrategyRouter(STRATEGIES, configuration);
+
+        for (Map.Entry<String, String> labelled : LABELLED_QUESTIONS.entrySet()) {
+            assertEquals(labelled.getValue(), router.route(labelled.getKey()).strategyName(), labelled.getKey());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @SuppressWarnings("unchecked")
+    void reportsRoutingAccuracyAgainstTheDefaultStrategy() {
+        RosettixConfiguration configuration = configuration();
+        configuration.getRouting().setParallelTopTwo(false);
+        StrategyRouter router = new StrategyRouter(STRATEGIES, configuration);
+
+        int correct = 0;
+        int baselineCorrect = 0;
+        for (Map.Entry<String, String> labelled : LABELLED_QUESTIONS.entrySet()) {
+            correct += router.route(labelled.getKey()).strategyName().equals(labelled.getValue()) ? 1 : 0;
+            baselineCorrect += configuration.getDefaultStrategy().equals(labelled.getValue()) ? 1 : 0;
+        }
+
+        // Every question the default strategy gets wrong costs a failed LLM round trip before the retry
+        double accuracy = (double) correct / LABELLED_QUESTIONS.size();
+        double baselineAccuracy = (double) baselineCorrect / LABELLED_QUESTIONS.size();
+        Map<String, Object> routingTime = (Map<String, Object>) router.getMetricsSnapshot().get("routing_time");
+        long llmRoundTripMillis = configuration.getLlm().getOffline().getLatencyMillis();
+        System.out.printf(
+                "questions=%d routing_accuracy=%.2f default_strategy_accuracy=%.2f routing_p99_ms=%.3f llm_round_trips_saved=%d saved_ms=%d%n",
+                LABELLED_QUESTIONS.size(),
+                accuracy,
+                baselineAccuracy,
+                (Double) routingTime.get("p99_ms"),
+                correct - baselineCorrect,
+                (correct - baselineCorrect) * llmRoundTripMillis
+        );
+        assertTrue(accuracy > baselineAccuracy);
+    }
+
+    @Test
+    void fallsBackToDefaultStrategyWhenNothingMatches() {
+        StrategyRouter router = new StrategyRouter(STRATEGIES, configuration());
+
+        StrategyRouter.Route route = router.route("hello there");
+
+        assertTrue(route.fallback());
+        assertEquals("postgres", route.strategyName());
+        assertNull(route.runnerUp());
+        assertEquals(1L, router.getMetricsSnapshot().get("default_fallbacks"));
+    }
+
+    @Test
+    void runnerUpAnswersWhenTheBestCandidateFails() {
+        RosettixConfiguration configuration = configuration();
+        StrategyRouter router = new StrategyRouter(STRATEGIES, configuration);
+        // "reviews" is a Mongo collection and "customers" a Postgres table, so both score the same
+        String question = "reviews written by customers";
+        StrategyRouter.Route route = router.route(question);
+        assertEquals(Set.of("mongodb", "postgres"), Set.of(route.strategyName(), route.runnerUp()));
+
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq(question), eq(strategy(route.strategyName())), any()))
+                .thenThrow(new QueryException("bad translation", route.strategyName(), QueryException.ErrorType.LLM_ERROR));
+        when(llmService.generateQuery(eq(question), eq(strategy(route.runnerUp())), any())).thenReturn("SELECT * FROM reviews");
+
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(2);
+        try {
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, STRATEGIES, configuration, queryExecutor, queryExecutor, new PipelineMetrics(new SimpleMeterRegistry()), router,
+                    new PageTokenCodec(configuration), new QueryResultCache(configuration)
+            );
+            OrchestratorService.RoutedResult result = orchestratorService.processRoutedQuery(
+                    question, LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE)
+            );
+
+            assertEquals(route.runnerUp(), result.strategyName());
+            assertEquals(1, result.results().size());
+            assertEquals(1L, router.getMetricsSnapshot().get("runner_up_rescues"));
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void bestAnswerCancelsTheRunnerUpAndKeepsItsCostOutOfTheRequest() throws Exception {
+        RosettixConfiguration configuration = configuration();
+        String question = "reviews written by customers";
+        StrategyRouter.Route route = new StrategyRouter(STRATEGIES, configuration).route(question);
+        StubQueryStrategy slowRunnerUp = new StubQueryStrategy(route.runnerUp(), strategy(route.runnerUp()).getSchemaRepresentation()) {
+            @Override
+            public List<Map<String, Object>> executeQuery(String query) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of(Map.of("id", 1), Map.of("id", 2));
+            }
+        };
+        Map<String, QueryStrategy> strategies = new HashMap<>(STRATEGIES);
+        strategies.put(route.runnerUp(), slowRunnerUp);
+        StrategyRouter router = new StrategyRouter(strategies, configuration);
+
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq(question), any(), any())).thenReturn("SELECT * FROM reviews");
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(2);
+        try {
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, strategies, configuration, queryExecutor, queryExecutor, new PipelineMetrics(new SimpleMeterRegistry()), router,
+                    new PageTokenCodec(configuration), new QueryResultCache(configuration)
+            );
+            LlmRequestContext context = LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE);
+            OrchestratorService.RoutedResult result = orchestratorService.processRoutedQuery(question, context);
+
+            assertEquals(route.strategyName(), result.strategyName());
+            // Cancelled before it started or interrupted in its query, either way it is not left running
+            queryExecutor.shutdown();
+            assertTrue(queryExecutor.awaitTermination(1, TimeUnit.SECONDS));
+            assertEquals(result.results().size(), context.getCost().getRows());
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void speculativeModeReturnsTheFirstAnswerAndCancelsTheRest() throws Exception {
+        RosettixConfiguration configuration = configuration();
+        configuration.getRouting().setSpeculative(true);
+        CountDownLatch slowBranchInterrupted = new CountDownLatch(1);
+        StubQueryStrategy slowPostgres = new StubQueryStrategy("postgres", POSTGRES.getSchemaRepresentation()) {
+            @Override
+            public List<Map<String, Object>> executeQuery(String query) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    slowBranchInterrupted.countDown();
+                    Thread.currentThread().interrupt();
+                }
+                return List.of(Map.of("id", 1), Map.of("id", 2));
+            }
+        };
+        Map<String, QueryStrategy> strategies = Map.of("postgres", slowPostgres, "mongodb", MONGO, "redis", REDIS);
+        StrategyRouter router = new StrategyRouter(strategies, configuration);
+
+        StrategyRouter.Route unmatched = router.route("hello there");
+        assertEquals(List.of("postgres", "mongodb", "redis"), unmatched.strategyNames());
+        assertTrue(unmatched.speculative());
+
+        String question = "reviews written by customers";
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq(question), any(), any())).thenReturn("SELECT * FROM reviews");
+        ExecutorService queryExecutor = Executors.newFixedThreadPool(3);
+        try {
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, strategies, configuration, queryExecutor, queryExecutor, new PipelineMetrics(new SimpleMeterRegistry()), router,
+                    new PageTokenCodec(configuration), new QueryResultCache(configuration)
+            );
+
+            LlmRequestContext context = LlmRequestContext.of("key-a", LlmRequestContext.Priority.INTERACTIVE);
+            long startNanos = System.nanoTime();
+            OrchestratorService.RoutedResult result = orchestratorService.processRoutedQuery(question, context);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+            assertEquals("mongodb", result.strategyName());
+            assertTrue(elapsedMillis < 5_000, "took " + elapsedMillis + " ms");
+            assertTrue(slowBranchInterrupted.await(1, TimeUnit.SECONDS));
+            Map<String, Object> metrics = router.getMetricsSnapshot();
+            assertEquals(1L, metrics.get("speculative_queries"));
+            assertEquals(2L, metrics.get("speculative_branches"));
+            assertEquals(1L, metrics.get("cancelled_branches"));
+            assertEquals(1L, metrics.get("wasted_branches"));
+            // Only the winning branch's work is in the request's cost
+            assertEquals(result.results().size(), context.getCost().getRows());
+        } finally {
+            queryExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void speculativeQueriesCompleteWhenTheyFillASmallPlatformPool() throws Exception {
+        RosettixConfiguration configuration = configuration();
+        configuration.getRouting().setSpeculative(true);
+        configuration.getAsync().setVirtualThreads(false);
+        configuration.getAsync().setMaxPlatformThreads(2);
+        StrategyRouter router = new StrategyRouter(STRATEGIES, configuration);
+        String question = "reviews written by customers";
+        LlmService llmService = mock(LlmService.class);
+        when(llmService.generateQuery(eq(question), any(), any())).thenReturn("SELECT * FROM reviews");
+
+        ExecutorService queryExecutor = ExecutorConfig.createExecutor("test-query-", configuration.getAsync());
+        ExecutorService branchExecutor = ExecutorConfig.createExecutor("test-branch-", configuration.getAsync());
+        try {
+            OrchestratorService orchestratorService = new OrchestratorService(
+                    llmService, STRATEGIES, configuration, queryExecutor, branchExecutor, new PipelineMetrics(new SimpleMeterRegistry()), router,
+                    new PageTokenCodec(configuration), new QueryResultCache(configuration)
+            );
+            // Every query thread waits on its branches; were they queued on the same pool, none could run
+            List<CompletableFuture<OrchestratorService.RoutedResult>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                results.add(orchestratorService.processRoutedQueryAsync(
+                        question, LlmRequestContext.of("key-" + i, LlmRequestContext.Priority.INTERACTIVE)));
+            }
+
+            for (CompletableFuture<OrchestratorService.RoutedResult> result : results) {
+                assertEquals(1, result.get(10, TimeUnit.SECONDS).results().size());
+            }
+        } finally {
+            queryExecutor.shutdownNow();
+            branchExecutor.shutdownNow();
+        }
+    }
+
+    private static QueryStrategy strategy(String strategyName) {
+        return STRATEGIES.get(strategyName);
+    }
+
+    private RosettixConfiguration configuration() {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getRouting().setEnabled(true);
+        return configuration;
+    }
+}
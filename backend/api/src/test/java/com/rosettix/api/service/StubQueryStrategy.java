@@ -0,0 +1,58 @@
+package com.rosettix.api.service;
+
+import com.rosettix.api.strategy.QueryStrategy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StubQueryStrategy implements QueryStrategy {
+
+    private final String strategyName;
+    private final String schema;
+    private final long executionMillis;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    public StubQueryStrategy(String strategyName, String schema) {
+        this(strategyName, schema, 0);
+    }
+
+    public StubQueryStrategy(String strategyName, String schema, long executionMillis) {
+        this.strategyName = strategyName;
+        this.schema = schema;
+        this.executionMillis = executionMillis;
+    }
+
+    @Override
+    public String getSchemaRepresentation() {
+        return schema;
+    }
+
+    @Override
+    public String getQueryLanguage() {
+        return "PostgreSQL";
+    }
+
+    @Override
+    public List<Map<String, Object>> executeQuery(String query) {
+        executions.incrementAndGet();
+        if (executionMillis > 0) {
+            try {
+                Thread.sleep(executionMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating execution", e);
+            }
+        }
+        return List.of(Map.of("query", query));
+    }
+
+    @Override
+    public String getStrategyName() {
+        return strategyName;
+    }
+
+    public int getExecutions() {
+        return executions.get();
+    }
+}
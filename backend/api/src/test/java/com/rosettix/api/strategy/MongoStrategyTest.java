@@ -7,6 +7,7 @@ import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.ListCollectionNamesIterable;
 import com.rosettix.api.config.RosettixConfiguration;
 import com.rosettix.api.service.InMemorySchemaCacheStore;
+import com.rosettix.api.service.QueryAdmissionGuard;
 import com.rosettix.api.service.SchemaCacheService;
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
@@ -15,8 +16,12 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -55,7 +60,7 @@ class MongoStrategyTest {
                 configuration,
                 new InMemorySchemaCacheStore(Clock.systemUTC())
         );
-        MongoStrategy strategy = new MongoStrategy(mongoTemplate, schemaCacheService);
+        MongoStrategy strategy = new MongoStrategy(mongoTemplate, schemaCacheService, new QueryAdmissionGuard(new RosettixConfiguration()), new RosettixConfiguration());
 
         String first = strategy.getSchemaRepresentation();
         String second = strategy.getSchemaRepresentation();
@@ -65,4 +70,70 @@ class MongoStrategyTest {
         verify(mongoDatabase, times(1)).listCollectionNames();
         verify(mongoCollection, times(1)).find();
     }
+
+    @Test
+    void summarizesTheWinningPlanStages() {
+        QueryPlan plan = MongoStrategy.planOf(Document.parse("""
+                {"queryPlanner": {"namespace": "shop.orders",
+                  "winningPlan": {"stage": "FETCH", "inputStage": {"stage": "IXSCAN", "indexName": "status_1"}}},
+                 "ok": 1}
+                """));
+        assertEquals("FETCH > IXSCAN", plan.summary());
+        assertNull(plan.estimatedCost());
+
+        QueryPlan slotBasedPlan = MongoStrategy.planOf(Document.parse("""
+                {"queryPlanner": {"winningPlan": {"queryPlan": {"stage": "COLLSCAN"}, "slotBasedPlan": {}}}, "ok": 1}
+                """));
+        assertEquals("COLLSCAN", slotBasedPlan.summary());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void boundsUnlimitedFindByTheConfiguredLimits() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> mongoCollection = mock(MongoCollection.class);
+        FindIterable<Document> findIterable = mock(FindIterable.class);
+        when(mongoTemplate.getCollection("users")).thenReturn(mongoCollection);
+        when(mongoCollection.find(new Document())).thenReturn(findIterable);
+        when(findIterable.limit(51)).thenReturn(findIterable);
+        when(findIterable.maxTime(30, TimeUnit.SECONDS)).thenReturn(findIterable);
+        when(findIterable.into(org.mockito.ArgumentMatchers.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getQuery().setMaxResultSize(50);
+        MongoStrategy strategy = new MongoStrategy(mongoTemplate, mock(SchemaCacheService.class), new QueryAdmissionGuard(configuration), configuration);
+
+        assertTrue(strategy.executeQuery("db.users.find({})").isEmpty());
+
+        verify(findIterable).limit(51);
+        verify(findIterable).maxTime(30, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void boundsStreamedFindByTheTimeout() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> mongoCollection = mock(MongoCollection.class);
+        FindIterable<Document> findIterable = mock(FindIterable.class);
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(mongoTemplate.getCollection("users")).thenReturn(mongoCollection);
+        when(mongoCollection.find(new Document())).thenReturn(findIterable);
+        when(findIterable.batchSize(org.mockito.ArgumentMatchers.anyInt())).thenReturn(findIterable);
+        when(findIterable.maxTime(30, TimeUnit.SECONDS)).thenReturn(findIterable);
+        when(findIterable.iterator()).thenReturn(cursor);
+        MongoStrategy strategy = new MongoStrategy(mongoTemplate, mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()), new RosettixConfiguration());
+
+        assertEquals(0L, strategy.executeQueryStreaming("db.users.find({})", new QueryLimits(0, 30), row -> true));
+
+        verify(findIterable).maxTime(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void recognizesBalancedCallInStreamedAnswer() {
+        MongoStrategy strategy = new MongoStrategy(mock(MongoTemplate.class), mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()), new RosettixConfiguration());
+
+        assertFalse(strategy.isCompleteQuery("db.users.find({\"name\": \"a)\""));
+        assertFalse(strategy.isCompleteQuery("db.users.find({\"age\": {\"$gt\": 3}"));
+        assertTrue(strategy.isCompleteQuery("db.users.find({\"name\": \"a)\"})"));
+        assertTrue(strategy.isCompleteQuery("```mongodb\ndb.users.count({})"));
+    }
 }
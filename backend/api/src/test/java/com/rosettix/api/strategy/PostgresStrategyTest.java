@@ -2,15 +2,28 @@ package com.rosettix.api.strategy;
 
 import com.rosettix.api.config.RosettixConfiguration;
 import com.rosettix.api.service.InMemorySchemaCacheStore;
+import com.rosettix.api.service.QueryAdmissionGuard;
 import com.rosettix.api.service.SchemaCacheService;
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Clock;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -33,7 +46,7 @@ class PostgresStrategyTest {
                 configuration,
                 new InMemorySchemaCacheStore(Clock.systemUTC())
         );
-        PostgresStrategy strategy = new PostgresStrategy(jdbcTemplate, schemaCacheService);
+        PostgresStrategy strategy = new PostgresStrategy(jdbcTemplate, schemaCacheService, new QueryAdmissionGuard(new RosettixConfiguration()));
 
         String first = strategy.getSchemaRepresentation();
         String second = strategy.getSchemaRepresentation();
@@ -42,4 +55,155 @@ class PostgresStrategyTest {
         assertEquals(first, second);
         verify(jdbcTemplate, times(1)).queryForList(org.mockito.ArgumentMatchers.anyString());
     }
+
+    @Test
+    void findsTablesReadAndWrittenByQueries() {
+        PostgresStrategy strategy = new PostgresStrategy(mock(JdbcTemplate.class), mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        assertEquals(Set.of("orders", "users", "order_items"), strategy.findQueryTargets(
+                "SELECT u.name, count(*) FROM public.orders o, users AS u JOIN \"Order_Items\" i ON i.order_id = o.id "
+                        + "WHERE o.user_id = u.id AND o.id IN (1, 2) GROUP BY u.name"));
+        assertEquals(Set.of("orders", "archive"), strategy.findQueryTargets(
+                "SELECT * FROM ONLY orders WHERE id NOT IN (SELECT order_id FROM archive)"));
+        assertEquals(Set.of("users"), strategy.findQueryTargets("UPDATE users SET email = 'a@b.c' WHERE id = 1"));
+        assertEquals(Set.of("users"), strategy.findQueryTargets("INSERT INTO users (email) VALUES ('a@b.c')"));
+        assertEquals(Set.of("users"), strategy.findQueryTargets("DELETE FROM users WHERE id = 1"));
+        assertTrue(strategy.findQueryTargets("SELECT now()").isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appliesRowLimitAndTimeoutOnTheStatement() throws SQLException {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement("SELECT * FROM users")).thenReturn(statement);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            return List.of(Map.of("id", 1), Map.of("id", 2), Map.of("id", 3));
+        });
+        PostgresStrategy strategy = new PostgresStrategy(jdbcTemplate, mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        QueryResult result = strategy.executeQuery("SELECT * FROM users", new QueryLimits(2, 30));
+
+        verify(statement).setMaxRows(3);
+        verify(statement).setQueryTimeout(30);
+        assertEquals(2, result.rows().size());
+        assertTrue(result.truncated());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void wrapsAnExpensiveReadInALimitBeforeRunningIt() throws SQLException {
+        RosettixConfiguration configuration = new RosettixConfiguration();
+        configuration.getAdmission().setEnabled(true);
+        configuration.getAdmission().getPostgres().setMaxEstimatedCost(1000);
+        configuration.getAdmission().getPostgres().setLimitRows(10);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(any(String.class))).thenReturn(statement);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class))).thenReturn(
+                "[{\"Plan\": {\"Node Type\": \"Nested Loop\", \"Total Cost\": 90000.0, \"Plan Rows\": 4000000}}]",
+                "[{\"Plan\": {\"Node Type\": \"Limit\", \"Total Cost\": 0.45, \"Plan Rows\": 11}}]"
+        );
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            return List.of(Map.of("id", 1));
+        });
+        PostgresStrategy strategy = new PostgresStrategy(jdbcTemplate, mock(SchemaCacheService.class), new QueryAdmissionGuard(configuration));
+
+        QueryResult result = strategy.executeQuery("SELECT * FROM orders CROSS JOIN users", new QueryLimits(100, 30));
+
+        verify(connection).prepareStatement("SELECT * FROM (SELECT * FROM orders CROSS JOIN users) AS rosettix_admitted LIMIT 11");
+        verify(statement).setMaxRows(11);
+        assertEquals(1, result.rows().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pagesAnUnorderedReadInADeterministicOrder() throws SQLException {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(any(String.class))).thenReturn(statement);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            return List.of(Map.of("id", 1));
+        });
+        PostgresStrategy strategy = new PostgresStrategy(jdbcTemplate, mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        strategy.executePage("SELECT * FROM users", "20", new QueryLimits(10, 30));
+        strategy.executePage("SELECT * FROM users ORDER BY id", "20", new QueryLimits(10, 30));
+
+        verify(connection).prepareStatement("SELECT * FROM (SELECT * FROM users) AS rosettix_page ORDER BY rosettix_page::text OFFSET 20 LIMIT 11");
+        verify(connection).prepareStatement("SELECT * FROM (SELECT * FROM users ORDER BY id) AS rosettix_page OFFSET 20 LIMIT 11");
+    }
+
+    @Test
+    void findsOnlyTopLevelOrderBy() {
+        assertTrue(PostgresStrategy.hasTopLevelOrderBy("SELECT * FROM users ORDER\n  BY email DESC"));
+        assertTrue(PostgresStrategy.hasTopLevelOrderBy("SELECT id FROM (SELECT * FROM users) u order by id"));
+        assertFalse(PostgresStrategy.hasTopLevelOrderBy("SELECT * FROM (SELECT * FROM users ORDER BY id LIMIT 5) u"));
+        assertFalse(PostgresStrategy.hasTopLevelOrderBy("SELECT id, rank() OVER (ORDER BY total) FROM orders"));
+        assertFalse(PostgresStrategy.hasTopLevelOrderBy("SELECT * FROM notes WHERE body = 'order by me' AND \"sort order\" = 1"));
+        assertFalse(PostgresStrategy.hasTopLevelOrderBy("SELECT border, bylaw FROM towns"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamsInAReadOnlyTransactionUnderTheTimeout() throws SQLException {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement("SELECT * FROM users", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(
+                invocation -> invocation.<ConnectionCallback<Long>>getArgument(0).doInConnection(connection));
+        PostgresStrategy strategy = new PostgresStrategy(jdbcTemplate, mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        assertEquals(0L, strategy.executeQueryStreaming("SELECT * FROM users", new QueryLimits(0, 30), row -> true));
+
+        verify(connection).setReadOnly(true);
+        verify(statement).setQueryTimeout(30);
+        verify(connection).rollback();
+        verify(connection).setReadOnly(false);
+        verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    void dropsCommentsBeforeWrappingAQueryAsASubquery() {
+        assertEquals("SELECT * FROM orders CROSS JOIN users",
+                PostgresStrategy.asSubquery("SELECT * FROM orders CROSS JOIN users -- every pair"));
+        assertEquals("SELECT id \nFROM users   WHERE note = '-- kept' AND \"a--b\" = 1",
+                PostgresStrategy.asSubquery("SELECT id -- the key\nFROM users /* all */ WHERE note = '-- kept' AND \"a--b\" = 1;\n"));
+    }
+
+    @Test
+    void summarizesTheTopNodeOfAJsonPlan() {
+        QueryPlan plan = PostgresStrategy.parsePlan("""
+                [{"Plan": {"Node Type": "Hash Join", "Total Cost": 215.5, "Plan Rows": 1200,
+                  "Plans": [{"Node Type": "Seq Scan", "Relation Name": "orders", "Total Cost": 120.0, "Plan Rows": 5000}]}}]
+                """);
+        assertEquals("Hash Join", plan.summary());
+        assertEquals(215.5, plan.estimatedCost());
+        assertEquals(1200.0, plan.estimatedRows());
+
+        QueryPlan scan = PostgresStrategy.parsePlan("""
+                [{"Plan": {"Node Type": "Seq Scan", "Relation Name": "users", "Total Cost": 12.75, "Plan Rows": 40}}]
+                """);
+        assertEquals("Seq Scan on users", scan.summary());
+    }
+
+    @Test
+    void recognizesTerminatedStatementInStreamedAnswer() {
+        PostgresStrategy strategy = new PostgresStrategy(mock(JdbcTemplate.class), mock(SchemaCacheService.class), new QueryAdmissionGuard(new RosettixConfiguration()));
+
+        assertFalse(strategy.isCompleteQuery("SELECT * FROM users WHERE name = 'a;"));
+        assertFalse(strategy.isCompleteQuery("```sql\nSELECT * FROM users"));
+        assertTrue(strategy.isCompleteQuery("SELECT * FROM users WHERE name = 'a;b';"));
+        assertTrue(strategy.isCompleteQuery("```sql\nSELECT * FROM users\n```"));
+    }
 }
@@ -13,15 +13,19 @@ import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.core.ZSetOperations;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -111,6 +115,79 @@ class RedisStrategyTest {
         verify(valueOperations).set("user:1", "Alice");
     }
 
+    @Test
+    void streamsListRangesInChunksUntilTheSinkStops() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ListOperations<String, String> listOperations = mock(ListOperations.class);
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(listOperations.size("events")).thenReturn(1200L);
+        when(listOperations.range(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(1);
+            long to = invocation.getArgument(2);
+            return LongStream.rangeClosed(from, to).mapToObj(i -> "event-" + i).toList();
+        });
+
+        RedisStrategy strategy = new RedisStrategy(redisTemplate, cacheService());
+
+        List<Map<String, Object>> all = new ArrayList<>();
+        assertEquals(1200L, strategy.executeQueryStreaming("LRANGE events 0 -1", QueryLimits.NONE, all::add));
+        assertEquals("event-1199", all.get(1199).get("value"));
+        assertEquals(1199L, all.get(1199).get("index"));
+        verify(listOperations).range("events", 0, 499);
+        verify(listOperations).range("events", 1000, 1199);
+
+        List<Map<String, Object>> firstTen = new ArrayList<>();
+        assertEquals(10L, strategy.executeQueryStreaming("LRANGE events 0 -1", QueryLimits.NONE, row -> firstTen.add(row) && firstTen.size() < 10));
+        assertEquals("event-9", firstTen.get(9).get("value"));
+    }
+
+    @Test
+    void capsCollectionReadsAtTheRowLimit() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ListOperations<String, String> listOperations = mock(ListOperations.class);
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(listOperations.size("events")).thenReturn(1200L);
+        when(listOperations.range("events", 0, 10)).thenReturn(LongStream.rangeClosed(0, 10).mapToObj(i -> "event-" + i).toList());
+        when(listOperations.range("events", 1190, 1199)).thenReturn(LongStream.rangeClosed(1190, 1199).mapToObj(i -> "event-" + i).toList());
+
+        RedisStrategy strategy = new RedisStrategy(redisTemplate, cacheService());
+
+        QueryResult capped = strategy.executeQuery("LRANGE events 0 -1", new QueryLimits(10, 30));
+        QueryResult tail = strategy.executeQuery("LRANGE events -10 -1", new QueryLimits(10, 30));
+
+        assertTrue(capped.truncated());
+        assertEquals(10, ((List<?>) capped.rows().get(0).get("values")).size());
+        assertFalse(tail.truncated());
+        assertEquals("event-1199", ((List<?>) tail.rows().get(0).get("values")).get(9));
+    }
+
+    @Test
+    void pagesListRangesByIndex() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ListOperations<String, String> listOperations = mock(ListOperations.class);
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(listOperations.size("events")).thenReturn(25L);
+        when(listOperations.range(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(1);
+            long to = invocation.getArgument(2);
+            return LongStream.rangeClosed(from, to).mapToObj(i -> "event-" + i).toList();
+        });
+
+        RedisStrategy strategy = new RedisStrategy(redisTemplate, cacheService());
+        QueryLimits limits = new QueryLimits(10, 30);
+
+        QueryPage first = strategy.executePage("LRANGE events 5 -1", null, limits);
+        QueryPage second = strategy.executePage("LRANGE events 5 -1", first.nextPosition(), limits);
+
+        assertEquals("event-5", first.rows().get(0).get("value"));
+        assertEquals("15", first.nextPosition());
+        assertEquals(10, second.rows().size());
+        assertFalse(second.hasMore());
+        assertEquals("event-24", second.rows().get(9).get("value"));
+        verify(listOperations).range("events", 5, 15);
+        verify(listOperations).range("events", 15, 24);
+    }
+
     @Test
     void blocksAccessToReservedCacheKeys() {
         RedisStrategy strategy = new RedisStrategy(mock(StringRedisTemplate.class), cacheService());
@@ -125,4 +202,14 @@ class RedisStrategyTest {
         configuration.getSchemaCache().setTtlMinutes(5);
         return new SchemaCacheService(configuration, new InMemorySchemaCacheStore(Clock.systemUTC()));
     }
+
+    @Test
+    void recognizesTerminatedCommandLineInStreamedAnswer() {
+        RedisStrategy strategy = new RedisStrategy(mock(StringRedisTemplate.class), mock(SchemaCacheService.class));
+
+        assertFalse(strategy.isCompleteQuery("```bash\nHGET user:1"));
+        assertFalse(strategy.isCompleteQuery("SET greeting \"hello\nworld"));
+        assertTrue(strategy.isCompleteQuery("```bash\nHGET user:1 name\n"));
+        assertTrue(strategy.isCompleteQuery("SET greeting \"hello\nworld\"\n"));
+    }
 }